@@ -33,8 +33,8 @@ SET JAROUT=labs-jar.out
 SET JARERR=labs-jar.err
 SET DOCDIR=doc
 SET DOCERR=labs-javadoc.err
-SET MAINCLASSSRC=src/TheMysticMaze.java
-SET MAINCLASSBIN=TheMysticMaze
+SET MAINCLASSSRC=src/mysticmaze/TheMysticMaze.java
+SET MAINCLASSBIN=mysticmaze.TheMysticMaze
 
 @echo off
 
@@ -66,23 +66,25 @@ ECHO "[COMPILATION SCRIPT ---------------------]"
 
 :: Step 1 - Compile the Java file
 ECHO "1. Compiling ......................"
-javac -Xlint -cp ".;%SRCDIR%" %MAINCLASSSRC% -d %BINDIR% 2> %BINERR%
+javac -Xlint -cp ".;%SRCDIR%" %MAINCLASSSRC% %SRCDIR%/mysticmaze/AtlasPacker.java -d %BINDIR% 2> %BINERR%
 
-:: Step 2 - Create the JAR file
-ECHO "2. Creating Jar ..................."
+:: Step 2 - Pack the sprites into bin/atlas.bin
+ECHO "2. Packing sprite atlas ..........."
+java -Djava.awt.headless=true -cp %BINDIR% mysticmaze.AtlasPacker %SRCDIR% %BINDIR% 2>> %BINERR%
+
+:: Step 3 - Create the JAR file with the classes, the atlas and the assets
+ECHO "3. Creating Jar ..................."
 cd bin
-jar cvfe ../%JARNAME% %MAINCLASSBIN% -C ../%SRCDIR% . > ../%JAROUT% 2> ../%JARERR%
+jar cvfe ../%JARNAME% %MAINCLASSBIN% . -C ../%SRCDIR% . > ../%JAROUT% 2> ../%JARERR%
 
-:: Step 3 - Generate Javadoc for the single Java file
-ECHO "3. Creating Javadoc ..............."
+:: Step 4 - Generate Javadoc
+ECHO "4. Creating Javadoc ..............."
 cd ..
 javadoc -cp ".;%BINDIR%" -d %DOCDIR% -sourcepath %SRCDIR% %MAINCLASSSRC% 2> %DOCERR%
 
-:: Step 4 - Run the JAR file
-cd bin
-ECHO "4. Running Jar ...................."
+:: Step 5 - Run the JAR file
+ECHO "5. Running Jar ...................."
 start java -jar %JARNAME%
-cd ..
 
 ECHO "[END OF SCRIPT -------------------]"
 ECHO "                                   "
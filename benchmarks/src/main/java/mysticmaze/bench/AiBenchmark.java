@@ -0,0 +1,50 @@
+package mysticmaze.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import mysticmaze.BoardModel;
+import mysticmaze.ComputerPlayer;
+
+/**
+ * Benchmarks the computer player's move search on the standard board. The target is
+ * not on the board, so no search is cut short by an early capture.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AiBenchmark {
+
+    private static final int UNREACHABLE_TARGET = 99;
+
+    @Param({"1", "2"})
+    public int depth;
+
+    private BoardModel board;
+    private ComputerPlayer computer;
+
+    @Setup
+    public void setUp() {
+        board = BoardModel.standard();
+        computer = new ComputerPlayer(depth, 10_000);  // Budget high enough to always finish
+    }
+
+    @Benchmark
+    public ComputerPlayer.Move chooseMove() {
+        return computer.chooseMove(board, 0, UNREACHABLE_TARGET);
+    }
+}
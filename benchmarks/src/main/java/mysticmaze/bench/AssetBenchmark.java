@@ -0,0 +1,77 @@
+package mysticmaze.bench;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import mysticmaze.AssetCache;
+import mysticmaze.SpriteAtlas;
+
+/**
+ * Benchmarks decoding and scaling the image assets, cold (a fresh cache per call) and
+ * warm (served from the cache), against reading the same sprites from the prebuilt atlas.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AssetBenchmark {
+
+    @Param({"/brick_SE.png", "/bluestar.png", "/bg.jpg"})
+    public String path;
+
+    private AssetCache warm;
+
+    @Setup
+    public void setUp() throws IOException {
+        warm = new AssetCache(64L * 1024 * 1024);
+        warm.get(path, 90, 90);
+    }
+
+    @Benchmark
+    public BufferedImage decodeAndScale() throws IOException {
+        return new AssetCache(64L * 1024 * 1024, null).get(path, 90, 90);
+    }
+
+    @Benchmark
+    public BufferedImage cachedLookup() throws IOException {
+        return warm.get(path, 90, 90);
+    }
+
+    /**
+     * Every tile of the board, as the old createGridPanel() loaded them one cell at a time.
+     */
+    @Benchmark
+    public void decodeAllTiles(Blackhole bh) throws IOException {
+        AssetCache cache = new AssetCache(64L * 1024 * 1024, null);
+        for (String tile : Assets.TILES) {
+            bh.consume(cache.get(tile, 90, 90));
+        }
+    }
+
+    /**
+     * Reads the whole atlas from the classpath, as the game does once at startup.
+     */
+    @Benchmark
+    public SpriteAtlas loadAtlas() throws IOException {
+        try (InputStream in = SpriteAtlas.class.getResourceAsStream(SpriteAtlas.RESOURCE)) {
+            return SpriteAtlas.read(in);
+        }
+    }
+}
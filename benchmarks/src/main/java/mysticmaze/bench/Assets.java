@@ -0,0 +1,18 @@
+package mysticmaze.bench;
+
+/**
+ * Classpath names of the assets shared by the benchmarks.
+ */
+final class Assets {
+
+    static final String BACKGROUND = "/bg.jpg";
+
+    static final String[] TILES = {
+            "/brick_SE.png", "/brick_SW.png", "/brick_NE.png", "/brick_NW.png",
+            "/brick_Teast.png", "/brick_Twest.png", "/brick_Tnorth.png", "/brick_Tsouth.png",
+            "/hallway_horiz.png", "/hallway_vert.png", "/brick_cross.png", "/brick_full.png"
+    };
+
+    private Assets() {
+    }
+}
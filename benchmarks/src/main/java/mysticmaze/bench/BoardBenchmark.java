@@ -0,0 +1,106 @@
+package mysticmaze.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import mysticmaze.BoardCanvas;
+import mysticmaze.BoardModel;
+import mysticmaze.GameSnapshot;
+import mysticmaze.GameState;
+
+/**
+ * Benchmarks building the board (the createGridPanel() path) and the board model
+ * operations every turn relies on: copying, hashing and row/column shifts, against the
+ * same shift kept as a new immutable GameSnapshot, as undo history and search nodes do.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+
+    private static final int CELL_SIZE = 90;
+    private static final int[] EDGES = {BoardModel.NORTH, BoardModel.EAST, BoardModel.SOUTH, BoardModel.WEST};
+
+    private BoardModel board;
+    private BoardModel copy;
+    private GameSnapshot snapshot;
+    private int shift;
+
+    @Setup
+    public void setUp() {
+        board = BoardModel.standard();
+        copy = new BoardModel(board);
+        snapshot = GameSnapshot.of(new GameState(BoardModel.standard(), GameState.FIRST_TARGET));
+        new BoardCanvas(board, CELL_SIZE);  // Fill the shared asset cache
+    }
+
+    /**
+     * The standard layout built from scratch.
+     */
+    @Benchmark
+    public BoardModel createModel() {
+        return BoardModel.standard();
+    }
+
+    /**
+     * What createGridPanel() does: build the model and the canvas, with warm assets.
+     */
+    @Benchmark
+    public BoardCanvas createGridPanel() {
+        return new BoardCanvas(BoardModel.standard(), CELL_SIZE);
+    }
+
+    @Benchmark
+    public BoardModel copyBoard() {
+        copy.copyFrom(board);
+        return copy;
+    }
+
+    @Benchmark
+    public long hashBoard() {
+        return board.hash();
+    }
+
+    /**
+     * One insertion, cycling through the four edges and the three movable lines.
+     */
+    @Benchmark
+    public BoardModel shiftLine() {
+        int i = shift++;
+        board.insert(EDGES[i & 3], 1 + 2 * ((i >>> 2) % 3));
+        return board;
+    }
+
+    /**
+     * Keeping the position after a shift the mutable way: a full copy, then the shift.
+     */
+    @Benchmark
+    public BoardModel copyAndShift() {
+        int i = shift++;
+        copy.copyFrom(board);
+        copy.insert(EDGES[i & 3], 1 + 2 * ((i >>> 2) % 3));
+        return copy;
+    }
+
+    /**
+     * The same with a snapshot, which copies only the blocks the line crosses.
+     */
+    @Benchmark
+    public GameSnapshot snapshotShift() {
+        int i = shift++;
+        return snapshot.insert(i & 3, EDGES[i & 3], 1 + 2 * ((i >>> 2) % 3));
+    }
+}
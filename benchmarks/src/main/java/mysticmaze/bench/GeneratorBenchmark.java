@@ -0,0 +1,50 @@
+package mysticmaze.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import mysticmaze.BoardModel;
+import mysticmaze.MazeGenerator;
+
+/**
+ * Benchmarks the board generator: one candidate generated into a reused board and
+ * validated, as a search worker does for every seed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeneratorBenchmark {
+
+    @Param({"7", "21"})
+    public int size;
+
+    private MazeGenerator generator;
+    private BoardModel board;
+    private long seed;
+
+    @Setup
+    public void setUp() {
+        generator = new MazeGenerator(MazeGenerator.Rules.forSize(size));
+        board = generator.newBoard();
+    }
+
+    @Benchmark
+    public boolean generateAndValidate() {
+        generator.generate(seed++, board);
+        return generator.isValid(board);
+    }
+}
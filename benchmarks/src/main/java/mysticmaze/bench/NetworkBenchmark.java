@@ -0,0 +1,111 @@
+package mysticmaze.bench;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import mysticmaze.BoardModel;
+import mysticmaze.GameClient;
+import mysticmaze.GameEngine;
+import mysticmaze.GameServer;
+import mysticmaze.GameState;
+
+/**
+ * Benchmarks a whole turn over loopback: a server with four seated clients, timing
+ * from sending the insert until every client has applied both the insert and the move.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NetworkBenchmark {
+
+    private static final int CLIENTS = 4;
+
+    private GameServer server;
+    private final GameClient[] clients = new GameClient[CLIENTS];
+    private final GameEngine[] mirrors = new GameEngine[CLIENTS];
+    private final Semaphore applied = new Semaphore(0);  // One permit per update applied by a client
+
+    @Setup
+    public void setUp() throws Exception {
+        server = new GameServer(0);
+        server.start();
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort());
+        GameClient.Listener listener = new GameClient.Listener() {
+            @Override
+            public void joined(int table, int seat) {
+            }
+
+            @Override
+            public void stateReplaced() {
+                applied.release();
+            }
+
+            @Override
+            public void inserted(int rotation, int edge, int line) {
+                applied.release();
+            }
+
+            @Override
+            public void moved(int player, int from, int cell, int treasure) {
+                applied.release();
+            }
+
+            @Override
+            public void chatReceived(int sender, String text) {
+            }
+
+            @Override
+            public void rejected(int reason) {
+                throw new IllegalStateException("Request rejected, reason " + reason);
+            }
+
+            @Override
+            public void disconnected(IOException cause) {
+            }
+        };
+        for (int i = 0; i < CLIENTS; i++) {
+            mirrors[i] = new GameEngine(new GameState(BoardModel.standard(), GameState.FIRST_TARGET));
+            clients[i] = GameClient.connect(address, 1, mirrors[i], Runnable::run, listener);
+        }
+        applied.acquire(CLIENTS);  // Everyone has the game
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        for (GameClient client : clients) {
+            client.close();
+        }
+        server.close();
+    }
+
+    /**
+     * One turn: the current player pushes column 1 down and stays where they are.
+     */
+    @Benchmark
+    public void turn() throws Exception {
+        GameState mirror = mirrors[0].getState();
+        int player = mirror.getCurrentPlayer();
+        clients[player].sendInsert(0, BoardModel.NORTH, 1);
+        applied.acquire(CLIENTS);
+        clients[player].sendMove(mirror.getBoard().getPlayerCell(player));
+        applied.acquire(CLIENTS);
+    }
+}
@@ -0,0 +1,65 @@
+package mysticmaze.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import mysticmaze.BoardModel;
+import mysticmaze.Reachability;
+
+/**
+ * Benchmarks the reachability engine: flood fill, incremental update after a shift,
+ * full rebuild and shortest path.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReachabilityBenchmark {
+
+    private BoardModel board;
+    private Reachability reachability;
+    private int[] path;
+    private int start;
+
+    @Setup
+    public void setUp() {
+        board = BoardModel.standard();
+        reachability = new Reachability(board);
+        path = new int[board.getSize() * board.getSize()];
+    }
+
+    @Benchmark
+    public int floodFill() {
+        start = (start + 1) % path.length;
+        return reachability.computeFrom(start);
+    }
+
+    @Benchmark
+    public Reachability lineShifted() {
+        reachability.lineShifted(BoardModel.NORTH, 3);
+        return reachability;
+    }
+
+    @Benchmark
+    public Reachability rebuild() {
+        reachability.rebuild();
+        return reachability;
+    }
+
+    @Benchmark
+    public int shortestPath() {
+        return reachability.shortestPath(board.getPlayerCell(0), board.getPlayerCell(3), path);
+    }
+}
@@ -0,0 +1,108 @@
+package mysticmaze.bench;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import mysticmaze.AssetCache;
+import mysticmaze.BoardCanvas;
+import mysticmaze.BoardModel;
+
+/**
+ * Benchmarks rendering offscreen into a BufferedImage: the board on its own, a single
+ * dirty row, a full 1920x1080 frame with the scaled background behind the board, and a
+ * scroll pane's worth of the middle of the board. Only the last should cost the same on
+ * the largest board as on the standard one.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class RenderBenchmark {
+
+    private static final int CELL_SIZE = 90;
+    private static final int FRAME_WIDTH = 1920;
+    private static final int FRAME_HEIGHT = 1080;
+    private static final int VIEWPORT = 690;  // The standard board and its arrows
+
+    @Param({"7", "101"})
+    public int size;
+
+    private BoardCanvas canvas;
+    private BufferedImage background;
+    private BufferedImage frame;
+    private int boardSize;
+
+    @Setup
+    public void setUp() throws IOException {
+        canvas = new BoardCanvas(BoardModel.sized(size), CELL_SIZE);
+        boardSize = canvas.getPreferredSize().width;
+        canvas.setSize(boardSize, boardSize);
+        background = AssetCache.shared().get(Assets.BACKGROUND);
+        frame = new BufferedImage(FRAME_WIDTH, FRAME_HEIGHT, BufferedImage.TYPE_INT_ARGB_PRE);
+    }
+
+    @Benchmark
+    public BufferedImage paintBoard() {
+        Graphics2D g2 = frame.createGraphics();
+        g2.setClip(0, 0, boardSize, boardSize);
+        canvas.paint(g2);
+        g2.dispose();
+        return frame;
+    }
+
+    /**
+     * What a repaint after one row shift costs.
+     */
+    @Benchmark
+    public BufferedImage paintDirtyRow() {
+        Graphics2D g2 = frame.createGraphics();
+        g2.setClip(0, CELL_SIZE, boardSize, CELL_SIZE);
+        canvas.paint(g2);
+        g2.dispose();
+        return frame;
+    }
+
+    /**
+     * The background scaled to the window, as the background panel paints it, then the board.
+     */
+    @Benchmark
+    public BufferedImage paintFullFrame() {
+        Graphics2D g2 = frame.createGraphics();
+        g2.drawImage(background, 0, 0, FRAME_WIDTH, FRAME_HEIGHT, null);
+        g2.translate((FRAME_WIDTH - boardSize) / 2, (FRAME_HEIGHT - boardSize) / 2);
+        g2.setClip(0, 0, boardSize, boardSize);
+        canvas.paint(g2);
+        g2.dispose();
+        return frame;
+    }
+
+    /**
+     * What a frame of the scroll pane costs, scrolled to the middle of the board.
+     */
+    @Benchmark
+    public BufferedImage paintViewport() {
+        Graphics2D g2 = frame.createGraphics();
+        int origin = (boardSize - VIEWPORT) / 2;
+        g2.translate(-origin, -origin);
+        g2.setClip(origin, origin, VIEWPORT, VIEWPORT);
+        canvas.paint(g2);
+        g2.dispose();
+        return frame;
+    }
+}
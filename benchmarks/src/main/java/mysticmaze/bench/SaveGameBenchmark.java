@@ -0,0 +1,89 @@
+package mysticmaze.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import mysticmaze.BoardModel;
+import mysticmaze.GameState;
+import mysticmaze.SaveGame;
+
+/**
+ * Benchmarks the autosave: journaling a move, writing a full snapshot with a full chat
+ * history, and loading a snapshot plus its journal, opening the files as the game does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SaveGameBenchmark {
+
+    private Path directory;
+    private Path path;
+    private SaveGame save;
+    private GameState state;
+    private GameState loaded;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("savegame-bench");
+        path = directory.resolve("game.mms");
+        save = SaveGame.open(path);
+        state = new GameState(BoardModel.standard(), 3);
+        for (int i = 0; i < GameState.CHAT_HISTORY; i++) {
+            state.addChat("Player: message number " + i + " of the chat history");
+        }
+        loaded = new GameState(BoardModel.standard(), 3);
+        save.writeSnapshot(state);
+        for (int i = 0; i < 100; i++) {
+            save.appendMove(i % 49, 0, 3);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        save.close();
+        try (var files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    /**
+     * One autosaved move; a snapshot is written whenever the journal fills up.
+     */
+    @Benchmark
+    public void appendMove() throws IOException {
+        if (!save.appendMove(24, 0, 3)) {
+            save.writeSnapshot(state);
+        }
+    }
+
+    @Benchmark
+    public void writeSnapshot() throws IOException {
+        save.writeSnapshot(state);
+    }
+
+    @Benchmark
+    public GameState load() throws IOException {
+        SaveGame.load(path, loaded);
+        return loaded;
+    }
+}
@@ -0,0 +1,67 @@
+package mysticmaze.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import mysticmaze.BoardModel;
+import mysticmaze.GameState;
+import mysticmaze.Simulation;
+
+/**
+ * Benchmarks headless games: a batch of complete games on the standard board, on one
+ * thread and on every core.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SimulationBenchmark {
+
+    private static final int GAMES = 100;
+
+    @Param({"greedy", "random"})
+    public String players;
+
+    private Simulation simulation;
+
+    @Setup
+    public void setUp() {
+        List<Supplier<? extends Simulation.Player>> seats = players.equals("greedy")
+                ? List.of(Simulation.GreedyPlayer::new, Simulation.GreedyPlayer::new,
+                          Simulation.GreedyPlayer::new, Simulation.GreedyPlayer::new)
+                : List.of(Simulation.RandomPlayer::new, Simulation.RandomPlayer::new,
+                          Simulation.RandomPlayer::new, Simulation.RandomPlayer::new);
+        simulation = new Simulation(new GameState(BoardModel.standard(), GameState.FIRST_TARGET), seats, 2_000);
+    }
+
+    /**
+     * A batch of {@value #GAMES} games on one thread; the score times {@value #GAMES} is games per second.
+     */
+    @Benchmark
+    public Simulation.Result singleThread() throws InterruptedException {
+        return simulation.run(GAMES, 1, 1);
+    }
+
+    /**
+     * The same batch spread over every core.
+     */
+    @Benchmark
+    public Simulation.Result allCores() throws InterruptedException {
+        return simulation.run(GAMES, Runtime.getRuntime().availableProcessors(), 1);
+    }
+}
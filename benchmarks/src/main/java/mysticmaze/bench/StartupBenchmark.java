@@ -0,0 +1,47 @@
+package mysticmaze.bench;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import mysticmaze.AssetCache;
+import mysticmaze.BoardCanvas;
+import mysticmaze.BoardModel;
+
+/**
+ * Cold time-to-first-frame: every measurement runs once in a fresh JVM and covers
+ * decoding the background and board assets, building the board and painting the
+ * first frame offscreen.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(value = 10, jvmArgsAppend = "-Djava.awt.headless=true")
+public class StartupBenchmark {
+
+    @Benchmark
+    public BufferedImage timeToFirstFrame() throws IOException {
+        BufferedImage background = AssetCache.shared().get(Assets.BACKGROUND);
+        BoardCanvas canvas = new BoardCanvas(BoardModel.standard(), 90);
+        int size = canvas.getPreferredSize().width;
+        canvas.setSize(size, size);
+
+        BufferedImage frame = new BufferedImage(1920, 1080, BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D g2 = frame.createGraphics();
+        g2.drawImage(background, 0, 0, 1920, 1080, null);
+        g2.setClip(0, 0, size, size);
+        canvas.paint(g2);
+        g2.dispose();
+        return frame;
+    }
+}
@@ -0,0 +1,450 @@
+package mysticmaze;
+
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsDevice;
+import java.awt.GraphicsEnvironment;
+import java.awt.Image;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BaseMultiResolutionImage;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.ImageIO;
+import javax.swing.SwingUtilities;
+
+/**
+ * AssetCache decodes every image of the game once and keeps it, together with any
+ * scaled copies requested by the UI, as a BufferedImage in the screen's compatible
+ * format. Images are classpath resources, so the game runs from its jar anywhere.
+ * Sprites present in the {@link SpriteAtlas} at the requested size are sliced from it
+ * without decoding anything. Entries are keyed by (path, width, height) and evicted in
+ * least-recently-used order once the configured memory budget is exceeded. Every miss
+ * is recorded as a {@link JfrEvents.AssetLoad} event. The cache
+ * is safe to use from any thread and decodes outside its lock, so startup can load
+ * several assets in parallel.
+ * <p>
+ * Downscaled copies are built from mipmap levels: the image halved once, twice and so
+ * on, each kept as an ordinary entry, so a new size costs a single bilinear pass from
+ * the nearest level above it. While the window is resized, {@link #getOrNearest} builds
+ * the new sizes on a background thread and hands back the closest size already cached.
+ */
+public final class AssetCache {
+
+    private static final long DEFAULT_BUDGET_BYTES = 48L * 1024 * 1024;  // 48 MB of decoded pixels
+    private static final int NATIVE_SIZE = 0;  // Width/height used in the key of an unscaled image
+    private static final int SCALER_THREADS = 2;
+
+    /**
+     * Holds the shared cache, created on first use so that the scaling helpers can be
+     * used without loading the sprite atlas.
+     */
+    private static final class Holder {
+        static final AssetCache SHARED = new AssetCache(DEFAULT_BUDGET_BYTES);
+    }
+
+    /**
+     * Key of a cached image: the file it was decoded from and its target size.
+     */
+    private record Key(String path, int width, int height) {
+    }
+
+    private final Map<Key, BufferedImage> entries = new LinkedHashMap<>(64, 0.75f, true);  // Access order = LRU
+    private final Map<Key, Set<Runnable>> scheduled = new HashMap<>();  // Sizes being built, with who to tell
+    private final long budgetBytes;
+    private final SpriteAtlas atlas;
+    private long bytesInUse;
+    private ExecutorService scaler;  // Created on the first background request
+
+    /**
+     * Creates a cache backed by the bundled sprite atlas that keeps at most the given
+     * number of bytes of decoded pixels.
+     *
+     * @param budgetBytes Memory budget of the cache in bytes.
+     */
+    public AssetCache(long budgetBytes) {
+        this(budgetBytes, SpriteAtlas.shared());
+    }
+
+    /**
+     * Creates a cache that keeps at most the given number of bytes of decoded pixels.
+     *
+     * @param budgetBytes Memory budget of the cache in bytes.
+     * @param atlas Atlas to take pre-scaled sprites from, or null to always decode.
+     */
+    public AssetCache(long budgetBytes, SpriteAtlas atlas) {
+        this.budgetBytes = budgetBytes;
+        this.atlas = atlas;
+    }
+
+    /**
+     * Returns the cache shared by all panels of the game.
+     *
+     * @return The shared asset cache.
+     */
+    public static AssetCache shared() {
+        return Holder.SHARED;
+    }
+
+    /**
+     * Returns the image stored in the given file at its original size.
+     *
+     * @param path Classpath name of the image, e.g. /bg.jpg.
+     * @return The decoded image.
+     * @throws IOException If the file cannot be read or decoded.
+     */
+    public BufferedImage get(String path) throws IOException {
+        Key key = new Key(path, NATIVE_SIZE, NATIVE_SIZE);
+        BufferedImage image = lookup(key);
+        if (image == null) {
+            JfrEvents.AssetLoad event = new JfrEvents.AssetLoad();
+            event.begin();
+            // Decoded outside the lock so that several threads can load assets at once
+            image = atlas != null ? atlas.find(path, NATIVE_SIZE, NATIVE_SIZE) : null;
+            boolean fromAtlas = image != null;
+            if (image == null) {
+                image = toCompatible(decode(path));
+            }
+            image = store(key, image);
+            commit(event, path, image, fromAtlas);
+        }
+        return image;
+    }
+
+    /**
+     * Returns the image stored in the given file scaled to the given size. The file is
+     * decoded at most once no matter how many sizes are requested, and not at all if the
+     * atlas holds the sprite at that size.
+     *
+     * @param path Classpath name of the image.
+     * @param width Target width in pixels.
+     * @param height Target height in pixels.
+     * @return The scaled image.
+     * @throws IOException If the file cannot be read or decoded.
+     */
+    public BufferedImage get(String path, int width, int height) throws IOException {
+        Key key = new Key(path, width, height);
+        BufferedImage image = lookup(key);
+        if (image == null) {
+            JfrEvents.AssetLoad event = new JfrEvents.AssetLoad();
+            event.begin();
+            image = atlas != null ? atlas.find(path, width, height) : null;
+            boolean fromAtlas = image != null;
+            if (image == null) {
+                BufferedImage source = get(path);
+                image = (source.getWidth() == width && source.getHeight() == height)
+                        ? source : draw(level(path, source, width, height), width, height);
+            }
+            image = store(key, image);
+            commit(event, path, image, fromAtlas);
+        }
+        return image;
+    }
+
+    /**
+     * Returns the image at the given size if it is cached or in the atlas. Otherwise the
+     * size is built on a background thread and the cached size of the same file closest
+     * to it is returned meanwhile, to be drawn stretched until the exact one is ready.
+     *
+     * @param path Classpath name of the image.
+     * @param width Target width in pixels.
+     * @param height Target height in pixels.
+     * @param whenReady Run on the EDT once the exact size is cached, unless it was already.
+     * @return The image at that size, the nearest cached size, or null if the file has not
+     *         been loaded at any size yet.
+     */
+    public BufferedImage getOrNearest(String path, int width, int height, Runnable whenReady) {
+        Key key = new Key(path, width, height);
+        BufferedImage image = lookup(key);
+        if (image == null && atlas != null) {
+            image = atlas.find(path, width, height);  // Slicing is cheap enough for the EDT
+            if (image != null) {
+                image = store(key, image);
+            }
+        }
+        if (image != null) {
+            return image;
+        }
+        boolean first;
+        synchronized (this) {
+            Set<Runnable> waiting = scheduled.get(key);
+            first = waiting == null;
+            if (first) {
+                waiting = new LinkedHashSet<>();  // Callers asking again before it is built are told once
+                scheduled.put(key, waiting);
+            }
+            waiting.add(whenReady);
+        }
+        if (first) {
+            scaler().execute(() -> build(key));
+        }
+        return nearest(path, width, height);
+    }
+
+    private void build(Key key) {
+        Set<Runnable> waiting;
+        try {
+            get(key.path(), key.width(), key.height());
+        } catch (IOException e) {
+            e.printStackTrace();  // Nobody is told, so the nearest size stays in use
+            synchronized (this) {
+                scheduled.remove(key);
+            }
+            return;
+        }
+        synchronized (this) {
+            waiting = scheduled.remove(key);
+        }
+        for (Runnable runnable : waiting) {
+            SwingUtilities.invokeLater(runnable);
+        }
+    }
+
+    private synchronized ExecutorService scaler() {
+        if (scaler == null) {
+            AtomicInteger count = new AtomicInteger();
+            scaler = Executors.newFixedThreadPool(SCALER_THREADS, runnable -> {
+                Thread thread = new Thread(runnable, "asset-scaler-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                thread.setPriority(Thread.NORM_PRIORITY - 1);  // Behind the EDT
+                return thread;
+            });
+        }
+        return scaler;
+    }
+
+    /**
+     * Finds the cached size of a file closest in area to the one wanted, preferring
+     * larger ones, which lose less when stretched.
+     */
+    private synchronized BufferedImage nearest(String path, int width, int height) {
+        BufferedImage best = null;
+        double bestDistance = Double.MAX_VALUE;
+        double wanted = Math.log((double) width * height);
+        for (Map.Entry<Key, BufferedImage> entry : entries.entrySet()) {  // Iterating keeps the LRU order
+            if (!entry.getKey().path().equals(path)) {
+                continue;
+            }
+            BufferedImage image = entry.getValue();
+            double distance = Math.log((double) image.getWidth() * image.getHeight()) - wanted;
+            distance = distance < 0 ? -2 * distance : distance;  // Upscaling blurs, so it counts double
+            if (distance < bestDistance) {
+                best = image;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the smallest mipmap level of the source that is still at least the given
+     * size, building and caching the levels down to it on the way.
+     */
+    private BufferedImage level(String path, BufferedImage source, int width, int height) {
+        BufferedImage current = source;
+        int w = source.getWidth();
+        int h = source.getHeight();
+        while (w / 2 >= width && h / 2 >= height) {
+            w /= 2;
+            h /= 2;
+            Key key = new Key(path, w, h);
+            BufferedImage next = lookup(key);
+            if (next == null) {
+                next = store(key, draw(current, w, h));
+            }
+            current = next;
+        }
+        return current;
+    }
+
+    /**
+     * Returns an image that Java2D draws from the copy matching each screen's scale, for
+     * labels and buttons that must stay sharp on HiDPI screens. The base copy is the
+     * given logical size; copies at the scales of the other attached screens are added.
+     *
+     * @param path Classpath name of the image.
+     * @param width Logical width.
+     * @param height Logical height.
+     * @return The multi-resolution image, or the plain image if every screen is at 1x.
+     * @throws IOException If the file cannot be read or decoded.
+     */
+    public Image getMultiResolution(String path, int width, int height) throws IOException {
+        BufferedImage base = get(path, width, height);
+        List<Image> variants = new ArrayList<>();
+        variants.add(base);
+        for (double scale : screenScales()) {
+            if (scale > 1) {
+                variants.add(get(path, (int) Math.round(width * scale), (int) Math.round(height * scale)));
+            }
+        }
+        return variants.size() == 1 ? base : new BaseMultiResolutionImage(variants.toArray(new Image[0]));
+    }
+
+    /**
+     * @param gc Configuration of the screen a component is on, or null if not shown yet.
+     * @return How many device pixels a logical pixel covers there, e.g. 2 on a 4K screen at 200%.
+     */
+    public static double deviceScale(GraphicsConfiguration gc) {
+        if (gc == null) {
+            gc = GraphicsEnvironment.isHeadless() ? null
+                    : GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+        }
+        return gc == null ? 1 : gc.getDefaultTransform().getScaleX();
+    }
+
+    /**
+     * @param logical A length in logical pixels.
+     * @param scale A device scale, see {@link #deviceScale}.
+     * @return The length in device pixels, at least one.
+     */
+    public static int devicePixels(int logical, double scale) {
+        return Math.max(1, (int) Math.round(logical * scale));
+    }
+
+    private static TreeSet<Double> screenScales() {
+        TreeSet<Double> scales = new TreeSet<>();
+        if (!GraphicsEnvironment.isHeadless()) {
+            for (GraphicsDevice device : GraphicsEnvironment.getLocalGraphicsEnvironment().getScreenDevices()) {
+                scales.add(device.getDefaultConfiguration().getDefaultTransform().getScaleX());
+            }
+        }
+        return scales;
+    }
+
+    /**
+     * Drops every cached image.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        bytesInUse = 0;
+    }
+
+    /**
+     * @return The number of bytes of decoded pixels currently held by the cache.
+     */
+    public synchronized long getBytesInUse() {
+        return bytesInUse;
+    }
+
+    private synchronized BufferedImage lookup(Key key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Adds a freshly loaded image, unless another thread loaded the same one first, in
+     * which case that image is kept and returned so every caller shares one copy.
+     */
+    private synchronized BufferedImage store(Key key, BufferedImage image) {
+        BufferedImage existing = entries.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        entries.put(key, image);
+        bytesInUse += sizeOf(image);
+
+        // Evict the least recently used images until we are back under budget, keeping the newest one
+        Iterator<Map.Entry<Key, BufferedImage>> it = entries.entrySet().iterator();
+        while (bytesInUse > budgetBytes && it.hasNext()) {
+            Map.Entry<Key, BufferedImage> eldest = it.next();
+            if (eldest.getKey().equals(key)) {
+                continue;
+            }
+            bytesInUse -= sizeOf(eldest.getValue());
+            it.remove();
+        }
+        return image;
+    }
+
+    private static void commit(JfrEvents.AssetLoad event, String path, BufferedImage image, boolean fromAtlas) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.path = path;
+            event.width = image.getWidth();
+            event.height = image.getHeight();
+            event.fromAtlas = fromAtlas;
+            event.commit();
+        }
+    }
+
+    private static BufferedImage decode(String path) throws IOException {
+        try (InputStream in = AssetCache.class.getResourceAsStream(path)) {
+            if (in == null) {
+                throw new IOException("Image not found on the classpath: " + path);
+            }
+            BufferedImage image = ImageIO.read(in);
+            if (image == null) {
+                throw new IOException("Unsupported image format: " + path);
+            }
+            return image;
+        }
+    }
+
+    /**
+     * Scales an image with repeated halving followed by a final bilinear pass, which
+     * gives a result comparable to SCALE_SMOOTH at a fraction of its cost.
+     */
+    static BufferedImage scale(BufferedImage source, int width, int height) {
+        BufferedImage current = source;
+        int w = source.getWidth();
+        int h = source.getHeight();
+
+        while (w / 2 >= width && h / 2 >= height) {
+            w /= 2;
+            h /= 2;
+            current = draw(current, w, h);
+        }
+        return draw(current, width, height);
+    }
+
+    private static BufferedImage draw(BufferedImage source, int width, int height) {
+        BufferedImage target = createCompatibleImage(width, height);
+        Graphics2D g2 = target.createGraphics();
+        g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g2.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g2.drawImage(source, 0, 0, width, height, null);
+        g2.dispose();
+        return target;
+    }
+
+    private static BufferedImage toCompatible(BufferedImage image) {
+        BufferedImage compatible = createCompatibleImage(image.getWidth(), image.getHeight());
+        if (compatible.getType() == image.getType() && image.getType() != BufferedImage.TYPE_CUSTOM) {
+            return image;
+        }
+        Graphics2D g2 = compatible.createGraphics();
+        g2.drawImage(image, 0, 0, null);
+        g2.dispose();
+        return compatible;
+    }
+
+    /**
+     * Creates a translucent image in the pixel layout of the default screen so that
+     * drawing it needs no conversion. Falls back to INT_ARGB when running headless.
+     */
+    static BufferedImage createCompatibleImage(int width, int height) {
+        if (GraphicsEnvironment.isHeadless()) {
+            return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+        }
+        GraphicsConfiguration gc = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                .getDefaultScreenDevice().getDefaultConfiguration();
+        return gc.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+    }
+
+    private static long sizeOf(BufferedImage image) {
+        return (long) image.getWidth() * image.getHeight() * 4;
+    }
+}
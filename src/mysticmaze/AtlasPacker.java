@@ -0,0 +1,133 @@
+package mysticmaze;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+/**
+ * AtlasPacker is the build step that packs every sprite of the game, pre-scaled to the
+ * size the UI draws it at, into a single {@link SpriteAtlas}. It is run after
+ * compilation by the Maven build and by F24_JAP_CompileScript.bat:
+ *
+ * <pre>java -Djava.awt.headless=true -cp bin mysticmaze.AtlasPacker src bin</pre>
+ *
+ * The background image is left out: at 2560x1440 it is larger than the rest of the
+ * atlas put together and is loaded on its own.
+ */
+public final class AtlasPacker {
+
+    private static final int SHEET_WIDTH = 1024;
+    private static final int PADDING = 1;  // Keeps filtering from bleeding between sprites
+
+    /**
+     * Sprites to pack: asset name followed by the width and height the UI uses
+     * (0 keeps the original size). Number badges are drawn at runtime by {@link Badges}.
+     */
+    private static final Object[][] SPRITES = {
+            // Board tiles
+            {"/brick_SE.png", 90, 90}, {"/brick_SW.png", 90, 90}, {"/brick_NE.png", 90, 90}, {"/brick_NW.png", 90, 90},
+            {"/brick_Teast.png", 90, 90}, {"/brick_Twest.png", 90, 90}, {"/brick_Tnorth.png", 90, 90},
+            {"/brick_Tsouth.png", 90, 90}, {"/hallway_horiz.png", 90, 90}, {"/hallway_vert.png", 90, 90},
+            {"/brick_cross.png", 90, 90}, {"/brick_full.png", 90, 90},
+            // Player tokens and stars
+            {"/green.png", 30, 30}, {"/blue.png", 30, 30}, {"/yellow.png", 30, 30}, {"/red.png", 30, 30},
+            {"/greenstar.png", 30, 30}, {"/bluestar.png", 30, 30}, {"/yellowstar.png", 30, 30}, {"/redstar.png", 30, 30},
+            // Menu icons, insert arrows and the chat box
+            {"/file.png", 90, 90}, {"/game.png", 90, 90}, {"/network.png", 90, 90}, {"/help.png", 90, 90},
+            {"/language.png", 90, 90},
+            {"/insert down.png", 90, 30}, {"/insert up.png", 90, 30}, {"/insert right.png", 30, 90}, {"/insert left.png", 30, 90},
+            {"/icon.png", 50, 50}, {"/box.png", 0, 0}
+    };
+
+    private AtlasPacker() {
+    }
+
+    /**
+     * Packs the atlas.
+     *
+     * @param args Directory holding the assets, and directory receiving {@value SpriteAtlas#RESOURCE}.
+     * @throws IOException If an asset cannot be read or the atlas cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: AtlasPacker <asset directory> <output directory>");
+            System.exit(1);
+        }
+        File assetDir = new File(args[0]);
+        File output = new File(args[1], SpriteAtlas.RESOURCE.substring(1));
+
+        List<Object[]> sprites = new ArrayList<>(Arrays.asList(SPRITES));
+
+        // Pack in memory first so a failed run never leaves a truncated atlas behind
+        ByteArrayOutputStream atlas = new ByteArrayOutputStream();
+        int count = pack(assetDir, sprites, atlas);
+        try (OutputStream out = new FileOutputStream(output)) {
+            atlas.writeTo(out);
+        }
+        System.out.println("Packed " + count + " sprites into " + output);
+    }
+
+    /**
+     * Scales every sprite, places them on shelves sorted by height and writes the atlas.
+     */
+    private static int pack(File assetDir, List<Object[]> sprites, OutputStream out) throws IOException {
+        int count = sprites.size();
+        String[] names = new String[count];
+        BufferedImage[] images = new BufferedImage[count];
+        int[][] regions = new int[count][];
+
+        for (int i = 0; i < count; i++) {
+            names[i] = (String) sprites.get(i)[0];
+            int width = (Integer) sprites.get(i)[1];
+            int height = (Integer) sprites.get(i)[2];
+            BufferedImage source = ImageIO.read(new File(assetDir, names[i].substring(1)));
+            if (source == null) {
+                throw new IOException("Unsupported image format: " + names[i]);
+            }
+            images[i] = width == 0 ? source : AssetCache.scale(source, width, height);  // Same scaling as at runtime
+            regions[i] = new int[] {width, height, 0, 0, images[i].getWidth(), images[i].getHeight()};
+        }
+
+        // Shelf packing, tallest sprites first
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> images[b].getHeight() - images[a].getHeight());
+        int x = 0;
+        int y = 0;
+        int shelfHeight = 0;
+        for (int i : order) {
+            int w = images[i].getWidth();
+            int h = images[i].getHeight();
+            if (x + w > SHEET_WIDTH) {
+                x = 0;
+                y += shelfHeight + PADDING;
+                shelfHeight = 0;
+            }
+            regions[i][2] = x;
+            regions[i][3] = y;
+            x += w + PADDING;
+            shelfHeight = Math.max(shelfHeight, h);
+        }
+
+        BufferedImage sheet = new BufferedImage(SHEET_WIDTH, y + shelfHeight, BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D g2 = sheet.createGraphics();
+        for (int i = 0; i < count; i++) {
+            g2.drawImage(images[i], regions[i][2], regions[i][3], null);
+        }
+        g2.dispose();
+
+        SpriteAtlas.write(out, sheet, names, regions);
+        return count;
+    }
+}
@@ -0,0 +1,136 @@
+package mysticmaze;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Badges draws the numbered discs marking the components on the board: a green disc, or
+ * a gold one for gold components, with the number in white in the badge font of
+ * {@link Fonts}. Any number can be drawn, so boards are not limited to the numbers
+ * that have artwork.
+ * <p>
+ * Each badge is rendered once per (number, colour, size) into a small compatible image
+ * and kept, in least-recently-used order up to a memory budget like the
+ * {@link AssetCache}, so painting a board only copies images. Safe to use from any thread.
+ */
+public final class Badges {
+
+    private static final long DEFAULT_BUDGET_BYTES = 4L * 1024 * 1024;  // About 1000 badges at 30 pixels
+    private static final Color GREEN = new Color(0, 153, 0);
+    private static final Color GOLD = new Color(255, 187, 0);
+    private static final float MARGIN = 0.18f;  // Space left around the number, as a share of the disc
+
+    private static final class Holder {
+        static final Badges SHARED = new Badges(DEFAULT_BUDGET_BYTES);
+    }
+
+    /**
+     * Key of a rendered badge: the component, with its GOLD flag, and the size.
+     */
+    private record Key(int component, int size) {
+    }
+
+    private final Map<Key, BufferedImage> entries = new LinkedHashMap<>(64, 0.75f, true);  // Access order = LRU
+    private final long budgetBytes;
+    private long bytesInUse;
+
+    /**
+     * Creates a cache of badges.
+     *
+     * @param budgetBytes Memory budget of the rendered badges in bytes.
+     */
+    public Badges(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * @return The badges shared by every board.
+     */
+    public static Badges shared() {
+        return Holder.SHARED;
+    }
+
+    /**
+     * Returns the badge of a component, rendering it the first time.
+     *
+     * @param component Component number, combined with {@link BoardModel#GOLD} for gold ones.
+     * @param size Width and height of the badge in pixels.
+     * @return The badge.
+     */
+    public BufferedImage get(int component, int size) {
+        Key key = new Key(component, size);
+        synchronized (this) {
+            BufferedImage image = entries.get(key);
+            if (image != null) {
+                return image;
+            }
+        }
+        return store(key, render(component, size));  // Rendered outside the lock
+    }
+
+    /**
+     * @return The number of bytes held by rendered badges.
+     */
+    public synchronized long getBytesInUse() {
+        return bytesInUse;
+    }
+
+    private synchronized BufferedImage store(Key key, BufferedImage image) {
+        BufferedImage existing = entries.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        entries.put(key, image);
+        bytesInUse += sizeOf(image);
+        Iterator<BufferedImage> it = entries.values().iterator();
+        while (bytesInUse > budgetBytes && entries.size() > 1) {
+            bytesInUse -= sizeOf(it.next());
+            it.remove();
+        }
+        return image;
+    }
+
+    /**
+     * Draws the disc, then the number as one glyph run, scaled down to fit the disc
+     * if it has many digits and centred on its visual bounds rather than its metrics.
+     */
+    static BufferedImage render(int component, int size) {
+        BufferedImage image = AssetCache.createCompatibleImage(size, size);
+        Graphics2D g2 = image.createGraphics();
+        try {
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g2.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+            g2.setColor((component & BoardModel.GOLD) != 0 ? GOLD : GREEN);
+            g2.fillOval(0, 0, size, size);
+
+            String number = Integer.toString(component & ~BoardModel.GOLD);
+            Font font = Fonts.badge(Math.max(1, Math.round(size * 0.6f)));
+            FontRenderContext context = g2.getFontRenderContext();
+            GlyphVector glyphs = font.createGlyphVector(context, number);
+            Rectangle2D bounds = glyphs.getVisualBounds();
+            double room = size * (1 - 2 * MARGIN);
+            double scale = Math.min(1, room / Math.max(bounds.getWidth(), bounds.getHeight()));
+            g2.translate(size / 2.0, size / 2.0);
+            g2.scale(scale, scale);
+            g2.setColor(Color.WHITE);
+            g2.drawGlyphVector(glyphs, (float) -bounds.getCenterX(), (float) -bounds.getCenterY());
+        } finally {
+            g2.dispose();
+        }
+        return image;
+    }
+
+    private static long sizeOf(BufferedImage image) {
+        return (long) image.getWidth() * image.getHeight() * 4;
+    }
+}
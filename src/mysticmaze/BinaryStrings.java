@@ -0,0 +1,58 @@
+package mysticmaze;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Strings in the binary formats of the game (saved games and the network protocol): an
+ * unsigned 16-bit UTF-8 length followed by the UTF-8 bytes.
+ */
+final class BinaryStrings {
+
+    private BinaryStrings() {
+    }
+
+    /**
+     * @return A UTF-8 encoder for {@link #put}, which replaces invalid characters. Encoders
+     *         are not thread-safe, so each writer keeps its own.
+     */
+    static CharsetEncoder newEncoder() {
+        return StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    /**
+     * Puts a string, encoding it straight into the buffer.
+     *
+     * @param out Buffer receiving the string.
+     * @param value The string, at most 21845 characters so that its length always fits.
+     * @param encoder Encoder from {@link #newEncoder()}.
+     * @throws BufferOverflowException If the buffer has too little room left.
+     */
+    static void put(ByteBuffer out, String value, CharsetEncoder encoder) {
+        int start = out.position();
+        out.position(start + 2);
+        encoder.reset();
+        if (encoder.encode(CharBuffer.wrap(value), out, true).isOverflow()) {
+            throw new BufferOverflowException();
+        }
+        encoder.flush(out);
+        out.putShort(start, (short) (out.position() - start - 2));
+    }
+
+    /**
+     * Gets a string written by {@link #put}.
+     *
+     * @param in Buffer positioned at the string.
+     * @return The string.
+     */
+    static String get(ByteBuffer in) {
+        byte[] bytes = new byte[in.getShort() & 0xFFFF];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,395 @@
+package mysticmaze;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * BoardAnimator animates a {@link BoardCanvas}: after an insertion the shifted line
+ * slides into place while the tile pushed off slides out, and after a move the token
+ * walks its shortest route. The model has already changed when an animation starts; only
+ * the picture lags behind.
+ * <p>
+ * A clock thread ticks at a fixed 60 Hz. Each tick hands one frame to the EDT, unless the
+ * previous one has not been drawn yet, in which case the tick is skipped rather than
+ * queued. Positions are worked out from the time a frame is drawn, so a skipped tick
+ * makes the motion coarser but never slower. The sliding line is drawn once per slide
+ * into a strip image, a VolatileImage where the screen offers one, and every frame only
+ * copies that strip at its offset, so frames allocate no images. Frame intervals and
+ * skipped ticks are counted for {@link #drainStats()}.
+ * <p>
+ * Apart from the clock, everything runs on the EDT.
+ */
+public final class BoardAnimator {
+
+    private static final long FRAME_NANOS = TimeUnit.SECONDS.toNanos(1) / 60;
+    private static final long SLIDE_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+    private static final long STEP_NANOS = TimeUnit.MILLISECONDS.toNanos(70);      // Per cell walked
+    private static final long MAX_WALK_NANOS = TimeUnit.MILLISECONDS.toNanos(1200);
+
+    /**
+     * Ticks for every animator. Like the chat frames, not a Swing timer, so that ticks
+     * due while a frame is still waiting are seen and counted as skipped.
+     */
+    private static final ScheduledExecutorService CLOCK = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "board-frames");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Frame counts since the previous {@link BoardAnimator#drainStats()}.
+     *
+     * @param frames Frames drawn.
+     * @param skipped Ticks dropped because the EDT had not drawn the previous frame yet.
+     * @param intervals Time between consecutive frames of an animation.
+     */
+    public record FrameStats(long frames, long skipped, LatencyHistogram.Snapshot intervals) {
+    }
+
+    private final BoardCanvas canvas;
+    private final int size;
+
+    private ScheduledFuture<?> ticks;  // Null while nothing moves
+    private final AtomicBoolean framePending = new AtomicBoolean();
+    private final LongAdder frames = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LatencyHistogram intervals = new LatencyHistogram();
+    private long lastFrameNanos;
+
+    /**
+     * The sliding line, or -1, and how far it has come, eased from 0 to 1.
+     */
+    private int slideEdge;
+    private int slideLine = -1;
+    private long slideStart;
+    private double slideProgress;
+
+    /**
+     * The line as it ends up plus the tile pushed off, in order along the line.
+     */
+    private Image strip;
+    private boolean stripValid;
+
+    /**
+     * The walking player, or -1, their route and how far along it they are, from 0 to 1.
+     */
+    private int walkPlayer = -1;
+    private final int[] path;
+    private int pathLength;
+    private long walkStart;
+    private long walkNanos;
+    private double walkProgress;
+
+    BoardAnimator(BoardCanvas canvas) {
+        this.canvas = canvas;
+        this.size = canvas.getBoard().getSize();
+        this.path = new int[size * size];
+    }
+
+    /**
+     * Returns and resets the frame counts.
+     *
+     * @return The counts since the previous call.
+     */
+    public FrameStats drainStats() {
+        return new FrameStats(frames.sumThenReset(), skipped.sumThenReset(), intervals.drain());
+    }
+
+    /**
+     * @return True while an animation runs.
+     */
+    public boolean isRunning() {
+        return ticks != null;
+    }
+
+    /* -------------------------------------------------------------- control */
+
+    void slide(int edge, int line) {
+        finish();
+        slideEdge = edge;
+        slideLine = line;
+        slideStart = System.nanoTime();
+        slideProgress = 0;
+        stripValid = false;
+        repaintSlide();
+        start();
+    }
+
+    void walk(int player, int from, int to, Reachability reachability) {
+        finish();
+        pathLength = reachability.shortestPath(from, to, path);
+        if (pathLength < 2) {
+            return;
+        }
+        walkPlayer = player;
+        walkStart = System.nanoTime();
+        walkNanos = Math.min(MAX_WALK_NANOS, STEP_NANOS * (pathLength - 1));
+        walkProgress = 0;
+        repaintCellOf(from);
+        repaintToken();
+        start();
+    }
+
+    /**
+     * Jumps every running animation to its end.
+     */
+    void finish() {
+        if (slideLine >= 0) {
+            repaintSlide();
+            slideLine = -1;
+        }
+        if (walkPlayer >= 0) {
+            repaintToken();
+            repaintCellOf(path[pathLength - 1]);
+            walkPlayer = -1;
+        }
+        stop();
+    }
+
+    /**
+     * Redraws the strip on the next frame, after something on the cells changed.
+     */
+    void cellsChanged() {
+        stripValid = false;
+    }
+
+    private void start() {
+        if (ticks == null) {
+            lastFrameNanos = 0;
+            ticks = CLOCK.scheduleAtFixedRate(this::tick, FRAME_NANOS, FRAME_NANOS, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void stop() {
+        if (ticks != null) {
+            ticks.cancel(false);
+            ticks = null;
+        }
+    }
+
+    /**
+     * Runs on the clock thread: passes a frame to the EDT unless one is still waiting.
+     */
+    private void tick() {
+        if (framePending.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(this::frame);
+        } else {
+            skipped.increment();
+        }
+    }
+
+    private void frame() {
+        framePending.set(false);
+        if (ticks == null) {
+            return;  // Finished while this frame waited
+        }
+        long now = System.nanoTime();
+        if (lastFrameNanos != 0) {
+            intervals.record(now - lastFrameNanos);
+        }
+        lastFrameNanos = now;
+        frames.increment();
+
+        boolean moving = false;
+        if (slideLine >= 0) {
+            double t = Math.min(1, (double) (now - slideStart) / SLIDE_NANOS);
+            slideProgress = t * t * (3 - 2 * t);  // Ease in and out
+            repaintSlide();
+            if (t >= 1) {
+                slideLine = -1;
+            } else {
+                moving = true;
+            }
+        }
+        if (walkPlayer >= 0) {
+            repaintToken();
+            walkProgress = Math.min(1, (double) (now - walkStart) / walkNanos);
+            repaintToken();
+            if (walkProgress >= 1) {
+                walkPlayer = -1;
+            } else {
+                moving = true;
+            }
+        }
+        if (!moving) {
+            stop();
+        }
+    }
+
+    /* ------------------------------------------------------------- painting */
+
+    /**
+     * @return The player whose token the canvas must leave out of its cell, or -1.
+     */
+    int getWalkingPlayer() {
+        return walkPlayer;
+    }
+
+    /**
+     * @return True if the cell is drawn by the animator, as part of the sliding line.
+     */
+    boolean isSliding(int row, int col) {
+        return slideLine >= 0 && (isColumn() ? col == slideLine : row == slideLine);
+    }
+
+    /**
+     * Paints the sliding line and the walking token over the cells the canvas painted.
+     */
+    void paint(Graphics g) {
+        if (slideLine >= 0) {
+            paintSlide(g);
+        }
+        if (walkPlayer >= 0) {
+            canvas.paintToken(g, walkPlayer, tokenX(), tokenY());
+        }
+    }
+
+    /**
+     * Copies the strip at its offset, clipped to the board so the tiles come out from
+     * under the edge. A VolatileImage whose contents were lost is drawn again.
+     */
+    private void paintSlide(Graphics g) {
+        int cell = canvas.getCellSize();
+        int margin = canvas.getMargin();
+        int across = margin + slideLine * cell;
+        // Lines pushed towards higher indices start one cell back; the others start in place
+        double back = forward() ? 1 - slideProgress : -slideProgress;
+        int along = margin - (int) Math.round(back * cell);
+
+        Graphics clipped = g.create();
+        try {
+            if (isColumn()) {
+                clipped.clipRect(across, margin, cell, size * cell);
+            } else {
+                clipped.clipRect(margin, across, size * cell, cell);
+            }
+            do {
+                prepareStrip();
+                clipped.drawImage(strip, isColumn() ? across : along, isColumn() ? along : across,
+                        isColumn() ? cell : (size + 1) * cell, isColumn() ? (size + 1) * cell : cell, null);
+            } while (strip instanceof VolatileImage image && image.contentsLost());
+        } finally {
+            clipped.dispose();
+        }
+    }
+
+    /**
+     * Makes sure the strip exists at the current zoom, in device pixels, and holds the
+     * current picture.
+     */
+    private void prepareStrip() {
+        int cell = canvas.getCellSize();
+        double scale = canvas.getDeviceScale();
+        int width = AssetCache.devicePixels(isColumn() ? cell : (size + 1) * cell, scale);
+        int height = AssetCache.devicePixels(isColumn() ? (size + 1) * cell : cell, scale);
+        GraphicsConfiguration config = canvas.getGraphicsConfiguration();
+        if (strip == null || strip.getWidth(null) != width || strip.getHeight(null) != height) {
+            strip = config != null
+                    ? config.createCompatibleVolatileImage(width, height, Transparency.TRANSLUCENT)
+                    : new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);  // Headless
+            stripValid = false;
+        }
+        if (strip instanceof VolatileImage image && config != null) {
+            int status = image.validate(config);
+            if (status == VolatileImage.IMAGE_INCOMPATIBLE) {
+                strip = config.createCompatibleVolatileImage(width, height, Transparency.TRANSLUCENT);
+                stripValid = false;
+            } else if (status == VolatileImage.IMAGE_RESTORED) {
+                stripValid = false;
+            }
+        }
+        if (!stripValid) {
+            renderStrip(cell, scale);
+            stripValid = true;
+        }
+    }
+
+    /**
+     * Draws the line in its final place plus the tile pushed off, which lies past the end
+     * the line was pushed towards.
+     */
+    private void renderStrip(int cell, double scale) {
+        Graphics2D g = (Graphics2D) strip.getGraphics();
+        try {
+            g.setComposite(AlphaComposite.Clear);
+            g.fillRect(0, 0, strip.getWidth(null), strip.getHeight(null));
+            g.setComposite(AlphaComposite.SrcOver);
+            g.scale(scale, scale);
+            int first = forward() ? 0 : 1;  // Index in the strip of the line's first cell
+            for (int i = 0; i < size; i++) {
+                int row = isColumn() ? i : slideLine;
+                int col = isColumn() ? slideLine : i;
+                int offset = (first + i) * cell;
+                canvas.paintCell(g, row, col, isColumn() ? 0 : offset, isColumn() ? offset : 0, -1);
+            }
+            int spare = (forward() ? size : 0) * cell;
+            canvas.paintSpare(g, isColumn() ? 0 : spare, isColumn() ? spare : 0);
+        } finally {
+            g.dispose();
+        }
+    }
+
+    /* -------------------------------------------------------------- helpers */
+
+    private boolean isColumn() {
+        return slideEdge == BoardModel.NORTH || slideEdge == BoardModel.SOUTH;
+    }
+
+    /**
+     * @return True if the tiles moved towards higher row or column indices.
+     */
+    private boolean forward() {
+        return slideEdge == BoardModel.NORTH || slideEdge == BoardModel.WEST;
+    }
+
+    private void repaintSlide() {
+        if (isColumn()) {
+            canvas.repaintColumn(slideLine);
+        } else {
+            canvas.repaintRow(slideLine);
+        }
+    }
+
+    private void repaintCellOf(int cell) {
+        canvas.repaintCell(cell);
+    }
+
+    private void repaintToken() {
+        int cell = canvas.getCellSize();
+        canvas.repaint(tokenX(), tokenY(), cell, cell);
+    }
+
+    /**
+     * Left of the cell-sized box the token is drawn in, between two cells of the route.
+     */
+    private int tokenX() {
+        return tokenPosition(true);
+    }
+
+    private int tokenY() {
+        return tokenPosition(false);
+    }
+
+    private int tokenPosition(boolean x) {
+        double steps = walkProgress * (pathLength - 1);
+        int step = Math.min((int) steps, pathLength - 2);
+        double fraction = steps - step;
+        int from = x ? path[step] % size : path[step] / size;
+        int to = x ? path[step + 1] % size : path[step + 1] / size;
+        return canvas.getMargin() + (int) Math.round((from + (to - from) * fraction) * canvas.getCellSize());
+    }
+}
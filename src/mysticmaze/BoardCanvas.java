@@ -0,0 +1,711 @@
+package mysticmaze;
+
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Image;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.event.InputEvent;
+import java.awt.event.MouseWheelEvent;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.swing.Icon;
+import javax.swing.JComponent;
+import javax.swing.JViewport;
+import javax.swing.Scrollable;
+import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
+
+/**
+ * BoardCanvas paints the whole maze board (tiles, number badges and player tokens) straight
+ * from a {@link BoardModel} in a single paintComponent pass instead of using one nested
+ * panel per cell, with the insert arrows in a margin around it. Callers that change the
+ * model repaint only the affected cells.
+ * <p>
+ * Boards of any size are shown through a scroll pane: painting only walks the cells
+ * inside the clip, and every cell is drawn from one of a few images cached at the current
+ * zoom, so the cost of a frame depends on the size of the viewport, not of the board.
+ * Holding Ctrl while turning the mouse wheel zooms around the pointer.
+ * <p>
+ * Images are taken from the {@link AssetCache} in device pixels, so the board stays sharp
+ * on HiDPI screens and when moved to a screen of another scale. Sizes not cached yet are
+ * built in the background while the nearest cached size is drawn stretched.
+ * <p>
+ * Insertions and moves can be animated by a {@link BoardAnimator}: the shifted line
+ * slides into place and the token walks its route.
+ */
+public class BoardCanvas extends JComponent implements Scrollable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int MIN_CELL_SIZE = 30;    // Zoom limits, in pixels per cell
+    private static final int MAX_CELL_SIZE = 150;
+    private static final int ZOOM_STEP = 15;        // Pixels per cell added or removed by one wheel notch
+    private static final int VISIBLE_CELLS = 7;     // Cells across the viewport, at the initial zoom
+    private static final Color HIGHLIGHT = new Color(255, 255, 255, 70);  // Tint of reachable cells
+    private static final int PRELOADED_BADGES = 256;  // Badges drawn ahead; the rest when first painted
+    private static final LatencyHistogram PAINT_TIMES = Instrumentation.shared().paintTimes("board");
+
+    /**
+     * Tile image for every combination of openings, indexed by the openings mask.
+     * Dead ends (a single opening) have no artwork.
+     */
+    private static final String[] TILE_PATHS = new String[16];
+    static {
+        TILE_PATHS[0] = "/brick_full.png";
+        TILE_PATHS[BoardModel.NORTH | BoardModel.SOUTH] = "/hallway_vert.png";
+        TILE_PATHS[BoardModel.EAST | BoardModel.WEST] = "/hallway_horiz.png";
+        TILE_PATHS[BoardModel.NORTH | BoardModel.EAST] = "/brick_NE.png";
+        TILE_PATHS[BoardModel.NORTH | BoardModel.WEST] = "/brick_NW.png";
+        TILE_PATHS[BoardModel.SOUTH | BoardModel.EAST] = "/brick_SE.png";
+        TILE_PATHS[BoardModel.SOUTH | BoardModel.WEST] = "/brick_SW.png";
+        TILE_PATHS[BoardModel.NORTH | BoardModel.EAST | BoardModel.SOUTH] = "/brick_Teast.png";
+        TILE_PATHS[BoardModel.NORTH | BoardModel.EAST | BoardModel.WEST] = "/brick_Tnorth.png";
+        TILE_PATHS[BoardModel.EAST | BoardModel.SOUTH | BoardModel.WEST] = "/brick_Tsouth.png";
+        TILE_PATHS[BoardModel.NORTH | BoardModel.SOUTH | BoardModel.WEST] = "/brick_Twest.png";
+        TILE_PATHS[0xF] = "/brick_cross.png";
+    }
+
+    /**
+     * Player tokens in player order (green, blue, yellow, red).
+     */
+    private static final String[] PLAYER_PATHS = {"/green.png", "/blue.png", "/yellow.png", "/red.png"};
+
+    /**
+     * Insert arrows by the edge they push from: north, south, west and east.
+     */
+    private static final int[] ARROW_EDGES = {BoardModel.NORTH, BoardModel.SOUTH, BoardModel.WEST, BoardModel.EAST};
+    private static final String[] ARROW_PATHS = {"/insert down.png", "/insert up.png", "/insert right.png", "/insert left.png"};
+
+    /**
+     * A place to insert the spare tile: a row or column and the edge it is pushed from.
+     *
+     * @param edge Edge the spare tile enters from.
+     * @param line Index of the row or column.
+     */
+    public record Slot(int edge, int line) {
+    }
+
+    private final BoardModel board;
+    private final int gridSize;
+    private final int spareSize;  // Cell size the canvas was created with, kept by the spare tile icon
+    private int viewSize;         // Cell size the viewport is sized for, see fitCells
+    private int cellSize;         // Current zoom
+    private int margin;           // Width of the strip holding the insert arrows, a third of a cell
+    private double deviceScale;   // Device pixels per logical pixel on the current screen
+    private final Runnable imagesReady = this::imagesReady;  // One instance, so the cache tells us once
+
+    /**
+     * Images resolved once per zoom so that painting does no lookups: tiles by openings
+     * mask, badges by treasure id - 1, tokens by player index and arrows like ARROW_EDGES.
+     * Badges are drawn by {@link Badges} and resolved the first time their cell is painted.
+     * All are in device pixels and drawn at their logical size.
+     */
+    private final Image[] tileImages = new Image[16];
+    private final Image[] spareImages = new Image[16];
+    private Image[] badgeImages;
+    private final Image[] playerImages;
+    private final Image[] arrowImages = new Image[ARROW_EDGES.length];
+
+    /**
+     * Rows and columns that can be shifted, and so get arrows. Fixed tiles never move.
+     */
+    private final boolean[] shiftableRows;
+    private final boolean[] shiftableColumns;
+
+    /**
+     * Cells to tint as reachable, or null when no move is being chosen.
+     */
+    private Reachability highlight;
+
+    private final BoardAnimator animator;
+
+    /**
+     * Creates a canvas showing the given board.
+     *
+     * @param board The board to paint.
+     * @param cellSize Width and height of one cell in pixels.
+     */
+    public BoardCanvas(BoardModel board, int cellSize) {
+        this.board = board;
+        this.gridSize = board.getSize();
+        this.spareSize = cellSize;
+        this.viewSize = cellSize;
+        this.deviceScale = AssetCache.deviceScale(null);
+        this.playerImages = new Image[board.getPlayerCount()];
+        this.shiftableRows = new boolean[gridSize];
+        this.shiftableColumns = new boolean[gridSize];
+        setOpaque(false);  // Let the background image show through
+
+        findShiftableLines();
+        animator = new BoardAnimator(this);
+        setZoom(cellSize);
+        addMouseWheelListener(this::mouseWheelMoved);
+        addPropertyChangeListener("graphicsConfiguration", e -> screenChanged());
+    }
+
+    /**
+     * Loads every image a canvas for the given board needs into the shared asset cache,
+     * so that creating the canvas afterwards does no I/O, and draws the badges of the
+     * first components, all at the scale of the default screen. Safe to call off the EDT.
+     *
+     * @param board The board that will be painted.
+     * @param cellSize Width and height of one cell in logical pixels.
+     */
+    public static void preload(BoardModel board, int cellSize) {
+        double scale = AssetCache.deviceScale(null);
+        int pixels = AssetCache.devicePixels(cellSize, scale);
+        int third = AssetCache.devicePixels(cellSize / 3, scale);
+        for (String path : TILE_PATHS) {
+            if (path != null) {
+                load(path, pixels, pixels);
+            }
+        }
+        Set<Integer> components = new HashSet<>();  // Boards may repeat a component
+        for (int id = 1; id <= board.getTreasureCount() && components.size() < PRELOADED_BADGES; id++) {
+            if (components.add(board.getComponent(id))) {
+                Badges.shared().get(board.getComponent(id), third);
+            }
+        }
+        for (String path : PLAYER_PATHS) {
+            load(path, third, third);
+        }
+        for (int i = 0; i < ARROW_PATHS.length; i++) {
+            boolean column = ARROW_EDGES[i] == BoardModel.NORTH || ARROW_EDGES[i] == BoardModel.SOUTH;
+            load(ARROW_PATHS[i], column ? pixels : third, column ? third : pixels);
+        }
+    }
+
+    /**
+     * Picks up a board whose treasures were replaced as a whole, e.g. by loading a saved
+     * game, and repaints it.
+     */
+    public void boardChanged() {
+        animator.finish();
+        resetBadges();
+        findShiftableLines();
+        repaint();
+    }
+
+    private void resetBadges() {
+        badgeImages = new Image[board.getTreasureCount()];
+    }
+
+    /**
+     * @param treasure Id of a treasure.
+     * @return Its badge at the current zoom.
+     */
+    private Image badge(int treasure) {
+        Image image = badgeImages[treasure - 1];
+        if (image == null) {
+            image = Badges.shared().get(board.getComponent(treasure), AssetCache.devicePixels(cellSize / 3, deviceScale));
+            badgeImages[treasure - 1] = image;
+        }
+        return image;
+    }
+
+    private void findShiftableLines() {
+        for (int line = 0; line < gridSize; line++) {
+            shiftableRows[line] = board.canInsert(BoardModel.WEST, line);
+            shiftableColumns[line] = board.canInsert(BoardModel.NORTH, line);
+        }
+    }
+
+    /* ---------------------------------------------------------------- zoom */
+
+    /**
+     * @return The current width and height of one cell in pixels.
+     */
+    public int getCellSize() {
+        return cellSize;
+    }
+
+    /**
+     * @return Device pixels per logical pixel on the screen showing the canvas.
+     */
+    public double getDeviceScale() {
+        return deviceScale;
+    }
+
+    /**
+     * Changes the size of the cells, taking the images at the new size from the shared
+     * asset cache. The size is clamped to the zoom limits.
+     *
+     * @param size Width and height of one cell in logical pixels.
+     */
+    public void setZoom(int size) {
+        int clamped = Math.max(MIN_CELL_SIZE, Math.min(MAX_CELL_SIZE, size));
+        if (clamped == cellSize) {
+            return;
+        }
+        animator.finish();
+        cellSize = clamped;
+        margin = clamped / 3;
+        resolveImages();
+        revalidate();
+        repaint();
+    }
+
+    /**
+     * Sizes the viewport for cells of the given size and zooms to it, e.g. after the
+     * window was resized. The viewport otherwise keeps the size it was given, whatever the zoom.
+     *
+     * @param size Width and height of one cell in logical pixels.
+     */
+    public void fitCells(int size) {
+        viewSize = Math.max(MIN_CELL_SIZE, Math.min(MAX_CELL_SIZE, size));
+        setZoom(viewSize);
+        revalidate();
+    }
+
+    /**
+     * @param width Width available to the viewport.
+     * @param height Height available to the viewport.
+     * @return The largest cell size at which the viewport fits, showing as many cells as at startup.
+     */
+    public int cellsToFit(int width, int height) {
+        return (int) (Math.min(width, height) / (Math.min(gridSize, VISIBLE_CELLS) + 2 / 3.0));
+    }
+
+    /**
+     * Takes every image from the cache at the current zoom and device scale. Sizes the
+     * cache still has to build show at the nearest size until {@link #imagesReady}.
+     */
+    private void resolveImages() {
+        for (int openings = 0; openings < TILE_PATHS.length; openings++) {
+            if (TILE_PATHS[openings] != null) {
+                tileImages[openings] = fetch(TILE_PATHS[openings], cellSize, cellSize);
+                spareImages[openings] = fetch(TILE_PATHS[openings], spareSize, spareSize);
+            }
+        }
+        resetBadges();
+        for (int player = 0; player < playerImages.length; player++) {
+            playerImages[player] = fetch(PLAYER_PATHS[player % PLAYER_PATHS.length], cellSize / 3, cellSize / 3);
+        }
+        for (int i = 0; i < arrowImages.length; i++) {
+            boolean column = ARROW_EDGES[i] == BoardModel.NORTH || ARROW_EDGES[i] == BoardModel.SOUTH;
+            arrowImages[i] = fetch(ARROW_PATHS[i], column ? cellSize : margin, column ? margin : cellSize);
+        }
+    }
+
+    /**
+     * Called on the EDT when the cache has built an image asked for at the current size.
+     */
+    private void imagesReady() {
+        resolveImages();
+        animator.cellsChanged();
+        repaint();
+    }
+
+    /**
+     * Reloads the images when the canvas moves to a screen of another scale.
+     */
+    private void screenChanged() {
+        double scale = AssetCache.deviceScale(getGraphicsConfiguration());
+        if (scale != deviceScale) {
+            deviceScale = scale;
+            resolveImages();
+            animator.cellsChanged();
+            repaint();
+        }
+    }
+
+    /**
+     * Zooms with Ctrl and the wheel so that the point under the mouse stays put; any other
+     * wheel movement goes on to the scroll pane.
+     */
+    private void mouseWheelMoved(MouseWheelEvent e) {
+        if ((e.getModifiersEx() & InputEvent.CTRL_DOWN_MASK) == 0) {
+            getParent().dispatchEvent(SwingUtilities.convertMouseEvent(this, e, getParent()));
+            return;
+        }
+        Point anchor = e.getPoint();
+        int oldSize = cellSize;
+        int oldMargin = margin;
+        setZoom(cellSize - e.getWheelRotation() * ZOOM_STEP);
+        if (cellSize != oldSize && getParent() instanceof JViewport viewport) {
+            // Same board position under the pointer as before
+            Point view = viewport.getViewPosition();
+            double scale = (double) cellSize / oldSize;
+            int x = margin + (int) Math.round((anchor.x - oldMargin) * scale) - (anchor.x - view.x);
+            int y = margin + (int) Math.round((anchor.y - oldMargin) * scale) - (anchor.y - view.y);
+            Dimension size = getPreferredSize();
+            setSize(size);
+            viewport.setViewPosition(new Point(
+                    Math.max(0, Math.min(x, size.width - viewport.getWidth())),
+                    Math.max(0, Math.min(y, size.height - viewport.getHeight()))));
+        }
+    }
+
+    /**
+     * @return The board painted by this canvas.
+     */
+    public BoardModel getBoard() {
+        return board;
+    }
+
+    /**
+     * Tints every cell reached by the last flood fill of the given engine, or clears the
+     * tint when null. The whole board is repainted since any cell may change.
+     *
+     * @param reachability Engine holding the cells to highlight, or null.
+     */
+    public void setHighlight(Reachability reachability) {
+        this.highlight = reachability;
+        animator.cellsChanged();
+        repaint();
+    }
+
+    /**
+     * @return The animator of this canvas.
+     */
+    public BoardAnimator getAnimator() {
+        return animator;
+    }
+
+    /**
+     * Slides a row or column that was just shifted into place, starting from where it
+     * was, together with the tile pushed off. Any running animation ends first.
+     *
+     * @param edge Edge the spare tile entered from.
+     * @param line Index of the row or column.
+     */
+    public void animateInsert(int edge, int line) {
+        animator.slide(edge, line);
+    }
+
+    /**
+     * Walks a player's token from one cell to another along the shortest route. Any
+     * running animation ends first.
+     *
+     * @param player Index of the player, who is already on the target cell.
+     * @param from Cell the player left.
+     * @param reachability Engine holding the step bitsets of the board, used to find the route.
+     */
+    public void animateMove(int player, int from, Reachability reachability) {
+        animator.walk(player, from, board.getPlayerCell(player), reachability);
+    }
+
+    /**
+     * Returns the cell under a point of this component.
+     *
+     * @param point Point in component coordinates.
+     * @return The index of the cell, or BoardModel.NO_CELL if the point is outside the board.
+     */
+    public int cellAt(Point point) {
+        int row = Math.floorDiv(point.y - margin, cellSize);
+        int col = Math.floorDiv(point.x - margin, cellSize);
+        if (row < 0 || col < 0 || row >= gridSize || col >= gridSize) {
+            return BoardModel.NO_CELL;
+        }
+        return board.cellIndex(row, col);
+    }
+
+    /**
+     * Returns the insert arrow under a point of this component.
+     *
+     * @param point Point in component coordinates.
+     * @return Where clicking the arrow inserts the spare tile, or null if there is no arrow there.
+     */
+    public Slot slotAt(Point point) {
+        int end = margin + gridSize * cellSize;
+        int row = Math.floorDiv(point.y - margin, cellSize);
+        int col = Math.floorDiv(point.x - margin, cellSize);
+        if (col >= 0 && col < gridSize && shiftableColumns[col]) {
+            if (point.y >= 0 && point.y < margin) {
+                return new Slot(BoardModel.NORTH, col);
+            }
+            if (point.y >= end && point.y < end + margin) {
+                return new Slot(BoardModel.SOUTH, col);
+            }
+        }
+        if (row >= 0 && row < gridSize && shiftableRows[row]) {
+            if (point.x >= 0 && point.x < margin) {
+                return new Slot(BoardModel.WEST, row);
+            }
+            if (point.x >= end && point.x < end + margin) {
+                return new Slot(BoardModel.EAST, row);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Schedules a repaint of a single cell.
+     *
+     * @param cell Index of the cell.
+     */
+    public void repaintCell(int cell) {
+        repaintCell(cell / gridSize, cell % gridSize);
+    }
+
+    /**
+     * Schedules a repaint of a single cell.
+     *
+     * @param row Row of the cell.
+     * @param col Column of the cell.
+     */
+    public void repaintCell(int row, int col) {
+        repaint(margin + col * cellSize, margin + row * cellSize, cellSize, cellSize);
+    }
+
+    /**
+     * Schedules a repaint of a whole row.
+     *
+     * @param row Row to repaint.
+     */
+    public void repaintRow(int row) {
+        repaint(margin, margin + row * cellSize, gridSize * cellSize, cellSize);
+    }
+
+    /**
+     * Schedules a repaint of a whole column.
+     *
+     * @param col Column to repaint.
+     */
+    public void repaintColumn(int col) {
+        repaint(margin + col * cellSize, margin, cellSize, gridSize * cellSize);
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        int extent = gridSize * cellSize + 2 * margin;
+        return new Dimension(extent, extent);
+    }
+
+    /* ----------------------------------------------------------- scrolling */
+
+    /**
+     * The viewport keeps the size of a standard board at the size given to
+     * {@link #fitCells}, or less for a smaller board, whatever the zoom.
+     */
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        int extent = Math.min(gridSize, VISIBLE_CELLS) * viewSize + 2 * (viewSize / 3);
+        return new Dimension(extent, extent);
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return cellSize;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        int extent = orientation == SwingConstants.VERTICAL ? visibleRect.height : visibleRect.width;
+        return Math.max(cellSize, extent - cellSize);  // Keep one line of context
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return false;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return false;
+    }
+
+    /* ------------------------------------------------------------ painting */
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        long start = System.nanoTime();
+        // Only walk the cells that intersect the dirty region
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        int firstRow = Math.max(0, Math.floorDiv(clip.y - margin, cellSize));
+        int lastRow = Math.min(gridSize - 1, Math.floorDiv(clip.y + clip.height - 1 - margin, cellSize));
+        int firstCol = Math.max(0, Math.floorDiv(clip.x - margin, cellSize));
+        int lastCol = Math.min(gridSize - 1, Math.floorDiv(clip.x + clip.width - 1 - margin, cellSize));
+
+        int walking = animator.getWalkingPlayer();
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int col = firstCol; col <= lastCol; col++) {
+                if (!animator.isSliding(row, col)) {
+                    paintCell(g, row, col, margin + col * cellSize, margin + row * cellSize, walking);
+                }
+            }
+        }
+        animator.paint(g);
+        paintArrows(g, clip, firstRow, lastRow, firstCol, lastCol);
+        PAINT_TIMES.record(System.nanoTime() - start);
+    }
+
+    /**
+     * Paints the arrows of the visible lines in whichever of the four margins the clip reaches.
+     */
+    private void paintArrows(Graphics g, Rectangle clip, int firstRow, int lastRow, int firstCol, int lastCol) {
+        int end = margin + gridSize * cellSize;
+        for (int i = 0; i < ARROW_EDGES.length; i++) {
+            boolean column = ARROW_EDGES[i] == BoardModel.NORTH || ARROW_EDGES[i] == BoardModel.SOUTH;
+            int across = ARROW_EDGES[i] == BoardModel.NORTH || ARROW_EDGES[i] == BoardModel.WEST ? 0 : end;
+            boolean visible = column
+                    ? clip.y < across + margin && clip.y + clip.height > across
+                    : clip.x < across + margin && clip.x + clip.width > across;
+            if (!visible || arrowImages[i] == null) {
+                continue;
+            }
+            int first = column ? firstCol : firstRow;
+            int last = column ? lastCol : lastRow;
+            boolean[] shiftable = column ? shiftableColumns : shiftableRows;
+            for (int line = first; line <= last; line++) {
+                if (shiftable[line]) {
+                    int along = margin + line * cellSize;
+                    g.drawImage(arrowImages[i], column ? along : across, column ? across : along,
+                            column ? cellSize : margin, column ? margin : cellSize, null);
+                }
+            }
+        }
+    }
+
+    /**
+     * Paints the tile of a cell followed by its badge and any player tokens. A lone
+     * badge or token sits right of the tile centre; several share the cell in quadrants.
+     *
+     * @param x Left of the cell in the coordinates of g.
+     * @param y Top of the cell in the coordinates of g.
+     * @param skipPlayer Player whose token is left out as it is drawn elsewhere, or -1.
+     */
+    void paintCell(Graphics g, int row, int col, int x, int y, int skipPlayer) {
+        int cell = board.cellIndex(row, col);
+
+        Image tile = tileImages[board.getOpenings(cell)];
+        if (tile != null) {
+            g.drawImage(tile, x, y, cellSize, cellSize, null);
+        }
+        if (highlight != null && highlight.isReachable(cell)) {
+            g.setColor(HIGHLIGHT);
+            g.fillRect(x, y, cellSize, cellSize);
+        }
+
+        int treasure = board.getTreasure(cell);
+        int icons = treasure != 0 ? 1 : 0;
+        for (int player = 0; player < playerImages.length; player++) {
+            if (board.getPlayerCell(player) == cell && player != skipPlayer) {
+                icons++;
+            }
+        }
+        if (icons == 0) {
+            return;
+        }
+
+        int slot = 0;
+        if (treasure != 0) {
+            drawIcon(g, badge(treasure), x, y, cellSize, slot++, icons);
+        }
+        for (int player = 0; player < playerImages.length; player++) {
+            if (board.getPlayerCell(player) == cell && player != skipPlayer) {
+                drawIcon(g, playerImages[player], x, y, cellSize, slot++, icons);
+            }
+        }
+    }
+
+    /**
+     * Paints the spare tile and its badge at the current zoom, as one more cell.
+     */
+    void paintSpare(Graphics g, int x, int y) {
+        Image tile = tileImages[board.getSpareOpenings()];
+        if (tile != null) {
+            g.drawImage(tile, x, y, cellSize, cellSize, null);
+        }
+        int treasure = board.getSpareTreasure();
+        if (treasure != 0) {
+            drawIcon(g, badge(treasure), x, y, cellSize, 0, 1);
+        }
+    }
+
+    /**
+     * Paints a player's token where a lone token sits in a cell whose top left is given.
+     */
+    void paintToken(Graphics g, int player, int x, int y) {
+        drawIcon(g, playerImages[player], x, y, cellSize, 0, 1);
+    }
+
+    int getMargin() {
+        return margin;
+    }
+
+    /**
+     * Draws a badge or token, a third of the cell in size. Several icons share the cell
+     * in a grid just wide enough for all of them, 2x2 up to four and 3x2 for a treasure
+     * and four tokens, shrinking when a third of the cell no longer fits.
+     */
+    private static void drawIcon(Graphics g, Image icon, int x, int y, int size, int slot, int icons) {
+        if (icon == null) {
+            return;
+        }
+        if (icons == 1) {
+            int iconSize = size / 3;
+            g.drawImage(icon, x + size / 2, y + (size - iconSize) / 2, iconSize, iconSize, null);
+        } else {
+            int columns = (int) Math.ceil(Math.sqrt(icons));
+            int rows = (icons + columns - 1) / columns;
+            int slotWidth = size / columns;
+            int slotHeight = size / rows;
+            int iconSize = Math.min(size / 3, Math.min(slotWidth, slotHeight) * 7 / 8);  // Keep a gap between icons
+            int qx = slot % columns * slotWidth + (slotWidth - iconSize) / 2;
+            int qy = slot / columns * slotHeight + (slotHeight - iconSize) / 2;
+            g.drawImage(icon, x + qx, y + qy, iconSize, iconSize, null);
+        }
+    }
+
+    /**
+     * Creates an icon that always shows the current spare tile of the board, with the
+     * badge of any treasure lying on it, at the size the canvas was created with whatever
+     * the zoom. Repaint the owning component after the spare tile changes.
+     *
+     * @return An icon painting the spare tile.
+     */
+    public Icon createSpareIcon() {
+        return new Icon() {
+            @Override
+            public void paintIcon(Component c, Graphics g, int x, int y) {
+                Image tile = spareImages[board.getSpareOpenings()];
+                if (tile != null) {
+                    g.drawImage(tile, x, y, spareSize, spareSize, null);
+                }
+                int treasure = board.getSpareTreasure();
+                if (treasure != 0) {
+                    Image badge = Badges.shared().get(board.getComponent(treasure),
+                            AssetCache.devicePixels(spareSize / 3, deviceScale));
+                    drawIcon(g, badge, x, y, spareSize, 0, 1);
+                }
+            }
+
+            @Override
+            public int getIconWidth() {
+                return spareSize;
+            }
+
+            @Override
+            public int getIconHeight() {
+                return spareSize;
+            }
+        };
+    }
+
+    /**
+     * Takes an image at a logical size from the cache in device pixels, or the nearest
+     * cached size while that one is built.
+     */
+    private Image fetch(String path, int width, int height) {
+        return AssetCache.shared().getOrNearest(path, AssetCache.devicePixels(width, deviceScale),
+                AssetCache.devicePixels(height, deviceScale), imagesReady);
+    }
+
+    private static Image load(String path, int width, int height) {
+        try {
+            return AssetCache.shared().get(path, width, height);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+}
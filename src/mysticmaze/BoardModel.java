@@ -0,0 +1,664 @@
+package mysticmaze;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * BoardModel holds the state of a maze board in flat primitive arrays so that it can be
+ * looked up, copied and hashed without allocating. Every cell is packed into one int:
+ * <ul>
+ * <li>bits 0-3: openings of the tile (see {@link #NORTH}, {@link #EAST}, {@link #SOUTH}, {@link #WEST})</li>
+ * <li>bits 4-5: rotation of the tile in clockwise quarter turns</li>
+ * <li>bit 6: set if the tile is fixed and can never be shifted</li>
+ * <li>bits 8-31: treasure id of the component lying on the tile, 0 if there is none</li>
+ * </ul>
+ * Treasures and players are kept in separate position arrays indexed by treasure id and
+ * player index. Cells are addressed by their index {@code row * size + col}. The spare
+ * tile uses the same packed layout and is pushed into the board with {@link #insert(int, int)}.
+ */
+public final class BoardModel {
+
+    /** Opening towards the top of the board. */
+    public static final int NORTH = 1;
+    /** Opening towards the right of the board. */
+    public static final int EAST = 2;
+    /** Opening towards the bottom of the board. */
+    public static final int SOUTH = 4;
+    /** Opening towards the left of the board. */
+    public static final int WEST = 8;
+
+    /** Flag marking a gold component in {@link #getComponent(int)}. */
+    public static final int GOLD = 1 << 16;
+
+    /** Marks a player or treasure that is not on the board. */
+    public static final int NO_CELL = -1;
+
+    /** Position of a treasure lying on the spare tile. */
+    public static final int SPARE_CELL = -2;
+
+    /** Rows and columns of the board of the original game. */
+    public static final int STANDARD_SIZE = 7;
+
+    /** Smallest and largest board {@link #sized(int)} creates. */
+    public static final int MIN_SIZE = 5;
+    public static final int MAX_SIZE = 101;
+
+    // Layout of a packed cell, shared with GameSnapshot which stores cells the same way
+    static final int OPENINGS_MASK = 0xF;
+    static final int ROTATION_SHIFT = 4;
+    static final int ROTATION_MASK = 0x3 << ROTATION_SHIFT;
+    static final int FIXED_FLAG = 1 << 6;
+    static final int TILE_MASK = OPENINGS_MASK | ROTATION_MASK | FIXED_FLAG;
+    static final int TREASURE_SHIFT = 8;
+
+    private final int size;
+
+    /**
+     * Packed tile, rotation and treasure id of every cell.
+     */
+    private final int[] cells;
+
+    /**
+     * Packed tile and treasure id of the spare tile, in the same layout as a cell.
+     */
+    private int spare;
+
+    /**
+     * Cell of every player, or NO_CELL.
+     */
+    private final int[] playerCells;
+
+    /**
+     * Component number (plus GOLD flag) and cell of every treasure, indexed by treasure id - 1.
+     */
+    private final int[] treasureComponents;
+    private final int[] treasureCells;
+    private int treasureCount;
+
+    /**
+     * Creates an empty board where every cell is a tile without openings.
+     *
+     * @param size Number of rows and columns of the board.
+     * @param playerCount Number of players on the board.
+     * @param treasureCapacity Maximum number of treasures on the board.
+     */
+    public BoardModel(int size, int playerCount, int treasureCapacity) {
+        this.size = size;
+        this.cells = new int[size * size];
+        this.playerCells = new int[playerCount];
+        this.treasureComponents = new int[treasureCapacity];
+        this.treasureCells = new int[treasureCapacity];
+        Arrays.fill(playerCells, NO_CELL);
+    }
+
+    /**
+     * Creates a deep copy of another board.
+     *
+     * @param other The board to copy.
+     */
+    public BoardModel(BoardModel other) {
+        this(other.size, other.playerCells.length, other.treasureComponents.length);
+        copyFrom(other);
+    }
+
+    /**
+     * Overwrites this board with the contents of another board of the same dimensions
+     * without allocating.
+     *
+     * @param other The board to copy.
+     */
+    public void copyFrom(BoardModel other) {
+        if (other.size != size || other.playerCells.length != playerCells.length
+                || other.treasureComponents.length != treasureComponents.length) {
+            throw new IllegalArgumentException("Boards have different dimensions");
+        }
+        System.arraycopy(other.cells, 0, cells, 0, cells.length);
+        spare = other.spare;
+        System.arraycopy(other.playerCells, 0, playerCells, 0, playerCells.length);
+        System.arraycopy(other.treasureComponents, 0, treasureComponents, 0, other.treasureCount);
+        System.arraycopy(other.treasureCells, 0, treasureCells, 0, other.treasureCount);
+        treasureCount = other.treasureCount;
+    }
+
+    /**
+     * Empties the board for reuse without allocating: every cell and the spare tile
+     * become tiles without openings, treasures are forgotten and players leave the board.
+     */
+    public void clear() {
+        Arrays.fill(cells, 0);
+        spare = 0;
+        Arrays.fill(playerCells, NO_CELL);
+        treasureCount = 0;
+    }
+
+    /**
+     * @return The number of rows and columns of the board.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the index of a cell.
+     *
+     * @param row Row of the cell.
+     * @param col Column of the cell.
+     * @return The cell index, row * size + col.
+     */
+    public int cellIndex(int row, int col) {
+        return row * size + col;
+    }
+
+    /* ---------------------------------------------------------------- tiles */
+
+    /**
+     * Places a tile on a cell, keeping any treasure lying there.
+     *
+     * @param cell Index of the cell.
+     * @param openings Openings of the tile in its unrotated position.
+     * @param rotation Clockwise quarter turns applied to the tile.
+     * @param fixed True if the tile can never be shifted.
+     */
+    public void setTile(int cell, int openings, int rotation, boolean fixed) {
+        cells[cell] = (cells[cell] & ~TILE_MASK) | packTile(openings, rotation, fixed);
+    }
+
+    /**
+     * @param cell Index of the cell.
+     * @return The openings of the tile on the cell, as a combination of NORTH, EAST, SOUTH and WEST.
+     */
+    public int getOpenings(int cell) {
+        return cells[cell] & OPENINGS_MASK;
+    }
+
+    /**
+     * @param cell Index of the cell.
+     * @param direction One of NORTH, EAST, SOUTH or WEST.
+     * @return True if the tile on the cell is open in the given direction.
+     */
+    public boolean isOpen(int cell, int direction) {
+        return (cells[cell] & direction) != 0;
+    }
+
+    /**
+     * @param cell Index of the cell.
+     * @return The clockwise quarter turns applied to the tile on the cell.
+     */
+    public int getRotation(int cell) {
+        return (cells[cell] & ROTATION_MASK) >>> ROTATION_SHIFT;
+    }
+
+    /**
+     * @param cell Index of the cell.
+     * @return True if the tile on the cell can never be shifted.
+     */
+    public boolean isFixed(int cell) {
+        return (cells[cell] & FIXED_FLAG) != 0;
+    }
+
+    /**
+     * Returns the raw packed value of a cell, as described in the class comment.
+     *
+     * @param cell Index of the cell.
+     * @return The packed cell.
+     */
+    public int getPackedCell(int cell) {
+        return cells[cell];
+    }
+
+    /**
+     * Rotates a set of openings clockwise.
+     *
+     * @param openings Openings to rotate.
+     * @param quarterTurns Number of clockwise quarter turns.
+     * @return The rotated openings.
+     */
+    public static int rotate(int openings, int quarterTurns) {
+        int turns = quarterTurns & 3;
+        return ((openings << turns) | (openings >>> (4 - turns))) & OPENINGS_MASK;
+    }
+
+    /**
+     * Packs a tile into the layout of a cell, without treasure.
+     *
+     * @param openings Openings of the tile in its unrotated position.
+     * @param rotation Clockwise quarter turns applied to the tile.
+     * @param fixed True if the tile can never be shifted.
+     * @return The packed tile.
+     */
+    public static int packTile(int openings, int rotation, boolean fixed) {
+        return rotate(openings, rotation) | ((rotation & 3) << ROTATION_SHIFT) | (fixed ? FIXED_FLAG : 0);
+    }
+
+    /* ------------------------------------------------------------ insertion */
+
+    /**
+     * Places a tile on the spare slot, keeping any treasure lying on it.
+     *
+     * @param openings Openings of the tile in its unrotated position.
+     * @param rotation Clockwise quarter turns applied to the tile.
+     */
+    public void setSpareTile(int openings, int rotation) {
+        spare = (spare & ~TILE_MASK) | packTile(openings, rotation, false);
+    }
+
+    /**
+     * @return The openings of the spare tile in its current rotation.
+     */
+    public int getSpareOpenings() {
+        return spare & OPENINGS_MASK;
+    }
+
+    /**
+     * @return The clockwise quarter turns applied to the spare tile.
+     */
+    public int getSpareRotation() {
+        return (spare & ROTATION_MASK) >>> ROTATION_SHIFT;
+    }
+
+    /**
+     * @return The id of the treasure lying on the spare tile, or 0 if there is none.
+     */
+    public int getSpareTreasure() {
+        return spare >>> TREASURE_SHIFT;
+    }
+
+    /**
+     * @return The raw packed value of the spare tile, in the layout of a cell.
+     */
+    int getPackedSpare() {
+        return spare;
+    }
+
+    /**
+     * Turns the spare tile a quarter turn clockwise.
+     */
+    public void rotateSpare() {
+        int rotation = getSpareRotation();
+        int openings = rotate(getSpareOpenings(), 4 - rotation);  // Back to the unrotated tile
+        setSpareTile(openings, rotation + 1);
+    }
+
+    /**
+     * Tells whether a row or column can be shifted, i.e. holds no fixed tile.
+     *
+     * @param edge Edge the spare tile enters from: NORTH or SOUTH for a column, EAST or WEST for a row.
+     * @param line Index of the column or row.
+     * @return True if the spare tile can be inserted there.
+     */
+    public boolean canInsert(int edge, int line) {
+        if (line < 0 || line >= size) {
+            return false;
+        }
+        boolean column = edge == NORTH || edge == SOUTH;
+        for (int i = 0; i < size; i++) {
+            if (isFixed(column ? cellIndex(i, line) : cellIndex(line, i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Pushes the spare tile into a row or column from the given edge. Every tile of the
+     * line moves one cell away from that edge, the tile pushed off the opposite edge
+     * becomes the new spare tile, and players standing on the line move with their
+     * tiles. A player pushed off the board re-enters on the inserted tile. Runs in
+     * O(size + players) without allocating.
+     *
+     * @param edge Edge the spare tile enters from: NORTH pushes a column down, SOUTH up,
+     *             WEST pushes a row right and EAST left.
+     * @param line Index of the column or row.
+     */
+    public void insert(int edge, int line) {
+        if (!canInsert(edge, line)) {
+            throw new IllegalArgumentException("Line " + line + " cannot be shifted from edge " + edge);
+        }
+
+        // First and step of the cells along the line, walking from the entry edge inwards
+        int first;
+        int step;
+        switch (edge) {
+            case NORTH: first = cellIndex(0, line); step = size; break;
+            case SOUTH: first = cellIndex(size - 1, line); step = -size; break;
+            case WEST: first = cellIndex(line, 0); step = 1; break;
+            case EAST: first = cellIndex(line, size - 1); step = -1; break;
+            default: throw new IllegalArgumentException("Unknown edge: " + edge);
+        }
+        int last = first + step * (size - 1);
+
+        // Rotate the line by one cell, the ejected tile becoming the spare
+        int ejected = cells[last];
+        for (int cell = last; cell != first; cell -= step) {
+            cells[cell] = cells[cell - step];
+            moveTreasure(cell);
+        }
+        cells[first] = spare;
+        moveTreasure(first);
+        spare = ejected & ~FIXED_FLAG;
+        if (getSpareTreasure() != 0) {
+            treasureCells[getSpareTreasure() - 1] = SPARE_CELL;
+        }
+
+        // Carry the players standing on the line
+        for (int player = 0; player < playerCells.length; player++) {
+            int cell = playerCells[player];
+            if (cell == NO_CELL || !onLine(cell, edge, line)) {
+                continue;
+            }
+            playerCells[player] = cell == last ? first : cell + step;
+        }
+    }
+
+    private void moveTreasure(int cell) {
+        int id = getTreasure(cell);
+        if (id != 0) {
+            treasureCells[id - 1] = cell;
+        }
+    }
+
+    private boolean onLine(int cell, int edge, int line) {
+        return (edge == NORTH || edge == SOUTH) ? cell % size == line : cell / size == line;
+    }
+
+    /* ------------------------------------------------------------ treasures */
+
+    /**
+     * Places a new treasure on a cell.
+     *
+     * @param cell Index of the cell, which must not hold a treasure yet.
+     * @param component Component number of the treasure, optionally combined with GOLD.
+     * @return The id of the new treasure, starting at 1.
+     */
+    public int addTreasure(int cell, int component) {
+        if (treasureCount == treasureComponents.length) {
+            throw new IllegalStateException("Board is full: " + treasureCount + " treasures");
+        }
+        if (getTreasure(cell) != 0) {
+            throw new IllegalArgumentException("Cell " + cell + " already holds a treasure");
+        }
+        int id = ++treasureCount;
+        treasureComponents[id - 1] = component;
+        treasureCells[id - 1] = cell;
+        cells[cell] |= id << TREASURE_SHIFT;
+        return id;
+    }
+
+    /**
+     * Removes a treasure from the board, for example once it has been captured.
+     *
+     * @param id Id of the treasure.
+     */
+    public void removeTreasure(int id) {
+        int cell = treasureCells[id - 1];
+        if (cell == SPARE_CELL) {
+            spare &= ~(~0 << TREASURE_SHIFT);
+        } else if (cell != NO_CELL) {
+            cells[cell] &= ~(~0 << TREASURE_SHIFT);
+        }
+        treasureCells[id - 1] = NO_CELL;
+    }
+
+    /**
+     * @param cell Index of the cell.
+     * @return The id of the treasure lying on the cell, or 0 if there is none.
+     */
+    public int getTreasure(int cell) {
+        return cells[cell] >>> TREASURE_SHIFT;
+    }
+
+    /**
+     * @return The number of treasures ever placed on the board; ids run from 1 to this value.
+     */
+    public int getTreasureCount() {
+        return treasureCount;
+    }
+
+    /**
+     * @param id Id of the treasure.
+     * @return The component number of the treasure, combined with GOLD for gold components.
+     */
+    public int getComponent(int id) {
+        return treasureComponents[id - 1];
+    }
+
+    /**
+     * @param id Id of the treasure.
+     * @return The cell the treasure lies on, SPARE_CELL if it lies on the spare tile, or
+     *         NO_CELL once it has been removed.
+     */
+    public int getTreasureCell(int id) {
+        return treasureCells[id - 1];
+    }
+
+    /* -------------------------------------------------------------- players */
+
+    /**
+     * @return The number of players on the board.
+     */
+    public int getPlayerCount() {
+        return playerCells.length;
+    }
+
+    /**
+     * @param player Index of the player.
+     * @return The cell the player stands on, or NO_CELL.
+     */
+    public int getPlayerCell(int player) {
+        return playerCells[player];
+    }
+
+    /**
+     * Moves a player to a cell.
+     *
+     * @param player Index of the player.
+     * @param cell Index of the cell, or NO_CELL to take the player off the board.
+     */
+    public void setPlayerCell(int player, int cell) {
+        playerCells[player] = cell;
+    }
+
+    /* -------------------------------------------------------------- hashing */
+
+    /**
+     * Computes a 64-bit hash of the whole board without allocating, suitable as a key
+     * for transposition tables.
+     *
+     * @return The hash of the board.
+     */
+    public long hash() {
+        long h = mix(0x9E3779B97F4A7C15L ^ size ^ ((long) spare << 32));
+        for (int cell : cells) {
+            h = mix(h ^ cell);
+        }
+        for (int cell : playerCells) {
+            h = mix(h ^ cell);
+        }
+        return h;
+    }
+
+    private static long mix(long h) {
+        h *= 0xBF58476D1CE4E5B9L;
+        return h ^ (h >>> 31);
+    }
+
+    @Override
+    public int hashCode() {
+        long h = hash();
+        return (int) (h ^ (h >>> 32));
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof BoardModel)) {
+            return false;
+        }
+        BoardModel other = (BoardModel) obj;
+        return size == other.size && spare == other.spare && treasureCount == other.treasureCount
+                && Arrays.equals(cells, other.cells)
+                && Arrays.equals(playerCells, other.playerCells)
+                && Arrays.equals(treasureComponents, 0, treasureCount, other.treasureComponents, 0, treasureCount);
+    }
+
+    /**
+     * Overwrites the board with cells kept elsewhere, e.g. in a {@link GameSnapshot},
+     * without allocating. Where each treasure lies is read back from the cells; those on
+     * neither a cell nor the spare tile are taken as removed.
+     *
+     * @param cellAt Packed value of each cell, by cell index.
+     * @param spare Packed spare tile.
+     * @param players Cell of every player.
+     * @param components Component of every treasure, by id - 1.
+     * @param count Number of treasures ever placed.
+     */
+    void restore(IntUnaryOperator cellAt, int spare, int[] players, int[] components, int count) {
+        if (players.length != playerCells.length || count > treasureComponents.length) {
+            throw new IllegalArgumentException("Boards have different dimensions");
+        }
+        System.arraycopy(components, 0, treasureComponents, 0, count);
+        Arrays.fill(treasureCells, 0, count, NO_CELL);
+        treasureCount = count;
+        for (int cell = 0; cell < cells.length; cell++) {
+            cells[cell] = cellAt.applyAsInt(cell);
+            moveTreasure(cell);
+        }
+        this.spare = spare;
+        if (getSpareTreasure() != 0) {
+            treasureCells[getSpareTreasure() - 1] = SPARE_CELL;
+        }
+        System.arraycopy(players, 0, playerCells, 0, players.length);
+    }
+
+    /* ---------------------------------------------------------- persistence */
+
+    /**
+     * @return The number of bytes {@link #writeTo(ByteBuffer)} puts for this board.
+     */
+    int serializedSize() {
+        return 4 * (5 + cells.length + playerCells.length + 2 * treasureCount);
+    }
+
+    /**
+     * Writes the board in binary form without allocating: its dimensions, the packed
+     * cells, the spare tile, the player cells and every treasure ever placed.
+     *
+     * @param out Buffer receiving the board, with at least {@link #serializedSize()} bytes left.
+     */
+    void writeTo(ByteBuffer out) {
+        out.putInt(size).putInt(playerCells.length).putInt(treasureComponents.length).putInt(treasureCount);
+        for (int cell : cells) {
+            out.putInt(cell);
+        }
+        out.putInt(spare);
+        for (int cell : playerCells) {
+            out.putInt(cell);
+        }
+        for (int i = 0; i < treasureCount; i++) {
+            out.putInt(treasureComponents[i]).putInt(treasureCells[i]);
+        }
+    }
+
+    /**
+     * Overwrites this board with one written by {@link #writeTo(ByteBuffer)}.
+     *
+     * @param in Buffer positioned at the start of the board.
+     * @throws IllegalArgumentException If the saved board has different dimensions.
+     */
+    void readFrom(ByteBuffer in) {
+        if (in.getInt() != size || in.getInt() != playerCells.length || in.getInt() != treasureComponents.length) {
+            throw new IllegalArgumentException("Saved board has different dimensions");
+        }
+        int count = in.getInt();
+        if (count < 0 || count > treasureComponents.length) {
+            throw new IllegalArgumentException("Saved board has " + count + " treasures");
+        }
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = in.getInt();
+        }
+        spare = in.getInt();
+        for (int i = 0; i < playerCells.length; i++) {
+            playerCells[i] = in.getInt();
+        }
+        for (int i = 0; i < count; i++) {
+            treasureComponents[i] = in.getInt();
+            treasureCells[i] = in.getInt();
+        }
+        treasureCount = count;
+    }
+
+    /* ------------------------------------------------------- default layout */
+
+    /**
+     * Creates the 7x7 board of the original game: the tile layout, the numbered
+     * components, the starting positions of the four players and a T-shaped spare tile.
+     *
+     * @return The standard board.
+     */
+    public static BoardModel standard() {
+        // Tile openings, row by row
+        final int se = SOUTH | EAST, sw = SOUTH | WEST, ne = NORTH | EAST, nw = NORTH | WEST;
+        final int tS = EAST | SOUTH | WEST, tE = NORTH | EAST | SOUTH, tW = NORTH | SOUTH | WEST;
+        final int tN = NORTH | EAST | WEST, h = EAST | WEST, v = NORTH | SOUTH;
+        int[][] mazeStructure = {
+                {se, se, tS, h, tS, se, sw},
+                {ne, tE, tW, tE, nw, tW, nw},
+                {v, ne, tW, tN, se, sw, tW},
+                {tE, tS, h, tE, nw, sw, v},
+                {v, tN, v, ne, h, tN, nw},
+                {tE, tW, tN, tS, sw, se, tW},
+                {ne, h, tN, nw, tN, tN, nw}
+        };
+
+        // Numbered components; gold ones are flagged
+        int[][] components = {
+                {0, 0, 0, 0, 0, 0, 0},
+                {0, 16, 14 | GOLD, 6, 1 | GOLD, 8, 0},
+                {0, 2, 0, 5, 0, 20, 0},
+                {0, 7, 8, 25, 9, 13, 0},
+                {0, 18, 0, 4, 0, 11 | GOLD, 0},
+                {0, 20, 19 | GOLD, 3, 7, 14, 0},
+                {0, 0, 0, 0, 0, 0, 0}
+        };
+
+        // Starting cells of the green, blue, yellow and red players
+        int[][] players = {{4, 2}, {4, 4}, {2, 2}, {2, 4}};
+
+        int size = mazeStructure.length;
+        BoardModel board = new BoardModel(size, players.length, size * size);
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                int cell = board.cellIndex(row, col);
+                board.setTile(cell, mazeStructure[row][col], 0, row % 2 == 0 && col % 2 == 0);
+                if (components[row][col] != 0) {
+                    board.addTreasure(cell, components[row][col]);
+                }
+            }
+        }
+        for (int i = 0; i < players.length; i++) {
+            board.setPlayerCell(i, board.cellIndex(players[i][0], players[i][1]));
+        }
+        board.setSpareTile(tS, 0);
+        return board;
+    }
+
+    /**
+     * Creates a board of any odd size from {@link #MIN_SIZE} to {@link #MAX_SIZE}, laid out
+     * like the standard one by a {@link MazeGenerator} with its default rules. The layout
+     * only depends on the size, so every copy of the game builds the same board. The
+     * standard size gives {@link #standard()}.
+     *
+     * @param size Number of rows and columns.
+     * @return The board.
+     * @throws IllegalArgumentException If the size is even or out of range.
+     */
+    public static BoardModel sized(int size) {
+        if (size == STANDARD_SIZE) {
+            return standard();
+        }
+        return new MazeGenerator(MazeGenerator.Rules.forSize(size)).firstValid(size);
+    }
+}
@@ -0,0 +1,144 @@
+package mysticmaze;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * ChatLog keeps the most recent chat lines shown on screen in a fixed-capacity ring
+ * buffer, so memory and the cost of an append stay the same however long a game lasts.
+ * <p>
+ * Lines may be posted from any thread. They wait in a bounded hand-off queue and are
+ * moved into the ring once per frame on the EDT, where listeners hear about the whole
+ * burst at once. The ring itself is only read and written on the EDT.
+ */
+public final class ChatLog {
+
+    private static final int FRAME_MILLIS = 16;  // Posts within one frame reach the screen together
+
+    /**
+     * Schedules the end of each frame for every log. A Swing timer is not used as it can
+     * drop a firing that is due while its previous event is still being handled.
+     */
+    private static final ScheduledExecutorService FRAMES = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "chat-frames");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final String[] lines;
+    private long first;  // Sequence number of the oldest line kept
+    private long end;    // Sequence number the next line will get
+
+    private final ArrayBlockingQueue<String> posted;
+    private final AtomicBoolean flushPending = new AtomicBoolean();
+    private final List<Runnable> listeners = new ArrayList<>();
+
+    /**
+     * Creates an empty log.
+     *
+     * @param capacity Number of lines kept; older lines are dropped.
+     */
+    public ChatLog(int capacity) {
+        lines = new String[capacity];
+        posted = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * Adds a line, from any thread. It appears with the next frame.
+     *
+     * @param line The line to add.
+     */
+    public void post(String line) {
+        while (!posted.offer(line)) {
+            posted.poll();  // A burst larger than the log; the oldest would be dropped on arrival anyway
+        }
+        if (flushPending.compareAndSet(false, true)) {
+            FRAMES.schedule(() -> SwingUtilities.invokeLater(this::flush), FRAME_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Removes every line, including those posted but not shown yet. Call on the EDT.
+     */
+    public void clear() {
+        posted.clear();
+        Arrays.fill(lines, null);
+        first = end;
+        fireChanged();
+    }
+
+    /**
+     * Registers a listener called on the EDT after each burst of lines has been added,
+     * or the log cleared.
+     *
+     * @param listener The listener.
+     */
+    public void addChangeListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @return The number of lines the log can keep.
+     */
+    public int getCapacity() {
+        return lines.length;
+    }
+
+    /**
+     * @return The sequence number of the oldest line kept. Call on the EDT.
+     */
+    public long getFirst() {
+        return first;
+    }
+
+    /**
+     * @return The sequence number the next line will get, one past the newest. Call on the EDT.
+     */
+    public long getEnd() {
+        return end;
+    }
+
+    /**
+     * @param sequence Sequence number between {@link #getFirst()} and {@link #getEnd()}.
+     * @return The line. Call on the EDT.
+     */
+    public String get(long sequence) {
+        if (sequence < first || sequence >= end) {
+            throw new IndexOutOfBoundsException("Line " + sequence + " is not kept");
+        }
+        return lines[(int) (sequence % lines.length)];
+    }
+
+    /**
+     * Moves the lines posted during the last frame into the ring and tells the listeners.
+     */
+    private void flush() {
+        flushPending.set(false);  // Lines posted from now on start a new frame
+        String line;
+        boolean changed = false;
+        while ((line = posted.poll()) != null) {
+            lines[(int) (end % lines.length)] = line;
+            end++;
+            first = Math.max(first, end - lines.length);
+            changed = true;
+        }
+        if (changed) {
+            fireChanged();
+        }
+    }
+
+    private void fireChanged() {
+        assert SwingUtilities.isEventDispatchThread();
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package mysticmaze;
+
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Insets;
+import java.awt.Point;
+import java.awt.Rectangle;
+
+import javax.swing.JComponent;
+import javax.swing.JViewport;
+import javax.swing.Scrollable;
+import javax.swing.SwingConstants;
+import javax.swing.UIManager;
+
+/**
+ * ChatView paints a {@link ChatLog} inside a scroll pane, word-wrapped to its width.
+ * Only the number of rows each line wraps to is kept, and it is worked out once per
+ * line as it arrives; painting wraps and draws just the lines inside the clip. While
+ * scrolled to the bottom the view follows new lines; scrolled up it stays put.
+ */
+public class ChatView extends JComponent implements Scrollable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int VISIBLE_ROWS = 10;  // Rows shown without scrolling, for the preferred viewport size
+    private static final LatencyHistogram PAINT_TIMES = Instrumentation.shared().paintTimes("chat");
+
+    private final ChatLog log;
+
+    /**
+     * Rows every shown line wraps to at {@link #wrapWidth}, indexed like the ring of the log.
+     */
+    private final int[] rows;
+    private long shownFirst;  // Sequence numbers of the lines counted in rows
+    private long shownEnd;
+    private int totalRows;
+    private int wrapWidth = -1;
+
+    /**
+     * Start of every row of the line being painted, reused between lines.
+     */
+    private final int[] rowStarts = new int[GameState.MAX_CHAT_LENGTH * 2 + 2];
+
+    /**
+     * Creates a view of a log, following it as lines arrive.
+     *
+     * @param log The log to show.
+     */
+    public ChatView(ChatLog log) {
+        this.log = log;
+        this.rows = new int[log.getCapacity()];
+        setFont(UIManager.getFont("TextArea.font"));
+        log.addChangeListener(this::logChanged);
+    }
+
+    /**
+     * Counts the rows of the lines that arrived and forgets those the log dropped, then
+     * scrolls down to the newest line if the bottom was showing.
+     */
+    private void logChanged() {
+        boolean atBottom = isAtBottom();
+        long first = log.getFirst();
+        long end = log.getEnd();
+
+        // Forget the dropped lines first: their slots are reused by the new ones
+        for (long sequence = shownFirst; sequence < Math.min(first, shownEnd); sequence++) {
+            totalRows -= rows[slot(sequence)];
+        }
+        shownFirst = first;
+        for (long sequence = Math.max(shownEnd, first); sequence < end; sequence++) {
+            int count = wrapWidth > 0 ? wrap(log.get(sequence), wrapWidth) : 1;
+            rows[slot(sequence)] = count;
+            totalRows += count;
+        }
+        shownEnd = end;
+
+        revalidate();
+        repaint();
+        if (atBottom && getParent() instanceof JViewport viewport) {
+            int height = getPreferredSize().height;
+            setSize(getWidth(), Math.max(height, viewport.getHeight()));
+            viewport.setViewPosition(new Point(0, Math.max(0, height - viewport.getHeight())));
+        }
+    }
+
+    private boolean isAtBottom() {
+        if (!(getParent() instanceof JViewport viewport)) {
+            return true;
+        }
+        Rectangle visible = viewport.getViewRect();
+        return visible.y + visible.height >= getHeight() - rowHeight();
+    }
+
+    private int slot(long sequence) {
+        return (int) (sequence % rows.length);
+    }
+
+    /* -------------------------------------------------------------- layout */
+
+    @Override
+    public void setBounds(int x, int y, int width, int height) {
+        super.setBounds(x, y, width, height);
+        int textWidth = width - getInsets().left - getInsets().right;
+        if (textWidth > 0 && textWidth != wrapWidth) {
+            rewrap(textWidth);
+        }
+    }
+
+    @Override
+    public void setFont(Font font) {
+        super.setFont(font);
+        if (rows != null && wrapWidth > 0) {
+            rewrap(wrapWidth);
+        }
+    }
+
+    /**
+     * Counts the rows of every kept line again; the log is bounded, so this is too.
+     */
+    private void rewrap(int textWidth) {
+        wrapWidth = textWidth;
+        totalRows = 0;
+        for (long sequence = shownFirst; sequence < shownEnd; sequence++) {
+            rows[slot(sequence)] = wrap(log.get(sequence), wrapWidth);
+            totalRows += rows[slot(sequence)];
+        }
+        revalidate();
+        repaint();
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        Insets insets = getInsets();
+        return new Dimension(Math.max(0, wrapWidth) + insets.left + insets.right,
+                totalRows * rowHeight() + insets.top + insets.bottom);
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return new Dimension(getPreferredSize().width, VISIBLE_ROWS * rowHeight());
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? rowHeight() : 10;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? visibleRect.height : visibleRect.width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return true;  // Lines wrap instead of scrolling sideways
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return getParent() instanceof JViewport viewport && viewport.getHeight() > getPreferredSize().height;
+    }
+
+    private int rowHeight() {
+        return getFontMetrics(getFont()).getHeight();
+    }
+
+    /* ------------------------------------------------------------ painting */
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        if (wrapWidth <= 0) {
+            return;
+        }
+        long paintStart = System.nanoTime();
+        Insets insets = getInsets();
+        FontMetrics metrics = g.getFontMetrics(getFont());
+        int rowHeight = metrics.getHeight();
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        g.setFont(getFont());
+        g.setColor(getForeground());
+
+        // Skip the lines above the clip using the row counts alone
+        int y = insets.top;
+        long sequence = shownFirst;
+        while (sequence < shownEnd && y + rows[slot(sequence)] * rowHeight <= clip.y) {
+            y += rows[slot(sequence)] * rowHeight;
+            sequence++;
+        }
+
+        // Wrap and draw only the lines that intersect it
+        for (; sequence < shownEnd && y < clip.y + clip.height; sequence++) {
+            String line = log.get(sequence);
+            int count = wrap(line, wrapWidth);
+            for (int row = 0; row < count; row++) {
+                int start = rowStarts[row];
+                int stop = row + 1 < count ? rowStarts[row + 1] : line.length();
+                while (stop > start && line.charAt(stop - 1) == ' ') {
+                    stop--;  // Spaces at a break are not drawn
+                }
+                g.drawString(line.substring(start, stop), insets.left, y + metrics.getAscent());
+                y += rowHeight;
+            }
+        }
+        PAINT_TIMES.record(System.nanoTime() - paintStart);
+    }
+
+    /**
+     * Word-wraps a line to a width, breaking after spaces where possible and inside a word
+     * only when it is wider than the whole row. The start of every row is left in
+     * {@link #rowStarts}.
+     *
+     * @return The number of rows, at least 1.
+     */
+    private int wrap(String line, int width) {
+        FontMetrics metrics = getFontMetrics(getFont());
+        int count = 1;
+        rowStarts[0] = 0;
+        int rowWidth = 0;
+        int lastBreak = -1;  // Index after the last space in the current row
+        int limit = Math.min(line.length(), rowStarts.length - 1);
+        for (int i = 0; i < limit; i++) {
+            char c = line.charAt(i);
+            int advance = metrics.charWidth(c);
+            if (rowWidth + advance > width && c != ' ' && i > rowStarts[count - 1]) {
+                int start = lastBreak > rowStarts[count - 1] ? lastBreak : i;
+                rowStarts[count++] = start;
+                rowWidth = 0;
+                for (int j = start; j < i; j++) {
+                    rowWidth += metrics.charWidth(line.charAt(j));
+                }
+                lastBreak = -1;
+                if (count == rowStarts.length) {
+                    break;
+                }
+            }
+            rowWidth += advance;
+            if (c == ' ') {
+                lastBreak = i + 1;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,414 @@
+package mysticmaze;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * ComputerPlayer chooses a turn for a player seat: where to insert the spare tile, how
+ * to rotate it first and which reachable cell to walk to. Every combination of insert
+ * slot and distinct spare rotation is evaluated as its own fork-join task, so all cores
+ * share the search. Below the root the search is a sequential negamax that treats the
+ * next player as the opponent, cut off by a time budget with iterative deepening and
+ * backed by a transposition table keyed by board hash.
+ */
+public final class ComputerPlayer {
+
+    /**
+     * A complete turn: rotate the spare tile {@code rotation} quarter turns clockwise,
+     * insert it from {@code edge} into {@code line}, then walk to {@code destination}.
+     *
+     * @param edge Edge the spare tile enters from.
+     * @param line Index of the shifted row or column.
+     * @param rotation Clockwise quarter turns applied to the spare tile before inserting.
+     * @param destination Index of the cell to move to.
+     * @param score Value of the turn for the moving player; higher is better.
+     */
+    public record Move(int edge, int line, int rotation, int destination, float score) {
+    }
+
+    private static final float CAPTURE_SCORE = 1000f;  // Reaching the target beats any heuristic
+    private static final float DISCOUNT = 0.9f;        // Prefer captures that happen sooner
+    private static final int[] EDGES = {BoardModel.NORTH, BoardModel.EAST, BoardModel.SOUTH, BoardModel.WEST};
+
+    private final int maxDepth;
+    private final long timeBudgetNanos;
+    private final ForkJoinPool pool;
+    private final TranspositionTable table = new TranspositionTable(1 << 16);
+
+    /**
+     * Creates a computer player searching on the common fork-join pool.
+     *
+     * @param maxDepth Number of turns to look ahead, at least 1.
+     * @param timeBudgetMillis Time allowed per decision; deeper searches that do not finish in time are discarded.
+     */
+    public ComputerPlayer(int maxDepth, long timeBudgetMillis) {
+        this(maxDepth, timeBudgetMillis, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a computer player searching on the given pool.
+     *
+     * @param maxDepth Number of turns to look ahead, at least 1.
+     * @param timeBudgetMillis Time allowed per decision.
+     * @param pool Pool running the search tasks.
+     */
+    public ComputerPlayer(int maxDepth, long timeBudgetMillis, ForkJoinPool pool) {
+        if (maxDepth < 1) {
+            throw new IllegalArgumentException("Search depth must be at least 1: " + maxDepth);
+        }
+        this.maxDepth = maxDepth;
+        this.timeBudgetNanos = timeBudgetMillis * 1_000_000L;
+        this.pool = pool;
+    }
+
+    /**
+     * Chooses the best turn for a player. The board is not modified. Every pass stops at
+     * the end of the time budget; a deeper pass replaces the answer only if it finishes,
+     * while a first pass cut short still answers with the best insertions it evaluated.
+     * If not even one was evaluated in time, any legal turn is returned.
+     *
+     * @param board The current board, with the spare tile not yet inserted.
+     * @param player Index of the moving player.
+     * @param targetComponent Component number the players are trying to capture.
+     * @return The chosen turn.
+     */
+    public Move chooseMove(BoardModel board, int player, int targetComponent) {
+        long deadline = System.nanoTime() + timeBudgetNanos;
+        Move best = null;
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            Move result = pool.invoke(new RootTask(board, player, targetComponent, depth, deadline));
+            if (result == null) {
+                break;  // Ran out of time, keep the previous depth
+            }
+            best = result;
+            if (best.score() >= CAPTURE_SCORE || System.nanoTime() >= deadline) {
+                break;
+            }
+        }
+        return best != null ? best : anyMove(board, player);
+    }
+
+    /**
+     * @return The first legal insertion, staying put, for when the search had no time at all.
+     */
+    private static Move anyMove(BoardModel board, int player) {
+        for (int edge : EDGES) {
+            for (int line = 0; line < board.getSize(); line++) {
+                if (board.canInsert(edge, line)) {
+                    BoardModel shifted = new BoardModel(board);
+                    shifted.insert(edge, line);
+                    return new Move(edge, line, 0, shifted.getPlayerCell(player), Float.NEGATIVE_INFINITY);
+                }
+            }
+        }
+        throw new IllegalStateException("No line can be shifted");
+    }
+
+    /**
+     * Forks one {@link InsertTask} per insert slot and distinct spare rotation and keeps
+     * the best of their answers. If any of them ran out of time, a first pass keeps the
+     * best of those that finished, or null if none did; a deeper pass returns null.
+     */
+    private final class RootTask extends RecursiveTask<Move> {
+        private static final long serialVersionUID = 1L;
+
+        private final BoardModel board;
+        private final int player;
+        private final int target;
+        private final int depth;
+        private final long deadline;
+
+        RootTask(BoardModel board, int player, int target, int depth, long deadline) {
+            this.board = board;
+            this.player = player;
+            this.target = target;
+            this.depth = depth;
+            this.deadline = deadline;
+        }
+
+        @Override
+        protected Move compute() {
+            List<InsertTask> tasks = new ArrayList<>();
+            int size = board.getSize();
+            for (int rotation = 0; rotation < 4; rotation++) {
+                if (isDuplicateRotation(board, rotation)) {
+                    continue;
+                }
+                for (int edge : EDGES) {
+                    for (int line = 0; line < size; line++) {
+                        if (board.canInsert(edge, line)) {
+                            tasks.add(new InsertTask(board, player, target, depth, deadline, edge, line, rotation));
+                        }
+                    }
+                }
+            }
+
+            Move best = null;
+            for (InsertTask task : invokeAll(tasks)) {
+                Move move = task.join();
+                if (move == null) {
+                    if (depth > 1) {
+                        return null;  // Scores of a partial pass do not compare with the last full one
+                    }
+                    continue;
+                }
+                if (best == null || move.score() > best.score()) {
+                    best = move;
+                }
+            }
+            return best;
+        }
+    }
+
+    /**
+     * Evaluates every destination after one insertion.
+     */
+    private final class InsertTask extends RecursiveTask<Move> {
+        private static final long serialVersionUID = 1L;
+
+        private final BoardModel board;
+        private final int player;
+        private final int target;
+        private final int depth;
+        private final long deadline;
+        private final int edge;
+        private final int line;
+        private final int rotation;
+
+        InsertTask(BoardModel board, int player, int target, int depth, long deadline, int edge, int line, int rotation) {
+            this.board = board;
+            this.player = player;
+            this.target = target;
+            this.depth = depth;
+            this.deadline = deadline;
+            this.edge = edge;
+            this.line = line;
+            this.rotation = rotation;
+        }
+
+        @Override
+        protected Move compute() {
+            Search search = new Search(board, target, depth, deadline);
+            BoardModel shifted = search.boards[depth];
+            shifted.copyFrom(board);
+            for (int i = 0; i < rotation; i++) {
+                shifted.rotateSpare();
+            }
+            shifted.insert(edge, line);
+
+            float score = search.bestDestination(shifted, player, depth);
+            if (search.timedOut) {
+                return null;
+            }
+            return new Move(edge, line, rotation, search.bestCell, score);
+        }
+    }
+
+    /**
+     * Sequential negamax below the root. Scratch boards and reachability engines are
+     * allocated once per task, one pair per remaining depth, so the search itself does
+     * not allocate.
+     */
+    private final class Search {
+        private final int target;
+        private final long deadline;
+        private final BoardModel[] boards;      // Board after the insertion at each depth
+        private final BoardModel[] moved;       // Board after the move at each depth
+        private final Reachability[] reach;
+        private final int[][] targetCells;      // Cells holding the target at each depth
+        private boolean timedOut;
+        private int bestCell;                   // Destination chosen by the last bestDestination call
+
+        Search(BoardModel root, int target, int depth, long deadline) {
+            this.target = target;
+            this.deadline = deadline;
+            this.boards = new BoardModel[depth + 1];
+            this.moved = new BoardModel[depth + 1];
+            this.reach = new Reachability[depth + 1];
+            this.targetCells = new int[depth + 1][root.getTreasureCount()];
+            for (int d = 1; d <= depth; d++) {
+                boards[d] = new BoardModel(root);
+                moved[d] = new BoardModel(root);
+                reach[d] = new Reachability(boards[d]);
+            }
+        }
+
+        /**
+         * Value of the position for the player about to take a turn.
+         */
+        float evaluate(BoardModel board, int player, int depth) {
+            long key = TranspositionTable.key(board.hash(), player, depth, target);
+            float cached = table.get(key);
+            if (!Float.isNaN(cached)) {
+                return cached;
+            }
+
+            BoardModel shifted = boards[depth];
+            float best = Float.NEGATIVE_INFINITY;
+            for (int rotation = 0; rotation < 4 && !timedOut; rotation++) {
+                if (isDuplicateRotation(board, rotation)) {
+                    continue;
+                }
+                for (int edge : EDGES) {
+                    for (int line = 0; line < board.getSize(); line++) {
+                        if (!board.canInsert(edge, line)) {
+                            continue;
+                        }
+                        shifted.copyFrom(board);
+                        for (int i = 0; i < rotation; i++) {
+                            shifted.rotateSpare();
+                        }
+                        shifted.insert(edge, line);
+                        best = Math.max(best, bestDestination(shifted, player, depth));
+                    }
+                }
+            }
+            if (!timedOut) {
+                table.put(key, best);
+            }
+            return best;
+        }
+
+        /**
+         * Finds the best cell to walk to on a board where the spare has just been
+         * inserted, which must be boards[depth]. Returns its score and leaves the cell
+         * in bestCell.
+         */
+        float bestDestination(BoardModel shifted, int player, int depth) {
+            int start = shifted.getPlayerCell(player);
+            if (System.nanoTime() > deadline) {
+                timedOut = true;
+                bestCell = start;
+                return Float.NEGATIVE_INFINITY;
+            }
+
+            // Each depth has its own board and engine, so deeper plies leave this flood fill intact
+            Reachability reachability = reach[depth];
+            reachability.rebuild();
+            reachability.computeFrom(start);
+
+            float bestScore = Float.NEGATIVE_INFINITY;
+            int best = start;
+            int[] targets = targetCells[depth];
+            int targetCount = findTargets(shifted, targets);
+            for (int cell = reachability.nextReachable(0); cell >= 0; cell = reachability.nextReachable(cell + 1)) {
+                float score;
+                if (contains(targets, targetCount, cell)) {
+                    score = CAPTURE_SCORE * depth;  // Sooner captures are worth more
+                } else if (depth == 1) {
+                    score = heuristic(shifted, cell, targets, targetCount);
+                } else {
+                    BoardModel next = moved[depth];
+                    next.copyFrom(shifted);
+                    next.setPlayerCell(player, cell);
+                    score = -DISCOUNT * evaluate(next, (player + 1) % shifted.getPlayerCount(), depth - 1);
+                }
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = cell;
+                }
+            }
+            bestCell = best;
+            return bestScore;
+        }
+
+        /**
+         * Lists the cells of every treasure of the target component; a component may have
+         * several, and those on the spare tile cannot be captured this turn.
+         *
+         * @return The number of cells written to {@code cells}.
+         */
+        private int findTargets(BoardModel board, int[] cells) {
+            int count = 0;
+            for (int id = 1; id <= board.getTreasureCount(); id++) {
+                int cell = board.getTreasureCell(id);
+                if ((board.getComponent(id) & ~BoardModel.GOLD) == target && cell >= 0) {
+                    cells[count++] = cell;
+                }
+            }
+            return count;
+        }
+    }
+
+    private static boolean contains(int[] cells, int count, int cell) {
+        for (int i = 0; i < count; i++) {
+            if (cells[i] == cell) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Closeness to the nearest treasure of the target in (-1, 0], as minus its Manhattan
+     * distance over twice the board size: 0 when standing on it, -1/(2 * size) next to it,
+     * (1 - size)/size from the opposite corner. Neutral when every one lies on the spare tile.
+     */
+    private static float heuristic(BoardModel board, int cell, int[] targets, int targetCount) {
+        if (targetCount == 0) {
+            return 0f;
+        }
+        int size = board.getSize();
+        int distance = Integer.MAX_VALUE;
+        for (int i = 0; i < targetCount; i++) {
+            int target = targets[i];
+            distance = Math.min(distance, Math.abs(cell / size - target / size) + Math.abs(cell % size - target % size));
+        }
+        return -(float) distance / (2 * size);
+    }
+
+    /**
+     * True if rotating the spare tile this many times gives the same openings as a
+     * smaller rotation, e.g. straight hallways only have two distinct rotations.
+     */
+    private static boolean isDuplicateRotation(BoardModel board, int rotation) {
+        int openings = board.getSpareOpenings();
+        for (int r = 0; r < rotation; r++) {
+            if (BoardModel.rotate(openings, r) == BoardModel.rotate(openings, rotation)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Fixed-size, lock-free transposition table. Each slot stores the key XOR the value
+     * bits next to the value bits, so a slot torn by concurrent writers simply fails
+     * verification instead of returning a wrong value.
+     */
+    private static final class TranspositionTable {
+        private final long[] checks;
+        private final long[] values;
+        private final int mask;
+
+        TranspositionTable(int capacity) {
+            checks = new long[capacity];
+            values = new long[capacity];
+            mask = capacity - 1;
+        }
+
+        static long key(long boardHash, int player, int depth, int target) {
+            long h = boardHash ^ (((long) player << 48) | ((long) depth << 40) | target);
+            h *= 0x9E3779B97F4A7C15L;
+            return h ^ (h >>> 29);
+        }
+
+        float get(long key) {
+            int slot = (int) key & mask;
+            long value = values[slot];
+            if ((checks[slot] ^ value) != key || value == 0) {
+                return Float.NaN;
+            }
+            return Float.intBitsToFloat((int) value);
+        }
+
+        void put(long key, float score) {
+            int slot = (int) key & mask;
+            long value = (1L << 32) | (Float.floatToIntBits(score) & 0xFFFFFFFFL);  // High bit marks a used slot
+            values[slot] = value;
+            checks[slot] = key ^ value;
+        }
+    }
+}
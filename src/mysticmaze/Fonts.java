@@ -0,0 +1,89 @@
+package mysticmaze;
+
+import java.awt.Font;
+import java.awt.FontFormatException;
+import java.awt.GraphicsEnvironment;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fonts holds every font the game draws with. Each is derived once from a handful of
+ * base faces and shared, so components never create fonts of their own.
+ * <p>
+ * Number badges use the fantasy face {@value #FANTASY_RESOURCE} when the game ships
+ * one, registered with the graphics environment on first use; otherwise they fall
+ * back to the bold serif font. Badge fonts are derived per pixel size and kept.
+ */
+public final class Fonts {
+
+    /** Classpath name of the TrueType face used for badges, if present. */
+    public static final String FANTASY_RESOURCE = "/fantasy.ttf";
+
+    private static final Font SERIF = new Font(Font.SERIF, Font.BOLD, 1);
+    private static final Font SANS = new Font(Font.SANS_SERIF, Font.BOLD, 1);
+    private static final Font ARIAL = new Font("Arial", Font.PLAIN, 1);
+
+    /** The title of the window. */
+    public static final Font TITLE = SERIF.deriveFont(40f);
+
+    /** Headings of the side panels. */
+    public static final Font HEADING = SANS.deriveFont(32f);
+
+    /** The INGREDIENTS label above the menu. */
+    public static final Font SUBHEADING = SANS.deriveFont(30f);
+
+    /** The turn instruction. */
+    public static final Font INSTRUCTION = SANS.deriveFont(20f);
+
+    /** Names under the menu buttons. */
+    public static final Font MENU = SANS.deriveFont(16f);
+
+    /** Status lines and the chat history. */
+    public static final Font TEXT = ARIAL.deriveFont(20f);
+
+    /** What the player types into the chat. */
+    public static final Font INPUT = ARIAL.deriveFont(16f);
+
+    /** Player names and star counts. */
+    public static final Font SMALL = ARIAL.deriveFont(15f);
+
+    /** The metrics overlay. */
+    public static final Font MONOSPACED = new Font(Font.MONOSPACED, Font.PLAIN, 14);
+
+    private static final Map<Integer, Font> BADGES = new ConcurrentHashMap<>();
+
+    private Fonts() {
+    }
+
+    /**
+     * Holds the badge face, loaded on first use.
+     */
+    private static final class Fantasy {
+        static final Font FACE = load();
+
+        private static Font load() {
+            try (InputStream in = Fonts.class.getResourceAsStream(FANTASY_RESOURCE)) {
+                if (in != null) {
+                    Font font = Font.createFont(Font.TRUETYPE_FONT, in);
+                    GraphicsEnvironment.getLocalGraphicsEnvironment().registerFont(font);
+                    return font;
+                }
+            } catch (IOException | FontFormatException e) {
+                e.printStackTrace();  // Badges are still drawn, in the fallback face
+            }
+            return SERIF;
+        }
+    }
+
+    /**
+     * Returns the badge font at a size, deriving it the first time. Safe from any thread.
+     *
+     * @param size Size in pixels.
+     * @return The font.
+     */
+    public static Font badge(int size) {
+        return BADGES.computeIfAbsent(size, pixels -> Fantasy.FACE.deriveFont(Font.BOLD, (float) pixels));
+    }
+}
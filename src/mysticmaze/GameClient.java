@@ -0,0 +1,344 @@
+package mysticmaze;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.CharsetEncoder;
+import java.util.concurrent.Executor;
+
+/**
+ * GameClient plays at a table of a {@link GameServer}. It keeps a mirror of the game
+ * the server holds: the whole game arrives once on joining, and every half turn after
+ * that is a delta applied to the mirror and checked against the board hash sent with
+ * it. If the hashes ever differ the client asks for the whole game again.
+ * <p>
+ * A single reader thread decodes what arrives; the mirror is only touched, and the
+ * listener only called, on the executor given when connecting, e.g. the EDT.
+ */
+public final class GameClient implements Closeable {
+
+    /**
+     * Receives what happens at the table, on the executor of the client.
+     */
+    public interface Listener {
+
+        /**
+         * The server has seated the client; the game follows.
+         *
+         * @param table Number of the table.
+         * @param seat Index of the player the client plays, or -1 when watching.
+         */
+        void joined(int table, int seat);
+
+        /**
+         * The whole mirrored game has been replaced, on joining or after a resync.
+         */
+        void stateReplaced();
+
+        /**
+         * The current player has inserted the spare tile into the mirrored board.
+         *
+         * @param rotation Rotation the spare tile was inserted with.
+         * @param edge Edge the spare tile entered from.
+         * @param line Index of the row or column.
+         */
+        void inserted(int rotation, int edge, int line);
+
+        /**
+         * A player has moved on the mirrored board and the turn has passed on.
+         *
+         * @param player Index of the player who moved.
+         * @param from Cell they left.
+         * @param cell Cell they moved to.
+         * @param treasure Id of the treasure they captured, or 0.
+         */
+        void moved(int player, int from, int cell, int treasure);
+
+        /**
+         * A chat line was said at the table. The listener names the sender in its own
+         * language and adds the line to the mirrored game if it keeps the chat.
+         *
+         * @param sender Seat of the sender, or -1 for a spectator.
+         * @param text What they wrote.
+         */
+        void chatReceived(int sender, String text);
+
+        /**
+         * @param reason Why the server turned down the last request: a REJECTED reason of
+         *               the protocol, see {@link Protocol#reasonKey}.
+         */
+        void rejected(int reason);
+
+        /**
+         * The connection was lost; not called after {@link GameClient#close()}.
+         *
+         * @param cause What broke the connection.
+         */
+        void disconnected(IOException cause);
+    }
+
+    private static final int OUTBOUND_SIZE = 4096;  // Requests are at most one chat line
+
+    private final SocketChannel channel;
+    private final GameEngine mirror;
+    private final Executor executor;
+    private final Listener listener;
+    private final ByteBuffer in = ByteBuffer.allocateDirect(Protocol.MAX_FRAME);
+    private final ByteBuffer out = ByteBuffer.allocateDirect(OUTBOUND_SIZE);  // Guarded by itself
+    private final CharsetEncoder encoder = BinaryStrings.newEncoder();          // Guarded by out
+    private volatile int seat = -1;
+    private volatile boolean closed;
+    private boolean resyncing;  // Touched on the executor only
+
+    private GameClient(SocketChannel channel, GameEngine mirror, Executor executor, Listener listener) {
+        this.channel = channel;
+        this.mirror = mirror;
+        this.executor = executor;
+        this.listener = listener;
+    }
+
+    /**
+     * Connects to a server and joins a table, taking the first free seat or watching
+     * if every seat is taken.
+     *
+     * @param address Address of the server.
+     * @param table Number of the table, created on the server if nobody sits there yet.
+     * @param mirror Game overwritten with, and then kept in step with, the game at the
+     *        table. It must be on a board of the standard dimensions.
+     * @param executor Executor the mirror is updated and the listener called on.
+     * @param listener Receives what happens at the table.
+     * @return The connected client.
+     * @throws IOException If the server cannot be reached.
+     */
+    public static GameClient connect(InetSocketAddress address, int table, GameEngine mirror,
+                                     Executor executor, Listener listener) throws IOException {
+        SocketChannel channel = SocketChannel.open(address);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        GameClient client = new GameClient(channel, mirror, executor, listener);
+        synchronized (client.out) {
+            Protocol.begin(client.out, Protocol.JOIN);
+            client.out.putInt(table);
+            client.send();
+        }
+        Thread reader = new Thread(client::read, "game-client");
+        reader.setDaemon(true);
+        reader.start();
+        return client;
+    }
+
+    /**
+     * @return The index of the player this client plays, or -1 when watching or not yet seated.
+     */
+    public int getSeat() {
+        return seat;
+    }
+
+    /**
+     * Asks the server to insert the spare tile for this client's seat.
+     *
+     * @param rotation Rotation to insert the spare tile with.
+     * @param edge Edge the spare tile enters from.
+     * @param line Index of the row or column.
+     * @throws IOException If the request cannot be sent.
+     */
+    public void sendInsert(int rotation, int edge, int line) throws IOException {
+        synchronized (out) {
+            Protocol.begin(out, Protocol.INSERT);
+            out.put((byte) rotation).put((byte) edge).put((byte) line);
+            send();
+        }
+    }
+
+    /**
+     * Asks the server to move this client's player.
+     *
+     * @param cell Index of the cell to move to.
+     * @throws IOException If the request cannot be sent.
+     */
+    public void sendMove(int cell) throws IOException {
+        synchronized (out) {
+            Protocol.begin(out, Protocol.MOVE);
+            out.putInt(cell);
+            send();
+        }
+    }
+
+    /**
+     * Sends a chat line to everyone at the table; the server adds the sender's name.
+     *
+     * @param text Text of the line.
+     * @throws IOException If the line cannot be sent.
+     */
+    public void sendChat(String text) throws IOException {
+        String line = text.length() > GameState.MAX_CHAT_LENGTH ? text.substring(0, GameState.MAX_CHAT_LENGTH) : text;
+        synchronized (out) {
+            Protocol.begin(out, Protocol.SAY);
+            BinaryStrings.put(out, line, encoder);
+            send();
+        }
+    }
+
+    /**
+     * Leaves the table. The listener hears nothing more.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        channel.close();
+    }
+
+    /**
+     * Ends the message in the outbound buffer and writes it; the caller holds the buffer.
+     */
+    private void send() throws IOException {
+        Protocol.end(out);
+        Protocol.record(true, out.get(2), out.remaining());
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+    }
+
+    private void requestResync() {
+        if (resyncing) {
+            return;  // The game is already on its way
+        }
+        resyncing = true;
+        synchronized (out) {
+            try {
+                Protocol.begin(out, Protocol.RESYNC);
+                send();
+            } catch (IOException e) {
+                // The reader thread reports the broken connection
+            }
+        }
+    }
+
+    /* ------------------------------------------------------------ messages */
+
+    /**
+     * Body of the reader thread: decodes every complete frame and hands it to the executor.
+     */
+    private void read() {
+        try {
+            while (true) {
+                if (channel.read(in) < 0) {
+                    throw new EOFException("The server closed the connection");
+                }
+                in.flip();
+                int length;
+                while ((length = Protocol.frameLength(in)) > 0) {
+                    if (length < Protocol.HEADER) {
+                        in.position(in.position() + length);  // No type byte, so nothing to handle
+                        continue;
+                    }
+                    JfrEvents.NetworkMessage event = new JfrEvents.NetworkMessage();
+                    event.begin();
+                    byte type = in.get(in.position() + 2);
+                    handleMessage(type, Protocol.body(in, length));
+                    Protocol.commit(event, false, type, length);
+                }
+                in.compact();
+            }
+        } catch (IOException | RuntimeException e) {
+            if (!closed) {
+                IOException cause = e instanceof IOException io ? io : new IOException(e);
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // Already broken
+                }
+                executor.execute(() -> listener.disconnected(cause));
+            }
+        }
+    }
+
+    /**
+     * Decodes one message and hands it to the executor.
+     *
+     * @param type Type of the message.
+     * @param in Body of the message, bounded to its frame.
+     */
+    private void handleMessage(byte type, ByteBuffer in) {
+        switch (type) {
+            case Protocol.WELCOME -> {
+                int table = in.getInt();
+                int joinedSeat = in.get();
+                seat = joinedSeat;
+                executor.execute(() -> {
+                    mirror.getState().clearChat();  // The table's history follows
+                    listener.joined(table, joinedSeat);
+                });
+            }
+            case Protocol.GAME -> {
+                byte[] game = new byte[in.remaining()];
+                in.get(game);
+                executor.execute(() -> {
+                    mirror.getState().readFrom(ByteBuffer.wrap(game));
+                    mirror.stateReplaced();
+                    resyncing = false;
+                    listener.stateReplaced();
+                });
+            }
+            case Protocol.INSERTED -> {
+                int rotation = in.get();
+                int edge = in.get();
+                int line = in.get();
+                long hash = in.getLong();
+                executor.execute(() -> {
+                    if (resyncing) {
+                        return;  // The whole game replaces whatever this would change
+                    }
+                    try {
+                        mirror.applyInsert(rotation, edge, line);
+                    } catch (IllegalArgumentException e) {
+                        requestResync();
+                        return;
+                    }
+                    listener.inserted(rotation, edge, line);
+                    if (mirror.getBoard().hash() != hash) {
+                        requestResync();
+                    }
+                });
+            }
+            case Protocol.MOVED -> {
+                int cell = in.getInt();
+                int treasure = in.getInt();
+                int nextTarget = in.getInt();
+                long hash = in.getLong();
+                executor.execute(() -> {
+                    if (resyncing) {
+                        return;
+                    }
+                    int player = mirror.getState().getCurrentPlayer();
+                    int from = mirror.getBoard().getPlayerCell(player);
+                    try {
+                        mirror.applyMove(cell, treasure, nextTarget);
+                    } catch (IllegalArgumentException e) {
+                        requestResync();
+                        return;
+                    }
+                    listener.moved(player, from, cell, treasure);
+                    if (mirror.getBoard().hash() != hash) {
+                        requestResync();
+                    }
+                });
+            }
+            case Protocol.CHAT -> {
+                byte sender = in.get();
+                String text = BinaryStrings.get(in);
+                executor.execute(() -> listener.chatReceived(sender, text));
+            }
+            case Protocol.REJECTED -> {
+                byte reason = in.get();
+                executor.execute(() -> listener.rejected(reason));
+            }
+            default -> {
+                // Newer message types are skipped
+            }
+        }
+    }
+}
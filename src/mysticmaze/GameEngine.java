@@ -0,0 +1,195 @@
+package mysticmaze;
+
+/**
+ * GameEngine plays a game by the rules without any user interface: it checks and applies
+ * both halves of every turn on a {@link GameState}, keeps the {@link Reachability} of the
+ * current player up to date and tells when the game is over. The window, the game server,
+ * its clients and the batch {@link Simulation} all drive games through it.
+ * <p>
+ * Every insertion and move is recorded as a {@link JfrEvents.Shift} or {@link JfrEvents.Move}
+ * event. Instances are not thread-safe; each game in play has its own engine.
+ */
+public final class GameEngine {
+
+    private final GameState state;
+    private final BoardModel board;
+    private final Reachability reachability;
+
+    /**
+     * Creates an engine playing the given game from where it stands.
+     *
+     * @param state The game, which the engine keeps and modifies.
+     */
+    public GameEngine(GameState state) {
+        this.state = state;
+        this.board = state.getBoard();
+        this.reachability = new Reachability(board);
+        stateReplaced();
+    }
+
+    /**
+     * @return The game played by this engine.
+     */
+    public GameState getState() {
+        return state;
+    }
+
+    /**
+     * @return The board of the game.
+     */
+    public BoardModel getBoard() {
+        return board;
+    }
+
+    /**
+     * @return The connectivity of the board; during the move half of a turn it holds the
+     *         cells the current player can walk to.
+     */
+    public Reachability getReachability() {
+        return reachability;
+    }
+
+    /**
+     * Catches up with a game that was overwritten as a whole, e.g. by loading a save or
+     * receiving it from a server.
+     */
+    public void stateReplaced() {
+        reachability.rebuild();
+        if (state.isMovePhase()) {
+            reachability.computeFrom(board.getPlayerCell(state.getCurrentPlayer()));
+        }
+    }
+
+    /* ---------------------------------------------------------------- rules */
+
+    /**
+     * @param edge Edge the spare tile would enter from.
+     * @param line Index of the row or column.
+     * @return True if the current player may insert the spare tile there now.
+     */
+    public boolean canInsert(int edge, int line) {
+        return !state.isMovePhase() && !isGameOver() && isEdge(edge) && board.canInsert(edge, line);
+    }
+
+    /**
+     * Inserts the spare tile for the current player and works out where they can walk to.
+     *
+     * @param rotation Rotation to insert the spare tile with.
+     * @param edge Edge the spare tile enters from.
+     * @param line Index of the row or column.
+     * @throws IllegalArgumentException If the spare tile cannot be inserted there now.
+     */
+    public void insert(int rotation, int edge, int line) {
+        if (!canInsert(edge, line)) {
+            throw new IllegalArgumentException("Cannot insert from edge " + edge + " into line " + line + " now");
+        }
+        applyInsert(rotation, edge, line);
+    }
+
+    /**
+     * @param cell Index of a cell.
+     * @return True if the current player may move to the cell now.
+     */
+    public boolean canMove(int cell) {
+        return state.isMovePhase() && cell >= 0 && cell < board.getSize() * board.getSize()
+                && reachability.isReachable(cell);
+    }
+
+    /**
+     * Moves the current player, capturing the target component if it lies on the cell,
+     * and passes the turn on.
+     *
+     * @param cell Index of the cell to move to.
+     * @return The id of the captured treasure, or 0.
+     * @throws IllegalArgumentException If the player cannot move there now.
+     */
+    public int move(int cell) {
+        if (!canMove(cell)) {
+            throw new IllegalArgumentException("Cannot move to cell " + cell + " now");
+        }
+        JfrEvents.Move event = new JfrEvents.Move();
+        event.begin();
+        int player = state.getCurrentPlayer();
+        int treasure = state.playMove(cell);
+        commit(event, player, cell, treasure);
+        return treasure;
+    }
+
+    /**
+     * Replays the insert half of a turn decided elsewhere, e.g. by a server, without
+     * checking whose turn it is.
+     *
+     * @param rotation Rotation the spare tile was inserted with.
+     * @param edge Edge the spare tile entered from.
+     * @param line Index of the row or column.
+     * @throws IllegalArgumentException If the line holds a fixed tile.
+     */
+    public void applyInsert(int rotation, int edge, int line) {
+        JfrEvents.Shift event = new JfrEvents.Shift();
+        event.begin();
+        state.applyInsert(rotation, edge, line);
+        reachability.lineShifted(edge, line);
+        reachability.computeFrom(board.getPlayerCell(state.getCurrentPlayer()));
+        event.end();
+        if (event.shouldCommit()) {
+            event.player = state.getCurrentPlayer();
+            event.edge = edge;
+            event.line = line;
+            event.commit();
+        }
+    }
+
+    /**
+     * Replays the move half of a turn decided elsewhere, see {@link GameState#applyMove}.
+     *
+     * @param cell Cell the player moved to.
+     * @param treasure Id of the treasure they captured, or 0.
+     * @param nextTarget Component number to capture next.
+     */
+    public void applyMove(int cell, int treasure, int nextTarget) {
+        JfrEvents.Move event = new JfrEvents.Move();
+        event.begin();
+        int player = state.getCurrentPlayer();
+        state.applyMove(cell, treasure, nextTarget);
+        commit(event, player, cell, treasure);
+    }
+
+    private static void commit(JfrEvents.Move event, int player, int cell, int treasure) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.player = player;
+            event.cell = cell;
+            event.treasure = treasure;
+            event.commit();
+        }
+    }
+
+    /**
+     * @return True once every component has been captured.
+     */
+    public boolean isGameOver() {
+        return state.getTargetComponent() == 0;
+    }
+
+    /**
+     * @return The index of the player with the most captures, or -1 while several share the lead.
+     */
+    public int getLeader() {
+        int leader = -1;
+        int best = -1;
+        for (int player = 0; player < board.getPlayerCount(); player++) {
+            int captures = state.getCaptures(player);
+            if (captures > best) {
+                best = captures;
+                leader = player;
+            } else if (captures == best) {
+                leader = -1;
+            }
+        }
+        return leader;
+    }
+
+    private static boolean isEdge(int edge) {
+        return edge == BoardModel.NORTH || edge == BoardModel.EAST || edge == BoardModel.SOUTH || edge == BoardModel.WEST;
+    }
+}
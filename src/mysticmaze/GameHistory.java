@@ -0,0 +1,162 @@
+package mysticmaze;
+
+/**
+ * GameHistory keeps every position a game went through as a tree of {@link GameSnapshot}s,
+ * for undo, redo and trying out other turns. Playing a half turn after undoing does not
+ * forget the turns undone: it starts a new variation next to them, and
+ * {@link #nextVariation()} switches between the variations of a position.
+ * <p>
+ * Undo, redo and switching variation only move a pointer in the tree. As snapshots share
+ * what their turns left alone, a history of thousands of half turns holds little more than
+ * the blocks of cells those turns changed. Instances are not thread-safe.
+ */
+public final class GameHistory {
+
+    /**
+     * A position in the tree. Its variations are linked from the first one played.
+     */
+    private static final class Node {
+        final GameSnapshot snapshot;
+        final Node parent;
+        Node firstChild;
+        Node nextSibling;
+        Node redo;  // Child redo goes to: the one undone last, or played last
+
+        Node(GameSnapshot snapshot, Node parent) {
+            this.snapshot = snapshot;
+            this.parent = parent;
+        }
+    }
+
+    private Node current;
+    private int size;
+
+    /**
+     * Creates a history starting at the given position.
+     *
+     * @param start The position the game starts from.
+     */
+    public GameHistory(GameSnapshot start) {
+        reset(start);
+    }
+
+    /**
+     * Forgets everything and starts again at the given position, e.g. after loading a game.
+     *
+     * @param start The new first position.
+     */
+    public void reset(GameSnapshot start) {
+        current = new Node(start, null);
+        size = 1;
+    }
+
+    /**
+     * @return The current position.
+     */
+    public GameSnapshot current() {
+        return current.snapshot;
+    }
+
+    /**
+     * @return The number of positions kept, in every variation.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Moves on to a position reached from the current one by playing a half turn. Any
+     * turns undone before are kept as another variation.
+     *
+     * @param next The position after the half turn, usually from {@link GameSnapshot#insert}
+     *             or {@link GameSnapshot#move} on {@link #current()}.
+     */
+    public void record(GameSnapshot next) {
+        Node node = new Node(next, current);
+        if (current.firstChild == null) {
+            current.firstChild = node;
+        } else {
+            Node last = current.firstChild;
+            while (last.nextSibling != null) {
+                last = last.nextSibling;
+            }
+            last.nextSibling = node;
+        }
+        current.redo = node;
+        current = node;
+        size++;
+    }
+
+    /**
+     * @return True if there is a position before the current one.
+     */
+    public boolean canUndo() {
+        return current.parent != null;
+    }
+
+    /**
+     * Goes back one half turn.
+     *
+     * @return The position before the current one.
+     * @throws IllegalStateException At the first position.
+     */
+    public GameSnapshot undo() {
+        if (!canUndo()) {
+            throw new IllegalStateException("Nothing to undo");
+        }
+        current.parent.redo = current;
+        current = current.parent;
+        return current.snapshot;
+    }
+
+    /**
+     * @return True if a half turn was undone, or played in another variation, from here.
+     */
+    public boolean canRedo() {
+        return current.redo != null;
+    }
+
+    /**
+     * Plays again the half turn last undone from the current position.
+     *
+     * @return The position after it.
+     * @throws IllegalStateException If there is nothing to redo.
+     */
+    public GameSnapshot redo() {
+        if (!canRedo()) {
+            throw new IllegalStateException("Nothing to redo");
+        }
+        current = current.redo;
+        return current.snapshot;
+    }
+
+    /**
+     * @return The number of variations of the current position: the half turns played
+     *         from the position before it, this one included.
+     */
+    public int getVariationCount() {
+        if (current.parent == null) {
+            return 1;
+        }
+        int count = 0;
+        for (Node node = current.parent.firstChild; node != null; node = node.nextSibling) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Switches to the next variation of the current position, going round to the first
+     * after the last, and makes it the one redo follows.
+     *
+     * @return The position in that variation.
+     */
+    public GameSnapshot nextVariation() {
+        Node parent = current.parent;
+        if (parent != null) {
+            current = current.nextSibling != null ? current.nextSibling : parent.firstChild;
+            parent.redo = current;
+        }
+        return current.snapshot;
+    }
+}
@@ -0,0 +1,654 @@
+package mysticmaze;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.CharsetEncoder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * GameServer hosts any number of tables over TCP on a single selector thread. It is
+ * authoritative: clients only send requests, which the server checks against the rules
+ * on its own copy of every game before broadcasting the outcome to everyone at the
+ * table as a delta of a few bytes (see {@link Protocol}). Each message is encoded once
+ * into a scratch buffer and copied into a preallocated outbound buffer per player;
+ * everything queued for a connection during one pass of the selector goes out in a
+ * single write. A player that falls so far behind that its outbound buffer overflows
+ * is disconnected.
+ * <p>
+ * Spectators, who may be thousands at a table, share one feed instead: every message
+ * is copied once into the current segment of the table, and each spectator writes
+ * straight from it through a read-only view of its own. A segment starts with the
+ * whole game as a keyframe, and a new one every {@value #KEYFRAME_INTERVAL} half turns.
+ * A spectator still more than one segment behind when it reaches the end of a frame
+ * skips to the latest keyframe, so a slow spectator costs no memory and misses at
+ * most the moves and chat in between. Its socket buffer is kept small, so that its lag
+ * builds up in the feed, where it is bounded, rather than in the kernel.
+ * <p>
+ * The server runs inside the game ("Host Game") or on its own with
+ * {@code java -cp TheMysticMaze.jar mysticmaze.GameServer [port]}.
+ */
+public final class GameServer implements Closeable {
+
+    /** Port used when none is given. */
+    public static final int DEFAULT_PORT = 7777;
+
+    private static final int INBOUND_SIZE = 4096;  // Requests are at most one chat line
+    private static final int MIN_OUTBOUND_SIZE = 16 * 1024;
+    private static final int SPECTATOR_OUTBOUND_SIZE = 256;  // Rejections, once the greeting is written
+    private static final int SPECTATOR_SEND_BUFFER = 16 * 1024;  // Socket buffer, so lag shows here rather than in the kernel
+    private static final int KEYFRAME_INTERVAL = 32;  // Half turns per spectator feed segment
+    private static final int MAX_BROADCAST = Protocol.HEADER + 3 + 3 * GameState.MAX_CHAT_LENGTH;  // Longest frame: a chat line
+
+    /**
+     * Frames broadcast to the spectators of a table, starting with the game as it stood.
+     * Written up to the position of its buffer, and never changed after being replaced.
+     */
+    private static final class Segment {
+        final ByteBuffer frames;
+        final int generation;   // Counts the segments of the table
+        final int keyframeEnd;  // Where spectators that read the previous segment through go on
+        int halfTurns;
+
+        Segment(ByteBuffer frames, int generation) {
+            this.frames = frames;
+            this.generation = generation;
+            this.keyframeEnd = frames.position();
+        }
+    }
+
+    /**
+     * A game being played, with the connections of its players and spectators.
+     */
+    private static final class Table {
+        final int id;
+        final GameEngine engine = new GameEngine(new GameState(BoardModel.standard(), GameState.FIRST_TARGET));
+        final GameState state = engine.getState();
+        final Connection[] seats = new Connection[state.getBoard().getPlayerCount()];
+        final List<Connection> members = new ArrayList<>();
+        final List<Connection> spectators = new ArrayList<>();
+        final ArrayDeque<ChatLine> chat = new ArrayDeque<>();  // The last GameState.CHAT_HISTORY lines
+        Segment feed;  // Null while nobody watches
+
+        Table(int id) {
+            this.id = id;
+        }
+    }
+
+    /**
+     * A chat line as the table keeps it, so that every client names the sender in its
+     * own language.
+     *
+     * @param sender Seat of the sender, or -1 for a spectator.
+     * @param text What they wrote.
+     */
+    private record ChatLine(byte sender, String text) {
+    }
+
+    /**
+     * A client, with its buffers and where it sits.
+     */
+    private static final class Connection {
+        final SocketChannel channel;
+        final SelectionKey key;
+        final ByteBuffer in = ByteBuffer.allocateDirect(INBOUND_SIZE);
+        ByteBuffer out;   // Allocated on joining, sized for the game at the table
+        Table table;
+        int seat = -1;    // Seat at the table, -1 for a spectator
+        boolean pending;  // Listed for the flush at the end of the selector pass
+        Segment segment;  // Spectators only: the feed segment being written, through view
+        ByteBuffer view;
+        boolean resync;   // Spectators only: skip to the latest keyframe at the next frame
+
+        Connection(SocketChannel channel, Selector selector) throws IOException {
+            this.channel = channel;
+            this.key = channel.register(selector, SelectionKey.OP_READ, this);
+        }
+    }
+
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final Map<Integer, Table> tables = new HashMap<>();
+    private final List<Connection> pending = new ArrayList<>();  // Connections with output queued this pass
+    private final ByteBuffer message = ByteBuffer.allocateDirect(Protocol.MAX_FRAME);  // Message being sent
+    private final CharsetEncoder encoder = BinaryStrings.newEncoder();
+    private final ByteBuffer[] gather = new ByteBuffer[2];  // Private messages, then the feed, of a spectator
+    private Thread thread;
+    private volatile boolean running;
+    private volatile long spectatorSkips;  // Written by the server thread only
+
+    /**
+     * Creates a server listening on all interfaces.
+     *
+     * @param port Port to listen on, or 0 for any free port.
+     * @throws IOException If the port cannot be bound.
+     */
+    public GameServer(int port) throws IOException {
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        try {
+            server.bind(new InetSocketAddress(port));
+            server.configureBlocking(false);
+            server.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            server.close();
+            selector.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return The port the server listens on.
+     */
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    /**
+     * @return The number of times a spectator fell too far behind and skipped to the
+     *         latest keyframe of its table.
+     */
+    public long getSpectatorSkips() {
+        return spectatorSkips;
+    }
+
+    /**
+     * Starts serving on a thread of its own.
+     */
+    public synchronized void start() {
+        if (thread == null) {
+            running = true;
+            thread = new Thread(this::run, "game-server");
+            thread.start();
+        }
+    }
+
+    /**
+     * Stops the server and disconnects every client.
+     */
+    @Override
+    public void close() throws IOException {
+        Thread serving;
+        synchronized (this) {
+            running = false;
+            serving = thread;
+        }
+        selector.wakeup();
+        if (serving != null && serving != Thread.currentThread()) {
+            try {
+                serving.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (SelectionKey key : selector.keys()) {
+            key.channel().close();
+        }
+        selector.close();
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                selector.select(this::handle);
+                for (Connection connection : pending) {
+                    connection.pending = false;
+                    try {
+                        flush(connection);
+                    } catch (RuntimeException e) {
+                        e.printStackTrace();
+                        disconnect(connection);
+                    }
+                }
+                pending.clear();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Handles a ready key. A client whose requests break the server in a way not foreseen
+     * is dropped, so that it cannot stop the other tables.
+     */
+    private void handle(SelectionKey key) {
+        if (key.isValid() && key.isAcceptable()) {
+            accept();
+            return;
+        }
+        Connection connection = (Connection) key.attachment();
+        try {
+            if (key.isValid() && key.isReadable()) {
+                read(connection);
+            }
+            if (key.isValid() && key.isWritable()) {
+                flush(connection);
+            }
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            disconnect(connection);
+        }
+    }
+
+    private void accept() {
+        try {
+            SocketChannel channel = server.accept();
+            if (channel != null) {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                new Connection(channel, selector);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /* ------------------------------------------------------------- requests */
+
+    /**
+     * Reads what the client sent and handles every complete request.
+     */
+    private void read(Connection connection) {
+        ByteBuffer in = connection.in;
+        try {
+            if (connection.channel.read(in) < 0) {
+                disconnect(connection);
+                return;
+            }
+        } catch (IOException e) {
+            disconnect(connection);
+            return;
+        }
+
+        in.flip();
+        int length;
+        while (connection.key.isValid() && (length = Protocol.frameLength(in)) > 0) {
+            if (length < Protocol.HEADER) {
+                in.position(in.position() + length);
+                reject(connection, Protocol.BAD_MESSAGE);  // No type byte
+                continue;
+            }
+            JfrEvents.NetworkMessage event = new JfrEvents.NetworkMessage();
+            event.begin();
+            byte type = in.get(in.position() + 2);
+            ByteBuffer body = Protocol.body(in, length);
+            try {
+                handleRequest(connection, type, body);
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                reject(connection, Protocol.BAD_MESSAGE);
+            }
+            Protocol.commit(event, false, type, length);
+        }
+        if (in.position() == 0 && in.limit() == in.capacity()) {
+            disconnect(connection);  // A request larger than the buffer
+            return;
+        }
+        in.compact();
+    }
+
+    private void handleRequest(Connection connection, byte type, ByteBuffer in) {
+        if (type == Protocol.JOIN) {
+            join(connection, in.getInt());
+            return;
+        }
+        Table table = connection.table;
+        if (table == null) {
+            reject(connection, Protocol.BAD_MESSAGE);
+            return;
+        }
+        GameState state = table.state;
+        BoardModel board = state.getBoard();
+        switch (type) {
+            case Protocol.INSERT -> {
+                int rotation = in.get();
+                int edge = in.get();
+                int line = in.get();
+                if (connection.seat != state.getCurrentPlayer()) {
+                    reject(connection, Protocol.NOT_YOUR_TURN);
+                } else if (!table.engine.canInsert(edge, line)) {
+                    reject(connection, Protocol.ILLEGAL_MOVE);
+                } else {
+                    table.engine.insert(rotation, edge, line);
+
+                    Protocol.begin(message, Protocol.INSERTED);
+                    message.put((byte) rotation).put((byte) edge).put((byte) line).putLong(board.hash());
+                    Protocol.end(message);
+                    broadcast(table);
+                }
+            }
+            case Protocol.MOVE -> {
+                int cell = in.getInt();
+                if (connection.seat != state.getCurrentPlayer()) {
+                    reject(connection, Protocol.NOT_YOUR_TURN);
+                } else if (!table.engine.canMove(cell)) {
+                    reject(connection, Protocol.ILLEGAL_MOVE);
+                } else {
+                    int treasure = table.engine.move(cell);
+
+                    Protocol.begin(message, Protocol.MOVED);
+                    message.putInt(cell).putInt(treasure).putInt(state.getTargetComponent()).putLong(board.hash());
+                    Protocol.end(message);
+                    broadcast(table);
+                }
+            }
+            case Protocol.SAY -> {
+                String text = BinaryStrings.get(in);
+                ChatLine line = new ChatLine((byte) connection.seat,
+                        text.length() > GameState.MAX_CHAT_LENGTH ? text.substring(0, GameState.MAX_CHAT_LENGTH) : text);
+                if (table.chat.size() == GameState.CHAT_HISTORY) {
+                    table.chat.removeFirst();
+                }
+                table.chat.addLast(line);
+
+                encodeChat(line);
+                broadcast(table);
+            }
+            case Protocol.RESYNC -> {
+                if (connection.seat >= 0) {
+                    sendGame(connection);
+                } else {
+                    connection.resync = true;  // The keyframe of the feed holds the game
+                    queue(connection);
+                }
+            }
+            default -> reject(connection, Protocol.BAD_MESSAGE);
+        }
+    }
+
+    /**
+     * Seats a client at a table, creating the table if needed, and sends it the game
+     * and its chat history. Clients beyond the number of players watch as spectators,
+     * following the feed of the table from there.
+     */
+    private void join(Connection connection, int id) {
+        if (connection.table != null) {
+            reject(connection, Protocol.BAD_MESSAGE);
+            return;
+        }
+        Table table = tables.computeIfAbsent(id, Table::new);
+        for (int seat = 0; seat < table.seats.length && connection.seat < 0; seat++) {
+            if (table.seats[seat] == null) {
+                table.seats[seat] = connection;
+                connection.seat = seat;
+            }
+        }
+        connection.table = table;
+        table.members.add(connection);
+        if (connection.seat >= 0) {
+            connection.out = ByteBuffer.allocateDirect(
+                    Math.max(MIN_OUTBOUND_SIZE, 4 * (Protocol.HEADER + table.state.serializedSize())));
+        } else {
+            // Sized for this greeting only, then shrunk; spectators get everything else from the feed
+            int greeting = 2 * Protocol.HEADER + 5 + table.state.serializedSize();
+            for (ChatLine line : table.chat) {
+                greeting += Protocol.HEADER + 3 + 3 * line.text().length();
+            }
+            connection.out = ByteBuffer.allocate(greeting + SPECTATOR_OUTBOUND_SIZE);
+            try {
+                connection.channel.setOption(StandardSocketOptions.SO_SNDBUF, SPECTATOR_SEND_BUFFER);
+            } catch (IOException e) {
+                // Lags behind the kernel's own buffer instead
+            }
+            if (table.feed == null) {
+                startSegment(table);
+            }
+            table.spectators.add(connection);
+            watch(connection, table.feed, table.feed.frames.position());
+        }
+
+        Protocol.begin(message, Protocol.WELCOME);
+        message.putInt(id).put((byte) connection.seat);
+        Protocol.end(message);
+        send(connection);
+        sendGame(connection);
+        for (ChatLine line : table.chat) {
+            encodeChat(line);
+            send(connection);
+        }
+    }
+
+    private void encodeChat(ChatLine line) {
+        Protocol.begin(message, Protocol.CHAT);
+        message.put(line.sender());
+        BinaryStrings.put(message, line.text(), encoder);
+        Protocol.end(message);
+    }
+
+    private void sendGame(Connection connection) {
+        Protocol.begin(message, Protocol.GAME);
+        connection.table.state.writeTo(message);
+        Protocol.end(message);
+        send(connection);
+    }
+
+    private void reject(Connection connection, byte reason) {
+        Protocol.begin(message, Protocol.REJECTED);
+        message.put(reason);
+        Protocol.end(message);
+        send(connection);
+    }
+
+    /* --------------------------------------------------------------- output */
+
+    /**
+     * Queues the encoded message for everyone at a table: a copy for each player, and one
+     * copy in the feed for all the spectators.
+     */
+    private void broadcast(Table table) {
+        for (Connection player : table.seats) {
+            if (player != null) {
+                send(player);
+            }
+        }
+        Segment feed = table.feed;
+        if (feed == null) {
+            return;
+        }
+        message.rewind();
+        Protocol.record(true, message.get(2), message.remaining());
+        if (message.get(2) != Protocol.CHAT) {
+            feed.halfTurns++;
+        }
+        feed.frames.put(message);
+        if (feed.halfTurns == KEYFRAME_INTERVAL || feed.frames.remaining() < MAX_BROADCAST) {
+            startSegment(table);  // After the frame, so the keyframe follows on from it
+        }
+        for (Connection spectator : table.spectators) {
+            queue(spectator);
+        }
+    }
+
+    /**
+     * Starts a new feed segment for the spectators of a table, with the game as it
+     * stands now as its keyframe. Spectators finish the previous one first.
+     */
+    private void startSegment(Table table) {
+        ByteBuffer frames = ByteBuffer.allocateDirect(
+                Math.max(MIN_OUTBOUND_SIZE, 4 * (Protocol.HEADER + table.state.serializedSize())));
+        frames.putShort((short) 0).put(Protocol.GAME);
+        table.state.writeTo(frames);
+        frames.putShort(0, (short) (frames.position() - 2));
+        table.feed = new Segment(frames, table.feed == null ? 0 : table.feed.generation + 1);
+    }
+
+    /**
+     * Points a spectator at a feed segment; shares its frames, never copies them.
+     */
+    private static void watch(Connection spectator, Segment segment, int offset) {
+        ByteBuffer view = segment.frames.asReadOnlyBuffer();
+        view.limit(segment.frames.position()).position(offset);
+        spectator.segment = segment;
+        spectator.view = view;
+    }
+
+    /**
+     * Moves a spectator on through the feed, once it has written a whole frame: to the
+     * frames added since, to the next segment after its keyframe, or straight to the
+     * latest keyframe if it has fallen more than a segment behind or asked for the game.
+     */
+    private void catchUp(Connection spectator) {
+        Segment latest = spectator.table.feed;
+        Segment segment = spectator.segment;
+        if (spectator.resync) {
+            spectator.resync = false;
+            watch(spectator, latest, 0);
+        } else if (segment == latest) {
+            spectator.view.limit(latest.frames.position());
+        } else if (segment.generation + 1 < latest.generation) {
+            spectatorSkips++;
+            watch(spectator, latest, 0);
+        } else if (spectator.view.limit() < segment.frames.position()) {
+            spectator.view.limit(segment.frames.position());
+        } else {
+            watch(spectator, latest, latest.keyframeEnd);
+        }
+    }
+
+    /**
+     * Copies the encoded message into the outbound buffer of a connection, to be written
+     * together with everything else queued for it at the end of this selector pass.
+     */
+    private void send(Connection connection) {
+        ByteBuffer out = connection.out;
+        if (out == null || !connection.key.isValid()) {
+            return;
+        }
+        message.rewind();
+        if (out.remaining() < message.remaining()) {
+            flush(connection);
+            if (out.remaining() < message.remaining()) {
+                disconnect(connection);  // Too far behind to catch up
+                return;
+            }
+        }
+        Protocol.record(true, message.get(2), message.remaining());
+        out.put(message);
+        queue(connection);
+    }
+
+    /**
+     * Lists a connection for the flush at the end of this selector pass.
+     */
+    private void queue(Connection connection) {
+        if (!connection.pending) {
+            connection.pending = true;
+            pending.add(connection);
+        }
+    }
+
+    /**
+     * Writes as much queued output as the socket takes, and waits for it to become
+     * writable again if some is left.
+     */
+    private void flush(Connection connection) {
+        ByteBuffer out = connection.out;
+        if (out == null || !connection.key.isValid()) {
+            return;
+        }
+        if (connection.view != null) {
+            flushSpectator(connection);
+            return;
+        }
+        out.flip();
+        try {
+            connection.channel.write(out);
+        } catch (IOException e) {
+            out.compact();
+            disconnect(connection);
+            return;
+        }
+        out.compact();
+        connection.key.interestOps(out.position() > 0
+                ? SelectionKey.OP_READ | SelectionKey.OP_WRITE
+                : SelectionKey.OP_READ);
+    }
+
+    /**
+     * Writes the rest of the feed frame a spectator is in, then, between frames, its own
+     * messages and the feed from there on, in one gathering write.
+     */
+    private void flushSpectator(Connection connection) {
+        boolean betweenFrames = !connection.view.hasRemaining();
+        while (true) {
+            if (betweenFrames) {
+                catchUp(connection);
+            }
+            ByteBuffer out = connection.out;
+            out.flip();
+            try {
+                if (betweenFrames) {
+                    gather[0] = out;
+                    gather[1] = connection.view;
+                    connection.channel.write(gather);
+                } else {
+                    connection.channel.write(connection.view);
+                }
+            } catch (IOException e) {
+                out.compact();
+                disconnect(connection);
+                return;
+            } finally {
+                gather[0] = null;
+                gather[1] = null;
+            }
+            out.compact();
+            if (betweenFrames || connection.view.hasRemaining()) {
+                break;  // Written as much as the socket takes
+            }
+            betweenFrames = true;  // Finished the frame it was in; go on with the rest
+        }
+        if (connection.out.position() == 0 && connection.out.capacity() > SPECTATOR_OUTBOUND_SIZE) {
+            connection.out = ByteBuffer.allocate(SPECTATOR_OUTBOUND_SIZE);  // The greeting is out
+        }
+        connection.key.interestOps(connection.out.position() > 0 || connection.view.hasRemaining()
+                ? SelectionKey.OP_READ | SelectionKey.OP_WRITE
+                : SelectionKey.OP_READ);
+    }
+
+    private void disconnect(Connection connection) {
+        connection.key.cancel();
+        try {
+            connection.channel.close();
+        } catch (IOException e) {
+            // Nothing left to do with it
+        }
+        Table table = connection.table;
+        if (table != null) {
+            table.members.remove(connection);
+            if (connection.seat >= 0) {
+                table.seats[connection.seat] = null;  // Free for the next client to join
+            } else if (table.spectators.remove(connection) && table.spectators.isEmpty()) {
+                table.feed = null;
+            }
+            connection.segment = null;
+            connection.view = null;
+            if (table.members.isEmpty()) {
+                tables.remove(table.id);
+            }
+            connection.table = null;
+        }
+    }
+
+    /**
+     * Runs a dedicated server until the process is stopped.
+     *
+     * @param args Optional port number, {@value #DEFAULT_PORT} by default.
+     * @throws IOException If the port cannot be bound.
+     */
+    public static void main(String[] args) throws IOException {
+        GameServer server = new GameServer(args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT);
+        server.start();
+        System.out.println("The Mystic Maze server is listening on port " + server.getPort());
+    }
+}
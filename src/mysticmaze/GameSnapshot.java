@@ -0,0 +1,419 @@
+package mysticmaze;
+
+import java.util.Arrays;
+
+/**
+ * GameSnapshot is an immutable copy of a {@link GameState} without its chat. Playing a
+ * half turn on a snapshot returns a new one that shares everything the turn left alone
+ * with the old one, so keeping every position of a long game, or the nodes of a search
+ * tree, costs little more than the cells each turn changed.
+ * <p>
+ * Cells are packed as in {@link BoardModel} and kept in square blocks of
+ * {@value #BLOCK} x {@value #BLOCK} cells. Shifting a row or a column copies only the
+ * blocks the line crosses, plus the small array pointing at the blocks; a move copies
+ * the player cells, and the block and captures changed by a capture. The treasure
+ * components are set when the game starts and shared by every snapshot of it.
+ * <p>
+ * The rules are the same as those of {@link GameState#applyInsert},
+ * {@link GameState#applyMove} and {@link GameState#playMove}. Snapshots are safe to
+ * share between threads.
+ */
+public final class GameSnapshot {
+
+    private static final int BLOCK_SHIFT = 2;
+    private static final int BLOCK = 1 << BLOCK_SHIFT;  // Cells along each side of a block
+    private static final int BLOCK_MASK = BLOCK - 1;
+
+    private final int size;
+    private final int blocksPerSide;
+    private final int[][] blocks;      // Packed cells, block by block; never modified once shared
+    private final int spare;
+    private final int[] playerCells;
+    private final int[] components;    // Component of every treasure, shared by the whole game
+    private final int currentPlayer;
+    private final boolean movePhase;
+    private final int targetComponent;
+    private final int[] captures;
+
+    private GameSnapshot(int size, int[][] blocks, int spare, int[] playerCells, int[] components,
+            int currentPlayer, boolean movePhase, int targetComponent, int[] captures) {
+        this.size = size;
+        this.blocksPerSide = (size + BLOCK_MASK) >> BLOCK_SHIFT;
+        this.blocks = blocks;
+        this.spare = spare;
+        this.playerCells = playerCells;
+        this.components = components;
+        this.currentPlayer = currentPlayer;
+        this.movePhase = movePhase;
+        this.targetComponent = targetComponent;
+        this.captures = captures;
+    }
+
+    /**
+     * Copies a game in full. Snapshots taken from it afterwards by playing turns share
+     * with this one.
+     *
+     * @param state The game.
+     * @return A snapshot of the game as it stands.
+     */
+    public static GameSnapshot of(GameState state) {
+        BoardModel board = state.getBoard();
+        int size = board.getSize();
+        int side = (size + BLOCK_MASK) >> BLOCK_SHIFT;
+        int[][] blocks = new int[side * side][BLOCK * BLOCK];
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                blocks[(row >> BLOCK_SHIFT) * side + (col >> BLOCK_SHIFT)][slot(row, col)] =
+                        board.getPackedCell(board.cellIndex(row, col));
+            }
+        }
+        int[] players = new int[board.getPlayerCount()];
+        int[] captures = new int[players.length];
+        for (int player = 0; player < players.length; player++) {
+            players[player] = board.getPlayerCell(player);
+            captures[player] = state.getCaptures(player);
+        }
+        int[] components = new int[board.getTreasureCount()];
+        for (int id = 1; id <= components.length; id++) {
+            components[id - 1] = board.getComponent(id);
+        }
+        return new GameSnapshot(size, blocks, board.getPackedSpare(), players, components,
+                state.getCurrentPlayer(), state.isMovePhase(), state.getTargetComponent(), captures);
+    }
+
+    /**
+     * Overwrites a game, but not its chat, with this snapshot, e.g. to undo turns.
+     *
+     * @param state A game on a board of the same dimensions.
+     * @throws IllegalArgumentException If the board has different dimensions.
+     */
+    public void copyTo(GameState state) {
+        BoardModel board = state.getBoard();
+        if (board.getSize() != size) {
+            throw new IllegalArgumentException("Boards have different dimensions");
+        }
+        board.restore(this::getPackedCell, spare, playerCells, components, components.length);
+        state.setCurrentPlayer(currentPlayer);
+        state.setMovePhase(movePhase);
+        state.setTargetComponent(targetComponent);
+        for (int player = 0; player < captures.length; player++) {
+            state.setCaptures(player, captures[player]);
+        }
+    }
+
+    /* ---------------------------------------------------------------- cells */
+
+    /**
+     * @return The number of rows and columns of the board.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @param cell Index of the cell, row * size + col.
+     * @return The packed cell, as described in {@link BoardModel}.
+     */
+    public int getPackedCell(int cell) {
+        return packed(cell / size, cell % size);
+    }
+
+    private int packed(int row, int col) {
+        return blocks[block(row, col)][slot(row, col)];
+    }
+
+    /**
+     * @param cell Index of the cell.
+     * @return The openings of the tile on the cell.
+     */
+    public int getOpenings(int cell) {
+        return getPackedCell(cell) & BoardModel.OPENINGS_MASK;
+    }
+
+    /**
+     * @param cell Index of the cell.
+     * @return The id of the treasure lying on the cell, or 0 if there is none.
+     */
+    public int getTreasure(int cell) {
+        return getPackedCell(cell) >>> BoardModel.TREASURE_SHIFT;
+    }
+
+    /**
+     * @return The openings of the spare tile in its current rotation.
+     */
+    public int getSpareOpenings() {
+        return spare & BoardModel.OPENINGS_MASK;
+    }
+
+    /**
+     * @param id Id of a treasure.
+     * @return Its component number, combined with GOLD for gold components.
+     */
+    public int getComponent(int id) {
+        return components[id - 1];
+    }
+
+    /* ---------------------------------------------------------- game state */
+
+    /**
+     * @return The number of players.
+     */
+    public int getPlayerCount() {
+        return playerCells.length;
+    }
+
+    /**
+     * @param player Index of the player.
+     * @return The cell the player stands on, or NO_CELL.
+     */
+    public int getPlayerCell(int player) {
+        return playerCells[player];
+    }
+
+    /**
+     * @return The index of the player whose turn it is.
+     */
+    public int getCurrentPlayer() {
+        return currentPlayer;
+    }
+
+    /**
+     * @return True once the spare tile has been inserted and the current player has to move.
+     */
+    public boolean isMovePhase() {
+        return movePhase;
+    }
+
+    /**
+     * @return The component number to capture, or 0 once all are captured.
+     */
+    public int getTargetComponent() {
+        return targetComponent;
+    }
+
+    /**
+     * @param player Index of the player.
+     * @return The number of components the player has captured.
+     */
+    public int getCaptures(int player) {
+        return captures[player];
+    }
+
+    /* ---------------------------------------------------------------- turns */
+
+    /**
+     * @param edge Edge the spare tile would enter from.
+     * @param line Index of the row or column.
+     * @return True if the line holds no fixed tile.
+     */
+    public boolean canInsert(int edge, int line) {
+        if (line < 0 || line >= size) {
+            return false;
+        }
+        boolean column = edge == BoardModel.NORTH || edge == BoardModel.SOUTH;
+        for (int i = 0; i < size; i++) {
+            if (((column ? packed(i, line) : packed(line, i)) & BoardModel.FIXED_FLAG) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Plays the insert half of a turn: turns the spare tile to the given rotation and
+     * pushes it into a line, the players on the line moving with their tiles. Only the
+     * blocks the line crosses are copied.
+     *
+     * @param rotation Rotation the spare tile is inserted with.
+     * @param edge Edge the spare tile enters from.
+     * @param line Index of the row or column.
+     * @return The game after the insertion, in its move half.
+     * @throws IllegalArgumentException If the line holds a fixed tile.
+     */
+    public GameSnapshot insert(int rotation, int edge, int line) {
+        if (!canInsert(edge, line)) {
+            throw new IllegalArgumentException("Line " + line + " cannot be shifted from edge " + edge);
+        }
+        int turns = (spare & BoardModel.ROTATION_MASK) >>> BoardModel.ROTATION_SHIFT;
+        int unrotated = BoardModel.rotate(spare & BoardModel.OPENINGS_MASK, 4 - turns);
+        int inserted = (spare & ~BoardModel.TILE_MASK) | BoardModel.packTile(unrotated, rotation, false);
+
+        // Walk the line from the far edge back to the entry edge, each cell taking the tile before it
+        boolean column = edge == BoardModel.NORTH || edge == BoardModel.SOUTH;
+        int step = edge == BoardModel.SOUTH || edge == BoardModel.EAST ? -1 : 1;  // Along the line, away from the entry
+        int first = step > 0 ? 0 : size - 1;
+        int last = size - 1 - first;
+        int[][] next = blocks.clone();
+        int ejected = column ? packed(last, line) : packed(line, last);
+        for (int along = last; along != first; along -= step) {
+            int row = column ? along : line;
+            int col = column ? line : along;
+            set(next, row, col, column ? packed(along - step, line) : packed(line, along - step));
+        }
+        set(next, column ? first : line, column ? line : first, inserted);
+
+        int[] players = playerCells;
+        for (int player = 0; player < players.length; player++) {
+            int cell = players[player];
+            if (cell == BoardModel.NO_CELL || (column ? cell % size : cell / size) != line) {
+                continue;
+            }
+            if (players == playerCells) {
+                players = playerCells.clone();
+            }
+            int along = column ? cell / size : cell % size;
+            along = along == last ? first : along + step;  // Pushed off the end: back on the inserted tile
+            players[player] = column ? along * size + line : line * size + along;
+        }
+        return new GameSnapshot(size, next, ejected & ~BoardModel.FIXED_FLAG, players, components,
+                currentPlayer, true, targetComponent, captures);
+    }
+
+    /**
+     * Plays the move half of a turn as decided earlier, like {@link GameState#applyMove}.
+     *
+     * @param cell Cell the current player moves to.
+     * @param treasure Id of the treasure they capture, or 0.
+     * @param nextTarget Component number to capture next.
+     * @return The game at the start of the next player's turn.
+     */
+    public GameSnapshot move(int cell, int treasure, int nextTarget) {
+        if (cell < 0 || cell >= size * size) {
+            throw new IllegalArgumentException("No cell " + cell);
+        }
+        int[] players = playerCells.clone();
+        players[currentPlayer] = cell;
+        int[][] next = blocks;
+        int nextSpare = spare;
+        int[] nextCaptures = captures;
+        if (treasure != 0) {
+            int at = treasureCell(treasure, cell);
+            if (at == BoardModel.SPARE_CELL) {
+                nextSpare &= ~(~0 << BoardModel.TREASURE_SHIFT);
+            } else if (at != BoardModel.NO_CELL) {
+                next = blocks.clone();
+                set(next, at / size, at % size, getPackedCell(at) & ~(~0 << BoardModel.TREASURE_SHIFT));
+            }
+            nextCaptures = captures.clone();
+            nextCaptures[currentPlayer]++;
+        }
+        return new GameSnapshot(size, next, nextSpare, players, components,
+                (currentPlayer + 1) % players.length, false, nextTarget, nextCaptures);
+    }
+
+    /**
+     * Plays the move half of a turn by the rules, like {@link GameState#playMove}:
+     * captures the target component if it lies on the cell and then hunts the lowest
+     * component left. Reachability is the caller's concern.
+     *
+     * @param cell Cell the current player moves to.
+     * @return The game at the start of the next player's turn.
+     */
+    public GameSnapshot playMove(int cell) {
+        int treasure = getTreasure(cell);
+        if (treasure == 0 || (components[treasure - 1] & ~BoardModel.GOLD) != targetComponent) {
+            return move(cell, 0, targetComponent);
+        }
+        int lowest = 0;
+        for (int other = 0; other < size * size; other++) {
+            lowest = lower(lowest, other == cell ? 0 : getTreasure(other));
+        }
+        lowest = lower(lowest, spare >>> BoardModel.TREASURE_SHIFT);
+        return move(cell, treasure, lowest);
+    }
+
+    private int lower(int lowest, int treasure) {
+        if (treasure == 0) {
+            return lowest;
+        }
+        int component = components[treasure - 1] & ~BoardModel.GOLD;
+        return lowest == 0 || component < lowest ? component : lowest;
+    }
+
+    /**
+     * Finds a treasure, looking on the given cell first as that is where captures happen.
+     */
+    private int treasureCell(int treasure, int hint) {
+        if (getTreasure(hint) == treasure) {
+            return hint;
+        }
+        if (spare >>> BoardModel.TREASURE_SHIFT == treasure) {
+            return BoardModel.SPARE_CELL;
+        }
+        for (int cell = 0; cell < size * size; cell++) {
+            if (getTreasure(cell) == treasure) {
+                return cell;
+            }
+        }
+        return BoardModel.NO_CELL;
+    }
+
+    /**
+     * Writes a cell into a copied block array, copying its block the first time it is
+     * written, i.e. while it is still the block shared with this snapshot.
+     */
+    private void set(int[][] next, int row, int col, int value) {
+        int block = block(row, col);
+        if (next[block] == blocks[block]) {
+            next[block] = blocks[block].clone();
+        }
+        next[block][slot(row, col)] = value;
+    }
+
+    private int block(int row, int col) {
+        return (row >> BLOCK_SHIFT) * blocksPerSide + (col >> BLOCK_SHIFT);
+    }
+
+    private static int slot(int row, int col) {
+        return (row & BLOCK_MASK) << BLOCK_SHIFT | (col & BLOCK_MASK);
+    }
+
+    /* -------------------------------------------------------------- hashing */
+
+    /**
+     * @return A 64-bit hash of the board and whose turn it is, for transposition tables.
+     */
+    public long hash() {
+        long h = mix(0x9E3779B97F4A7C15L ^ size ^ ((long) spare << 32));
+        for (int cell = 0; cell < size * size; cell++) {
+            h = mix(h ^ getPackedCell(cell));
+        }
+        for (int cell : playerCells) {
+            h = mix(h ^ cell);
+        }
+        return mix(h ^ currentPlayer ^ (movePhase ? 1L << 40 : 0));
+    }
+
+    private static long mix(long h) {
+        h *= 0xBF58476D1CE4E5B9L;
+        return h ^ (h >>> 31);
+    }
+
+    @Override
+    public int hashCode() {
+        long h = hash();
+        return (int) (h ^ (h >>> 32));
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof GameSnapshot other)) {
+            return false;
+        }
+        if (size != other.size || spare != other.spare || currentPlayer != other.currentPlayer
+                || movePhase != other.movePhase || targetComponent != other.targetComponent
+                || !Arrays.equals(playerCells, other.playerCells) || !Arrays.equals(captures, other.captures)
+                || !Arrays.equals(components, other.components)) {
+            return false;
+        }
+        for (int block = 0; block < blocks.length; block++) {
+            if (blocks[block] != other.blocks[block] && !Arrays.equals(blocks[block], other.blocks[block])) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,303 @@
+package mysticmaze;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+
+/**
+ * GameState is the state of a game in progress: the board, whose turn it is, which half
+ * of the turn they are in, the component every player is hunting, how many components
+ * each player has captured and the most recent chat lines. It is what a saved game
+ * stores, see {@link SaveGame}.
+ */
+public final class GameState {
+
+    /** Number of chat lines kept, and saved, per game. */
+    public static final int CHAT_HISTORY = 100;
+
+    /** Longest chat line kept, in characters. */
+    public static final int MAX_CHAT_LENGTH = 256;
+
+    /** Component number hunted at the start of a standard game. */
+    public static final int FIRST_TARGET = 3;
+
+    private final BoardModel board;
+    private int currentPlayer;      // Index of the player whose turn it is
+    private boolean movePhase;      // False while inserting the spare tile, true while moving
+    private int targetComponent;    // Component number every player is trying to capture, 0 once all are gone
+    private final int[] captures;   // Components captured by each player
+    private final Deque<String> chat = new ArrayDeque<>(CHAT_HISTORY);
+
+    /**
+     * Creates the state of a new game on the given board, with the first player to
+     * insert the spare tile.
+     *
+     * @param board The board, which the state keeps and modifies.
+     * @param targetComponent Component number the players hunt first.
+     */
+    public GameState(BoardModel board, int targetComponent) {
+        this.board = board;
+        this.targetComponent = targetComponent;
+        this.captures = new int[board.getPlayerCount()];
+    }
+
+    /**
+     * Overwrites this game with another one on a board of the same dimensions.
+     *
+     * @param other The game to copy.
+     */
+    public void copyFrom(GameState other) {
+        board.copyFrom(other.board);
+        currentPlayer = other.currentPlayer;
+        movePhase = other.movePhase;
+        targetComponent = other.targetComponent;
+        System.arraycopy(other.captures, 0, captures, 0, captures.length);
+        chat.clear();
+        chat.addAll(other.chat);
+    }
+
+    /**
+     * @return The board of the game.
+     */
+    public BoardModel getBoard() {
+        return board;
+    }
+
+    /**
+     * @return The index of the player whose turn it is.
+     */
+    public int getCurrentPlayer() {
+        return currentPlayer;
+    }
+
+    /**
+     * @param player Index of the player whose turn it is.
+     */
+    public void setCurrentPlayer(int player) {
+        this.currentPlayer = player;
+    }
+
+    /**
+     * @return True once the spare tile has been inserted and the current player has to move.
+     */
+    public boolean isMovePhase() {
+        return movePhase;
+    }
+
+    /**
+     * @param movePhase True once the spare tile has been inserted this turn.
+     */
+    public void setMovePhase(boolean movePhase) {
+        this.movePhase = movePhase;
+    }
+
+    /**
+     * Ends the current turn and hands the board to the next player.
+     */
+    public void nextTurn() {
+        movePhase = false;
+        currentPlayer = (currentPlayer + 1) % captures.length;
+    }
+
+    /**
+     * @return The component number every player is trying to capture, or 0 once all are captured.
+     */
+    public int getTargetComponent() {
+        return targetComponent;
+    }
+
+    /**
+     * @param component The component number to capture next, or 0 if none is left.
+     */
+    public void setTargetComponent(int component) {
+        this.targetComponent = component;
+    }
+
+    /**
+     * @param player Index of the player.
+     * @return The number of components the player has captured.
+     */
+    public int getCaptures(int player) {
+        return captures[player];
+    }
+
+    /**
+     * @param player Index of the player.
+     * @param count The number of components the player has captured.
+     */
+    public void setCaptures(int player, int count) {
+        captures[player] = count;
+    }
+
+    /* ---------------------------------------------------------------- moves */
+
+    /**
+     * Returns the treasure the current player captures by moving to a cell: the one
+     * lying there if it belongs to the target component.
+     *
+     * @param cell Index of the cell.
+     * @return The id of the treasure, or 0 if nothing is captured there.
+     */
+    public int capturableTreasure(int cell) {
+        int treasure = board.getTreasure(cell);
+        if (treasure != 0 && (board.getComponent(treasure) & ~BoardModel.GOLD) == targetComponent) {
+            return treasure;
+        }
+        return 0;
+    }
+
+    /**
+     * @return The lowest component number still on the board or the spare tile, or 0 if all are captured.
+     */
+    public int lowestRemainingComponent() {
+        int lowest = 0;
+        for (int id = 1; id <= board.getTreasureCount(); id++) {
+            int component = board.getComponent(id) & ~BoardModel.GOLD;
+            if (board.getTreasureCell(id) != BoardModel.NO_CELL && (lowest == 0 || component < lowest)) {
+                lowest = component;
+            }
+        }
+        return lowest;
+    }
+
+    /**
+     * Plays the move half of the current turn by the rules: moves the current player,
+     * captures the target component if it lies on the cell, picking the lowest remaining
+     * component as the next target, and ends the turn. Reachability is the caller's concern.
+     *
+     * @param cell Index of the cell to move to.
+     * @return The id of the captured treasure, or 0.
+     */
+    public int playMove(int cell) {
+        int treasure = capturableTreasure(cell);
+        int nextTarget = targetComponent;
+        if (treasure != 0) {
+            board.removeTreasure(treasure);
+            nextTarget = lowestRemainingComponent();
+        }
+        applyMove(cell, treasure, nextTarget);
+        return treasure;
+    }
+
+    /**
+     * Replays the insert half of a turn: turns the spare tile to the given rotation,
+     * pushes it into the board and starts the move half.
+     *
+     * @param rotation Rotation the spare tile was inserted with.
+     * @param edge Edge the spare tile enters from.
+     * @param line Index of the row or column.
+     * @throws IllegalArgumentException If the line holds a fixed tile.
+     */
+    public void applyInsert(int rotation, int edge, int line) {
+        if (!board.canInsert(edge, line)) {
+            throw new IllegalArgumentException("Line " + line + " cannot be shifted from edge " + edge);
+        }
+        while (board.getSpareRotation() != (rotation & 3)) {
+            board.rotateSpare();
+        }
+        board.insert(edge, line);
+        movePhase = true;
+    }
+
+    /**
+     * Replays the move half of a turn as decided earlier, e.g. by {@link #playMove(int)}:
+     * moves the current player, removes the treasure they captured, sets the next target
+     * and ends the turn.
+     *
+     * @param cell Cell the player moved to.
+     * @param treasure Id of the treasure they captured, or 0.
+     * @param nextTarget Component number to capture next.
+     */
+    public void applyMove(int cell, int treasure, int nextTarget) {
+        if (cell < 0 || cell >= board.getSize() * board.getSize()) {
+            throw new IllegalArgumentException("No cell " + cell);
+        }
+        board.setPlayerCell(currentPlayer, cell);
+        if (treasure != 0) {
+            if (board.getTreasureCell(treasure) != BoardModel.NO_CELL) {
+                board.removeTreasure(treasure);
+            }
+            captures[currentPlayer]++;
+        }
+        targetComponent = nextTarget;
+        nextTurn();
+    }
+
+    /* ----------------------------------------------------------------- chat */
+
+    /**
+     * @return The most recent chat lines, oldest first, as a read-only view.
+     */
+    public Collection<String> getChat() {
+        return Collections.unmodifiableCollection(chat);
+    }
+
+    /**
+     * Adds a chat line, truncated to {@link #MAX_CHAT_LENGTH}, dropping the oldest once
+     * {@link #CHAT_HISTORY} lines are kept.
+     *
+     * @param line The line to add.
+     * @return The line as kept.
+     */
+    public String addChat(String line) {
+        if (chat.size() == CHAT_HISTORY) {
+            chat.removeFirst();
+        }
+        String kept = line.length() > MAX_CHAT_LENGTH ? line.substring(0, MAX_CHAT_LENGTH) : line;
+        chat.addLast(kept);
+        return kept;
+    }
+
+    /**
+     * Removes every chat line.
+     */
+    public void clearChat() {
+        chat.clear();
+    }
+
+    /* ---------------------------------------------------------- persistence */
+
+    /**
+     * @return The number of bytes {@link #writeTo(ByteBuffer)} puts for this game.
+     */
+    int serializedSize() {
+        return board.serializedSize() + 9 + 4 * captures.length;
+    }
+
+    /**
+     * Writes the game without its chat in binary form, without allocating: the board as
+     * written by {@link BoardModel#writeTo(ByteBuffer)}, the current player, the move
+     * phase, the target component and the captures of each player.
+     *
+     * @param out Buffer receiving the game, with at least {@link #serializedSize()} bytes left.
+     */
+    void writeTo(ByteBuffer out) {
+        board.writeTo(out);
+        out.putInt(currentPlayer).put((byte) (movePhase ? 1 : 0)).putInt(targetComponent);
+        for (int count : captures) {
+            out.putInt(count);
+        }
+    }
+
+    /**
+     * Overwrites this game, but not its chat, with one written by {@link #writeTo(ByteBuffer)}.
+     *
+     * @param in Buffer positioned at the start of the game.
+     * @throws IllegalArgumentException If the saved game does not fit this board.
+     */
+    void readFrom(ByteBuffer in) {
+        board.readFrom(in);
+        int player = in.getInt();
+        if (player < 0 || player >= captures.length) {
+            throw new IllegalArgumentException("No player " + player);
+        }
+        currentPlayer = player;
+        movePhase = in.get() != 0;
+        targetComponent = in.getInt();
+        for (int i = 0; i < captures.length; i++) {
+            captures[i] = in.getInt();
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package mysticmaze;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.swing.RepaintManager;
+import javax.swing.SwingUtilities;
+
+/**
+ * Instrumentation measures where the window spends its time while the game runs:
+ * <ul>
+ * <li>frames, one per pass of the RepaintManager over the dirty regions, and how long
+ * each pass took;</li>
+ * <li>paint time per component, recorded by the components themselves into the
+ * histograms handed out by {@link #paintTimes(String)};</li>
+ * <li>animation frames of the {@link BoardAnimator}s added with {@link #addAnimator}: the
+ * time between them and the ticks skipped because the EDT was still busy;</li>
+ * <li>EDT latency, from a watchdog thread that posts a probe to the EDT ten times a
+ * second. A probe still waiting after {@value #STALL_MILLIS} ms is a stall: the EDT's
+ * stack is printed to stderr and a {@link JfrEvents.EdtStall} event spans it.</li>
+ * </ul>
+ * Once a second everything is drained into a {@link Report}, shown by the
+ * {@link MetricsOverlay} and, when the game is started with -Dmysticmaze.metrics=&lt;file&gt;,
+ * appended to that file as CSV lines of time, metric, count, p50, p99 and max, with
+ * durations in microseconds.
+ * <p>
+ * Recording is allocation-free and safe from any thread; see {@link LatencyHistogram}.
+ */
+public final class Instrumentation {
+
+    private static final long PROBE_MILLIS = 100;
+    private static final long STALL_MILLIS = 250;
+    private static final long REPORT_MILLIS = 1000;
+    private static final int STACK_DEPTH = 12;  // Frames of the EDT printed for a stall
+
+    /**
+     * Totals of one reporting interval. Durations are in nanoseconds.
+     *
+     * @param timeMillis Wall-clock time at the end of the interval.
+     * @param fps Frames painted per second.
+     * @param frames Time spent painting each frame.
+     * @param edtLatency Time from posting a task to the EDT until it ran.
+     * @param stalls Stalls of the EDT since the game started.
+     * @param paints Paint time of each instrumented component, by name.
+     * @param animations Frames of each animator, by name; none while nothing moves.
+     */
+    public record Report(long timeMillis, double fps, LatencyHistogram.Snapshot frames,
+            LatencyHistogram.Snapshot edtLatency, long stalls, Map<String, LatencyHistogram.Snapshot> paints,
+            Map<String, BoardAnimator.FrameStats> animations) {
+    }
+
+    private static final class Holder {
+        static final Instrumentation SHARED = new Instrumentation();
+    }
+
+    private final LatencyHistogram frames = new LatencyHistogram();
+    private final LatencyHistogram edtLatency = new LatencyHistogram();
+    private final Map<String, LatencyHistogram> paints = new ConcurrentHashMap<>();
+    private final Map<String, BoardAnimator> animators = new ConcurrentHashMap<>();
+    private final LongAdder stalls = new LongAdder();
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    private volatile Thread edt;  // Seen by the first probe
+    private volatile Report latest = new Report(System.currentTimeMillis(), 0, new LatencyHistogram.Snapshot(0, 0, 0, 0),
+            new LatencyHistogram.Snapshot(0, 0, 0, 0), 0, Map.of(), Map.of());
+    private long lastReportNanos = System.nanoTime();
+    private BufferedWriter export;  // Null unless exporting; written by the reporting thread only
+
+    private Instrumentation() {
+    }
+
+    /**
+     * Returns the instrumentation of the window, measuring nothing until it is started.
+     *
+     * @return The shared instrumentation.
+     */
+    public static Instrumentation shared() {
+        return Holder.SHARED;
+    }
+
+    /**
+     * Returns the histogram a component records its paint times into, creating it on
+     * first use. Components look theirs up once and keep it.
+     *
+     * @param component Name of the component in reports.
+     * @return The histogram, in nanoseconds.
+     */
+    public LatencyHistogram paintTimes(String component) {
+        return paints.computeIfAbsent(component, name -> new LatencyHistogram());
+    }
+
+    /**
+     * Reports the frames of an animator from the next report on. The reports drain its
+     * counts, so nothing else should.
+     *
+     * @param name Name of the animation in reports.
+     * @param animator The animator.
+     */
+    public void addAnimator(String name, BoardAnimator animator) {
+        animators.put(name, animator);
+    }
+
+    /**
+     * @return The most recent report; all zero until the first second has passed.
+     */
+    public Report latest() {
+        return latest;
+    }
+
+    /**
+     * Installs the frame counting repaint manager and starts the watchdog and the
+     * reports, opening the export file if one is set. Later calls do nothing. As the
+     * watchdog keeps posting to the EDT, AWT never shuts down by itself afterwards; the
+     * window exits the JVM when closed. Call on the EDT.
+     */
+    public void start() {
+        if (!started.compareAndSet(false, true)) {
+            return;
+        }
+        RepaintManager.setCurrentManager(new TimedRepaintManager());
+        String file = System.getProperty("mysticmaze.metrics");
+        if (file != null) {
+            openExport(Paths.get(file));
+        }
+
+        Thread watchdog = new Thread(this::watch, "edt-watchdog");
+        watchdog.setDaemon(true);
+        watchdog.start();
+        ScheduledExecutorService reports = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "metrics-report");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reports.scheduleAtFixedRate(this::report, REPORT_MILLIS, REPORT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /* ------------------------------------------------------------ watchdog */
+
+    /**
+     * Body of the watchdog thread: posts one probe at a time and waits for it.
+     */
+    private void watch() {
+        try {
+            while (true) {
+                long posted = System.nanoTime();
+                CountDownLatch answered = new CountDownLatch(1);
+                JfrEvents.EdtStall event = new JfrEvents.EdtStall();
+                event.begin();
+                SwingUtilities.invokeLater(() -> {
+                    edtLatency.record(System.nanoTime() - posted);
+                    edt = Thread.currentThread();
+                    answered.countDown();
+                });
+                if (!answered.await(STALL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    String blockedIn = reportStall();
+                    answered.await();
+                    event.end();
+                    if (event.shouldCommit()) {
+                        event.blockedIn = blockedIn;
+                        event.commit();
+                    }
+                }
+                Thread.sleep(PROBE_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Counts a stall and prints what the EDT is doing.
+     *
+     * @return The top frame of the EDT, or null if it is not known yet.
+     */
+    private String reportStall() {
+        stalls.increment();
+        Thread thread = edt;
+        if (thread == null) {
+            System.err.println("EDT stalled for over " + STALL_MILLIS + " ms before its first probe");
+            return null;
+        }
+        StackTraceElement[] stack = thread.getStackTrace();
+        StringBuilder text = new StringBuilder("EDT stalled for over ").append(STALL_MILLIS).append(" ms in:");
+        for (int i = 0; i < Math.min(STACK_DEPTH, stack.length); i++) {
+            text.append(System.lineSeparator()).append("\tat ").append(stack[i]);
+        }
+        System.err.println(text);
+        return stack.length > 0 ? stack[0].toString() : null;
+    }
+
+    /* ------------------------------------------------------------- reports */
+
+    private void report() {
+        long now = System.nanoTime();
+        double seconds = (now - lastReportNanos) / 1e9;
+        lastReportNanos = now;
+
+        LatencyHistogram.Snapshot frameTimes = frames.drain();
+        Map<String, LatencyHistogram.Snapshot> paintTimes = new TreeMap<>();
+        paints.forEach((name, histogram) -> paintTimes.put(name, histogram.drain()));
+        Map<String, BoardAnimator.FrameStats> animations = new TreeMap<>();
+        animators.forEach((name, animator) -> animations.put(name, animator.drainStats()));
+        Report report = new Report(System.currentTimeMillis(), frameTimes.count() / seconds, frameTimes,
+                edtLatency.drain(), stalls.sum(), Collections.unmodifiableMap(paintTimes),
+                Collections.unmodifiableMap(animations));
+        latest = report;
+        if (export != null) {
+            write(report);
+        }
+    }
+
+    private void openExport(Path file) {
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            export = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            System.err.println("Metrics are not exported: " + e.getMessage());
+        }
+    }
+
+    private void write(Report report) {
+        try {
+            writeLine(report, "frame", report.frames());
+            writeLine(report, "edt latency", report.edtLatency());
+            for (Map.Entry<String, LatencyHistogram.Snapshot> paint : report.paints().entrySet()) {
+                writeLine(report, "paint " + paint.getKey(), paint.getValue());
+            }
+            for (Map.Entry<String, BoardAnimator.FrameStats> animation : report.animations().entrySet()) {
+                writeLine(report, "animation " + animation.getKey(), animation.getValue().intervals());
+                export.write(report.timeMillis() + ",skipped " + animation.getKey() + "," + animation.getValue().skipped()
+                        + ",0,0,0");
+                export.newLine();
+            }
+            export.write(report.timeMillis() + ",edt stalls," + report.stalls() + ",0,0,0");
+            export.newLine();
+            export.flush();
+        } catch (IOException e) {
+            System.err.println("Metrics export stopped: " + e.getMessage());
+            try {
+                export.close();
+            } catch (IOException ignored) {
+                // Already failing
+            }
+            export = null;
+        }
+    }
+
+    private void writeLine(Report report, String metric, LatencyHistogram.Snapshot snapshot) throws IOException {
+        export.write(report.timeMillis() + "," + metric + "," + snapshot.count() + "," + micros(snapshot.p50()) + ","
+                + micros(snapshot.p99()) + "," + micros(snapshot.max()));
+        export.newLine();
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    /**
+     * Times each pass over the dirty regions, which is one frame of the window.
+     */
+    private final class TimedRepaintManager extends RepaintManager {
+
+        @Override
+        public void paintDirtyRegions() {
+            long start = System.nanoTime();
+            super.paintDirtyRegions();
+            frames.record(System.nanoTime() - start);
+        }
+    }
+}
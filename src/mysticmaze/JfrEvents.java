@@ -0,0 +1,123 @@
+package mysticmaze;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JfrEvents holds the game's own Java Flight Recorder events, so a recording taken with
+ * -XX:StartFlightRecording shows asset loads, board shifts, moves, network messages and
+ * EDT stalls next to the JVM's garbage collections and thread activity. While no
+ * recording is running, shouldCommit() is false and an event costs next to nothing.
+ * <p>
+ * Every event is used the same way: create it, begin() it before the work, then fill in
+ * its fields and commit() it only if shouldCommit() holds.
+ */
+public final class JfrEvents {
+
+    private static final String CATEGORY = "Mystic Maze";
+
+    private JfrEvents() {
+    }
+
+    /**
+     * An image decoded or scaled by the {@link AssetCache} because it was not cached yet.
+     */
+    @Name("mysticmaze.AssetLoad")
+    @Label("Asset Load")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static final class AssetLoad extends Event {
+
+        @Label("Path")
+        String path;
+
+        @Label("Width")
+        int width;
+
+        @Label("Height")
+        int height;
+
+        @Label("From Atlas")
+        @Description("True if the image was sliced from the sprite atlas rather than decoded")
+        boolean fromAtlas;
+    }
+
+    /**
+     * The spare tile inserted and a row or column of the board shifted.
+     */
+    @Name("mysticmaze.Shift")
+    @Label("Board Shift")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static final class Shift extends Event {
+
+        @Label("Player")
+        int player;
+
+        @Label("Edge")
+        int edge;
+
+        @Label("Line")
+        int line;
+    }
+
+    /**
+     * A player moved, capturing a treasure or not.
+     */
+    @Name("mysticmaze.Move")
+    @Label("Move")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static final class Move extends Event {
+
+        @Label("Player")
+        int player;
+
+        @Label("Cell")
+        int cell;
+
+        @Label("Treasure")
+        @Description("Id of the treasure captured, or 0")
+        int treasure;
+    }
+
+    /**
+     * A protocol message sent or received, by the server or a client.
+     */
+    @Name("mysticmaze.NetworkMessage")
+    @Label("Network Message")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static final class NetworkMessage extends Event {
+
+        @Label("Outbound")
+        boolean outbound;
+
+        @Label("Type")
+        @Description("Type byte of the message, see Protocol")
+        byte type;
+
+        @Label("Length")
+        @DataAmount
+        int length;
+    }
+
+    /**
+     * The EDT did not run a posted task in time; the event spans the whole stall.
+     */
+    @Name("mysticmaze.EdtStall")
+    @Label("EDT Stall")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static final class EdtStall extends Event {
+
+        @Label("Blocked In")
+        @Description("Top frame of the EDT when the stall was detected")
+        String blockedIn;
+    }
+}
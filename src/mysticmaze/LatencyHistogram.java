@@ -0,0 +1,97 @@
+package mysticmaze;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * LatencyHistogram counts durations in logarithmic buckets, each power of two split
+ * into eight linear steps, so any percentile is reported within 12.5% of the true value.
+ * Recording is a single atomic increment and never allocates, so any number of threads
+ * may record at once. {@link #drain()} empties the histogram bucket by bucket, so a
+ * value recorded meanwhile lands in either the drained or the next interval, never in
+ * neither.
+ */
+public final class LatencyHistogram {
+
+    /**
+     * Totals of one interval.
+     *
+     * @param count Number of values recorded.
+     * @param p50 Median, rounded up to the upper edge of its bucket.
+     * @param p99 99th percentile, rounded up likewise.
+     * @param max Largest value, rounded up likewise.
+     */
+    public record Snapshot(long count, long p50, long p99, long max) {
+    }
+
+    private static final int SUB_BITS = 3;                  // Eight steps per power of two
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int BUCKETS = SUB_COUNT + (63 - SUB_BITS) * SUB_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * Records one value.
+     *
+     * @param value The value, typically nanoseconds; negative values count as 0.
+     */
+    public void record(long value) {
+        counts.incrementAndGet(bucket(Math.max(0, value)));
+    }
+
+    /**
+     * Empties the histogram and returns what it held.
+     *
+     * @return The totals recorded since the last drain.
+     */
+    public Snapshot drain() {
+        long[] drained = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            drained[i] = counts.getAndSet(i, 0);
+            count += drained[i];
+        }
+        if (count == 0) {
+            return new Snapshot(0, 0, 0, 0);
+        }
+        int last = BUCKETS - 1;
+        while (drained[last] == 0) {
+            last--;
+        }
+        return new Snapshot(count, percentile(drained, count, 0.50), percentile(drained, count, 0.99), upperEdge(last));
+    }
+
+    private static long percentile(long[] counts, long total, double fraction) {
+        long rank = (long) Math.ceil(total * fraction);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return upperEdge(i);
+            }
+        }
+        return upperEdge(counts.length - 1);
+    }
+
+    /**
+     * Values below eight have a bucket each; above, the bucket is the power of two plus
+     * the next three bits.
+     */
+    static int bucket(long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int step = (int) (value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+        return SUB_COUNT + (exponent - SUB_BITS) * SUB_COUNT + step;
+    }
+
+    static long upperEdge(int bucket) {
+        if (bucket < SUB_COUNT) {
+            return bucket;
+        }
+        int exponent = (bucket - SUB_COUNT) / SUB_COUNT + SUB_BITS;
+        long step = (bucket - SUB_COUNT) % SUB_COUNT;
+        long lower = (SUB_COUNT | step) << (exponent - SUB_BITS);
+        return lower + (1L << (exponent - SUB_BITS)) - 1;
+    }
+}
@@ -0,0 +1,172 @@
+package mysticmaze;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LoadDriver load-tests a {@link SessionHost} in process: it opens many sessions and has
+ * a simulated client play all four seats of each with random turns, printing the metrics
+ * of the host every second. Every client keeps its own mirror of the game and checks the
+ * board hash returned for each command against it, so the run also proves that sessions
+ * never see each other's commands. Clients wait for results asynchronously, so they hold
+ * no thread between commands.
+ * <p>
+ * Run it with {@code java -cp TheMysticMaze.jar mysticmaze.LoadDriver [sessions=N]
+ * [seconds=N] [thinkMillis=N] [inbox=N] [idleMillis=N]}.
+ */
+public final class LoadDriver {
+
+    private static final int[] EDGES = {BoardModel.NORTH, BoardModel.EAST, BoardModel.SOUTH, BoardModel.WEST};
+
+    /**
+     * A simulated client playing every seat of one session in turn.
+     */
+    private static final class Client {
+        final SessionHost.Session session;
+        final GameEngine mirror = new GameEngine(new GameState(BoardModel.standard(), GameState.FIRST_TARGET));
+        final SplittableRandom random;
+        final Executor pace;        // Delays every command by the think time
+        final LoadDriver driver;
+
+        Client(SessionHost.Session session, long seed, Executor pace, LoadDriver driver) {
+            this.session = session;
+            this.random = new SplittableRandom(seed);
+            this.pace = pace;
+            this.driver = driver;
+        }
+
+        /**
+         * Inserts into a random line, then moves to a random reachable cell, then goes again
+         * until the game is over or the run ends.
+         */
+        void playTurn() {
+            if (driver.stopping || mirror.isGameOver()) {
+                finish();
+                return;
+            }
+            int player = mirror.getState().getCurrentPlayer();
+            int edge;
+            int line;
+            do {
+                edge = EDGES[random.nextInt(EDGES.length)];
+                line = random.nextInt(mirror.getBoard().getSize());
+            } while (!mirror.canInsert(edge, line));
+            int rotation = random.nextInt(4);
+            int insertEdge = edge;
+            int insertLine = line;
+
+            CompletableFuture.runAsync(() -> { }, pace)
+                    .thenCompose(ignored -> session.insert(player, rotation, insertEdge, insertLine))
+                    .thenCompose(hash -> {
+                        mirror.insert(rotation, insertEdge, insertLine);
+                        check(hash);
+                        int cell = randomReachableCell();
+                        return CompletableFuture.runAsync(() -> { }, pace)
+                                .thenCompose(ignored -> session.move(player, cell))
+                                .thenApply(moved -> {
+                                    mirror.move(cell);
+                                    check(moved);
+                                    return moved;
+                                });
+                    })
+                    .whenComplete((hash, failure) -> {
+                        if (failure != null) {
+                            driver.failures.incrementAndGet();
+                            finish();
+                        } else {
+                            driver.turns.incrementAndGet();
+                            playTurn();
+                        }
+                    });
+        }
+
+        private int randomReachableCell() {
+            Reachability reachability = mirror.getReachability();
+            int count = 0;
+            for (int cell = reachability.nextReachable(0); cell >= 0; cell = reachability.nextReachable(cell + 1)) {
+                count++;
+            }
+            int cell = reachability.nextReachable(0);
+            for (int skip = random.nextInt(count); skip > 0; skip--) {
+                cell = reachability.nextReachable(cell + 1);
+            }
+            return cell;
+        }
+
+        private void check(long hash) {
+            if (hash != mirror.getBoard().hash()) {
+                throw new IllegalStateException("Session " + session.getId() + " drifted from its client");
+            }
+        }
+
+        private void finish() {
+            session.close();
+            driver.done.countDown();
+        }
+    }
+
+    private final AtomicLong turns = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final CountDownLatch done;
+    private volatile boolean stopping;
+
+    private LoadDriver(int sessions) {
+        this.done = new CountDownLatch(sessions);
+    }
+
+    /**
+     * Runs the load test.
+     *
+     * @param args Options as {@code name=value}: sessions, seconds, thinkMillis, inbox and idleMillis.
+     * @throws InterruptedException If interrupted while the test runs.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int sessions = 10_000;
+        int seconds = 10;
+        long thinkMillis = 5;
+        int inbox = 16;
+        long idleMillis = 5_000;
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            switch (arg.substring(0, Math.max(0, arg.indexOf('=')))) {
+                case "sessions" -> sessions = Integer.parseInt(value);
+                case "seconds" -> seconds = Integer.parseInt(value);
+                case "thinkMillis" -> thinkMillis = Long.parseLong(value);
+                case "inbox" -> inbox = Integer.parseInt(value);
+                case "idleMillis" -> idleMillis = Long.parseLong(value);
+                default -> throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+
+        LoadDriver driver = new LoadDriver(sessions);
+        ExecutorService clients = Executors.newWorkStealingPool();  // Not the common pool, which may start a thread per task
+        Executor pace = CompletableFuture.delayedExecutor(thinkMillis, TimeUnit.MILLISECONDS, clients);
+        try (SessionHost host = new SessionHost(inbox, idleMillis)) {
+            System.out.println(sessions + " sessions, " + thinkMillis + " ms think time");
+            for (int i = 0; i < sessions; i++) {
+                new Client(host.open(SessionHost.STANDARD), i, pace, driver).playTurn();
+            }
+            host.metrics();  // Start the first interval after opening
+
+            long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+            while (System.nanoTime() < end) {
+                Thread.sleep(1000);
+                System.out.println(host.metrics());
+            }
+            driver.stopping = true;
+            if (!driver.done.await(10, TimeUnit.SECONDS)) {
+                System.out.println(driver.done.getCount() + " sessions did not finish");
+            }
+            System.out.println(host.metrics());
+        } finally {
+            clients.shutdownNow();
+        }
+        System.out.println(driver.turns.get() + " turns, " + driver.failures.get() + " failed sessions");
+    }
+}
@@ -0,0 +1,386 @@
+package mysticmaze;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * MazeGenerator builds boards from a seed with the layout rules of the standard board:
+ * fixed tiles on every even row and column, the outer ones facing inwards and the inner
+ * ones T's facing any way, random movable tiles in between, and treasures dealt onto
+ * random inner cells. The same seed always gives the same board, so a pool of boards
+ * can be kept as a list of seeds.
+ * <p>
+ * Not every seed gives a playable board. {@link #isValid(BoardModel)} checks the
+ * {@link Rules}, and {@link #search(long, int, int)} tries a range of seeds on several
+ * threads. Every worker fills a single reused board and keeps only the seeds that pass,
+ * so it allocates next to nothing per candidate.
+ */
+public final class MazeGenerator {
+
+    /**
+     * Gold components among those of the standard board; past them every fifth is gold.
+     */
+    private static final int[] GOLD_COMPONENTS = {1, 11, 14, 19};
+    private static final int STANDARD_COMPONENTS = 20;
+
+    private static final int STRAIGHT = BoardModel.NORTH | BoardModel.SOUTH;
+    private static final int CORNER = BoardModel.SOUTH | BoardModel.EAST;
+    private static final int TEE = BoardModel.EAST | BoardModel.SOUTH | BoardModel.WEST;
+    private static final int PLAYERS = 4;
+    private static final int CHUNK = 1024;  // Seeds a worker claims at a time
+
+    /**
+     * What a generated board must satisfy.
+     *
+     * @param size Number of rows and columns, odd.
+     * @param treasures Number of treasures, each on its own inner cell.
+     * @param minStraights Least share of the movable tiles that are straight, in percent.
+     * @param minCorners Least share that are corners, in percent.
+     * @param minTees Least share that are T's, in percent.
+     */
+    public record Rules(int size, int treasures, int minStraights, int minCorners, int minTees) {
+
+        /**
+         * @throws IllegalArgumentException If the size is even or out of range, or the
+         *         treasures do not fit on the inner cells left free by the players.
+         */
+        public Rules {
+            if (size % 2 == 0 || size < BoardModel.MIN_SIZE || size > BoardModel.MAX_SIZE) {
+                throw new IllegalArgumentException("Board size must be odd and between " + BoardModel.MIN_SIZE
+                        + " and " + BoardModel.MAX_SIZE + ": " + size);
+            }
+            if (treasures < 0 || treasures > (size - 2) * (size - 2) - PLAYERS) {
+                throw new IllegalArgumentException(treasures + " treasures do not fit on a board of size " + size);
+            }
+        }
+
+        /**
+         * Returns the default rules for a size: treasures on half of the inner cells, and
+         * at least a fifth of the movable tiles straight, a fifth corners and a tenth T's.
+         *
+         * @param size Number of rows and columns, odd.
+         * @return The rules.
+         */
+        public static Rules forSize(int size) {
+            return new Rules(size, Math.max(GameState.FIRST_TARGET, (size - 2) * (size - 2) / 2), 20, 20, 10);
+        }
+    }
+
+    /**
+     * Outcome of a {@link MazeGenerator#search}.
+     *
+     * @param candidates Number of seeds tried.
+     * @param seeds The seeds that gave a valid board, in ascending order.
+     * @param nanos Wall-clock time taken.
+     */
+    public record Batch(long candidates, long[] seeds, long nanos) {
+
+        /**
+         * @return Seeds tried per second.
+         */
+        public double candidatesPerSecond() {
+            return candidates / Math.max(1e-9, nanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%d candidates, %d valid (%.1f%%) in %.2f s: %.0f candidates/s",
+                    candidates, seeds.length, 100.0 * seeds.length / Math.max(1, candidates), nanos / 1e9,
+                    candidatesPerSecond());
+        }
+    }
+
+    private final Rules rules;
+
+    /**
+     * Creates a generator.
+     *
+     * @param rules What every generated board must satisfy.
+     */
+    public MazeGenerator(Rules rules) {
+        this.rules = rules;
+    }
+
+    /**
+     * @return The rules of this generator.
+     */
+    public Rules getRules() {
+        return rules;
+    }
+
+    /**
+     * Creates an empty board with the dimensions of this generator's boards.
+     *
+     * @return A board to pass to {@link #generate(long, BoardModel)}.
+     */
+    public BoardModel newBoard() {
+        return new BoardModel(rules.size(), PLAYERS, rules.treasures());
+    }
+
+    /**
+     * Generates the board of a seed, valid or not.
+     *
+     * @param seed The seed.
+     * @return The new board.
+     */
+    public BoardModel generate(long seed) {
+        BoardModel board = newBoard();
+        generate(seed, board);
+        return board;
+    }
+
+    /**
+     * Generates the board of a seed into an existing board, valid or not.
+     *
+     * @param seed The seed.
+     * @param board A board created by {@link #newBoard()}, overwritten.
+     */
+    public void generate(long seed, BoardModel board) {
+        SplittableRandom random = new SplittableRandom(seed);
+        int size = rules.size();
+        int last = size - 1;
+        board.clear();
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                int cell = board.cellIndex(row, col);
+                if (row % 2 == 0 && col % 2 == 0) {
+                    board.setTile(cell, fixedOpenings(row, col, last, random), 0, true);
+                } else {
+                    int pick = random.nextInt(8);
+                    int openings = pick < 3 ? STRAIGHT : pick < 6 ? CORNER : TEE;
+                    board.setTile(cell, openings, random.nextInt(4), false);
+                }
+            }
+        }
+
+        // Same pattern as the standard board: green and blue below the centre, yellow and red above
+        int centre = size / 2;
+        board.setPlayerCell(0, board.cellIndex(centre + 1, centre - 1));
+        board.setPlayerCell(1, board.cellIndex(centre + 1, centre + 1));
+        board.setPlayerCell(2, board.cellIndex(centre - 1, centre - 1));
+        board.setPlayerCell(3, board.cellIndex(centre - 1, centre + 1));
+
+        // Inner cells drawn until a free one turns up; at most half of them are ever taken by default
+        for (int i = 0; i < rules.treasures(); i++) {
+            int cell;
+            do {
+                cell = board.cellIndex(1 + random.nextInt(size - 2), 1 + random.nextInt(size - 2));
+            } while (board.getTreasure(cell) != 0 || isStart(board, cell));
+            board.addTreasure(cell, componentFor(i));
+        }
+        board.setSpareTile(TEE, random.nextInt(4));
+    }
+
+    /**
+     * Fixed tiles of the outer ring open towards the board, corners towards both
+     * neighbours; inner ones are T's facing a random way.
+     */
+    private static int fixedOpenings(int row, int col, int last, SplittableRandom random) {
+        int closed = (row == 0 ? BoardModel.NORTH : 0) | (row == last ? BoardModel.SOUTH : 0)
+                | (col == 0 ? BoardModel.WEST : 0) | (col == last ? BoardModel.EAST : 0);
+        if (closed == 0) {
+            closed = 1 << random.nextInt(4);
+        }
+        return ~closed & 0xF;
+    }
+
+    /**
+     * Numbers the treasures 1, 2, 3 and so on, as badges are drawn for any number, gold
+     * like the standard board up to 20 and then every fifth.
+     */
+    private static int componentFor(int index) {
+        int component = index + 1;
+        boolean gold = component <= STANDARD_COMPONENTS
+                ? Arrays.binarySearch(GOLD_COMPONENTS, component) >= 0
+                : component % 5 == 0;
+        return gold ? component | BoardModel.GOLD : component;
+    }
+
+    private static boolean isStart(BoardModel board, int cell) {
+        for (int player = 0; player < board.getPlayerCount(); player++) {
+            if (board.getPlayerCell(player) == cell) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /* ----------------------------------------------------------- validation */
+
+    /**
+     * Checks a board against the rules:
+     * <ul>
+     * <li>every tile has at least two openings, and exactly the tiles on even rows and
+     *     columns are fixed;</li>
+     * <li>no fixed tile opens off the board, and every treasure lies on an inner cell
+     *     away from the players' starting cells. Fixed tiles are never next to each
+     *     other, so every opening of one faces a movable tile, and each treasure can
+     *     eventually be joined to the rest of the maze by shifting;</li>
+     * <li>the movable tiles meet the minimum share of straights, corners and T's;</li>
+     * <li>the component hunted first is on the board, so the game can start.</li>
+     * </ul>
+     *
+     * @param board The board to check.
+     * @return True if it meets every rule.
+     */
+    public boolean isValid(BoardModel board) {
+        int size = rules.size();
+        if (board.getSize() != size || board.getTreasureCount() != rules.treasures()) {
+            return false;
+        }
+        int last = size - 1;
+        int straights = 0;
+        int corners = 0;
+        int tees = 0;
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                int cell = board.cellIndex(row, col);
+                int openings = board.getOpenings(cell);
+                if (Integer.bitCount(openings) < 2 || board.isFixed(cell) != (row % 2 == 0 && col % 2 == 0)) {
+                    return false;
+                }
+                if (board.isFixed(cell)) {
+                    int offBoard = (row == 0 ? BoardModel.NORTH : 0) | (row == last ? BoardModel.SOUTH : 0)
+                            | (col == 0 ? BoardModel.WEST : 0) | (col == last ? BoardModel.EAST : 0);
+                    if ((openings & offBoard) != 0) {
+                        return false;
+                    }
+                } else if (openings == STRAIGHT || openings == (BoardModel.EAST | BoardModel.WEST)) {
+                    straights++;
+                } else if (Integer.bitCount(openings) == 2) {
+                    corners++;
+                } else if (Integer.bitCount(openings) == 3) {
+                    tees++;
+                }
+            }
+        }
+        int movable = size * size - (size / 2 + 1) * (size / 2 + 1);
+        if (straights * 100 < rules.minStraights() * movable || corners * 100 < rules.minCorners() * movable
+                || tees * 100 < rules.minTees() * movable) {
+            return false;
+        }
+
+        boolean firstTarget = false;
+        for (int id = 1; id <= board.getTreasureCount(); id++) {
+            int cell = board.getTreasureCell(id);
+            int row = cell / size;
+            int col = cell % size;
+            if (row == 0 || col == 0 || row == last || col == last || isStart(board, cell)) {
+                return false;
+            }
+            firstTarget |= (board.getComponent(id) & ~BoardModel.GOLD) == GameState.FIRST_TARGET;
+        }
+        return firstTarget;
+    }
+
+    /**
+     * Returns the board of the first seed from the given one on that is valid.
+     *
+     * @param seed Seed to start from.
+     * @return A valid board.
+     */
+    public BoardModel firstValid(long seed) {
+        BoardModel board = newBoard();
+        for (long candidate = seed; ; candidate++) {
+            generate(candidate, board);
+            if (isValid(board)) {
+                return board;
+            }
+        }
+    }
+
+    /* --------------------------------------------------------------- search */
+
+    /**
+     * Tries a range of seeds on several threads and keeps those that give a valid board.
+     * The result does not depend on the number of threads.
+     *
+     * @param firstSeed First seed to try.
+     * @param candidates Number of consecutive seeds to try.
+     * @param threads Number of worker threads.
+     * @return The valid seeds and how long the search took.
+     * @throws InterruptedException If interrupted while waiting for the workers.
+     */
+    public Batch search(long firstSeed, int candidates, int threads) throws InterruptedException {
+        AtomicLong nextChunk = new AtomicLong();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        try {
+            List<Future<long[]>> workers = new ArrayList<>(threads);
+            for (int i = 0; i < threads; i++) {
+                workers.add(pool.submit(() -> searchChunks(nextChunk, firstSeed, candidates)));
+            }
+            long[] seeds = new long[0];
+            for (Future<long[]> worker : workers) {
+                long[] found = worker.get();
+                int at = seeds.length;
+                seeds = Arrays.copyOf(seeds, at + found.length);
+                System.arraycopy(found, 0, seeds, at, found.length);
+            }
+            Arrays.sort(seeds);
+            return new Batch(candidates, seeds, System.nanoTime() - start);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Board generation failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Body of a worker: claims chunks of seeds until the range is done and generates
+     * each into the same board.
+     */
+    private long[] searchChunks(AtomicLong nextChunk, long firstSeed, int candidates) {
+        BoardModel board = newBoard();
+        long[] found = new long[CHUNK];
+        int count = 0;
+        long chunk;
+        while ((chunk = nextChunk.getAndIncrement()) * CHUNK < candidates) {
+            long end = Math.min(candidates, (chunk + 1) * CHUNK);
+            for (long offset = chunk * CHUNK; offset < end; offset++) {
+                generate(firstSeed + offset, board);
+                if (isValid(board)) {
+                    if (count == found.length) {
+                        found = Arrays.copyOf(found, count * 2);
+                    }
+                    found[count++] = firstSeed + offset;
+                }
+            }
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    /**
+     * Searches a range of seeds and prints the totals.
+     *
+     * @param args Options as {@code name=value}: size, candidates, threads and seed.
+     * @throws InterruptedException If interrupted while the search runs.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int size = BoardModel.STANDARD_SIZE;
+        int candidates = 1_000_000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = 1;
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            switch (arg.substring(0, Math.max(0, arg.indexOf('=')))) {
+                case "size" -> size = Integer.parseInt(value);
+                case "candidates" -> candidates = Integer.parseInt(value);
+                case "threads" -> threads = Integer.parseInt(value);
+                case "seed" -> seed = Long.parseLong(value);
+                default -> throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+        MazeGenerator generator = new MazeGenerator(Rules.forSize(size));
+        System.out.println(size + "x" + size + " boards on " + threads + " threads");
+        System.out.println(generator.search(seed, candidates, threads));
+    }
+}
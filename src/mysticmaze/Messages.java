@@ -0,0 +1,178 @@
+package mysticmaze;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import javax.swing.JComponent;
+
+/**
+ * Messages holds the text of a window in one of the languages of the game, read from
+ * the mysticmaze/messages*.properties bundles. A bundle is loaded the first time its
+ * language is used and kept from then on, shared by every window.
+ * <p>
+ * Components showing fixed text are bound to a key once, see {@link #bind}; switching
+ * the language with {@link #setLocale(Locale)} hands each binding its new text, skipping
+ * those whose text did not change, so only components whose text differs are laid out
+ * again and nothing is rebuilt. Text made up while the game runs, such as the turn
+ * instruction, is refreshed by the listeners instead.
+ * <p>
+ * Apart from the bundle cache, all methods must be called on the EDT.
+ */
+public final class Messages {
+
+    /** Languages the game is translated into, the first being the fallback. */
+    public static final List<Locale> LOCALES = List.of(Locale.ENGLISH, Locale.FRENCH);
+
+    private static final String BUNDLE = "mysticmaze.messages";
+    private static final ResourceBundle.Control NO_FALLBACK =
+            ResourceBundle.Control.getNoFallbackControl(ResourceBundle.Control.FORMAT_PROPERTIES);
+
+    /**
+     * Bundles loaded so far, by language.
+     */
+    private static final Map<Locale, ResourceBundle> BUNDLES = new ConcurrentHashMap<>();
+
+    /**
+     * Told once the bound components show the new language.
+     */
+    public interface Listener {
+
+        /**
+         * Called on the EDT after a switch to another language.
+         *
+         * @param messages The messages, now in the new language.
+         */
+        void localeChanged(Messages messages);
+    }
+
+    /**
+     * A component's text, as last handed to it.
+     */
+    private static final class Binding {
+        final Consumer<String> target;
+        final String key;
+        final Object[] args;
+        String shown;
+
+        Binding(Consumer<String> target, String key, Object[] args) {
+            this.target = target;
+            this.key = key;
+            this.args = args;
+        }
+    }
+
+    private Locale locale;
+    private ResourceBundle bundle;
+    private final List<Binding> bindings = new ArrayList<>();
+    private final List<Listener> listeners = new ArrayList<>();
+
+    /**
+     * Creates the messages of a window.
+     *
+     * @param locale Language to start in; languages the game lacks fall back to English.
+     */
+    public Messages(Locale locale) {
+        this.locale = supported(locale);
+        this.bundle = bundle(this.locale);
+    }
+
+    /**
+     * @param locale Any locale.
+     * @return The language of the game closest to it.
+     */
+    public static Locale supported(Locale locale) {
+        for (Locale candidate : LOCALES) {
+            if (candidate.getLanguage().equals(locale.getLanguage())) {
+                return candidate;
+            }
+        }
+        return LOCALES.get(0);
+    }
+
+    private static ResourceBundle bundle(Locale locale) {
+        return BUNDLES.computeIfAbsent(locale, language -> ResourceBundle.getBundle(BUNDLE, language, NO_FALLBACK));
+    }
+
+    /**
+     * @return The current language.
+     */
+    public Locale getLocale() {
+        return locale;
+    }
+
+    /**
+     * @param key Key of a text without arguments.
+     * @return The text in the current language.
+     */
+    public String get(String key) {
+        return bundle.getString(key);
+    }
+
+    /**
+     * @param key Key of a {@link MessageFormat} pattern.
+     * @param args Values of its arguments.
+     * @return The text in the current language.
+     */
+    public String format(String key, Object... args) {
+        return new MessageFormat(bundle.getString(key), locale).format(args);
+    }
+
+    /**
+     * Hands a component its text now and again after each switch to another language.
+     *
+     * @param target Sets the text, e.g. label::setText.
+     * @param key Key of the text; with arguments, a {@link MessageFormat} pattern.
+     * @param args Values of the arguments, if any.
+     */
+    public void bind(Consumer<String> target, String key, Object... args) {
+        Binding binding = new Binding(target, key, args);
+        bindings.add(binding);
+        show(binding);
+    }
+
+    /**
+     * Registers a listener.
+     *
+     * @param listener The listener.
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Switches to another language, loading its bundle if this is its first use, and
+     * updates the bound components whose text changes, then the listeners. Swing's own
+     * dialogs follow, as the default locale of new components is switched too.
+     *
+     * @param locale The new language; languages the game lacks fall back to English.
+     */
+    public void setLocale(Locale locale) {
+        Locale next = supported(locale);
+        if (next.equals(this.locale)) {
+            return;
+        }
+        this.locale = next;
+        this.bundle = bundle(next);
+        JComponent.setDefaultLocale(next);
+        for (Binding binding : bindings) {
+            show(binding);
+        }
+        for (Listener listener : listeners) {
+            listener.localeChanged(this);
+        }
+    }
+
+    private void show(Binding binding) {
+        String text = binding.args.length == 0 ? get(binding.key) : format(binding.key, binding.args);
+        if (!text.equals(binding.shown)) {
+            binding.shown = text;
+            binding.target.accept(text);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package mysticmaze;
+
+import java.awt.Color;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.swing.JComponent;
+import javax.swing.Timer;
+
+/**
+ * MetricsOverlay shows the latest {@link Instrumentation.Report} in a corner of the
+ * window: frames per second, the p99 of frame time, EDT latency and each component's
+ * paint time, the number of EDT stalls, and while the board moves the p99 of the time
+ * between its animation frames and the ticks it skipped. It is meant as the glass pane of the window
+ * and has no mouse listeners, so clicks go through to the game beneath. While visible it
+ * redraws only its own box, once per report; while hidden it costs nothing.
+ */
+public final class MetricsOverlay extends JComponent {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int PADDING = 8;
+    private static final Color BACKDROP = new Color(0, 0, 0, 170);
+
+    private final transient Instrumentation instrumentation;
+    private final Timer refresh;
+    private final List<String> lines = new ArrayList<>();
+    private final Rectangle box = new Rectangle();  // Backdrop of the lines
+
+    /**
+     * Creates a hidden overlay.
+     *
+     * @param instrumentation Source of the reports.
+     */
+    public MetricsOverlay(Instrumentation instrumentation) {
+        this.instrumentation = instrumentation;
+        this.refresh = new Timer(1000, e -> refresh());
+        setOpaque(false);
+        setFont(Fonts.MONOSPACED);
+        setForeground(Color.WHITE);
+        super.setVisible(false);
+    }
+
+    /**
+     * Shows the overlay if hidden and hides it if shown.
+     */
+    public void toggle() {
+        setVisible(!isVisible());
+    }
+
+    @Override
+    public void setVisible(boolean visible) {
+        super.setVisible(visible);
+        if (visible) {
+            refresh();
+            refresh.start();
+        } else {
+            refresh.stop();
+        }
+    }
+
+    private void refresh() {
+        Instrumentation.Report report = instrumentation.latest();
+        lines.clear();
+        lines.add(String.format("%5.1f fps   frame p99 %6.2f ms", report.fps(), millis(report.frames().p99())));
+        lines.add(String.format("EDT latency p99 %6.2f ms", millis(report.edtLatency().p99())));
+        lines.add("EDT stalls " + report.stalls());
+        for (Map.Entry<String, LatencyHistogram.Snapshot> paint : report.paints().entrySet()) {
+            lines.add(String.format("paint %-10s p99 %6.2f ms", paint.getKey(), millis(paint.getValue().p99())));
+        }
+        for (Map.Entry<String, BoardAnimator.FrameStats> animation : report.animations().entrySet()) {
+            BoardAnimator.FrameStats stats = animation.getValue();
+            if (stats.frames() > 0) {
+                lines.add(String.format("anim  %-10s p99 %6.2f ms, %d skipped", animation.getKey(),
+                        millis(stats.intervals().p99()), stats.skipped()));
+            }
+        }
+        repaint(box);  // Where the previous lines were
+        FontMetrics metrics = getFontMetrics(getFont());
+        int width = 0;
+        for (String line : lines) {
+            width = Math.max(width, metrics.stringWidth(line));
+        }
+        box.setSize(width + 2 * PADDING, lines.size() * metrics.getHeight() + 2 * PADDING);
+        repaint(box);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        FontMetrics metrics = g.getFontMetrics(getFont());
+        g.setColor(BACKDROP);
+        g.fillRect(box.x, box.y, box.width, box.height);
+        g.setFont(getFont());
+        g.setColor(getForeground());
+        int y = PADDING + metrics.getAscent();
+        for (String line : lines) {
+            g.drawString(line, PADDING, y);
+            y += metrics.getHeight();
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
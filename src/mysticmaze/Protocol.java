@@ -0,0 +1,155 @@
+package mysticmaze;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Wire format shared by {@link GameServer} and {@link GameClient}. Every message is a
+ * frame made of an unsigned 16-bit length (of what follows), a type byte and a body.
+ * After a client joins a table the server sends the whole game and its chat history
+ * once; from then on it only sends deltas of a few bytes per half turn, each followed
+ * by the 64-bit hash of the board it produces so a client that drifts out of sync asks
+ * for the game again.
+ * <p>
+ * Client to server:
+ * <ul>
+ * <li>JOIN: table number (int)</li>
+ * <li>INSERT: spare rotation, edge, line (bytes)</li>
+ * <li>MOVE: destination cell (int)</li>
+ * <li>SAY: chat text (string)</li>
+ * <li>RESYNC: nothing; asks for the whole game again</li>
+ * </ul>
+ * Server to client:
+ * <ul>
+ * <li>WELCOME: table number (int), seat (byte, -1 for a spectator)</li>
+ * <li>GAME: the game as written by {@link GameState#writeTo}</li>
+ * <li>INSERTED: spare rotation, edge, line (bytes), board hash (long)</li>
+ * <li>MOVED: destination cell, captured treasure or 0, next target (ints), board hash (long)</li>
+ * <li>CHAT: seat of the sender (byte, -1 for a spectator), chat text (string)</li>
+ * <li>REJECTED: reason (byte)</li>
+ * </ul>
+ * Nothing the server sends is in words: clients name players and explain rejections in
+ * their own language.
+ */
+final class Protocol {
+
+    static final byte JOIN = 1;
+    static final byte INSERT = 2;
+    static final byte MOVE = 3;
+    static final byte SAY = 4;
+    static final byte RESYNC = 5;
+
+    static final byte WELCOME = 11;
+    static final byte GAME = 12;
+    static final byte INSERTED = 13;
+    static final byte MOVED = 14;
+    static final byte CHAT = 15;
+    static final byte REJECTED = 16;
+
+    /** REJECTED reason: the sender does not hold the seat whose turn it is. */
+    static final byte NOT_YOUR_TURN = 1;
+    /** REJECTED reason: the move breaks the rules, e.g. a fixed line or an unreachable cell. */
+    static final byte ILLEGAL_MOVE = 2;
+    /** REJECTED reason: the message was not understood. */
+    static final byte BAD_MESSAGE = 3;
+
+    /** Length prefix and type byte. */
+    static final int HEADER = 3;
+
+    /** Largest frame, header included. */
+    static final int MAX_FRAME = 2 + 0xFFFF;
+
+    private Protocol() {
+    }
+
+    /**
+     * Starts a message at the beginning of a cleared buffer.
+     *
+     * @param out Buffer the message is encoded into.
+     * @param type Type of the message.
+     */
+    static void begin(ByteBuffer out, byte type) {
+        out.clear();
+        out.putShort((short) 0).put(type);
+    }
+
+    /**
+     * Fills in the length of the message and flips the buffer, ready to be sent.
+     *
+     * @param out Buffer holding a message started with {@link #begin}.
+     */
+    static void end(ByteBuffer out) {
+        out.putShort(0, (short) (out.position() - 2));
+        out.flip();
+    }
+
+    /**
+     * Records a message as a {@link JfrEvents.NetworkMessage} event without a duration.
+     *
+     * @param outbound True for a message sent, false for one received.
+     * @param type Type of the message.
+     * @param length Length of the frame including its length prefix.
+     */
+    static void record(boolean outbound, byte type, int length) {
+        JfrEvents.NetworkMessage event = new JfrEvents.NetworkMessage();
+        commit(event, outbound, type, length);
+    }
+
+    /**
+     * Ends a {@link JfrEvents.NetworkMessage} event, begun before the message was handled,
+     * and commits it if a recording wants it.
+     *
+     * @param event The event.
+     * @param outbound True for a message sent, false for one received.
+     * @param type Type of the message.
+     * @param length Length of the frame including its length prefix.
+     */
+    static void commit(JfrEvents.NetworkMessage event, boolean outbound, byte type, int length) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.outbound = outbound;
+            event.type = type;
+            event.length = length;
+            event.commit();
+        }
+    }
+
+    /**
+     * Tells whether a whole frame is waiting at the position of a buffer being read.
+     *
+     * @param in Buffer in read mode.
+     * @return The length of the frame including its length prefix, or 0 if it is incomplete.
+     */
+    static int frameLength(ByteBuffer in) {
+        if (in.remaining() < 2) {
+            return 0;
+        }
+        int length = 2 + (in.getShort(in.position()) & 0xFFFF);
+        return in.remaining() >= length ? length : 0;
+    }
+
+    /**
+     * Takes the body of a whole frame, found with {@link #frameLength}, as a buffer of its
+     * own, so that decoding it can never read into the next frame.
+     *
+     * @param in Buffer positioned at the frame, which is moved past it.
+     * @param length Length of the frame including its length prefix, at least {@link #HEADER}.
+     * @return The body, after the type byte, from position 0 to its end.
+     */
+    static ByteBuffer body(ByteBuffer in, int length) {
+        int start = in.position();
+        in.position(start + length);
+        return in.slice(start + HEADER, length - HEADER);
+    }
+
+    /**
+     * @param reason Reason byte of a REJECTED message.
+     * @return The key of the reason in the {@link Messages} bundles.
+     */
+    static String reasonKey(int reason) {
+        return switch (reason) {
+            case NOT_YOUR_TURN -> "network.rejected.turn";
+            case ILLEGAL_MOVE -> "network.rejected.illegal";
+            default -> "network.rejected.bad";
+        };
+    }
+}
@@ -0,0 +1,262 @@
+package mysticmaze;
+
+import java.util.Arrays;
+
+/**
+ * Reachability computes which cells of a {@link BoardModel} a player can walk to through
+ * connected openings. The board is mirrored into four {@code long} bitsets, one per
+ * direction, where a set bit means "a step from this cell in that direction is possible"
+ * (both tiles are open towards each other). A flood fill then expands the whole frontier
+ * with a handful of shifts and masks per step instead of visiting cells one by one.
+ * <p>
+ * After a row or column shift only the steps touching that line are recomputed with
+ * {@link #lineShifted(int, int)}. All scratch storage is allocated up front, so queries
+ * never allocate. Instances are not thread-safe; use one per thread.
+ */
+public final class Reachability {
+
+    private final BoardModel board;
+    private final int size;
+    private final int cellCount;
+    private final int words;
+
+    /**
+     * Cells from which a step north, east, south or west is possible.
+     */
+    private final long[] stepNorth;
+    private final long[] stepEast;
+    private final long[] stepSouth;
+    private final long[] stepWest;
+
+    /**
+     * Result of the last flood fill and scratch bitsets used while computing it.
+     */
+    private final long[] reach;
+    private final long[] next;
+    private final long[] moved;
+
+    /**
+     * Scratch arrays of the shortest path search.
+     */
+    private final int[] queue;
+    private final int[] previous;
+
+    /**
+     * Creates a reachability engine for a board and computes its step bitsets.
+     *
+     * @param board The board to analyse. Call {@link #lineShifted(int, int)} or
+     *              {@link #rebuild()} after changing its tiles.
+     */
+    public Reachability(BoardModel board) {
+        this.board = board;
+        this.size = board.getSize();
+        this.cellCount = size * size;
+        this.words = (cellCount + 63) >>> 6;
+        this.stepNorth = new long[words];
+        this.stepEast = new long[words];
+        this.stepSouth = new long[words];
+        this.stepWest = new long[words];
+        this.reach = new long[words];
+        this.next = new long[words];
+        this.moved = new long[words];
+        this.queue = new int[cellCount];
+        this.previous = new int[cellCount];
+        rebuild();
+    }
+
+    /**
+     * Recomputes the step bitsets of every cell.
+     */
+    public void rebuild() {
+        for (int cell = 0; cell < cellCount; cell++) {
+            updateCell(cell);
+        }
+    }
+
+    /**
+     * Updates the step bitsets after {@link BoardModel#insert(int, int)}. Only the
+     * shifted line and the lines on either side of it are touched.
+     *
+     * @param edge Edge the spare tile entered from.
+     * @param line Index of the shifted row or column.
+     */
+    public void lineShifted(int edge, int line) {
+        boolean column = edge == BoardModel.NORTH || edge == BoardModel.SOUTH;
+        for (int l = Math.max(0, line - 1); l <= Math.min(size - 1, line + 1); l++) {
+            for (int i = 0; i < size; i++) {
+                updateCell(column ? board.cellIndex(i, l) : board.cellIndex(l, i));
+            }
+        }
+    }
+
+    private void updateCell(int cell) {
+        int row = cell / size;
+        int col = cell % size;
+        set(stepNorth, cell, row > 0
+                && board.isOpen(cell, BoardModel.NORTH) && board.isOpen(cell - size, BoardModel.SOUTH));
+        set(stepSouth, cell, row < size - 1
+                && board.isOpen(cell, BoardModel.SOUTH) && board.isOpen(cell + size, BoardModel.NORTH));
+        set(stepWest, cell, col > 0
+                && board.isOpen(cell, BoardModel.WEST) && board.isOpen(cell - 1, BoardModel.EAST));
+        set(stepEast, cell, col < size - 1
+                && board.isOpen(cell, BoardModel.EAST) && board.isOpen(cell + 1, BoardModel.WEST));
+    }
+
+    /**
+     * Flood-fills the cells reachable from a starting cell. The result is kept until the
+     * next call and can be queried with {@link #isReachable(int)}.
+     *
+     * @param start Index of the starting cell.
+     * @return The number of reachable cells, including the start.
+     */
+    public int computeFrom(int start) {
+        Arrays.fill(reach, 0L);
+        reach[start >>> 6] = 1L << start;
+
+        if (words == 1) {
+            // Boards of up to 8x8 fit in a single word
+            long r = reach[0];
+            long n0 = stepNorth[0], e0 = stepEast[0], s0 = stepSouth[0], w0 = stepWest[0];
+            while (true) {
+                long n = r | ((r & e0) << 1) | ((r & w0) >>> 1) | ((r & s0) << size) | ((r & n0) >>> size);
+                if (n == r) {
+                    break;
+                }
+                r = n;
+            }
+            reach[0] = r;
+            return Long.bitCount(r);
+        }
+
+        boolean changed = true;
+        while (changed) {
+            System.arraycopy(reach, 0, next, 0, words);
+            orShifted(stepEast, 1);
+            orShifted(stepWest, -1);
+            orShifted(stepSouth, size);
+            orShifted(stepNorth, -size);
+            changed = !Arrays.equals(reach, next);
+            System.arraycopy(next, 0, reach, 0, words);
+        }
+
+        int count = 0;
+        for (long word : reach) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * ORs (reach & steps) shifted by the given number of cells into next.
+     */
+    private void orShifted(long[] steps, int shift) {
+        for (int i = 0; i < words; i++) {
+            moved[i] = reach[i] & steps[i];
+        }
+        int wordShift = Math.abs(shift) >>> 6;
+        int bitShift = Math.abs(shift) & 63;
+        if (shift > 0) {
+            for (int i = words - 1; i >= wordShift; i--) {
+                long lo = moved[i - wordShift];
+                long hi = (bitShift != 0 && i - wordShift - 1 >= 0) ? moved[i - wordShift - 1] >>> (64 - bitShift) : 0L;
+                next[i] |= (lo << bitShift) | hi;
+            }
+        } else {
+            for (int i = 0; i + wordShift < words; i++) {
+                long hi = moved[i + wordShift];
+                long lo = (bitShift != 0 && i + wordShift + 1 < words) ? moved[i + wordShift + 1] << (64 - bitShift) : 0L;
+                next[i] |= (hi >>> bitShift) | lo;
+            }
+        }
+    }
+
+    /**
+     * @param cell Index of a cell.
+     * @return True if the cell was reached by the last {@link #computeFrom(int)}.
+     */
+    public boolean isReachable(int cell) {
+        return (reach[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    /**
+     * Returns the next reachable cell at or after the given index, for iterating over
+     * the result of the last flood fill.
+     *
+     * @param fromCell Index to start searching at.
+     * @return The index of the next reachable cell, or -1 if there is none.
+     */
+    public int nextReachable(int fromCell) {
+        int i = fromCell >>> 6;
+        if (i >= words) {
+            return -1;
+        }
+        long word = reach[i] & (-1L << fromCell);
+        while (true) {
+            if (word != 0) {
+                return (i << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++i == words) {
+                return -1;
+            }
+            word = reach[i];
+        }
+    }
+
+    /**
+     * Finds a shortest walk between two cells with a breadth-first search over the step
+     * bitsets, for animating a token along its route.
+     *
+     * @param from Index of the starting cell.
+     * @param to Index of the target cell.
+     * @param path Receives the cells of the walk, from {@code from} to {@code to}
+     *             inclusive. Must hold at least size * size entries.
+     * @return The number of cells written to {@code path}, or 0 if {@code to} cannot be reached.
+     */
+    public int shortestPath(int from, int to, int[] path) {
+        Arrays.fill(previous, -1);
+        previous[from] = from;
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = from;
+
+        while (head < tail && previous[to] == -1) {
+            int cell = queue[head++];
+            tail = visit(stepNorth, cell, cell - size, tail);
+            tail = visit(stepEast, cell, cell + 1, tail);
+            tail = visit(stepSouth, cell, cell + size, tail);
+            tail = visit(stepWest, cell, cell - 1, tail);
+        }
+        if (previous[to] == -1) {
+            return 0;
+        }
+
+        // Walk back from the target, then reverse into path
+        int length = 0;
+        for (int cell = to; cell != from; cell = previous[cell]) {
+            path[length++] = cell;
+        }
+        path[length++] = from;
+        for (int i = 0, j = length - 1; i < j; i++, j--) {
+            int tmp = path[i];
+            path[i] = path[j];
+            path[j] = tmp;
+        }
+        return length;
+    }
+
+    private int visit(long[] steps, int cell, int neighbour, int tail) {
+        if ((steps[cell >>> 6] & (1L << cell)) != 0 && previous[neighbour] == -1) {
+            previous[neighbour] = cell;
+            queue[tail++] = neighbour;
+        }
+        return tail;
+    }
+
+    private static void set(long[] bits, int cell, boolean value) {
+        if (value) {
+            bits[cell >>> 6] |= 1L << cell;
+        } else {
+            bits[cell >>> 6] &= ~(1L << cell);
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package mysticmaze;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Replay reads a game recorded by a {@link ReplayRecorder}. Any half turn of the game can
+ * be put on a board with {@link #seek}: it loads the last keyframe before that half turn
+ * through the keyframe index and replays the few records after it, so seeking costs the
+ * same at the end of a long game as at its start. The half turns themselves are read
+ * with {@link #getStep}, e.g. to animate them.
+ * <p>
+ * File layout (big endian): magic, version and keyframe interval, then records, each a
+ * type byte and a body: KEYFRAME (length, then the game as written by
+ * {@link GameState#writeTo}), INSERT (rotation, edge, line: 3 bytes) or MOVE (cell,
+ * treasure, next target: 12 bytes). A keyframe comes first and after every
+ * {@value #KEYFRAME_INTERVAL} half turns. A finished recording ends with an INDEX record
+ * (half turns, keyframe count, keyframe offsets) and a trailer pointing back at it; without
+ * one, the index is rebuilt by reading the records, the last of which may be cut short.
+ * <p>
+ * The file is mapped read-only once opened. A Replay is safe to read from one thread at a time.
+ */
+public final class Replay {
+
+    /** Half turns between two keyframes; seeking replays at most one less than this. */
+    public static final int KEYFRAME_INTERVAL = 32;
+
+    static final int MAGIC = 0x4D4D5250;        // "MMRP"
+    static final int INDEX_MAGIC = 0x4D4D5249;  // "MMRI"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 12;          // Magic, version, keyframe interval
+    static final int TRAILER_SIZE = 12;         // Offset of the INDEX record, index magic
+
+    static final byte KEYFRAME = 1;
+    static final byte INSERT = 2;
+    static final byte MOVE = 3;
+    static final byte INDEX = 4;
+
+    /**
+     * A recorded half turn.
+     */
+    public sealed interface Step permits Insert, Move {
+    }
+
+    /**
+     * The spare tile pushed into the board, see {@link GameState#applyInsert}.
+     *
+     * @param rotation Rotation of the spare tile.
+     * @param edge Edge it entered from.
+     * @param line Index of the row or column.
+     */
+    public record Insert(int rotation, int edge, int line) implements Step {
+    }
+
+    /**
+     * The current player moving, see {@link GameState#applyMove}.
+     *
+     * @param cell Cell they moved to.
+     * @param treasure Id of the treasure they captured, or 0.
+     * @param nextTarget Component number to capture next.
+     */
+    public record Move(int cell, int treasure, int nextTarget) implements Step {
+    }
+
+    private final MappedByteBuffer data;
+    private final int interval;
+    private final long[] keyframes;
+    private final int steps;
+
+    private Replay(MappedByteBuffer data, int interval, long[] keyframes, int steps) {
+        this.data = data;
+        this.interval = interval;
+        this.keyframes = keyframes;
+        this.steps = steps;
+    }
+
+    /**
+     * Opens a replay, reading its index, or rebuilding it if the recording was cut short.
+     *
+     * @param path The replay file.
+     * @return The replay.
+     * @throws IOException If the file cannot be read or is not a replay.
+     */
+    public static Replay open(Path path) throws IOException {
+        MappedByteBuffer data;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());  // Stays valid once closed
+        }
+        if (data.limit() < HEADER_SIZE || data.getInt(0) != MAGIC || data.getInt(4) != VERSION) {
+            throw new IOException("Not a replay: " + path);
+        }
+        int interval = data.getInt(8);
+        if (interval <= 0) {
+            throw new IOException("Damaged replay: " + path);
+        }
+        try {
+            Replay indexed = readIndex(data, interval);
+            return indexed != null ? indexed : scan(data, interval);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Damaged replay: " + path, e);
+        }
+    }
+
+    /**
+     * @return The replay as indexed by its INDEX record, or null if it has none.
+     */
+    private static Replay readIndex(MappedByteBuffer data, int interval) {
+        int end = data.limit();
+        if (end < HEADER_SIZE + TRAILER_SIZE || data.getInt(end - 4) != INDEX_MAGIC) {
+            return null;
+        }
+        long start = data.getLong(end - TRAILER_SIZE);
+        if (start < HEADER_SIZE || start >= end - TRAILER_SIZE || data.get((int) start) != INDEX) {
+            return null;
+        }
+        int offset = (int) start + 1;
+        int steps = data.getInt(offset);
+        long[] keyframes = new long[data.getInt(offset + 4)];
+        for (int i = 0; i < keyframes.length; i++) {
+            keyframes[i] = data.getLong(offset + 8 + 8 * i);
+        }
+        return keyframes.length > 0 ? new Replay(data, interval, keyframes, steps) : null;
+    }
+
+    /**
+     * Reads the records through once to find the keyframes, stopping at the first one
+     * that is cut short or unknown.
+     */
+    private static Replay scan(MappedByteBuffer data, int interval) throws IOException {
+        long[] keyframes = new long[16];
+        int count = 0;
+        int steps = 0;
+        int offset = HEADER_SIZE;
+        int end = data.limit();
+        while (offset < end) {
+            int length = recordLength(data, offset);
+            if (length < 0 || offset + length > end) {
+                break;
+            }
+            byte type = data.get(offset);
+            if (type == KEYFRAME) {
+                if (count == keyframes.length) {
+                    keyframes = Arrays.copyOf(keyframes, count * 2);
+                }
+                keyframes[count++] = offset;
+            } else {
+                steps++;
+            }
+            offset += length;
+        }
+        if (count == 0) {
+            throw new IOException("Replay has no keyframe");
+        }
+        // A half turn whose keyframe was cut short can still be replayed from the one before
+        return new Replay(data, interval, Arrays.copyOf(keyframes, count), steps);
+    }
+
+    /**
+     * @return The length of the record at the offset, type byte included, or -1 if it is
+     *         not a keyframe or half turn.
+     */
+    private static int recordLength(ByteBuffer data, int offset) {
+        return switch (data.get(offset)) {
+            case INSERT -> 4;
+            case MOVE -> 13;
+            case KEYFRAME -> offset + 5 <= data.limit() ? 5 + data.getInt(offset + 1) : Integer.MAX_VALUE;
+            default -> -1;
+        };
+    }
+
+    /**
+     * @return The number of half turns recorded.
+     */
+    public int getStepCount() {
+        return steps;
+    }
+
+    /**
+     * Puts the game as it stood after the given number of half turns on a board, e.g. 0
+     * for the start of the recording. The chat is left alone.
+     *
+     * @param step Number of half turns played, from 0 to {@link #getStepCount()}.
+     * @param state Game to overwrite, on a board of the recorded dimensions.
+     * @throws IllegalArgumentException If the replay does not fit the game.
+     */
+    public void seek(int step, GameState state) {
+        checkStep(step, steps);
+        int keyframe = Math.min(step / interval, keyframes.length - 1);
+        ByteBuffer in = data.duplicate();
+        in.position((int) keyframes[keyframe] + 5);
+        state.readFrom(in);
+        int offset = in.position();
+        for (int i = keyframe * interval; i < step; i++) {
+            offset = apply(offset, state);
+        }
+    }
+
+    /**
+     * Reads one recorded half turn.
+     *
+     * @param step Index of the half turn, from 0 to {@link #getStepCount()} - 1; it turns
+     *             the game at {@code seek(step)} into the one at {@code seek(step + 1)}.
+     * @return The half turn.
+     */
+    public Step getStep(int step) {
+        checkStep(step, steps - 1);
+        int keyframe = Math.min(step / interval, keyframes.length - 1);
+        int offset = (int) keyframes[keyframe];
+        offset += recordLength(data, offset);
+        for (int i = keyframe * interval; i < step; i++) {
+            offset = skipKeyframe(offset);
+            offset += recordLength(data, offset);
+        }
+        offset = skipKeyframe(offset);
+        if (data.get(offset) == INSERT) {
+            return new Insert(data.get(offset + 1), data.get(offset + 2), data.get(offset + 3));
+        }
+        return new Move(data.getInt(offset + 1), data.getInt(offset + 5), data.getInt(offset + 9));
+    }
+
+    /**
+     * Applies the half turn at the offset, or the first one after a keyframe there.
+     *
+     * @return The offset of the next record.
+     */
+    private int apply(int offset, GameState state) {
+        offset = skipKeyframe(offset);
+        if (data.get(offset) == INSERT) {
+            state.applyInsert(data.get(offset + 1), data.get(offset + 2), data.get(offset + 3));
+        } else if (data.get(offset) == MOVE) {
+            state.applyMove(data.getInt(offset + 1), data.getInt(offset + 5), data.getInt(offset + 9));
+        } else {
+            throw new IllegalArgumentException("No half turn at offset " + offset);
+        }
+        return offset + recordLength(data, offset);
+    }
+
+    private int skipKeyframe(int offset) {
+        return data.get(offset) == KEYFRAME ? offset + recordLength(data, offset) : offset;
+    }
+
+    private static void checkStep(int step, int last) {
+        if (step < 0 || step > last) {
+            throw new IllegalArgumentException("No half turn " + step + " in the replay");
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package mysticmaze;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * ReplayRecorder writes a game as it is played into an append-only replay file, read
+ * back by {@link Replay}. The file starts with the whole game as it stood when recording
+ * began, then holds one small record per half turn: the rotation, edge and line of each
+ * insertion and the cell, capture and next target of each move. Every
+ * {@value Replay#KEYFRAME_INTERVAL} half turns the whole game is written again as a
+ * keyframe, so that a viewer can jump to any turn without replaying from the start.
+ * <p>
+ * Closing the recorder appends the offsets of the keyframes; a replay whose recording
+ * was cut short has none and is indexed by reading it through once instead. Records are
+ * written with one call each and allocate nothing. A recorder is not thread-safe; one is
+ * used per game, on the thread that plays it.
+ */
+public final class ReplayRecorder implements Closeable {
+
+    private final FileChannel channel;
+    private final GameState state;
+    private final ByteBuffer buffer;
+    private long[] keyframes = new long[16];  // File offset of every keyframe written
+    private int keyframeCount;
+    private int steps;       // Half turns recorded
+    private long position;   // Offset of the end of the file
+
+    private ReplayRecorder(FileChannel channel, GameState state) {
+        this.channel = channel;
+        this.state = state;
+        this.buffer = ByteBuffer.allocate(Math.max(64, 5 + state.serializedSize()));
+    }
+
+    /**
+     * Creates a replay file, replacing any file of that name, and writes the game as it
+     * stands as its first keyframe.
+     *
+     * @param path The replay file.
+     * @param state The game to record, which the recorder reads keyframes from; record
+     *              each half turn after applying it to this game.
+     * @return The recorder.
+     * @throws IOException If the file cannot be created or written.
+     */
+    public static ReplayRecorder create(Path path, GameState state) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            ReplayRecorder recorder = new ReplayRecorder(channel, state);
+            recorder.buffer.clear();
+            recorder.buffer.putInt(Replay.MAGIC).putInt(Replay.VERSION).putInt(Replay.KEYFRAME_INTERVAL);
+            recorder.write();
+            recorder.writeKeyframe();
+            return recorder;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return The number of half turns recorded.
+     */
+    public int getStepCount() {
+        return steps;
+    }
+
+    /**
+     * Records the spare tile being pushed into the board.
+     *
+     * @param rotation Rotation of the spare tile when it was inserted.
+     * @param edge Edge the spare tile entered from.
+     * @param line Index of the row or column.
+     * @throws IOException If the record cannot be written.
+     */
+    public void recordInsert(int rotation, int edge, int line) throws IOException {
+        buffer.clear();
+        buffer.put(Replay.INSERT).put((byte) rotation).put((byte) edge).put((byte) line);
+        step();
+    }
+
+    /**
+     * Records the current player moving, which ends their turn.
+     *
+     * @param cell Cell the player moved to.
+     * @param treasure Id of the treasure they captured there, or 0.
+     * @param nextTarget Component number to capture next.
+     * @throws IOException If the record cannot be written.
+     */
+    public void recordMove(int cell, int treasure, int nextTarget) throws IOException {
+        buffer.clear();
+        buffer.put(Replay.MOVE).putInt(cell).putInt(treasure).putInt(nextTarget);
+        step();
+    }
+
+    private void step() throws IOException {
+        write();
+        steps++;
+        if (steps % Replay.KEYFRAME_INTERVAL == 0) {
+            writeKeyframe();
+        }
+    }
+
+    /**
+     * Writes the game as it stands now, after the half turns recorded so far.
+     */
+    private void writeKeyframe() throws IOException {
+        if (keyframeCount == keyframes.length) {
+            keyframes = Arrays.copyOf(keyframes, keyframeCount * 2);
+        }
+        keyframes[keyframeCount++] = position;
+        buffer.clear();
+        buffer.put(Replay.KEYFRAME).putInt(state.serializedSize());
+        state.writeTo(buffer);
+        write();
+    }
+
+    private void write() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /**
+     * Appends the keyframe index and closes the file. Nothing can be recorded afterwards.
+     *
+     * @throws IOException If the index cannot be written or the file closed.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            ByteBuffer index = ByteBuffer.allocate(1 + 8 + 8 * keyframeCount + Replay.TRAILER_SIZE);
+            long start = position;
+            index.put(Replay.INDEX).putInt(steps).putInt(keyframeCount);
+            for (int i = 0; i < keyframeCount; i++) {
+                index.putLong(keyframes[i]);
+            }
+            index.putLong(start).putInt(Replay.INDEX_MAGIC);
+            index.flip();
+            while (index.hasRemaining()) {
+                position += channel.write(index, position);
+            }
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package mysticmaze;
+
+import javax.swing.*;
+import java.awt.Color;
+import java.awt.FlowLayout;
+
+/**
+ * ReplayViewer is the control bar shown under the board while watching a replay: step
+ * back, play or pause, step forward, a slider to jump to any half turn, the playback speed
+ * and a button to go back to the game. Jumps go through {@link Replay#seek}, so dragging
+ * the slider to the end of a long game costs no more than to its start. Playing steps
+ * through the half turns with the engine, so the board animates them as in a live game.
+ * <p>
+ * The viewer overwrites the game of the engine it is given; the window keeps the game it
+ * was playing aside until the viewer is closed. It runs on the EDT only.
+ */
+final class ReplayViewer extends JPanel {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int STEP_DELAY = 600;  // Milliseconds between two half turns at normal speed
+    private static final double[] SPEEDS = {0.5, 1, 2, 4, 8};
+    private static final String[] SPEED_NAMES = {"½×", "1×", "2×", "4×", "8×"};
+
+    /**
+     * What the window shows of the replay, called after the game has been updated.
+     */
+    interface Display {
+
+        /**
+         * The whole game was replaced, after a jump.
+         */
+        void showState();
+
+        /**
+         * The spare tile was pushed into a line.
+         *
+         * @param edge Edge it entered from.
+         * @param line Index of the row or column.
+         */
+        void showInsert(int edge, int line);
+
+        /**
+         * A player moved, which ended their turn.
+         *
+         * @param player Index of the player who moved.
+         * @param from Cell they left.
+         * @param cell Cell they moved to.
+         * @param treasure Id of the treasure they captured, or 0.
+         */
+        void showMove(int player, int from, int cell, int treasure);
+
+        /**
+         * The Close button was clicked.
+         */
+        void closeReplay();
+    }
+
+    private final GameEngine engine;
+    private final Display display;
+    private final Messages messages;
+    private final Timer player;
+    private final JButton playButton = new JButton();
+    private final JSlider slider = new JSlider(0, 0, 0);
+    private final JComboBox<String> speed = new JComboBox<>(SPEED_NAMES);
+    private final JLabel turnLabel = new JLabel();
+    private Replay replay;   // Null while no replay is open
+    private int step;        // Half turns of the replay on the board
+    private boolean updating;  // True while the slider follows the board rather than the user
+
+    /**
+     * Creates the control bar; its text follows the language.
+     *
+     * @param engine Engine of the game the replay is played on.
+     * @param display Shows the replay.
+     * @param messages Text of the window.
+     */
+    ReplayViewer(GameEngine engine, Display display, Messages messages) {
+        super(new FlowLayout(FlowLayout.CENTER, 10, 5));
+        this.engine = engine;
+        this.display = display;
+        this.messages = messages;
+        setOpaque(false);
+
+        player = new Timer(STEP_DELAY, e -> {
+            if (step < replay.getStepCount()) {
+                stepForward();
+            } else {
+                pause();
+            }
+        });
+
+        JButton back = new JButton();
+        JButton forward = new JButton();
+        JButton close = new JButton();
+        messages.bind(back::setText, "replay.back");
+        messages.bind(forward::setText, "replay.forward");
+        messages.bind(close::setText, "replay.close");
+        messages.bind(speed::setToolTipText, "replay.speed");
+        messages.addListener(m -> {
+            showPlaying();
+            showTurn();
+        });
+        back.addActionListener(e -> {
+            pause();
+            seek(step - 1);
+        });
+        forward.addActionListener(e -> {
+            pause();
+            if (step < replay.getStepCount()) {
+                stepForward();
+            }
+        });
+        playButton.addActionListener(e -> {
+            if (player.isRunning()) {
+                pause();
+            } else {
+                play();
+            }
+        });
+        close.addActionListener(e -> display.closeReplay());
+        speed.setSelectedIndex(1);
+        speed.addActionListener(e -> {
+            player.setDelay((int) (STEP_DELAY / SPEEDS[speed.getSelectedIndex()]));
+            player.setInitialDelay(player.getDelay());
+        });
+        slider.addChangeListener(e -> {
+            if (!updating) {
+                pause();
+                seek(slider.getValue());
+            }
+        });
+        turnLabel.setForeground(Color.WHITE);
+        slider.setOpaque(false);
+
+        add(back);
+        add(playButton);
+        add(forward);
+        add(slider);
+        add(turnLabel);
+        add(speed);
+        add(close);
+        showPlaying();
+    }
+
+    /**
+     * Shows the start of a replay, paused.
+     *
+     * @param replay The replay, played on a board of the dimensions of the engine's.
+     */
+    void open(Replay replay) {
+        pause();
+        this.replay = replay;
+        updating = true;
+        slider.setMaximum(replay.getStepCount());
+        updating = false;
+        seek(0);
+    }
+
+    /**
+     * Stops playing, e.g. before the viewer is closed.
+     */
+    void pause() {
+        player.stop();
+        showPlaying();
+    }
+
+    private void play() {
+        if (step == replay.getStepCount()) {
+            seek(0);  // Play again from the start
+        }
+        player.start();
+        showPlaying();
+    }
+
+    /**
+     * Puts the game after a number of half turns on the board, as one change.
+     */
+    private void seek(int target) {
+        if (target < 0 || target > replay.getStepCount()) {
+            return;
+        }
+        replay.seek(target, engine.getState());
+        engine.stateReplaced();
+        step = target;
+        display.showState();
+        showTurn();
+    }
+
+    /**
+     * Plays the next half turn, animated as in a live game.
+     */
+    private void stepForward() {
+        GameState state = engine.getState();
+        Replay.Step next = replay.getStep(step);
+        if (next instanceof Replay.Insert insert) {
+            engine.applyInsert(insert.rotation(), insert.edge(), insert.line());
+            step++;
+            display.showInsert(insert.edge(), insert.line());
+        } else if (next instanceof Replay.Move move) {
+            int mover = state.getCurrentPlayer();
+            int from = state.getBoard().getPlayerCell(mover);
+            engine.applyMove(move.cell(), move.treasure(), move.nextTarget());
+            step++;
+            display.showMove(mover, from, move.cell(), move.treasure());
+        }
+        showTurn();
+    }
+
+    private void showPlaying() {
+        playButton.setText(messages.get(player.isRunning() ? "replay.pause" : "replay.play"));
+    }
+
+    private void showTurn() {
+        if (replay == null) {
+            return;
+        }
+        updating = true;
+        slider.setValue(step);
+        updating = false;
+        turnLabel.setText(messages.format("replay.turn", step, replay.getStepCount()));
+    }
+}
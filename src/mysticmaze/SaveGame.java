@@ -0,0 +1,471 @@
+package mysticmaze;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * SaveGame stores a {@link GameState} as a binary snapshot plus an append-only journal of
+ * the moves played since, both memory-mapped so that saving is a handful of stores into
+ * the page cache. Autosaving a move appends a record of a few bytes to the journal and
+ * allocates nothing; only when the journal fills up is a new snapshot written, which
+ * empties it. Loading reads the newest valid snapshot and replays the journal on top; it
+ * opens the files read-only and never creates or changes any. Saving a game into a file
+ * of the user's choice with {@link #save} writes new files and swaps them in whole.
+ * <p>
+ * The snapshot file holds two slots of {@value #SLOT_SIZE} bytes that are written in
+ * turn, each with an epoch and a CRC32 of its contents, so a save interrupted half way
+ * leaves the previous snapshot intact. Slot layout (big endian): magic, version, epoch,
+ * payload length, payload CRC, then the payload: the game as written by
+ * {@link GameState#writeTo} followed by the chat lines.
+ * <p>
+ * The journal file, next to the snapshot with the suffix {@value #JOURNAL_SUFFIX}, starts
+ * with magic, version and the epoch of the snapshot it continues; records from another
+ * epoch are ignored. Each record is a type byte followed by a fixed body, and the byte
+ * after the last record is always {@link #END}. A record's type byte is written after its
+ * body, so a record cut short by a crash reads as the end of the journal.
+ * <p>
+ * The mapped writes survive the game crashing or being killed; call {@link #flush()} to
+ * also survive the machine losing power. A SaveGame is not thread-safe; one is used per
+ * game, on the thread that plays it.
+ */
+public final class SaveGame implements Closeable {
+
+    /** Suffix appended to the snapshot file name to name the journal. */
+    public static final String JOURNAL_SUFFIX = ".journal";
+
+    private static final int SNAPSHOT_MAGIC = 0x4D4D5356;  // "MMSV"
+    private static final int JOURNAL_MAGIC = 0x4D4D4A4C;   // "MMJL"
+    private static final int VERSION = 1;
+
+    private static final int SLOT_SIZE = 256 * 1024;  // Room for far larger boards than 7x7 plus a full chat history
+    private static final int SLOT_HEADER = 24;        // Magic, version, epoch, length, CRC
+    private static final int JOURNAL_SIZE = 64 * 1024;  // Thousands of moves between snapshots
+    private static final int JOURNAL_HEADER = 16;     // Magic, version, epoch
+
+    private static final byte END = 0;     // No more records
+    private static final byte INSERT = 1;  // Spare rotation, edge, line: 3 bytes
+    private static final byte MOVE = 2;    // Destination cell, captured treasure or 0, next target: 12 bytes
+    private static final byte CHAT = 3;    // UTF-8 length, then the UTF-8 bytes
+
+    private final FileChannel snapshotChannel;
+    private final FileChannel journalChannel;  // Null when loading a save without a journal
+    private final MappedByteBuffer snapshot;
+    private final MappedByteBuffer journal;
+    private final CRC32 crc = new CRC32();
+    private final CharsetEncoder encoder = BinaryStrings.newEncoder();
+
+    private long epoch;          // Epoch of the newest snapshot
+    private int journalEnd = -1; // Offset of the END marker, or -1 until snapshotted
+
+    private SaveGame(FileChannel snapshotChannel, FileChannel journalChannel, FileChannel.MapMode mode) throws IOException {
+        this.snapshotChannel = snapshotChannel;
+        this.journalChannel = journalChannel;
+        this.snapshot = snapshotChannel.map(mode, 0, 2L * SLOT_SIZE);
+        this.journal = journalChannel != null ? journalChannel.map(mode, 0, JOURNAL_SIZE) : null;
+        this.epoch = Math.max(validSlotEpoch(0), validSlotEpoch(SLOT_SIZE));  // New snapshots must outrank old ones
+    }
+
+    /**
+     * Opens a saved game for writing, creating its files if they do not exist yet. Moves
+     * can only be journaled once a snapshot has been written.
+     *
+     * @param path The snapshot file; the journal is kept next to it.
+     * @return The opened save.
+     * @throws IOException If the files cannot be opened or mapped, or either already
+     *         exists and is not part of a saved game.
+     */
+    public static SaveGame open(Path path) throws IOException {
+        checkOverwrite(path, 2L * SLOT_SIZE, SNAPSHOT_MAGIC, 0, SLOT_SIZE);
+        checkOverwrite(journalPath(path), JOURNAL_SIZE, JOURNAL_MAGIC, 0);
+        FileChannel snapshotChannel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            FileChannel journalChannel = FileChannel.open(journalPath(path),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                return new SaveGame(snapshotChannel, journalChannel, FileChannel.MapMode.READ_WRITE);
+            } catch (IOException e) {
+                journalChannel.close();
+                throw e;
+            }
+        } catch (IOException e) {
+            snapshotChannel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Saves a game into new files, with an empty journal, then moves them over any files
+     * at the path, so the save replaces whatever was there whole and a failed save leaves
+     * it untouched.
+     *
+     * @param path The snapshot file; the journal is kept next to it.
+     * @param state The game to save.
+     * @throws IOException If the files cannot be written or the game does not fit into a snapshot slot.
+     */
+    public static void save(Path path, GameState state) throws IOException {
+        long first = 1;
+        ByteBuffer snapshot = ByteBuffer.allocate(2 * SLOT_SIZE);
+        writeSlot(snapshot, first, state, new CRC32(), BinaryStrings.newEncoder());
+        ByteBuffer journal = ByteBuffer.allocate(JOURNAL_SIZE);
+        startJournal(journal, first);
+
+        Path directory = path.toAbsolutePath().getParent();
+        Path snapshotTemp = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            Path journalTemp = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+            try {
+                write(snapshotTemp, snapshot);
+                write(journalTemp, journal);
+                // Journal first: with the old snapshot, an empty journal of another epoch is ignored
+                Files.move(journalTemp, journalPath(path), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                Files.move(snapshotTemp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(journalTemp);
+            }
+        } finally {
+            Files.deleteIfExists(snapshotTemp);
+        }
+    }
+
+    private static void write(Path path, ByteBuffer data) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            data.clear();
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Loads the newest valid snapshot of a saved game and replays its journal. The files
+     * are only read: a missing journal, or one that is not a journal, is ignored.
+     *
+     * @param path The snapshot file.
+     * @param state Game to overwrite, whose board must have the dimensions of the saved one.
+     * @return False if there is no such file or it holds no valid snapshot, in which case
+     *         the game is untouched.
+     * @throws IOException If the file is not a saved game, or the save does not fit the
+     *         game, which may then be partly overwritten.
+     */
+    public static boolean load(Path path, GameState state) throws IOException {
+        if (!Files.exists(path)) {
+            return false;
+        }
+        try (FileChannel snapshotChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (!isOurs(snapshotChannel, 2L * SLOT_SIZE, SNAPSHOT_MAGIC, 0, SLOT_SIZE)) {
+                throw new IOException("Not a saved game: " + path.getFileName());
+            }
+            Path journalPath = journalPath(path);
+            FileChannel journalChannel = Files.exists(journalPath) ? FileChannel.open(journalPath, StandardOpenOption.READ) : null;
+            try {
+                if (journalChannel != null && !isOurs(journalChannel, JOURNAL_SIZE, JOURNAL_MAGIC, 0)) {
+                    journalChannel.close();
+                    journalChannel = null;
+                }
+                return new SaveGame(snapshotChannel, journalChannel, FileChannel.MapMode.READ_ONLY).read(state);
+            } finally {
+                if (journalChannel != null) {
+                    journalChannel.close();
+                }
+            }
+        }
+    }
+
+    private static Path journalPath(Path path) {
+        return path.resolveSibling(path.getFileName() + JOURNAL_SUFFIX);
+    }
+
+    /**
+     * Refuses to open a file for writing unless it is missing, empty or already part of a
+     * saved game.
+     */
+    private static void checkOverwrite(Path path, long size, int magic, long... offsets) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() != 0 && !isOurs(channel, size, magic, offsets)) {
+                throw new IOException("Not a saved game: " + path.getFileName());
+            }
+        }
+    }
+
+    /**
+     * Tells, before mapping a file, whether it has the size of a snapshot or journal file
+     * and each of the given offsets holds the magic or is still blank, as a slot never
+     * written is.
+     */
+    private static boolean isOurs(FileChannel channel, long size, int magic, long... offsets) throws IOException {
+        if (channel.size() != size) {
+            return false;
+        }
+        ByteBuffer word = ByteBuffer.allocate(4);
+        for (long offset : offsets) {
+            word.clear();
+            while (word.hasRemaining() && channel.read(word, offset + word.position()) > 0) {
+                // Read the whole word
+            }
+            int value = word.getInt(0);
+            if (value != magic && value != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /* ------------------------------------------------------------ snapshots */
+
+    /**
+     * Writes the whole game into the older snapshot slot and starts an empty journal
+     * after it.
+     *
+     * @param state The game to save.
+     * @throws IOException If the game does not fit into a snapshot slot.
+     */
+    public void writeSnapshot(GameState state) throws IOException {
+        long next = epoch + 1;
+        writeSlot(snapshot, next, state, crc, encoder);
+        epoch = next;
+
+        // The old journal is part of the snapshot now
+        startJournal(journal, epoch);
+        journalEnd = JOURNAL_HEADER;
+    }
+
+    /**
+     * Writes the game into the slot of an epoch, the header last so that the slot only
+     * becomes valid once the payload is complete.
+     */
+    private static void writeSlot(ByteBuffer snapshot, long epoch, GameState state, CRC32 crc, CharsetEncoder encoder)
+            throws IOException {
+        int slot = (int) (epoch & 1) * SLOT_SIZE;
+        snapshot.limit(slot + SLOT_SIZE).position(slot + SLOT_HEADER);
+        try {
+            state.writeTo(snapshot);
+            snapshot.putInt(state.getChat().size());
+            for (String line : state.getChat()) {
+                BinaryStrings.put(snapshot, line, encoder);
+            }
+        } catch (BufferOverflowException e) {
+            snapshot.clear();
+            throw new IOException("Game is too large for a snapshot", e);
+        }
+        int length = snapshot.position() - slot - SLOT_HEADER;
+
+        snapshot.limit(slot + SLOT_HEADER + length).position(slot + SLOT_HEADER);
+        crc.reset();
+        crc.update(snapshot);
+        snapshot.clear();
+        snapshot.putInt(slot + 16, length).putInt(slot + 20, (int) crc.getValue());
+        snapshot.putInt(slot + 4, VERSION).putLong(slot + 8, epoch).putInt(slot, SNAPSHOT_MAGIC);
+    }
+
+    /**
+     * Empties a journal and makes it continue the snapshot of an epoch.
+     */
+    private static void startJournal(ByteBuffer journal, long epoch) {
+        journal.put(JOURNAL_HEADER, END);
+        journal.putInt(0, JOURNAL_MAGIC).putInt(4, VERSION).putLong(8, epoch);
+    }
+
+    /**
+     * Reads the newest valid snapshot into a game and replays the journal after it, if
+     * there is one and it continues that snapshot.
+     *
+     * @return False if the save holds no valid snapshot, in which case the game is untouched.
+     */
+    private boolean read(GameState state) throws IOException {
+        int slot = -1;
+        long newest = 0;
+        for (int offset = 0; offset < 2 * SLOT_SIZE; offset += SLOT_SIZE) {
+            long slotEpoch = validSlotEpoch(offset);
+            if (slotEpoch > newest) {
+                newest = slotEpoch;
+                slot = offset;
+            }
+        }
+        if (slot < 0) {
+            return false;
+        }
+
+        snapshot.limit(slot + SLOT_HEADER + snapshot.getInt(slot + 16)).position(slot + SLOT_HEADER);
+        try {
+            state.readFrom(snapshot);
+            state.clearChat();
+            for (int lines = snapshot.getInt(); lines > 0; lines--) {
+                state.addChat(BinaryStrings.get(snapshot));
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("Snapshot does not match this game", e);
+        } finally {
+            snapshot.clear();
+        }
+        epoch = newest;
+
+        // The journal of an older snapshot is already part of this one
+        if (journal != null && journal.getInt(0) == JOURNAL_MAGIC && journal.getInt(4) == VERSION
+                && journal.getLong(8) == epoch) {
+            try {
+                replay(state);
+            } catch (RuntimeException e) {
+                throw new IOException("Journal does not match the snapshot", e);
+            } finally {
+                journal.clear();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The epoch of the slot at the given offset, or 0 if the slot is empty or damaged.
+     */
+    private long validSlotEpoch(int slot) {
+        int length = snapshot.getInt(slot + 16);
+        if (snapshot.getInt(slot) != SNAPSHOT_MAGIC || snapshot.getInt(slot + 4) != VERSION
+                || length < 0 || length > SLOT_SIZE - SLOT_HEADER) {
+            return 0;
+        }
+        snapshot.limit(slot + SLOT_HEADER + length).position(slot + SLOT_HEADER);
+        crc.reset();
+        crc.update(snapshot);
+        snapshot.clear();
+        return (int) crc.getValue() == snapshot.getInt(slot + 20) ? snapshot.getLong(slot + 8) : 0;
+    }
+
+    /* -------------------------------------------------------------- journal */
+
+    /**
+     * Journals the spare tile being pushed into the board.
+     *
+     * @param rotation Rotation of the spare tile when it was inserted.
+     * @param edge Edge the spare tile entered from.
+     * @param line Index of the row or column.
+     * @return False if the move could not be journaled, because the journal is full or
+     *         no snapshot has been written yet; write a snapshot instead.
+     */
+    public boolean appendInsert(int rotation, int edge, int line) {
+        if (!hasRoom(3)) {
+            return false;
+        }
+        journal.put(journalEnd + 1, (byte) rotation).put(journalEnd + 2, (byte) edge).put(journalEnd + 3, (byte) line);
+        return commit(INSERT, 3);
+    }
+
+    /**
+     * Journals the current player moving, which ends their turn.
+     *
+     * @param cell Cell the player moved to.
+     * @param treasure Id of the treasure they captured there, or 0.
+     * @param nextTarget Component number to capture next.
+     * @return False if the move could not be journaled; write a snapshot instead.
+     */
+    public boolean appendMove(int cell, int treasure, int nextTarget) {
+        if (!hasRoom(12)) {
+            return false;
+        }
+        journal.putInt(journalEnd + 1, cell).putInt(journalEnd + 5, treasure).putInt(journalEnd + 9, nextTarget);
+        return commit(MOVE, 12);
+    }
+
+    /**
+     * Journals a chat line.
+     *
+     * @param line The line, as added to the game.
+     * @return False if the line could not be journaled; write a snapshot instead.
+     */
+    public boolean appendChat(String line) {
+        if (!hasRoom(2 + 3 * line.length())) {
+            return false;
+        }
+        journal.position(journalEnd + 1);
+        BinaryStrings.put(journal, line, encoder);
+        int length = journal.position() - journalEnd - 1;
+        journal.clear();
+        return commit(CHAT, length);
+    }
+
+    private boolean hasRoom(int bodyLength) {
+        return journalEnd >= 0 && journalEnd + 1 + bodyLength < JOURNAL_SIZE;
+    }
+
+    /**
+     * Terminates the journal after the record whose body has just been written at
+     * journalEnd + 1, then writes its type to make it visible.
+     */
+    private boolean commit(byte type, int bodyLength) {
+        int record = journalEnd;
+        journalEnd = record + 1 + bodyLength;
+        journal.put(journalEnd, END);
+        journal.put(record, type);
+        return true;
+    }
+
+    /**
+     * Applies every journaled record to the game.
+     *
+     * @return The offset of the END marker.
+     */
+    private int replay(GameState state) {
+        int offset = JOURNAL_HEADER;
+        while (true) {
+            byte type = journal.get(offset);
+            switch (type) {
+                case INSERT -> {
+                    state.applyInsert(journal.get(offset + 1), journal.get(offset + 2), journal.get(offset + 3));
+                    offset += 4;
+                }
+                case MOVE -> {
+                    state.applyMove(journal.getInt(offset + 1), journal.getInt(offset + 5), journal.getInt(offset + 9));
+                    offset += 13;
+                }
+                case CHAT -> {
+                    journal.position(offset + 1);
+                    state.addChat(BinaryStrings.get(journal));
+                    offset = journal.position();
+                    journal.clear();
+                }
+                default -> {
+                    return offset;  // END, or the unwritten tail of a record cut short
+                }
+            }
+        }
+    }
+
+    /* ------------------------------------------------------------ lifecycle */
+
+    /**
+     * Forces every save written so far onto the disk.
+     */
+    public void flush() {
+        snapshot.force();
+        journal.force();
+    }
+
+    /**
+     * Closes the files. The mappings themselves are released by the garbage collector.
+     *
+     * @throws IOException If a file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            snapshotChannel.close();
+        } finally {
+            if (journalChannel != null) {
+                journalChannel.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package mysticmaze;
+
+import java.io.Closeable;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * SessionHost runs many games in one process, each as a {@link Session} played through
+ * its own {@link GameEngine}. A session never holds a thread while it waits: commands go
+ * into its bounded inbox, and the first command to arrive schedules a task that plays
+ * everything queued, one command at a time. These tasks share a work-stealing pool, so
+ * thousands of sessions cost no more threads than there are cores.
+ * <p>
+ * New sessions copy a board template from a pool shared by the whole host, which is only
+ * ever read. Sessions that receive no command for the idle timeout are evicted.
+ */
+public final class SessionHost implements Closeable {
+
+    /** Template every host starts with: the standard board. */
+    public static final String STANDARD = "standard";
+
+    private static final int DRAIN_BATCH = 64;  // Commands played per task before yielding to other sessions
+
+    /**
+     * Totals of the host since the previous {@link SessionHost#metrics()}.
+     *
+     * @param activeSessions Sessions open now.
+     * @param moves Commands played in the interval; inserts and moves count alike.
+     * @param movesPerSecond Commands played per second over the interval.
+     * @param p50Nanos Median time from submitting a command to its result.
+     * @param p99Nanos 99th percentile of the same.
+     * @param rejected Commands turned down in the interval because an inbox was full.
+     * @param evicted Idle sessions evicted in the interval.
+     */
+    public record Metrics(int activeSessions, long moves, double movesPerSecond, long p50Nanos, long p99Nanos,
+                          long rejected, long evicted) {
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%d sessions, %.0f moves/s, p50 %.1f us, p99 %.1f us, %d rejected, %d evicted",
+                    activeSessions, movesPerSecond, p50Nanos / 1e3, p99Nanos / 1e3, rejected, evicted);
+        }
+    }
+
+    private final ExecutorService executor;
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "session-sweeper");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<String, GameState> templates = new ConcurrentHashMap<>();
+    private final Map<Long, Session> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+    private final int inboxCapacity;
+    private final long idleNanos;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private long lastMetricsNanos = System.nanoTime();  // Guarded by this
+
+    /**
+     * Creates a host with the standard board as its only template.
+     *
+     * @param inboxCapacity Commands a session queues before turning more down.
+     * @param idleTimeoutMillis Time without commands after which a session is evicted.
+     */
+    public SessionHost(int inboxCapacity, long idleTimeoutMillis) {
+        this(inboxCapacity, idleTimeoutMillis, Executors.newWorkStealingPool());  // Tasks never block, so one thread per core
+    }
+
+    /**
+     * Creates a host playing its sessions on the given executor, e.g. one a test holds up.
+     *
+     * @param inboxCapacity Commands a session queues before turning more down.
+     * @param idleTimeoutMillis Time without commands after which a session is evicted.
+     * @param executor Runs the tasks playing the inboxes; shut down with the host.
+     */
+    SessionHost(int inboxCapacity, long idleTimeoutMillis, ExecutorService executor) {
+        this.executor = executor;
+        this.inboxCapacity = inboxCapacity;
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        templates.put(STANDARD, new GameState(BoardModel.standard(), GameState.FIRST_TARGET));
+        long sweep = Math.max(1, idleTimeoutMillis / 2);
+        sweeper.scheduleWithFixedDelay(this::evictIdle, sweep, sweep, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Adds a board template new sessions can start from. The host keeps the game and
+     * only reads it from then on; the caller must not change it either.
+     *
+     * @param name Name of the template.
+     * @param game The starting position.
+     */
+    public void addTemplate(String name, GameState game) {
+        templates.put(name, game);
+    }
+
+    /**
+     * Opens a session on a copy of a template.
+     *
+     * @param template Name of the template, e.g. {@link #STANDARD}.
+     * @return The new session.
+     * @throws IllegalArgumentException If there is no such template.
+     */
+    public Session open(String template) {
+        GameState start = templates.get(template);
+        if (start == null) {
+            throw new IllegalArgumentException("No template " + template);
+        }
+        GameState state = new GameState(new BoardModel(start.getBoard()), start.getTargetComponent());
+        state.copyFrom(start);
+        Session session = new Session(nextId.incrementAndGet(), new GameEngine(state));
+        sessions.put(session.id, session);
+        return session;
+    }
+
+    /**
+     * @param id Id of a session.
+     * @return The session, or null if it was closed or evicted.
+     */
+    public Session get(long id) {
+        return sessions.get(id);
+    }
+
+    /**
+     * Returns the totals since the previous call and starts a new interval.
+     *
+     * @return The metrics of the interval.
+     */
+    public synchronized Metrics metrics() {
+        long now = System.nanoTime();
+        LatencyHistogram.Snapshot interval = latency.drain();
+        double seconds = Math.max(1, now - lastMetricsNanos) / 1e9;
+        lastMetricsNanos = now;
+        return new Metrics(sessions.size(), interval.count(), interval.count() / seconds,
+                interval.p50(), interval.p99(), rejected.sumThenReset(), evicted.sumThenReset());
+    }
+
+    /**
+     * Closes every session and stops the host.
+     */
+    @Override
+    public void close() {
+        sweeper.shutdownNow();
+        for (Session session : sessions.values()) {
+            session.close();
+        }
+        executor.shutdown();
+    }
+
+    private void evictIdle() {
+        long now = System.nanoTime();
+        for (Session session : sessions.values()) {
+            if (now - session.lastActive > idleNanos && session.inbox.isEmpty()) {
+                session.close();
+                evicted.increment();
+            }
+        }
+    }
+
+    /* -------------------------------------------------------------- session */
+
+    /**
+     * A command waiting in an inbox, with when it was submitted and where its result goes.
+     */
+    private record Command(int player, boolean move, int rotation, int edge, int line, int cell,
+                           long submitted, CompletableFuture<Long> result) {
+    }
+
+    /**
+     * One game on the host. Its methods may be called from any thread; the game itself is
+     * only touched by the single task playing the inbox at any time.
+     */
+    public final class Session {
+
+        private final long id;
+        private final GameEngine engine;
+        private final ArrayBlockingQueue<Command> inbox = new ArrayBlockingQueue<>(inboxCapacity);
+        private final AtomicBoolean scheduled = new AtomicBoolean();  // A task is playing or about to play the inbox
+        private volatile long lastActive = System.nanoTime();
+        private volatile boolean closed;
+
+        private Session(long id, GameEngine engine) {
+            this.id = id;
+            this.engine = engine;
+        }
+
+        /**
+         * @return The id of the session on its host.
+         */
+        public long getId() {
+            return id;
+        }
+
+        /**
+         * Asks to insert the spare tile for a player.
+         *
+         * @param player Index of the player, which must be the current one.
+         * @param rotation Rotation to insert the spare tile with.
+         * @param edge Edge the spare tile enters from.
+         * @param line Index of the row or column.
+         * @return Completes with the hash of the board once played; fails with an
+         *         IllegalArgumentException for an illegal command, a
+         *         RejectedExecutionException if the inbox is full, or a
+         *         CancellationException once the session is closed.
+         */
+        public CompletableFuture<Long> insert(int player, int rotation, int edge, int line) {
+            return submit(new Command(player, false, rotation, edge, line, 0, System.nanoTime(), new CompletableFuture<>()));
+        }
+
+        /**
+         * Asks to move a player.
+         *
+         * @param player Index of the player, which must be the current one.
+         * @param cell Index of the cell to move to.
+         * @return Completes with the hash of the board once played; fails as for {@link #insert}.
+         */
+        public CompletableFuture<Long> move(int player, int cell) {
+            return submit(new Command(player, true, 0, 0, 0, cell, System.nanoTime(), new CompletableFuture<>()));
+        }
+
+        /**
+         * Ends the session; commands still queued fail with a CancellationException.
+         */
+        public void close() {
+            closed = true;
+            sessions.remove(id, this);
+            Command command;
+            while ((command = inbox.poll()) != null) {
+                command.result().completeExceptionally(new CancellationException("Session " + id + " closed"));
+            }
+        }
+
+        private CompletableFuture<Long> submit(Command command) {
+            if (closed) {
+                command.result().completeExceptionally(new CancellationException("Session " + id + " closed"));
+            } else if (!inbox.offer(command)) {
+                rejected.increment();
+                command.result().completeExceptionally(new RejectedExecutionException("Inbox of session " + id + " is full"));
+            } else {
+                lastActive = System.nanoTime();
+                schedule();
+            }
+            return command.result();
+        }
+
+        private void schedule() {
+            if (!inbox.isEmpty() && scheduled.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    close();  // The host is shutting down
+                }
+            }
+        }
+
+        /**
+         * Plays a batch of queued commands, then lets another task take over if more arrived.
+         */
+        private void drain() {
+            try {
+                Command command;
+                for (int i = 0; i < DRAIN_BATCH && (command = inbox.poll()) != null; i++) {
+                    play(command);
+                }
+            } finally {
+                scheduled.set(false);
+            }
+            if (closed) {
+                close();  // Fail anything that slipped in while closing
+            } else {
+                schedule();
+            }
+        }
+
+        private void play(Command command) {
+            try {
+                if (command.player() != engine.getState().getCurrentPlayer()) {
+                    throw new IllegalArgumentException("Not the turn of player " + command.player());
+                }
+                if (command.move()) {
+                    engine.move(command.cell());
+                } else {
+                    engine.insert(command.rotation(), command.edge(), command.line());
+                }
+                long hash = engine.getBoard().hash();
+                latency.record(System.nanoTime() - command.submitted());
+                command.result().complete(hash);
+            } catch (IllegalArgumentException e) {
+                command.result().completeExceptionally(e);
+            }
+        }
+    }
+}
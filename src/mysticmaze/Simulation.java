@@ -0,0 +1,359 @@
+package mysticmaze;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Simulation plays complete games headlessly through {@link GameEngine}, spread over all
+ * cores, to compare board layouts and players and to load-test the rules without a
+ * display. Every worker thread reuses one game and one set of players for all the games
+ * it plays, and every game is seeded from its number, so results do not depend on the
+ * number of threads.
+ * <p>
+ * Run it with {@code java -cp TheMysticMaze.jar mysticmaze.Simulation [games=N] [threads=N]
+ * [seed=N] [maxTurns=N] [players=greedy,random,...]}.
+ */
+public final class Simulation {
+
+    /**
+     * Plays whole turns of a simulated game. Implementations may keep scratch state, as
+     * each worker thread creates its own players.
+     */
+    public interface Player {
+
+        /**
+         * Inserts the spare tile and moves the current player.
+         *
+         * @param engine The game, with the current player about to insert.
+         * @param random Source of randomness of this game.
+         */
+        void playTurn(GameEngine engine, SplittableRandom random);
+    }
+
+    /**
+     * Totals of a batch of games.
+     *
+     * @param games Number of games played.
+     * @param finished Number of games in which every component was captured.
+     * @param turns Number of turns played over all games.
+     * @param wins Finished games won outright, by seat.
+     * @param ties Finished games in which several players shared the most captures.
+     * @param nanos Wall-clock time of the batch.
+     */
+    public record Result(int games, int finished, long turns, int[] wins, int ties, long nanos) {
+
+        /**
+         * @return The number of games played per second.
+         */
+        public double gamesPerSecond() {
+            return games * 1e9 / nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%d games (%d finished) in %.2f s: %.0f games/s, %.1f turns/game, wins %s, ties %d",
+                    games, finished, nanos / 1e9, gamesPerSecond(), (double) turns / games, Arrays.toString(wins), ties);
+        }
+    }
+
+    private static final int[] EDGES = {BoardModel.NORTH, BoardModel.EAST, BoardModel.SOUTH, BoardModel.WEST};
+
+    private final GameState initial;
+    private final List<Supplier<? extends Player>> seats;
+    private final int maxTurns;
+
+    /**
+     * Creates a simulation of games starting from the given position.
+     *
+     * @param initial The game every simulated game starts from; it is copied, never modified.
+     * @param seats Creates the player of each seat, once per worker thread.
+     * @param maxTurns Turns after which an unfinished game is abandoned.
+     */
+    public Simulation(GameState initial, List<Supplier<? extends Player>> seats, int maxTurns) {
+        if (seats.size() != initial.getBoard().getPlayerCount()) {
+            throw new IllegalArgumentException(seats.size() + " players for " + initial.getBoard().getPlayerCount() + " seats");
+        }
+        this.initial = initial;
+        this.seats = List.copyOf(seats);
+        this.maxTurns = maxTurns;
+    }
+
+    /**
+     * Plays a batch of games.
+     *
+     * @param games Number of games to play.
+     * @param threads Number of worker threads.
+     * @param seed Seed of the batch; game {@code n} is seeded with {@code seed + n}.
+     * @return The totals of the batch.
+     * @throws InterruptedException If interrupted while waiting for the workers.
+     */
+    public Result run(int games, int threads, long seed) throws InterruptedException {
+        AtomicInteger nextGame = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        try {
+            List<Future<Result>> workers = new ArrayList<>(threads);
+            for (int i = 0; i < threads; i++) {
+                workers.add(pool.submit(() -> playGames(nextGame, games, seed)));
+            }
+
+            int finished = 0;
+            long turns = 0;
+            int ties = 0;
+            int[] wins = new int[seats.size()];
+            for (Future<Result> worker : workers) {
+                Result result = worker.get();
+                finished += result.finished();
+                turns += result.turns();
+                ties += result.ties();
+                for (int seat = 0; seat < wins.length; seat++) {
+                    wins[seat] += result.wins()[seat];
+                }
+            }
+            return new Result(games, finished, turns, wins, ties, System.nanoTime() - start);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Simulated game failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Body of a worker: claims game numbers until the batch is done and plays them on a
+     * single reused game.
+     */
+    private Result playGames(AtomicInteger nextGame, int games, long seed) {
+        GameState state = new GameState(new BoardModel(initial.getBoard()), initial.getTargetComponent());
+        GameEngine engine = new GameEngine(state);
+        Player[] players = new Player[seats.size()];
+        for (int seat = 0; seat < players.length; seat++) {
+            players[seat] = seats.get(seat).get();
+        }
+
+        int played = 0;
+        int finished = 0;
+        long turns = 0;
+        int ties = 0;
+        int[] wins = new int[players.length];
+        int game;
+        while ((game = nextGame.getAndIncrement()) < games) {
+            state.copyFrom(initial);
+            engine.stateReplaced();
+            SplittableRandom random = new SplittableRandom(seed + game);
+
+            int turn = 0;
+            while (turn < maxTurns && !engine.isGameOver()) {
+                int player = state.getCurrentPlayer();
+                players[player].playTurn(engine, random);
+                if (state.isMovePhase() || state.getCurrentPlayer() == player && players.length > 1) {
+                    throw new IllegalStateException("Player " + player + " did not finish turn " + turn);
+                }
+                turn++;
+            }
+
+            played++;
+            turns += turn;
+            if (engine.isGameOver()) {
+                finished++;
+                int leader = engine.getLeader();
+                if (leader >= 0) {
+                    wins[leader]++;
+                } else {
+                    ties++;
+                }
+            }
+        }
+        return new Result(played, finished, turns, wins, ties, 0);
+    }
+
+    /* -------------------------------------------------------------- players */
+
+    /**
+     * Inserts into a random line with a random rotation and walks to a random reachable cell.
+     */
+    public static final class RandomPlayer implements Player {
+
+        @Override
+        public void playTurn(GameEngine engine, SplittableRandom random) {
+            BoardModel board = engine.getBoard();
+            int edge;
+            int line;
+            do {
+                edge = EDGES[random.nextInt(EDGES.length)];
+                line = random.nextInt(board.getSize());
+            } while (!engine.canInsert(edge, line));
+            engine.insert(random.nextInt(4), edge, line);
+
+            Reachability reachability = engine.getReachability();
+            int count = 0;
+            for (int cell = reachability.nextReachable(0); cell >= 0; cell = reachability.nextReachable(cell + 1)) {
+                count++;
+            }
+            int cell = reachability.nextReachable(0);
+            for (int skip = random.nextInt(count); skip > 0; skip--) {
+                cell = reachability.nextReachable(cell + 1);
+            }
+            engine.move(cell);
+        }
+    }
+
+    /**
+     * Tries every insertion and rotation on a scratch copy of the game and plays one that
+     * lets it capture the target; otherwise inserts at random and walks as close to a
+     * target treasure as it can.
+     */
+    public static final class GreedyPlayer implements Player {
+
+        private GameEngine scratch;  // Created for the first game, as it needs the board's dimensions
+
+        @Override
+        public void playTurn(GameEngine engine, SplittableRandom random) {
+            GameState state = engine.getState();
+            BoardModel board = engine.getBoard();
+            if (scratch == null) {
+                scratch = new GameEngine(new GameState(new BoardModel(board), state.getTargetComponent()));
+            }
+
+            int first = random.nextInt(EDGES.length * board.getSize() * 4);  // Break ties at random
+            for (int i = 0; i < EDGES.length * board.getSize() * 4; i++) {
+                int option = (first + i) % (EDGES.length * board.getSize() * 4);
+                int edge = EDGES[option % EDGES.length];
+                int line = option / EDGES.length % board.getSize();
+                int rotation = option / EDGES.length / board.getSize();
+                if (!engine.canInsert(edge, line)) {
+                    continue;
+                }
+                scratch.getState().copyFrom(state);
+                scratch.stateReplaced();
+                scratch.insert(rotation, edge, line);
+                int target = capturableCell(scratch);
+                if (target != BoardModel.NO_CELL) {
+                    engine.insert(rotation, edge, line);
+                    engine.move(target);
+                    return;
+                }
+            }
+
+            int edge;
+            int line;
+            do {
+                edge = EDGES[random.nextInt(EDGES.length)];
+                line = random.nextInt(board.getSize());
+            } while (!engine.canInsert(edge, line));
+            engine.insert(random.nextInt(4), edge, line);
+            engine.move(closestCell(engine));
+        }
+
+        /**
+         * Returns a reachable cell holding a treasure of the target component, or NO_CELL.
+         */
+        private static int capturableCell(GameEngine engine) {
+            Reachability reachability = engine.getReachability();
+            for (int cell = reachability.nextReachable(0); cell >= 0; cell = reachability.nextReachable(cell + 1)) {
+                if (engine.getState().capturableTreasure(cell) != 0) {
+                    return cell;
+                }
+            }
+            return BoardModel.NO_CELL;
+        }
+
+        /**
+         * Returns the reachable cell nearest to any treasure of the target component.
+         */
+        private static int closestCell(GameEngine engine) {
+            BoardModel board = engine.getBoard();
+            int size = board.getSize();
+            int target = engine.getState().getTargetComponent();
+            Reachability reachability = engine.getReachability();
+            int best = board.getPlayerCell(engine.getState().getCurrentPlayer());
+            int bestDistance = Integer.MAX_VALUE;
+            for (int cell = reachability.nextReachable(0); cell >= 0; cell = reachability.nextReachable(cell + 1)) {
+                for (int id = 1; id <= board.getTreasureCount(); id++) {
+                    int at = board.getTreasureCell(id);
+                    if (at < 0 || (board.getComponent(id) & ~BoardModel.GOLD) != target) {
+                        continue;
+                    }
+                    int distance = Math.abs(at / size - cell / size) + Math.abs(at % size - cell % size);
+                    if (distance < bestDistance) {
+                        bestDistance = distance;
+                        best = cell;
+                    }
+                }
+            }
+            return best;
+        }
+    }
+
+    /**
+     * Plays the turn chosen by a {@link ComputerPlayer} searching one turn ahead.
+     */
+    public static final class ComputerSeat implements Player {
+
+        private final ComputerPlayer computer = new ComputerPlayer(1, 0);
+
+        @Override
+        public void playTurn(GameEngine engine, SplittableRandom random) {
+            GameState state = engine.getState();
+            BoardModel board = engine.getBoard();
+            ComputerPlayer.Move move = computer.chooseMove(board, state.getCurrentPlayer(), state.getTargetComponent());
+            engine.insert(board.getSpareRotation() + move.rotation(), move.edge(), move.line());
+            engine.move(move.destination());
+        }
+    }
+
+    /**
+     * @param name "random", "greedy" or "computer".
+     * @return Creates players of that kind.
+     */
+    private static Supplier<? extends Player> player(String name) {
+        return switch (name) {
+            case "random" -> RandomPlayer::new;
+            case "greedy" -> GreedyPlayer::new;
+            case "computer" -> ComputerSeat::new;
+            default -> throw new IllegalArgumentException("Unknown player: " + name);
+        };
+    }
+
+    /**
+     * Plays a batch of games on the standard board and prints the totals.
+     *
+     * @param args Options as {@code name=value}: games, threads, seed, maxTurns and a
+     *        comma separated list of players, one per seat.
+     * @throws InterruptedException If interrupted while the games run.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int games = 10_000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = 1;
+        int maxTurns = 2_000;
+        String players = "greedy,greedy,random,random";
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            switch (arg.substring(0, Math.max(0, arg.indexOf('=')))) {
+                case "games" -> games = Integer.parseInt(value);
+                case "threads" -> threads = Integer.parseInt(value);
+                case "seed" -> seed = Long.parseLong(value);
+                case "maxTurns" -> maxTurns = Integer.parseInt(value);
+                case "players" -> players = value;
+                default -> throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+
+        List<Supplier<? extends Player>> seats = new ArrayList<>();
+        for (String name : players.split(",")) {
+            seats.add(player(name.trim()));
+        }
+        Simulation simulation = new Simulation(new GameState(BoardModel.standard(), GameState.FIRST_TARGET), seats, maxTurns);
+        System.out.println("Players " + players + " on " + threads + " threads");
+        System.out.println(simulation.run(games, threads, seed));
+    }
+}
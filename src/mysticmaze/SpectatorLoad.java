@@ -0,0 +1,397 @@
+package mysticmaze;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SpectatorLoad load-tests the spectator feed of a {@link GameServer} over loopback: it
+ * starts a server in process, seats four players who play random turns at one table and
+ * chat now and then, and has many spectators watch that table, printing every second
+ * what the spectators received and how often the slow ones skipped to a keyframe. Some
+ * spectators read slowly on purpose, and a sample of all of them keep a mirror of the
+ * game and check every board hash against it, so the run also proves that skipping
+ * never leaves a spectator out of step with the game.
+ * <p>
+ * Run it with {@code java -cp TheMysticMaze.jar mysticmaze.SpectatorLoad [spectators=N]
+ * [seconds=N] [thinkMillis=N] [slowEvery=N] [checkEvery=N]}.
+ */
+public final class SpectatorLoad {
+
+    private static final int[] EDGES = {BoardModel.NORTH, BoardModel.EAST, BoardModel.SOUTH, BoardModel.WEST};
+    private static final int TABLE = 1;
+    private static final int CHAT_EVERY = 8;        // Turns of a player between two chat lines
+    private static final int SLOW_READ = 64;        // Bytes a slow spectator reads per pause
+    private static final long SLOW_PAUSE = 250;     // Milliseconds between two reads of a slow spectator
+    private static final int SLOW_RECEIVE_BUFFER = 4096;
+    private static final int SPECTATOR_BUFFER = 4096;  // Holds the longest chat line
+    private static final long DRAIN = 2000;  // Milliseconds every spectator reads at full speed once play stops
+
+    /**
+     * A player taking random turns for its seat, on the shared player thread.
+     */
+    private static final class Player implements GameClient.Listener {
+        final GameEngine mirror = new GameEngine(new GameState(BoardModel.standard(), GameState.FIRST_TARGET));
+        final SpectatorLoad load;
+        final SplittableRandom random;
+        GameClient client;
+        boolean planned;  // A request is scheduled and the turn not played yet
+        int turns;
+
+        Player(SpectatorLoad load, long seed) {
+            this.load = load;
+            this.random = new SplittableRandom(seed);
+        }
+
+        /**
+         * Schedules this player's next request after the think time, if it is its turn.
+         */
+        void play() {
+            if (client == null || planned || load.stopping || mirror.isGameOver()
+                    || client.getSeat() != mirror.getState().getCurrentPlayer()) {
+                return;
+            }
+            planned = true;
+            load.players.schedule(() -> {
+                planned = false;
+                try {
+                    if (mirror.getState().isMovePhase()) {
+                        client.sendMove(randomReachableCell());
+                    } else {
+                        insert();
+                    }
+                } catch (IOException e) {
+                    load.failures.incrementAndGet();
+                }
+            }, load.thinkMillis, TimeUnit.MILLISECONDS);
+        }
+
+        private void insert() throws IOException {
+            int edge;
+            int line;
+            do {
+                edge = EDGES[random.nextInt(EDGES.length)];
+                line = random.nextInt(mirror.getBoard().getSize());
+            } while (!mirror.canInsert(edge, line));
+            if (++turns % CHAT_EVERY == 0) {
+                client.sendChat("Turn " + turns + " of seat " + (client.getSeat() + 1));
+            }
+            client.sendInsert(random.nextInt(4), edge, line);
+        }
+
+        private int randomReachableCell() {
+            Reachability reachability = mirror.getReachability();
+            int count = 0;
+            for (int cell = reachability.nextReachable(0); cell >= 0; cell = reachability.nextReachable(cell + 1)) {
+                count++;
+            }
+            int cell = reachability.nextReachable(0);
+            for (int skip = random.nextInt(count); skip > 0; skip--) {
+                cell = reachability.nextReachable(cell + 1);
+            }
+            return cell;
+        }
+
+        @Override
+        public void joined(int table, int seat) {
+        }
+
+        @Override
+        public void stateReplaced() {
+            play();
+        }
+
+        @Override
+        public void inserted(int rotation, int edge, int line) {
+            play();
+        }
+
+        @Override
+        public void moved(int player, int from, int cell, int treasure) {
+            if (client != null && client.getSeat() == player) {
+                load.halfTurns.addAndGet(2);  // Counted once, by the mover
+            }
+            play();
+        }
+
+        @Override
+        public void chatReceived(int sender, String text) {
+        }
+
+        @Override
+        public void rejected(int reason) {
+            load.failures.incrementAndGet();
+        }
+
+        @Override
+        public void disconnected(IOException cause) {
+            load.failures.incrementAndGet();
+        }
+    }
+
+    /**
+     * A spectator reading the feed on the spectator thread. Checked spectators mirror
+     * the game, the others only split what they read into frames.
+     */
+    private static final class Spectator {
+        final SocketChannel channel;
+        final ByteBuffer in = ByteBuffer.allocate(SPECTATOR_BUFFER);
+        final GameState mirror;  // Null unless checked
+        final boolean slow;
+        int games;               // GAME frames received, the first on joining
+
+        Spectator(SocketChannel channel, boolean checked, boolean slow) {
+            this.channel = channel;
+            this.mirror = checked ? new GameState(BoardModel.standard(), GameState.FIRST_TARGET) : null;
+            this.slow = slow;
+        }
+    }
+
+    private final ScheduledExecutorService players = Executors.newSingleThreadScheduledExecutor();
+    private final long thinkMillis;
+    private final AtomicLong halfTurns = new AtomicLong();
+    private final AtomicLong frames = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong keyframes = new AtomicLong();   // GAME frames after the first, i.e. skips seen
+    private final AtomicLong mismatches = new AtomicLong();  // Board hashes a checked spectator disagreed with
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong disconnects = new AtomicLong();
+    private volatile boolean stopping;
+
+    private SpectatorLoad(long thinkMillis) {
+        this.thinkMillis = thinkMillis;
+    }
+
+    /**
+     * Runs the load test.
+     *
+     * @param args Options as {@code name=value}: spectators, seconds, thinkMillis, slowEvery and checkEvery.
+     * @throws IOException If the server cannot start or a client cannot connect.
+     * @throws InterruptedException If interrupted while the test runs.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int spectators = 2_000;
+        int seconds = 10;
+        long thinkMillis = 2;
+        int slowEvery = 10;   // Every tenth spectator reads slowly
+        int checkEvery = 50;  // The first and last of every fifty spectators mirror the game, one fast and one slow
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            switch (arg.substring(0, Math.max(0, arg.indexOf('=')))) {
+                case "spectators" -> spectators = Integer.parseInt(value);
+                case "seconds" -> seconds = Integer.parseInt(value);
+                case "thinkMillis" -> thinkMillis = Long.parseLong(value);
+                case "slowEvery" -> slowEvery = Integer.parseInt(value);
+                case "checkEvery" -> checkEvery = Integer.parseInt(value);
+                default -> throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+
+        SpectatorLoad load = new SpectatorLoad(thinkMillis);
+        List<Spectator> watching = new ArrayList<>(spectators);
+        try (GameServer server = new GameServer(0); Selector selector = Selector.open()) {
+            server.start();
+            InetSocketAddress address = new InetSocketAddress("localhost", server.getPort());
+
+            // Players first, so that they take the seats, but they wait for the spectators
+            List<Player> seated = new ArrayList<>();
+            List<GameClient> clients = new ArrayList<>();
+            for (int seat = 0; seat < 4; seat++) {
+                Player player = new Player(load, seat);
+                seated.add(player);
+                clients.add(GameClient.connect(address, TABLE, player.mirror, load.players, player));
+            }
+            for (GameClient client : clients) {
+                while (client.getSeat() < 0) {
+                    Thread.sleep(1);  // Seated before any spectator may take the seat
+                }
+            }
+
+            ByteBuffer join = ByteBuffer.allocate(Protocol.HEADER + 4);
+            for (int i = 0; i < spectators; i++) {
+                SocketChannel channel = SocketChannel.open();
+                boolean slow = slowEvery > 0 && i % slowEvery == slowEvery - 1;
+                if (slow) {
+                    channel.setOption(StandardSocketOptions.SO_RCVBUF, SLOW_RECEIVE_BUFFER);
+                }
+                channel.connect(address);
+                Protocol.begin(join, Protocol.JOIN);
+                join.putInt(TABLE);
+                Protocol.end(join);
+                while (join.hasRemaining()) {
+                    channel.write(join);
+                }
+                channel.configureBlocking(false);
+                Spectator spectator = new Spectator(channel,
+                        checkEvery > 0 && (i % checkEvery == 0 || i % checkEvery == checkEvery - 1), slow);
+                channel.register(selector, slow ? 0 : SelectionKey.OP_READ, spectator);
+                watching.add(spectator);
+            }
+            Thread reader = new Thread(() -> load.watch(selector, watching), "spectators");
+            reader.start();
+
+            for (int i = 0; i < seated.size(); i++) {
+                Player player = seated.get(i);
+                GameClient client = clients.get(i);
+                load.players.execute(() -> {
+                    player.client = client;
+                    player.play();
+                });
+            }
+            System.out.println(spectators + " spectators (" + (slowEvery > 0 ? spectators / slowEvery : 0)
+                    + " slow), " + thinkMillis + " ms think time");
+
+            long start = System.nanoTime();
+            long last = start;
+            long lastFrames = 0;
+            long lastBytes = 0;
+            long lastTurns = 0;
+            for (int second = 0; second < seconds; second++) {
+                Thread.sleep(1000);
+                long now = System.nanoTime();
+                double elapsed = (now - last) / 1e9;
+                long turns = load.halfTurns.get();
+                long received = load.frames.get();
+                long read = load.bytes.get();
+                System.out.printf("%,.0f half turns/s, %,.0f frames/s, %,.1f MB/s to spectators, %d skips on the server, "
+                                + "%d keyframes and %d hash mismatches seen, %d disconnected%n",
+                        (turns - lastTurns) / elapsed, (received - lastFrames) / elapsed, (read - lastBytes) / elapsed / 1e6,
+                        server.getSpectatorSkips(), load.keyframes.get(), load.mismatches.get(), load.disconnects.get());
+                last = now;
+                lastTurns = turns;
+                lastFrames = received;
+                lastBytes = read;
+            }
+            load.stopping = true;
+            selector.wakeup();
+            reader.join();
+            for (Player player : seated) {
+                load.players.execute(() -> {
+                    try {
+                        player.client.close();
+                    } catch (IOException e) {
+                        // Closing anyway
+                    }
+                });
+            }
+            for (Spectator spectator : watching) {
+                spectator.channel.close();
+            }
+            System.out.printf("%d half turns, %,d frames to %d spectators, %d skips, %d hash mismatches, %d failures%n",
+                    load.halfTurns.get(), load.frames.get(), spectators, server.getSpectatorSkips(),
+                    load.mismatches.get(), load.failures.get());
+        } finally {
+            load.players.shutdown();
+        }
+    }
+
+    /**
+     * Body of the spectator thread: reads the fast spectators as data arrives and the
+     * slow ones a little at a time until play stops, then every spectator at full speed
+     * for a moment, so that the slow ones reach the keyframes they skipped to.
+     */
+    private void watch(Selector selector, List<Spectator> spectators) {
+        long nextSlowRead = System.currentTimeMillis();
+        try {
+            while (!stopping) {
+                selector.select(key -> read((Spectator) key.attachment(), Integer.MAX_VALUE), SLOW_PAUSE);
+                if (System.currentTimeMillis() >= nextSlowRead) {
+                    nextSlowRead += SLOW_PAUSE;
+                    for (Spectator spectator : spectators) {
+                        if (spectator.slow && spectator.channel.isOpen()) {
+                            read(spectator, SLOW_READ);
+                        }
+                    }
+                }
+            }
+            for (SelectionKey key : selector.keys()) {
+                if (key.isValid()) {
+                    key.interestOps(SelectionKey.OP_READ);
+                }
+            }
+            long end = System.currentTimeMillis() + DRAIN;
+            while (System.currentTimeMillis() < end) {
+                selector.select(key -> read((Spectator) key.attachment(), Integer.MAX_VALUE), SLOW_PAUSE);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Reads what a spectator has been sent, at most a number of bytes, and handles every
+     * complete frame.
+     */
+    private void read(Spectator spectator, int most) {
+        ByteBuffer in = spectator.in;
+        try {
+            in.limit(in.position() + Math.min(most, in.capacity() - in.position()));
+            int count = spectator.channel.read(in);
+            if (count < 0) {
+                throw new IOException("Closed by the server");
+            }
+            bytes.addAndGet(count);
+        } catch (IOException e) {
+            disconnects.incrementAndGet();
+            try {
+                spectator.channel.close();
+            } catch (IOException ignored) {
+                // Already broken
+            }
+            return;
+        }
+        in.flip();
+        int length;
+        while ((length = Protocol.frameLength(in)) > 0) {
+            int end = in.position() + length;
+            in.position(in.position() + 2);
+            frames.incrementAndGet();
+            handle(spectator, in.get(), in);
+            in.position(end);
+        }
+        in.compact();
+    }
+
+    private void handle(Spectator spectator, byte type, ByteBuffer in) {
+        if (type == Protocol.GAME && spectator.games++ > 0) {
+            keyframes.incrementAndGet();
+        }
+        GameState mirror = spectator.mirror;
+        if (mirror == null) {
+            return;
+        }
+        try {
+            switch (type) {
+                case Protocol.GAME -> mirror.readFrom(in);
+                case Protocol.INSERTED -> {
+                    mirror.applyInsert(in.get(), in.get(), in.get());
+                    if (mirror.getBoard().hash() != in.getLong()) {
+                        mismatches.incrementAndGet();
+                    }
+                }
+                case Protocol.MOVED -> {
+                    mirror.applyMove(in.getInt(), in.getInt(), in.getInt());
+                    if (mirror.getBoard().hash() != in.getLong()) {
+                        mismatches.incrementAndGet();
+                    }
+                }
+                default -> {
+                    // Welcome and chat leave the board alone
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            mismatches.incrementAndGet();  // A half turn that does not fit the mirrored board
+        }
+    }
+}
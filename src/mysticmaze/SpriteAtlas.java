@@ -0,0 +1,175 @@
+package mysticmaze;
+
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * SpriteAtlas is a single sheet holding every pre-scaled sprite of the game (tiles,
+ * stars, player tokens and menu icons), packed at build time by
+ * {@link AtlasPacker} and shipped in the jar as {@value #RESOURCE}. The file stores the
+ * index followed by raw premultiplied ARGB pixels, so loading it is one classpath
+ * stream and no image decoding; sprites are handed out as sub-images of the sheet.
+ * <p>
+ * File layout (big endian): magic, version, sheet width, sheet height, sprite count,
+ * then per sprite its asset name, requested width and height (0 for the original
+ * size) and its x, y, width and height in the sheet, then the pixels row by row.
+ */
+public final class SpriteAtlas {
+
+    /** Classpath name of the atlas. */
+    public static final String RESOURCE = "/atlas.bin";
+
+    private static final int MAGIC = 0x4D4D4154;  // "MMAT"
+    private static final int VERSION = 1;
+
+    private static final SpriteAtlas SHARED = loadShared();
+
+    /**
+     * Position of a sprite in the sheet.
+     */
+    private record Region(int x, int y, int width, int height) {
+    }
+
+    private final BufferedImage sheet;
+    private final Map<String, Region> regions;
+
+    private SpriteAtlas(BufferedImage sheet, Map<String, Region> regions) {
+        this.sheet = sheet;
+        this.regions = regions;
+    }
+
+    /**
+     * Returns the atlas bundled with the game, loaded on first use.
+     *
+     * @return The bundled atlas, or null when running from sources without one
+     *         (assets are then decoded one by one).
+     */
+    public static SpriteAtlas shared() {
+        return SHARED;
+    }
+
+    private static SpriteAtlas loadShared() {
+        try (InputStream in = SpriteAtlas.class.getResourceAsStream(RESOURCE)) {
+            return in == null ? null : read(in);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Looks up a sprite.
+     *
+     * @param name Classpath name of the original asset, e.g. /brick_SE.png.
+     * @param width Width the sprite was packed at, or 0 for the original size.
+     * @param height Height the sprite was packed at, or 0 for the original size.
+     * @return A sub-image of the sheet sharing its pixels, or null if the atlas has no such sprite.
+     */
+    public BufferedImage find(String name, int width, int height) {
+        Region region = regions.get(key(name, width, height));
+        if (region == null) {
+            return null;
+        }
+        return sheet.getSubimage(region.x(), region.y(), region.width(), region.height());
+    }
+
+    /**
+     * @return The number of sprites in the atlas.
+     */
+    public int size() {
+        return regions.size();
+    }
+
+    private static String key(String name, int width, int height) {
+        return name + '@' + width + 'x' + height;
+    }
+
+    /**
+     * Reads an atlas written by {@link #write}.
+     *
+     * @param in Stream positioned at the start of the atlas.
+     * @return The atlas.
+     * @throws IOException If the stream is not a valid atlas.
+     */
+    public static SpriteAtlas read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC || data.readInt() != VERSION) {
+            throw new IOException("Not a sprite atlas of version " + VERSION);
+        }
+        int width = data.readInt();
+        int height = data.readInt();
+        int count = data.readInt();
+
+        Map<String, Region> regions = new HashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            String name = data.readUTF();
+            int keyWidth = data.readShort();
+            int keyHeight = data.readShort();
+            regions.put(key(name, keyWidth, keyHeight),
+                    new Region(data.readShort(), data.readShort(), data.readShort(), data.readShort()));
+        }
+
+        // Pixels go straight into the sheet's backing array
+        byte[] bytes = data.readNBytes(width * height * 4);
+        if (bytes.length != width * height * 4) {
+            throw new IOException("Sprite atlas is truncated");
+        }
+        int[] pixels = new int[width * height];
+        ByteBuffer.wrap(bytes).asIntBuffer().get(pixels);
+        return new SpriteAtlas(createSheet(width, height, pixels), regions);
+    }
+
+    /**
+     * Writes an atlas.
+     *
+     * @param out Stream receiving the atlas.
+     * @param sheet Sheet holding all sprites, of type TYPE_INT_ARGB_PRE.
+     * @param names Asset name of every sprite.
+     * @param sprites Per sprite: requested width, requested height, x, y, width and height in the sheet.
+     * @throws IOException If writing fails.
+     */
+    static void write(OutputStream out, BufferedImage sheet, String[] names, int[][] sprites) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(sheet.getWidth());
+        data.writeInt(sheet.getHeight());
+        data.writeInt(names.length);
+        for (int i = 0; i < names.length; i++) {
+            data.writeUTF(names[i]);
+            for (int value : sprites[i]) {
+                data.writeShort(value);
+            }
+        }
+
+        int[] pixels = ((DataBufferInt) sheet.getRaster().getDataBuffer()).getData();
+        ByteBuffer bytes = ByteBuffer.allocate(pixels.length * 4);
+        bytes.asIntBuffer().put(pixels);
+        data.write(bytes.array());
+        data.flush();
+    }
+
+    /**
+     * Wraps the pixels in a TYPE_INT_ARGB_PRE image without copying them.
+     */
+    private static BufferedImage createSheet(int width, int height, int[] pixels) {
+        DirectColorModel model = new DirectColorModel(ColorSpace.getInstance(ColorSpace.CS_sRGB), 32,
+                0x00FF0000, 0x0000FF00, 0x000000FF, 0xFF000000, true, DataBuffer.TYPE_INT);
+        WritableRaster raster = Raster.createPackedRaster(new DataBufferInt(pixels, pixels.length), width, height, width,
+                model.getMasks(), null);
+        return new BufferedImage(model, raster, true, null);
+    }
+}
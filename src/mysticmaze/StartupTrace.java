@@ -0,0 +1,77 @@
+package mysticmaze;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * StartupTrace records how long each phase of startup took and on which thread it ran,
+ * measured from the moment the trace was created in main(). Phases may overlap since
+ * assets are decoded in parallel. The report is printed once the window is complete
+ * when the game is started with -Dmysticmaze.startupTrace=true.
+ */
+public final class StartupTrace {
+
+    /**
+     * One finished phase, with times in nanoseconds since the trace was created.
+     */
+    private record Phase(String name, String thread, long start, long end) {
+    }
+
+    private final long origin = System.nanoTime();
+    private final List<Phase> phases = new ArrayList<>();
+
+    /**
+     * @return True if the report should be printed, as set by the mysticmaze.startupTrace property.
+     */
+    public static boolean isEnabled() {
+        return Boolean.getBoolean("mysticmaze.startupTrace");
+    }
+
+    /**
+     * @return The current time, to be passed back to {@link #record}.
+     */
+    public long now() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Records a phase that started at the given time and ends now, on the calling thread.
+     *
+     * @param name Name of the phase.
+     * @param start Value of {@link #now()} when the phase started.
+     */
+    public void record(String name, long start) {
+        long end = System.nanoTime();
+        synchronized (phases) {
+            phases.add(new Phase(name, Thread.currentThread().getName(), start - origin, end - origin));
+        }
+    }
+
+    /**
+     * Prints every phase in the order they started, followed by the total time.
+     *
+     * @param out Stream receiving the report.
+     */
+    public void report(PrintStream out) {
+        List<Phase> sorted;
+        synchronized (phases) {
+            sorted = new ArrayList<>(phases);
+        }
+        sorted.sort(Comparator.comparingLong(Phase::start));
+
+        out.println("Startup trace (ms since main):");
+        long total = 0;
+        for (Phase phase : sorted) {
+            out.printf("  %-18s %7.1f -> %7.1f  %7.1f  [%s]%n", phase.name(), millis(phase.start()),
+                    millis(phase.end()), millis(phase.end() - phase.start()), phase.thread());
+            total = Math.max(total, phase.end());
+        }
+        out.printf("  %-18s %7.1f%n", "ready", millis(total));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
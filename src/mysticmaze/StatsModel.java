@@ -0,0 +1,164 @@
+package mysticmaze;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * StatsModel holds what the player stats panel shows: whose turn it is and in which
+ * phase, the component being hunted and how many components each player has captured.
+ * {@link #update(GameState)} compares a game with the values last seen and marks only
+ * what differs as dirty. Listeners hear about everything marked since the last time in
+ * one call, made later on the EDT, so a turn that changes several values, or several
+ * turns played in a row by the computer, costs a single refresh of the panel.
+ * <p>
+ * All methods must be called on the EDT.
+ */
+public final class StatsModel {
+
+    /** Dirty flag: the current player or the phase of the turn changed. */
+    public static final int TURN = 1;
+
+    /** Dirty flag: the target component changed. */
+    public static final int TARGET = 1 << 1;
+
+    private static final int PLAYER_SHIFT = 2;  // Flags of the players follow the others
+
+    /**
+     * Told about a batch of changes.
+     */
+    public interface Listener {
+
+        /**
+         * Called on the EDT once per batch of changes.
+         *
+         * @param model The model, holding the new values.
+         * @param dirty What changed: TURN, TARGET and {@link StatsModel#player(int)} flags.
+         */
+        void statsChanged(StatsModel model, int dirty);
+    }
+
+    private final int[] captures;
+    private int currentPlayer = -1;  // Impossible values, so the first update marks everything
+    private boolean movePhase;
+    private int targetComponent = -1;
+
+    private int dirty;
+    private boolean flushPending;
+    private final List<Listener> listeners = new ArrayList<>();
+
+    /**
+     * Creates a model for a number of players; it shows nothing until the first update.
+     *
+     * @param playerCount Number of players.
+     */
+    public StatsModel(int playerCount) {
+        if (playerCount > Integer.SIZE - PLAYER_SHIFT) {
+            throw new IllegalArgumentException("Too many players: " + playerCount);
+        }
+        captures = new int[playerCount];
+        Arrays.fill(captures, -1);
+    }
+
+    /**
+     * Returns the dirty flag of a player's captures.
+     *
+     * @param player Index of the player.
+     * @return The flag.
+     */
+    public static int player(int player) {
+        return 1 << (PLAYER_SHIFT + player);
+    }
+
+    /**
+     * Registers a listener.
+     *
+     * @param listener The listener.
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Takes the values of a game, marking those that changed.
+     *
+     * @param state The game.
+     */
+    public void update(GameState state) {
+        if (state.getCurrentPlayer() != currentPlayer || state.isMovePhase() != movePhase) {
+            currentPlayer = state.getCurrentPlayer();
+            movePhase = state.isMovePhase();
+            markDirty(TURN);
+        }
+        if (state.getTargetComponent() != targetComponent) {
+            targetComponent = state.getTargetComponent();
+            markDirty(TARGET);
+        }
+        for (int player = 0; player < captures.length; player++) {
+            if (state.getCaptures(player) != captures[player]) {
+                captures[player] = state.getCaptures(player);
+                markDirty(player(player));
+            }
+        }
+    }
+
+    /**
+     * Marks values as changed, for instance when what shows them needs to be drawn again.
+     *
+     * @param flags TURN, TARGET and player flags.
+     */
+    public void markDirty(int flags) {
+        dirty |= flags;
+        if (!flushPending) {
+            flushPending = true;
+            SwingUtilities.invokeLater(this::flush);
+        }
+    }
+
+    private void flush() {
+        int changed = dirty;
+        dirty = 0;
+        flushPending = false;
+        for (Listener listener : listeners) {
+            listener.statsChanged(this, changed);
+        }
+    }
+
+    /**
+     * @return The number of players.
+     */
+    public int getPlayerCount() {
+        return captures.length;
+    }
+
+    /**
+     * @return The index of the player whose turn it is.
+     */
+    public int getCurrentPlayer() {
+        return currentPlayer;
+    }
+
+    /**
+     * @return True once the spare tile has been inserted and the current player must move.
+     */
+    public boolean isMovePhase() {
+        return movePhase;
+    }
+
+    /**
+     * @return The component number being hunted, 0 once all are captured.
+     */
+    public int getTargetComponent() {
+        return targetComponent;
+    }
+
+    /**
+     * @param player Index of the player.
+     * @return The number of components the player has captured.
+     */
+    public int getCaptures(int player) {
+        return captures[player];
+    }
+}
@@ -0,0 +1,1756 @@
+package mysticmaze;
+
+import javax.swing.*;
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.FocusEvent;
+import java.awt.event.FocusListener;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import javax.swing.JTextField;
+import java.awt.Color;
+
+
+
+/**
+ * TheMysticMaze is a Java Swing-based game window that simulates a maze game with a
+ * grid, player stats, and menu options. This class handles the UI, background image,
+ * custom fonts, and grid creation along with player interaction elements.
+ */
+
+public class TheMysticMaze extends JFrame {
+	
+	private static final long serialVersionUID = 1L;  // Added serialVersionUID to avoid warning
+
+    private static final int CELL_SIZE = 90; // Each cell is 90x90 pixels at the initial zoom
+    private static final int BOARD_SIZE = Integer.getInteger("mysticmaze.boardSize", BoardModel.STANDARD_SIZE);  // Rows and columns
+    private static final int WINDOW_WIDTH = 1920;   // Size the layout is designed for, and the largest initial size
+    private static final int WINDOW_HEIGHT = 1080;
+    private static final int MIN_WINDOW_WIDTH = 1024;
+    private static final int MIN_WINDOW_HEIGHT = 640;
+    private static final int RELAYOUT_DELAY = 150;  // Milliseconds the size must hold before images are rebuilt
+    private static final int CHAT_LINES = 200;  // Chat lines kept on screen, the saved history plus game messages
+    private static final Path AUTOSAVE_PATH =
+            Paths.get(System.getProperty("user.home"), ".mysticmaze", "autosave.mms");
+    private static final Path REPLAY_DIR =
+            Paths.get(System.getProperty("user.home"), ".mysticmaze", "replays");
+    private static final DateTimeFormatter REPLAY_NAME =
+            DateTimeFormatter.ofPattern("'game-'yyyyMMdd-HHmmss-SSS'.mmr'");
+
+    /**
+     * The background image for the game window, at the size of the window in device
+     * pixels once built, and until then the nearest size cached, drawn stretched.
+     */
+    private Image backgroundImage;
+    private final String backgroundPath;
+
+    /**
+     * The maze board: tiles, numbered components and player positions. Its size is set
+     * with the system property mysticmaze.boardSize, any odd number from 5 to 101.
+     */
+    private final BoardModel board = BoardModel.sized(BOARD_SIZE);
+
+    /**
+     * The canvas painting the board, repainted line by line after each insertion.
+     */
+    private BoardCanvas boardCanvas;
+
+    /**
+     * The "Insert Role" button showing the spare tile.
+     */
+    private JButton spareButton;
+
+    /**
+     * Turn, target component, captures and chat of the game on the board.
+     */
+    private final GameState state = new GameState(board, GameState.FIRST_TARGET);
+
+    /**
+     * Rules of the game; this window only shows what the engine decides. Its
+     * reachability is updated line by line after each insertion.
+     */
+    private final GameEngine engine = new GameEngine(state);
+
+    /**
+     * Every position of the local game, for undo, redo and trying other turns. Restarted
+     * whenever the game is replaced as a whole, and unused over the network.
+     */
+    private final GameHistory history = new GameHistory(GameSnapshot.of(state));
+
+    /**
+     * Journal of the game, appended to after every move; opened with the first move so
+     * that until then it still holds the previous game for "Resume Last Game".
+     */
+    private SaveGame autosave;
+
+    /**
+     * Replay of the game being played, started with its first half turn played here or
+     * when a server sends a whole game, and closed once the game is over or replaced.
+     */
+    private ReplayRecorder recorder;
+
+    /**
+     * Control bar under the board while watching a replay, and the game played before,
+     * put back when the replay is closed; null while no replay is watched.
+     */
+    private ReplayViewer replayViewer;
+    private GameSnapshot replayedGame;
+
+    /**
+     * Seats played by the computer, and the engine choosing their turns.
+     */
+    private final boolean[] computerSeats = new boolean[4];
+    private final ComputerPlayer computer = new ComputerPlayer(2, 50);
+    private boolean computerThinking;  // True while a search runs in the background
+
+    /**
+     * Connection to the game server while playing over the network, in which case the
+     * game state mirrors the server's game, and the server this game hosts, if any.
+     */
+    private GameClient client;
+    private GameServer hostedServer;
+
+    private static final int PLAYER_COUNT = 4;
+    private static final String[] STAR_PATHS = {"/greenstar.png", "/bluestar.png", "/yellowstar.png", "/redstar.png"};
+
+    private static final String[] PLAYER_PATHS = {"/green.png", "/blue.png", "/yellow.png", "/red.png"};
+    private static final String[] MENU_ICON_PATHS = {"/file.png", "/game.png", "/network.png", "/help.png", "/language.png"};
+
+    /**
+     * Threads decoding the assets at startup. They are daemons so they never keep the
+     * game alive, and there is at least one per asset group that loads in parallel.
+     */
+    private static final ExecutorService ASSET_LOADER = Executors.newFixedThreadPool(
+            Math.max(4, Runtime.getRuntime().availableProcessors()), new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable task) {
+                    Thread thread = new Thread(task, "asset-loader-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    private final StartupTrace trace;  // Time spent in each startup phase
+
+    /**
+     * Text of the window, in the language chosen from the Language menu. Fixed text is
+     * bound to its components; text worked out during the game is asked for each time.
+     */
+    private final Messages messages = new Messages(Locale.getDefault());
+
+    /**
+     * What the player stats panel shows; it redraws only the parts the model marks dirty.
+     */
+    private final StatsModel stats = new StatsModel(PLAYER_COUNT);
+
+    private JLabel instructionLabel;
+    private JLabel currentComponentLabel;
+    private final JLabel[] playerLabels = new JLabel[PLAYER_COUNT];  // Player name, with their token once loaded
+    private final StarRow[] starRows = new StarRow[PLAYER_COUNT];     // Stars of each player, drawn once loaded
+    private final JButton[] menuButtons = new JButton[MENU_ICON_PATHS.length];
+    private JPanel backgroundPanel;
+    private JPanel gridContainer;  // Centers the board, empty until the board is loaded
+    private Timer relayout;  // Fits the board and background to the window once resizing pauses
+    private final ChatLog chatLog = new ChatLog(CHAT_LINES);  // Lines on screen, shown by a ChatView
+    private JLabel chatIcon;
+    private Image chatBoxImage;  // Background of the chat input, null until loaded
+    private String chatPlaceholder;  // Shown in the chat input while it is empty and unfocused
+
+    /**
+     * Paint times of the components drawn here; the board and chat record their own.
+     */
+    private static final LatencyHistogram BACKGROUND_PAINTS = Instrumentation.shared().paintTimes("background");
+    private static final LatencyHistogram CHAT_INPUT_PAINTS = Instrumentation.shared().paintTimes("chat input");
+
+    /**
+     * Constructor to set up the main game window, background image, default fonts,
+     * grid, and UI components.
+     *
+     * @param imagePath Classpath name of the background image for the game window.
+     */
+    public TheMysticMaze(String imagePath) {
+        this(imagePath, new StartupTrace());
+    }
+
+    /**
+     * Constructor to set up the main game window. Only the shell of the window (layout,
+     * titles and text) is built here and shown straight away; the images are decoded in
+     * parallel on background threads and each panel is filled in as soon as its own
+     * images are ready. Must be called on the EDT.
+     *
+     * @param imagePath Classpath name of the background image for the game window.
+     * @param trace Trace receiving the time spent in each startup phase.
+     */
+    public TheMysticMaze(String imagePath, StartupTrace trace) {
+        this.trace = trace;
+        this.backgroundPath = imagePath;
+        messages.bind(this::setTitle, "window.title");  // Set the title of the window
+        long start = trace.now();
+        loadAssets(imagePath);  // Decodes while the shell is built; the reveals run after this constructor
+
+        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        Rectangle usable = GraphicsEnvironment.getLocalGraphicsEnvironment().getMaximumWindowBounds();
+        setSize(Math.min(WINDOW_WIDTH, usable.width), Math.min(WINDOW_HEIGHT, usable.height));  // 1920x1080, or the screen
+        setMinimumSize(new Dimension(MIN_WINDOW_WIDTH, MIN_WINDOW_HEIGHT));
+        setLocationRelativeTo(null);  // Center the frame on the screen
+
+        // Create a custom JPanel for the background
+        backgroundPanel = new JPanel() {
+            @Override
+            protected void paintComponent(Graphics g) {
+                long start = System.nanoTime();
+                super.paintComponent(g);
+                // Draw the background image, scaled to fit the panel
+                if (backgroundImage != null) {
+                    g.drawImage(backgroundImage, 0, 0, getWidth(), getHeight(), this);
+                }
+                BACKGROUND_PAINTS.record(System.nanoTime() - start);
+            }
+        };
+
+        backgroundPanel.setLayout(new BorderLayout());
+        backgroundPanel.setBackground(new Color(40, 34, 30));  // Shown until the background image is decoded
+
+        // Create a title panel for "The Mystic Maze"
+        JPanel titlePanel = new JPanel();
+        titlePanel.setOpaque(false);  // Transparent background
+     
+        JLabel titleLabel = new JLabel();
+        messages.bind(titleLabel::setText, "title");
+        titleLabel.setFont(Fonts.TITLE);
+        titleLabel.setForeground(Color.WHITE);
+        titlePanel.setBorder(BorderFactory.createEmptyBorder(10, 0, 0, 40)); // Adds 40 pixels padding to the right
+        titlePanel.add(titleLabel);
+
+        backgroundPanel.add(titlePanel, BorderLayout.NORTH);  // Add title to the top
+
+        // The board, with its insert arrows, is added to the center once its tiles are loaded
+        gridContainer = new JPanel(new GridBagLayout());
+        gridContainer.setOpaque(false); // Transparent to show the background
+        gridContainer.setBorder(BorderFactory.createEmptyBorder(0, 30, 40, 0));
+
+        backgroundPanel.add(gridContainer, BorderLayout.CENTER);
+
+        // Create the menu options panel on the left
+        JPanel menuPanelWithLabel = new JPanel();
+        menuPanelWithLabel.setLayout(new BorderLayout());
+        menuPanelWithLabel.setOpaque(false);
+
+        // Create a label for "Ingredients"
+        JLabel ingredientsLabel = new JLabel();
+        messages.bind(text -> ingredientsLabel.setText("        " + text), "ingredients");
+        ingredientsLabel.setFont(Fonts.SUBHEADING);
+        ingredientsLabel.setForeground(Color.WHITE);
+        ingredientsLabel.setHorizontalAlignment(SwingConstants.CENTER);
+
+        menuPanelWithLabel.add(ingredientsLabel, BorderLayout.NORTH);  // Add Ingredients label to the top
+
+        JPanel menuOptionsPanel = createMenuOptionsPanel();  // Create the actual menu options panel
+        menuPanelWithLabel.add(menuOptionsPanel, BorderLayout.CENTER);  // Add menu options below the label
+
+        backgroundPanel.add(menuPanelWithLabel, BorderLayout.WEST);  // Add the whole menu + label to the left
+
+        // Create the player stats and chat area panel on the right
+        JPanel rightPanel = new JPanel(new BorderLayout());
+        rightPanel.setOpaque(false); // Transparent to show the background
+        rightPanel.add(createPlayerStatsPanel(), BorderLayout.NORTH);
+        rightPanel.add(createChatAreaPanel(), BorderLayout.SOUTH);
+
+        backgroundPanel.add(rightPanel, BorderLayout.EAST);
+
+        add(backgroundPanel);
+        installRelayout();
+        installMetricsOverlay();
+        installHistoryKeys();
+        setVisible(true);
+        trace.record("shell", start);
+    }
+
+    /**
+     * Fits the board and the background to the window after it is resized or moved to a
+     * screen of another scale. Both wait until the size has held for a moment, so that
+     * dragging the border only stretches what is already there.
+     */
+    private void installRelayout() {
+        relayout = new Timer(RELAYOUT_DELAY, e -> {
+            fitBoard();
+            rescaleBackground();
+        });
+        relayout.setRepeats(false);
+        backgroundPanel.addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                relayout.restart();
+            }
+        });
+        backgroundPanel.addPropertyChangeListener("graphicsConfiguration", e -> relayout.restart());
+    }
+
+    /**
+     * Zooms the board with the window, relative to the 1920x1080 layout, but never beyond
+     * what fits in the space left between the side panels.
+     */
+    private void fitBoard() {
+        if (boardCanvas == null) {
+            return;  // Not loaded yet; fitted when revealed
+        }
+        double layoutScale = Math.min((double) getWidth() / WINDOW_WIDTH, (double) getHeight() / WINDOW_HEIGHT);
+        Insets insets = gridContainer.getInsets();
+        boardCanvas.fitCells(Math.min((int) Math.round(CELL_SIZE * layoutScale), boardCanvas.cellsToFit(
+                gridContainer.getWidth() - insets.left - insets.right,
+                gridContainer.getHeight() - insets.top - insets.bottom)));
+    }
+
+    /**
+     * Asks the asset cache for the background at the size of the window in device pixels
+     * and shows it if it is cached; otherwise shows the nearest size cached and tries
+     * again once the cache has built it in the background.
+     */
+    private void rescaleBackground() {
+        if (backgroundImage == null || backgroundPanel.getWidth() <= 0 || backgroundPanel.getHeight() <= 0) {
+            return;  // Not decoded or laid out yet; scaled when revealed
+        }
+        double scale = AssetCache.deviceScale(backgroundPanel.getGraphicsConfiguration());
+        Image image = AssetCache.shared().getOrNearest(backgroundPath,
+                AssetCache.devicePixels(backgroundPanel.getWidth(), scale),
+                AssetCache.devicePixels(backgroundPanel.getHeight(), scale), this::rescaleBackground);
+        if (image != null && image != backgroundImage) {
+            backgroundImage = image;
+            backgroundPanel.repaint();
+        }
+    }
+
+    /**
+     * Makes the metrics overlay the glass pane of the window, shown and hidden with F3
+     * wherever the focus is.
+     */
+    private void installMetricsOverlay() {
+        MetricsOverlay overlay = new MetricsOverlay(Instrumentation.shared());
+        setGlassPane(overlay);
+        JRootPane root = getRootPane();
+        root.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_F3, 0), "toggleMetrics");
+        root.getActionMap().put("toggleMetrics", new AbstractAction() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                overlay.toggle();
+            }
+        });
+    }
+
+    /**
+     * Binds Ctrl+Z to undo and Ctrl+Y to redo wherever the focus is.
+     */
+    private void installHistoryKeys() {
+        JRootPane root = getRootPane();
+        InputMap keys = root.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW);
+        keys.put(KeyStroke.getKeyStroke(KeyEvent.VK_Z, KeyEvent.CTRL_DOWN_MASK), "undo");
+        keys.put(KeyStroke.getKeyStroke(KeyEvent.VK_Y, KeyEvent.CTRL_DOWN_MASK), "redo");
+        root.getActionMap().put("undo", new AbstractAction() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                undo();
+            }
+        });
+        root.getActionMap().put("redo", new AbstractAction() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                redo();
+            }
+        });
+    }
+
+    /**
+     * Decodes the background, board, menu and stats images in parallel and reveals each
+     * part of the window on the EDT as soon as its images are in the cache. The startup
+     * trace is printed once everything is shown, if enabled.
+     */
+    private void loadAssets(String imagePath) {
+        CompletableFuture<Void> background = loadPhase("background",
+                () -> loadImage(imagePath, 0, 0),
+                () -> {
+                    backgroundImage = loadImage(imagePath, 0, 0);
+                    backgroundPanel.repaint();
+                    rescaleBackground();
+                });
+        CompletableFuture<Void> boardAssets = loadPhase("board",
+                () -> BoardCanvas.preload(board, CELL_SIZE),
+                this::revealBoard);
+        CompletableFuture<Void> menu = loadPhase("menu",
+                () -> {
+                    for (String path : MENU_ICON_PATHS) {
+                        loadImage(path, 90, 90);
+                    }
+                },
+                this::revealMenu);
+        CompletableFuture<Void> stats = loadPhase("stats",
+                () -> {
+                    for (int i = 0; i < PLAYER_COUNT; i++) {
+                        loadImage(PLAYER_PATHS[i], 30, 30);
+                        loadImage(STAR_PATHS[i], 30, 30);
+                    }
+                    loadImage("/box.png", 0, 0);
+                    loadImage("/icon.png", 50, 50);
+                },
+                this::revealPlayerStats);
+
+        CompletableFuture.allOf(background, boardAssets, menu, stats).whenComplete((ignored, error) -> {
+            if (error != null) {
+                error.printStackTrace();
+            }
+            if (StartupTrace.isEnabled()) {
+                trace.report(System.out);
+            }
+        });
+    }
+
+    /**
+     * Runs one startup phase: decodes its images on the asset loader, then updates the
+     * window with them on the EDT. Both steps are recorded in the trace.
+     *
+     * @param name Name of the phase in the trace.
+     * @param decode Loads the images into the shared cache, off the EDT.
+     * @param reveal Builds or updates the components from the cached images, on the EDT.
+     * @return A future completing once the phase is visible.
+     */
+    private CompletableFuture<Void> loadPhase(String name, Runnable decode, Runnable reveal) {
+        return CompletableFuture.runAsync(() -> {
+            long start = trace.now();
+            decode.run();
+            trace.record(name + " decode", start);
+        }, ASSET_LOADER).thenRunAsync(() -> {
+            long start = trace.now();
+            reveal.run();
+            trace.record(name + " reveal", start);
+        }, SwingUtilities::invokeLater);
+    }
+
+    /**
+     * Adds the board and its insert arrows to the window and shows the spare tile. Until
+     * this runs the game cannot be played, so any pending computer turn starts here.
+     */
+    private void revealBoard() {
+        gridContainer.add(createBoardView());
+        fitBoard();
+        gridContainer.revalidate();
+        gridContainer.repaint();
+        spareButton.setIcon(boardCanvas.createSpareIcon());
+        playComputerTurn();
+    }
+
+    /**
+     * Gives the menu buttons their icons.
+     */
+    private void revealMenu() {
+        for (int i = 0; i < menuButtons.length; i++) {
+            menuButtons[i].setIcon(loadIcon(MENU_ICON_PATHS[i], 90, 90));
+        }
+    }
+
+    /**
+     * Gives the players their tokens and stars, and the chat input its box and icon.
+     */
+    private void revealPlayerStats() {
+        for (int i = 0; i < PLAYER_COUNT; i++) {
+            playerLabels[i].setIcon(loadIcon(PLAYER_PATHS[i], 30, 30));
+            starRows[i].setStar(loadImage(STAR_PATHS[i], StarRow.STAR_SIZE, StarRow.STAR_SIZE));
+        }
+
+        chatIcon.setIcon(loadIcon("/icon.png", 50, 50));
+        chatBoxImage = loadImage("/box.png", 0, 0);
+        chatIcon.getParent().repaint();  // The input panel, holding the chat box
+    }
+
+    /**
+     * Creates the menu options panel with clickable buttons. Each button triggers
+     * a popup menu with relevant menu items (e.g., File, Game, Network, etc.).
+     *
+     * @return A JPanel containing the menu options.
+     */
+    private JPanel createMenuOptionsPanel() {
+        JPanel menuOptionsPanel = new JPanel();
+        menuOptionsPanel.setLayout(new GridLayout(3, 2, 70, 10)); // 3 rows, 2 columns
+        // Add padding to the left (e.g., 20px from the left)
+        menuOptionsPanel.setBorder(BorderFactory.createEmptyBorder(0, 70, 0, 0)); // Adds 70 pixels padding to the left
+        menuOptionsPanel.setOpaque(false);
+
+        // Icons are set once loaded, see revealMenu() and revealBoard()
+        String[] menuOptions = {"menu.file", "menu.game", "menu.network", "menu.help", "menu.language", "menu.insert"};
+
+        for (int i = 0; i < menuOptions.length; i++) {
+            JButton button = new JButton();
+            messages.bind(button::setText, menuOptions[i]);
+            button.setFont(Fonts.MENU);
+            button.setHorizontalTextPosition(JButton.CENTER);
+            button.setVerticalTextPosition(JButton.BOTTOM);
+            button.setContentAreaFilled(false);
+            button.setForeground(Color.WHITE);
+            button.setBorderPainted(false);
+            button.setFocusPainted(false);
+            button.setPreferredSize(new Dimension(90, 90));
+
+            if (i == menuOptions.length - 1) {
+                // The Insert Role button shows the spare tile and rotates it when clicked
+                messages.bind(button::setToolTipText, "spare.tooltip");
+                button.addActionListener(e -> {
+                    if (!isComputerTurn() && replayedGame == null) {
+                        rotateSpare();
+                    }
+                });
+                spareButton = button;
+                menuOptionsPanel.add(button);
+                continue;
+            }
+
+            menuButtons[i] = button;
+
+            // Add the popup menu for each button
+            JPopupMenu popupMenu = new JPopupMenu();
+
+            // Define actions for each button based on its key (File, Game, Network, Help, Language, Insert Role)
+            switch (menuOptions[i]) {
+                case "menu.file":
+                    createFileMenu(popupMenu);  // Attach File-related menu items
+                    break;
+                case "menu.game":
+                    createGameMenu(popupMenu);  // Attach Game-related menu items
+                    break;
+                case "menu.network":
+                    createNetworkMenu(popupMenu);  // Attach Network-related menu items
+                    break;
+                case "menu.help":
+                    createHelpMenu(popupMenu);  // Attach Help-related menu items
+                    break;
+                case "menu.language":
+                    createLanguageMenu(popupMenu);  // Attach Language-related menu items
+                    break;
+                
+                default:
+                    break;
+            }
+
+            // Show the popup menu when the button is clicked
+            button.addActionListener(e -> popupMenu.show(button, button.getWidth() / 2, button.getHeight() / 2));
+
+            menuOptionsPanel.add(button);
+        }
+
+        return menuOptionsPanel;
+    }
+
+    /**
+     * Creates a JPopupMenu for the File menu with options like Save Game and Exit.
+     *
+     * @param popupMenu The JPopupMenu to which the menu items are added.
+     */
+    private void createFileMenu(JPopupMenu popupMenu) {
+        JMenuItem saveGame = menuItem("file.save");
+        JMenuItem loadGame = menuItem("file.load");
+        JMenuItem resumeGame = menuItem("file.resume");
+        JMenuItem watchReplay = menuItem("file.replay");
+        JMenuItem exit = menuItem("file.exit");
+
+        // Add action listeners to each menu item
+        saveGame.addActionListener(e -> saveGame());
+        loadGame.addActionListener(e -> loadGame());
+        resumeGame.addActionListener(e -> resumeLastGame());
+        watchReplay.addActionListener(e -> watchReplay());
+        exit.addActionListener(e -> JOptionPane.showMessageDialog(null, messages.get("file.exit.message")));  // Optionally close game
+
+        popupMenu.add(saveGame);
+        popupMenu.add(loadGame);
+        popupMenu.add(resumeGame);
+        popupMenu.add(watchReplay);
+        popupMenu.addSeparator();
+        popupMenu.add(exit);
+    }
+
+    /**
+     * Creates a menu item whose text follows the language.
+     *
+     * @param key Key of its text.
+     * @return The menu item.
+     */
+    private JMenuItem menuItem(String key) {
+        JMenuItem item = new JMenuItem();
+        messages.bind(item::setText, key);
+        return item;
+    }
+
+    /**
+     * Asks for a file and saves the whole game into it.
+     */
+    private void saveGame() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = chooser.getSelectedFile();
+        if (file.exists() && JOptionPane.showConfirmDialog(this, messages.format("file.overwrite", file.getName()),
+                messages.get("file.save"), JOptionPane.YES_NO_OPTION) != JOptionPane.YES_OPTION) {
+            return;
+        }
+        try {
+            SaveGame.save(file.toPath(), state);
+        } catch (IOException e) {
+            e.printStackTrace();
+            JOptionPane.showMessageDialog(this, messages.format("file.saveFailed", e.getMessage()));
+        }
+    }
+
+    /**
+     * Asks for a saved game and continues it.
+     */
+    private void loadGame() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+            loadGame(chooser.getSelectedFile().toPath());
+        }
+    }
+
+    /**
+     * Continues the game that was last played, as kept by the autosave.
+     */
+    private void resumeLastGame() {
+        loadGame(AUTOSAVE_PATH);
+    }
+
+    /**
+     * Loads a saved game into a scratch state first, so a damaged save leaves the game
+     * being played untouched, then shows it and autosaves from there.
+     *
+     * @param path The snapshot file of the saved game.
+     */
+    private void loadGame(Path path) {
+        if (boardCanvas == null || computerThinking || client != null || replayedGame != null) {
+            return;  // Not while the board is still loading, a computer move is pending, the server holds the game or a replay is shown
+        }
+        GameState loaded = new GameState(new BoardModel(board), GameState.FIRST_TARGET);
+        try {
+            if (!SaveGame.load(path, loaded)) {
+                JOptionPane.showMessageDialog(this, messages.format("file.noSave", path.getFileName()));
+                return;
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            JOptionPane.showMessageDialog(this, messages.format("file.loadFailed", e.getMessage()));
+            return;
+        }
+        state.copyFrom(loaded);
+        history.reset(GameSnapshot.of(state));
+        stopRecording();
+        showState();
+        writeAutosave();
+        playComputerTurn();
+    }
+
+    /**
+     * Asks for a replay and shows it under the control bar of a {@link ReplayViewer}. The
+     * game being played is set aside until the replay is closed, and its recording goes
+     * on from there.
+     */
+    private void watchReplay() {
+        if (boardCanvas == null || computerThinking || client != null) {
+            return;  // Not while the board is still loading, a computer move is pending or the server holds the game
+        }
+        JFileChooser chooser = new JFileChooser(REPLAY_DIR.toFile());
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Replay replay;
+        try {
+            replay = Replay.open(chooser.getSelectedFile().toPath());
+            replay.seek(0, new GameState(new BoardModel(board), GameState.FIRST_TARGET));  // Checks the board dimensions first
+        } catch (IOException | IllegalArgumentException e) {
+            e.printStackTrace();
+            JOptionPane.showMessageDialog(this, messages.format("file.loadFailed", e.getMessage()));
+            return;
+        }
+        if (replayedGame == null) {
+            replayedGame = GameSnapshot.of(state);
+            if (replayViewer == null) {
+                replayViewer = new ReplayViewer(engine, new ReplayView(), messages);
+            }
+            backgroundPanel.add(replayViewer, BorderLayout.SOUTH);
+            backgroundPanel.revalidate();
+        }
+        replayViewer.open(replay);
+    }
+
+    /**
+     * Removes the replay control bar and puts back the game played before.
+     */
+    private void closeReplay() {
+        if (replayedGame == null) {
+            return;
+        }
+        replayViewer.pause();
+        replayedGame.copyTo(state);
+        replayedGame = null;
+        backgroundPanel.remove(replayViewer);
+        backgroundPanel.revalidate();
+        backgroundPanel.repaint();
+        showState();
+        playComputerTurn();
+    }
+
+    /**
+     * Shows a replay on the board as the game itself is shown.
+     */
+    private final class ReplayView implements ReplayViewer.Display {
+
+        @Override
+        public void showState() {
+            TheMysticMaze.this.showState();
+        }
+
+        @Override
+        public void showInsert(int edge, int line) {
+            TheMysticMaze.this.showInsert(edge, line);
+        }
+
+        @Override
+        public void showMove(int player, int from, int cell, int treasure) {
+            TheMysticMaze.this.showMove(player, from, cell, treasure);
+        }
+
+        @Override
+        public void closeReplay() {
+            TheMysticMaze.this.closeReplay();
+        }
+    }
+
+    /**
+     * @return True if the local game may be rewound now: not over the network, nor while
+     *         the board is loading or the computer thinks.
+     */
+    private boolean canRewind() {
+        return boardCanvas != null && client == null && !computerThinking && replayedGame == null;
+    }
+
+    /**
+     * Takes back the last half turn played at this screen, along with the computer's
+     * half turns played since.
+     */
+    private void undo() {
+        if (!canRewind() || !history.canUndo()) {
+            return;
+        }
+        do {
+            history.undo();
+        } while (history.canUndo() && computerSeats[history.current().getCurrentPlayer()]);
+        showHistory();
+    }
+
+    /**
+     * Plays again the half turns last undone, up to the next one for this screen.
+     */
+    private void redo() {
+        if (!canRewind() || !history.canRedo()) {
+            return;
+        }
+        do {
+            history.redo();
+        } while (history.canRedo() && computerSeats[history.current().getCurrentPlayer()]);
+        showHistory();
+    }
+
+    /**
+     * Swaps the last half turn for the next of the other ones tried from the same position.
+     */
+    private void nextVariation() {
+        if (canRewind() && history.getVariationCount() > 1) {
+            history.nextVariation();
+            showHistory();
+        }
+    }
+
+    /**
+     * Puts the current position of the history on the board, autosaves it and lets the
+     * computer play if it is its turn.
+     */
+    private void showHistory() {
+        history.current().copyTo(state);
+        stopRecording();  // The next half turn starts a replay from this position
+        showState();
+        writeAutosave();
+        playComputerTurn();
+    }
+
+    /**
+     * Refreshes everything on screen from the game state, after a game has been loaded.
+     */
+    private void showState() {
+        boardCanvas.boardChanged();
+        engine.stateReplaced();
+        if (state.isMovePhase()) {
+            boardCanvas.setHighlight(engine.getReachability());
+        } else {
+            boardCanvas.setHighlight(null);
+        }
+        spareButton.repaint();
+        stats.update(state);
+        showChat();
+    }
+
+    /**
+     * Shows the chat history kept in the game state.
+     */
+    private void showChat() {
+        chatLog.clear();
+        chatLog.post(messages.get("chat.initialized"));
+        chatLog.post("");
+        for (String line : state.getChat()) {
+            chatLog.post(line);
+        }
+    }
+
+    /**
+     * Snapshots the whole game into the autosave, which also empties its journal. Used
+     * for the first move of a game and whenever the journal is full.
+     */
+    private void writeAutosave() {
+        try {
+            if (autosave == null) {
+                Files.createDirectories(AUTOSAVE_PATH.getParent());
+                autosave = SaveGame.open(AUTOSAVE_PATH);
+            }
+            autosave.writeSnapshot(state);
+        } catch (IOException e) {
+            e.printStackTrace();  // Autosaving is best effort and never interrupts the game
+        }
+    }
+
+    /**
+     * Starts a replay of the game from the position on the board, closing any replay
+     * being recorded. Replays are kept in the replays folder next to the autosave.
+     */
+    private void startRecording() {
+        stopRecording();
+        try {
+            Files.createDirectories(REPLAY_DIR);
+            recorder = ReplayRecorder.create(REPLAY_DIR.resolve(REPLAY_NAME.format(LocalDateTime.now())), state);
+        } catch (IOException e) {
+            e.printStackTrace();  // Recording is best effort and never interrupts the game
+        }
+    }
+
+    /**
+     * Adds an insertion to the replay being recorded, if any; see {@link ReplayRecorder#recordInsert}.
+     */
+    private void recordInsert(int rotation, int edge, int line) {
+        if (recorder == null) {
+            return;
+        }
+        try {
+            recorder.recordInsert(rotation, edge, line);
+        } catch (IOException e) {
+            e.printStackTrace();
+            stopRecording();
+        }
+    }
+
+    /**
+     * Adds a move to the replay being recorded, if any, and finishes the replay if the
+     * move ended the game; see {@link ReplayRecorder#recordMove}.
+     */
+    private void recordMove(int cell, int treasure, int nextTarget) {
+        if (recorder == null) {
+            return;
+        }
+        try {
+            recorder.recordMove(cell, treasure, nextTarget);
+        } catch (IOException e) {
+            e.printStackTrace();
+            stopRecording();
+            return;
+        }
+        if (engine.isGameOver()) {
+            stopRecording();
+        }
+    }
+
+    /**
+     * Finishes the replay being recorded, if any, writing its keyframe index.
+     */
+    private void stopRecording() {
+        if (recorder == null) {
+            return;
+        }
+        try {
+            recorder.close();
+        } catch (IOException e) {
+            e.printStackTrace();  // Left without an index, which Replay rebuilds
+        }
+        recorder = null;
+    }
+
+    /**
+     * Creates a JPopupMenu for the Game menu with options like Start New Game and Reset Game.
+     *
+     * @param popupMenu The JPopupMenu to which the menu items are added.
+     */
+    private void createGameMenu(JPopupMenu popupMenu) {
+        JMenuItem startNewGame = menuItem("game.new");
+        JMenuItem resetGame = menuItem("game.reset");
+        JMenuItem undo = menuItem("game.undo");
+        JMenuItem redo = menuItem("game.redo");
+        JMenuItem variation = menuItem("game.variation");
+
+        // Add action listeners to each menu item
+        startNewGame.addActionListener(e -> JOptionPane.showMessageDialog(null, messages.get("game.new.message")));
+        resetGame.addActionListener(e -> JOptionPane.showMessageDialog(null, messages.get("game.reset.message")));
+        undo.addActionListener(e -> undo());
+        redo.addActionListener(e -> redo());
+        variation.addActionListener(e -> nextVariation());
+
+        // Enabled for what the history allows each time the menu opens
+        popupMenu.addPopupMenuListener(new javax.swing.event.PopupMenuListener() {
+            @Override
+            public void popupMenuWillBecomeVisible(javax.swing.event.PopupMenuEvent e) {
+                undo.setEnabled(canRewind() && history.canUndo());
+                redo.setEnabled(canRewind() && history.canRedo());
+                variation.setEnabled(canRewind() && history.getVariationCount() > 1);
+            }
+
+            @Override
+            public void popupMenuWillBecomeInvisible(javax.swing.event.PopupMenuEvent e) {
+            }
+
+            @Override
+            public void popupMenuCanceled(javax.swing.event.PopupMenuEvent e) {
+            }
+        });
+
+        popupMenu.add(startNewGame);
+        popupMenu.add(resetGame);
+        popupMenu.addSeparator();
+        popupMenu.add(undo);
+        popupMenu.add(redo);
+        popupMenu.add(variation);
+        popupMenu.addSeparator();
+
+        // Let the computer take over any player seat
+        for (int i = 0; i < PLAYER_COUNT; i++) {
+            int player = i;
+            JCheckBoxMenuItem computerSeat = new JCheckBoxMenuItem();
+            messages.bind(text -> computerSeat.setText(messages.format("game.computer", text)), "player.name", i + 1);
+            computerSeat.addActionListener(e -> {
+                computerSeats[player] = computerSeat.isSelected();
+                playComputerTurn();
+            });
+            popupMenu.add(computerSeat);
+        }
+    }
+
+    /**
+     * Creates a JPopupMenu for the Network menu with options like Connect and Disconnect.
+     *
+     * @param popupMenu The JPopupMenu to which the menu items are added.
+     */
+    private void createNetworkMenu(JPopupMenu popupMenu) {
+        JMenuItem host = menuItem("network.host");
+        JMenuItem connect = menuItem("network.connect");
+        JMenuItem disconnect = menuItem("network.disconnect");
+
+        // Add action listeners to each menu item
+        host.addActionListener(e -> hostGame());
+        connect.addActionListener(e -> askServer());
+        disconnect.addActionListener(e -> disconnect());
+
+        popupMenu.add(host);
+        popupMenu.add(connect);
+        popupMenu.add(disconnect);
+    }
+
+    /**
+     * Starts a server inside this game, unless one is running already, and joins it.
+     */
+    private void hostGame() {
+        if (!checkNetworkBoard()) {
+            return;
+        }
+        try {
+            if (hostedServer == null) {
+                hostedServer = new GameServer(GameServer.DEFAULT_PORT);
+                hostedServer.start();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            JOptionPane.showMessageDialog(this, messages.format("network.hostFailed", e.getMessage()));
+            return;
+        }
+        connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), hostedServer.getPort()), 1);
+    }
+
+    /**
+     * Servers only host games on the standard board, so other sizes stay local.
+     *
+     * @return True if this window plays the standard board; otherwise says why not.
+     */
+    private boolean checkNetworkBoard() {
+        if (board.getSize() == BoardModel.STANDARD_SIZE) {
+            return true;
+        }
+        JOptionPane.showMessageDialog(this, messages.format("network.standardBoard", BoardModel.STANDARD_SIZE));
+        return false;
+    }
+
+    /**
+     * Asks for a server and a table, then joins it.
+     */
+    private void askServer() {
+        String server = JOptionPane.showInputDialog(this, messages.get("network.server"), "localhost");
+        if (server == null || server.isBlank()) {
+            return;
+        }
+        String table = JOptionPane.showInputDialog(this, messages.get("network.table"), "1");
+        if (table == null) {
+            return;
+        }
+        try {
+            int colon = server.lastIndexOf(':');
+            int port = colon < 0 ? GameServer.DEFAULT_PORT : Integer.parseInt(server.substring(colon + 1).trim());
+            String hostName = colon < 0 ? server.trim() : server.substring(0, colon).trim();
+            connect(InetSocketAddress.createUnresolved(hostName, port), Integer.parseInt(table.trim()));
+        } catch (NumberFormatException e) {
+            JOptionPane.showMessageDialog(this, messages.format("network.notNumber", e.getMessage()));
+        }
+    }
+
+    /**
+     * Connects to a server in the background and, once connected, mirrors the game at
+     * the table on the board, leaving any game played before.
+     *
+     * @param address Address of the server, resolved when connecting.
+     * @param table Number of the table to join.
+     */
+    private void connect(InetSocketAddress address, int table) {
+        if (boardCanvas == null || computerThinking || replayedGame != null) {
+            return;
+        }
+        if (!checkNetworkBoard()) {
+            return;
+        }
+        disconnect();
+        new SwingWorker<GameClient, Void>() {
+            @Override
+            protected GameClient doInBackground() throws IOException {
+                InetSocketAddress resolved = address.isUnresolved()
+                        ? new InetSocketAddress(address.getHostString(), address.getPort())
+                        : address;
+                return GameClient.connect(resolved, table, engine, SwingUtilities::invokeLater, new NetworkView());
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    client = get();
+                } catch (InterruptedException | ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    JOptionPane.showMessageDialog(TheMysticMaze.this, messages.format("network.connectFailed", cause.getMessage()));
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * Leaves the server, if connected, and stops the server this game hosts. The game
+     * as last received stays on the board and can be played on locally.
+     */
+    private void disconnect() {
+        try {
+            if (client != null) {
+                client.close();
+                chatLog.post(messages.get("chat.disconnected"));
+            }
+            if (hostedServer != null) {
+                hostedServer.close();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        client = null;
+        hostedServer = null;
+        history.reset(GameSnapshot.of(state));  // Turns played over the network are not in the history
+        stopRecording();
+    }
+
+    /**
+     * Shows on the board what the server reports while playing over the network. Its
+     * methods run on the EDT, after the game state has been updated.
+     */
+    private final class NetworkView implements GameClient.Listener {
+
+        @Override
+        public void joined(int table, int seat) {
+            chatLog.post(seat >= 0
+                    ? messages.format("chat.joined", table, playerName(seat))
+                    : messages.format("chat.watching", table));
+        }
+
+        @Override
+        public void stateReplaced() {
+            startRecording();
+            showState();
+        }
+
+        @Override
+        public void inserted(int rotation, int edge, int line) {
+            recordInsert(rotation, edge, line);
+            showInsert(edge, line);
+        }
+
+        @Override
+        public void moved(int player, int from, int cell, int treasure) {
+            recordMove(cell, treasure, state.getTargetComponent());
+            showMove(player, from, cell, treasure);
+        }
+
+        @Override
+        public void chatReceived(int sender, String text) {
+            chatLog.post(state.addChat(sender >= 0
+                    ? messages.format("chat.player", playerName(sender), text)
+                    : messages.format("chat.spectator", text)));
+        }
+
+        @Override
+        public void rejected(int reason) {
+            JOptionPane.showMessageDialog(TheMysticMaze.this, messages.get(Protocol.reasonKey(reason)));
+        }
+
+        @Override
+        public void disconnected(IOException cause) {
+            client = null;
+            history.reset(GameSnapshot.of(state));
+            stopRecording();
+            JOptionPane.showMessageDialog(TheMysticMaze.this, messages.format("network.lost", cause.getMessage()));
+        }
+    }
+
+    /**
+     * Creates a JPopupMenu for the Help menu with an About option.
+     *
+     * @param popupMenu The JPopupMenu to which the menu items are added.
+     */
+    private void createHelpMenu(JPopupMenu popupMenu) {
+        JMenuItem about = menuItem("help.about");
+
+        // Add action listener to About menu item
+        about.addActionListener(e -> JOptionPane.showMessageDialog(null, messages.get("help.about.message")));
+
+        popupMenu.add(about);
+    }
+
+    /**
+     * Creates a JPopupMenu for the Language menu with one item per language, each named
+     * in its own language. Choosing one switches the text of the window in place.
+     *
+     * @param popupMenu The JPopupMenu to which the menu items are added.
+     */
+    private void createLanguageMenu(JPopupMenu popupMenu) {
+        ButtonGroup group = new ButtonGroup();
+        for (Locale locale : Messages.LOCALES) {
+            String name = locale.getDisplayLanguage(locale);
+            JRadioButtonMenuItem item = new JRadioButtonMenuItem(name.substring(0, 1).toUpperCase(locale) + name.substring(1));
+            item.setSelected(locale.equals(messages.getLocale()));
+            item.addActionListener(e -> messages.setLocale(locale));
+            group.add(item);
+            popupMenu.add(item);
+        }
+    }
+
+    /**
+     * Updates the text that is not bound to a component after a switch of language.
+     */
+    private void showLanguage() {
+        stats.markDirty(StatsModel.TURN | StatsModel.TARGET);  // Instruction and target label
+    }
+
+    /**
+     * @param player Index of a player.
+     * @return Their name in the current language.
+     */
+    private String playerName(int player) {
+        return messages.format("player.name", player + 1);
+    }
+
+
+    /**
+     * Creates the main grid panel with tiles and optional icons. This grid panel forms
+     * the main playing area of the game and is painted by a single BoardCanvas from
+     * the board model.
+     *
+     * @return A BoardCanvas showing the grid structure.
+     */
+    private BoardCanvas createGridPanel() {
+        return new BoardCanvas(board, CELL_SIZE);
+    }
+
+    /**
+     * Creates the scrollable view of the board. The canvas paints an insert arrow in front
+     * of every row and column that can be shifted; clicking one pushes the spare tile into
+     * that line, clicking a cell moves there. Boards larger than the view scroll, and
+     * Ctrl with the mouse wheel zooms.
+     *
+     * @return A scroll pane showing the board and its arrows.
+     */
+    private JScrollPane createBoardView() {
+        boardCanvas = createGridPanel();
+        Instrumentation.shared().addAnimator("board", boardCanvas.getAnimator());
+        boardCanvas.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (!canPlay()) {
+                    return;
+                }
+                BoardCanvas.Slot slot = boardCanvas.slotAt(e.getPoint());
+                if (slot != null) {
+                    insertSpare(slot.edge(), slot.line());
+                } else {
+                    movePlayer(boardCanvas.cellAt(e.getPoint()));
+                }
+            }
+        });
+
+        JScrollPane boardView = new JScrollPane(boardCanvas);
+        boardView.setOpaque(false);                 // Transparent to show the background
+        boardView.getViewport().setOpaque(false);
+        boardView.setBorder(BorderFactory.createEmptyBorder());
+        return boardView;
+    }
+
+    /**
+     * Pushes the spare tile into a row or column. Over the network this only asks the
+     * server, whose answer then updates the board.
+     *
+     * @param edge Edge the spare tile enters from.
+     * @param line Index of the row or column.
+     */
+    private void insertSpare(int edge, int line) {
+        if (!engine.canInsert(edge, line)) {
+            return;  // The piece has already been inserted this turn, or the game is over
+        }
+        int rotation = board.getSpareRotation();
+        if (client != null) {
+            try {
+                client.sendInsert(rotation, edge, line);
+            } catch (IOException e) {
+                e.printStackTrace();  // The client reports the lost connection
+            }
+            return;
+        }
+        if (recorder == null) {
+            startRecording();
+        }
+        engine.insert(rotation, edge, line);
+        history.record(history.current().insert(rotation, edge, line));
+        recordInsert(rotation, edge, line);
+        showInsert(edge, line);
+        if (autosave == null || !autosave.appendInsert(rotation, edge, line)) {
+            writeAutosave();
+        }
+    }
+
+    /**
+     * Slides the shifted line into place, repaints the spare tile and highlights where
+     * the current player can walk to.
+     *
+     * @param edge Edge the spare tile entered from.
+     * @param line Index of the row or column.
+     */
+    private void showInsert(int edge, int line) {
+        boardCanvas.animateInsert(edge, line);
+        spareButton.repaint();
+        boardCanvas.setHighlight(engine.getReachability());
+        stats.update(state);
+    }
+
+    /**
+     * Moves the current player to a cell if it is reachable, capturing the target
+     * component if it lies there, and passes the turn to the next player. Over the
+     * network this only asks the server, whose answer then updates the board.
+     *
+     * @param cell Index of the clicked cell.
+     */
+    private void movePlayer(int cell) {
+        if (!engine.canMove(cell)) {
+            return;
+        }
+        if (client != null) {
+            try {
+                client.sendMove(cell);
+            } catch (IOException e) {
+                e.printStackTrace();  // The client reports the lost connection
+            }
+            return;
+        }
+        int player = state.getCurrentPlayer();
+        int from = board.getPlayerCell(player);
+        if (recorder == null) {
+            startRecording();
+        }
+        int treasure = engine.move(cell);
+        history.record(history.current().move(cell, treasure, state.getTargetComponent()));
+        recordMove(cell, treasure, state.getTargetComponent());
+        showMove(player, from, cell, treasure);
+        if (autosave == null || !autosave.appendMove(cell, treasure, state.getTargetComponent())) {
+            writeAutosave();
+        }
+        playComputerTurn();
+    }
+
+    /**
+     * Walks the token along its route and repaints the two cells of a move; the stats
+     * model picks up the turn and any capture.
+     *
+     * @param player Index of the player who moved.
+     * @param from Cell they left.
+     * @param cell Cell they moved to.
+     * @param treasure Id of the treasure they captured, or 0.
+     */
+    private void showMove(int player, int from, int cell, int treasure) {
+        boardCanvas.repaintCell(from);
+        boardCanvas.repaintCell(cell);
+        boardCanvas.setHighlight(null);
+        boardCanvas.animateMove(player, from, engine.getReachability());
+        stats.update(state);
+    }
+
+    /**
+     * @return True if the player at this screen may play the current turn: over the
+     *         network only on their own seat, otherwise unless the computer plays it.
+     */
+    private boolean canPlay() {
+        if (replayedGame != null) {
+            return false;
+        }
+        return client != null ? client.getSeat() == state.getCurrentPlayer() : !isComputerTurn();
+    }
+
+    /**
+     * @return True if the current player's seat is played by the computer.
+     */
+    private boolean isComputerTurn() {
+        return computerSeats[state.getCurrentPlayer()];
+    }
+
+    /**
+     * Starts a computer turn if the current seat is played by the computer. The search
+     * runs on a background thread against a copy of the board, so the EDT never waits
+     * on it; the chosen turn is then played through the same steps as a human turn.
+     */
+    private void playComputerTurn() {
+        if (boardCanvas == null || client != null || !isComputerTurn() || state.isMovePhase() || computerThinking
+                || engine.isGameOver() || replayedGame != null) {
+            return;
+        }
+        computerThinking = true;
+        BoardModel snapshot = new BoardModel(board);
+        int player = state.getCurrentPlayer();
+        int target = state.getTargetComponent();
+
+        new SwingWorker<ComputerPlayer.Move, Void>() {
+            @Override
+            protected ComputerPlayer.Move doInBackground() {
+                return computer.chooseMove(snapshot, player, target);
+            }
+
+            @Override
+            protected void done() {
+                computerThinking = false;
+                try {
+                    ComputerPlayer.Move move = get();
+                    for (int i = 0; i < move.rotation(); i++) {
+                        rotateSpare();
+                    }
+                    insertSpare(move.edge(), move.line());
+                    movePlayer(move.destination());
+                } catch (InterruptedException | ExecutionException e) {
+                    e.printStackTrace();
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * Redraws the parts of the stats panel that changed: the instruction after a turn or
+     * phase change, the target label after a capture and the stars of the capturing player.
+     *
+     * @param model The stats.
+     * @param dirty What changed, as StatsModel flags.
+     */
+    private void showStats(StatsModel model, int dirty) {
+        if ((dirty & StatsModel.TURN) != 0) {
+            String player = playerName(model.getCurrentPlayer());
+            instructionLabel.setText(messages.format(model.isMovePhase() ? "stats.move" : "stats.insert", player));
+        }
+        if ((dirty & StatsModel.TARGET) != 0) {
+            currentComponentLabel.setText(model.getTargetComponent() == 0
+                    ? messages.get("stats.done")
+                    : messages.format("stats.target", model.getTargetComponent()));
+        }
+        for (int i = 0; i < starRows.length; i++) {
+            if ((dirty & StatsModel.player(i)) != 0) {
+                starRows[i].setCount(model.getCaptures(i));
+            }
+        }
+    }
+
+    /**
+     * Turns the spare tile a quarter turn clockwise.
+     */
+    private void rotateSpare() {
+        board.rotateSpare();
+        spareButton.repaint();
+    }
+
+    /**
+     * Loads an icon through the shared asset cache. Unlike the cache itself this never
+     * fails: a missing file is reported and an empty icon is returned instead.
+     *
+     * @param path Classpath name of the image.
+     * @param width Target width in logical pixels, or 0 to keep the original size.
+     * @param height Target height in logical pixels, or 0 to keep the original size.
+     * @return The cached icon, sharp on HiDPI screens, or an empty icon if the image could not be loaded.
+     */
+    private static ImageIcon loadIcon(String path, int width, int height) {
+        Image image = loadImage(path, width, height);
+        return image != null ? new ImageIcon(image) : new ImageIcon();
+    }
+
+    /**
+     * Loads an image through the shared asset cache, reporting a missing file instead
+     * of failing. Scaled images carry a copy for each screen scale, see
+     * {@link AssetCache#getMultiResolution}. Safe to call from any thread.
+     *
+     * @param path Classpath name of the image.
+     * @param width Target width in logical pixels, or 0 to keep the original size.
+     * @param height Target height in logical pixels, or 0 to keep the original size.
+     * @return The cached image, or null if it could not be loaded.
+     */
+    private static Image loadImage(String path, int width, int height) {
+        try {
+            AssetCache cache = AssetCache.shared();
+            return width > 0 && height > 0 ? cache.getMultiResolution(path, width, height) : cache.get(path);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Creates a panel displaying player statistics and current game information.
+     *
+     * @return A JPanel containing player stats and game status.
+     */ 
+    private JPanel createPlayerStatsPanel() {
+        JPanel statsPanel = new JPanel();
+        statsPanel.setLayout(new BoxLayout(statsPanel, BoxLayout.Y_AXIS));
+        statsPanel.setOpaque(false);  // To match the theme's transparency
+
+        // Add padding to the left (e.g., 20px from the left)
+        statsPanel.setBorder(BorderFactory.createEmptyBorder(0, 0, 0, 30)); // Adds 20 pixels padding to the left
+
+        // Title
+        JLabel titleLabel = new JLabel();
+        messages.bind(titleLabel::setText, "stats.title");
+        titleLabel.setFont(Fonts.HEADING);
+        titleLabel.setForeground(Color.WHITE);
+        titleLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
+        statsPanel.add(Box.createRigidArea(new Dimension(0, 20)));
+        statsPanel.add(titleLabel);
+
+        // Instruction label
+        instructionLabel = new JLabel();
+        instructionLabel.setFont(Fonts.INSTRUCTION);
+        instructionLabel.setForeground(Color.WHITE);
+        instructionLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
+        statsPanel.add(Box.createRigidArea(new Dimension(0, 20)));
+        statsPanel.add(instructionLabel);
+
+        // Player names; their tokens and stars are added by revealPlayerStats() once loaded
+        for (int i = 0; i < PLAYER_COUNT; i++) {
+            // Create player label
+            JLabel playerLabel = new JLabel("", JLabel.LEFT);
+            playerLabel.setFont(Fonts.SMALL);
+            playerLabel.setForeground(Color.WHITE);
+            playerLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
+            messages.bind(text -> {
+                playerLabel.setText(text);
+                int width = playerLabel.getFontMetrics(playerLabel.getFont()).stringWidth(text);
+                playerLabel.setPreferredSize(new Dimension(width + 34, 30));  // Room for the token
+            }, "player.name", i + 1);
+            playerLabels[i] = playerLabel;
+
+            // Create a panel for player and stars together
+            JPanel playerPanel = new JPanel();
+            playerPanel.setLayout(new BoxLayout(playerPanel, BoxLayout.X_AXIS));  // Arrange them horizontally
+            playerPanel.setOpaque(false); // Transparent background
+            playerPanel.add(playerLabel);  // Add player label
+            playerPanel.add(Box.createRigidArea(new Dimension(10, 0)));  // Add space between player and stars
+            starRows[i] = new StarRow();
+            playerPanel.add(starRows[i]);
+
+            // Align the playerPanel and add to the main panel
+            playerPanel.setAlignmentX(Component.LEFT_ALIGNMENT);
+            statsPanel.add(Box.createVerticalStrut(5));  // Adds vertical space between elements
+            statsPanel.add(playerPanel);  // Add player panel to the main stats panel
+        }
+
+        // Dynamic label for current component to capture
+        currentComponentLabel = new JLabel();
+        currentComponentLabel.setFont(Fonts.TEXT);
+        currentComponentLabel.setForeground(Color.WHITE);
+        currentComponentLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
+        statsPanel.add(Box.createRigidArea(new Dimension(0, 20))); // Space before this label
+        statsPanel.add(currentComponentLabel);
+
+        stats.addListener(this::showStats);
+        messages.addListener(m -> showLanguage());
+        stats.update(state);
+        return statsPanel;
+    }
+
+    /**
+     * Creates the chat area where players can type and send messages, 
+     * and displays the game chat history.
+     *
+     * @return A JPanel containing the chat area and input field.
+     */
+    private JPanel createChatAreaPanel() {
+        JPanel chatPanel = new JPanel();
+        chatPanel.setOpaque(false);  // Make the main chat panel transparent
+        chatPanel.setLayout(new BorderLayout());
+        chatPanel.setBorder(BorderFactory.createEmptyBorder(0, 0, 50, 30));
+
+        // Chat history, word-wrapped; it follows new lines while scrolled to the bottom
+        ChatView chatDisplay = new ChatView(chatLog);
+        chatDisplay.setOpaque(false);  // Make background transparent
+        chatDisplay.setForeground(Color.WHITE);  // Set the text color to white for better readability
+        chatDisplay.setFont(Fonts.TEXT);  // Set font for chat messages
+        showChat();  // Default text in the chat area
+
+        // Add the chat display to a scroll pane to allow scrolling through messages
+        JScrollPane chatScrollPane = new JScrollPane(chatDisplay);
+        chatScrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_ALWAYS);  // Always show vertical scroll bar
+        chatScrollPane.getVerticalScrollBar().setUI(new BrownScrollBarUI());
+        chatScrollPane.setPreferredSize(new Dimension(300, 250));  // Set size of the chat display area
+        chatScrollPane.setOpaque(false);  // Make the scroll pane transparent
+        chatScrollPane.getViewport().setOpaque(false);  // Ensure the viewport of the scroll pane is transparent
+        chatScrollPane.setBorder(BorderFactory.createEmptyBorder());  // Remove border around the scroll pane
+
+        
+     // Create a text field for users to type their messages with default placeholder text
+        JTextField chatInputField = new JTextField() {
+            @Override
+            protected void paintComponent(Graphics g) {
+                long start = System.nanoTime();
+                if (chatBoxImage != null) {
+                    g.drawImage(chatBoxImage, 0, 0, getWidth(), getHeight(), null);  // Chat box image as background
+                }
+                super.paintComponent(g);
+                CHAT_INPUT_PAINTS.record(System.nanoTime() - start);
+            }
+        };
+
+        // Add default placeholder text "Type to chat here...", replaced in place when the language changes
+        messages.bind(text -> {
+            boolean showing = chatPlaceholder == null || chatInputField.getText().equals(chatPlaceholder);
+            chatPlaceholder = " " + text;
+            if (showing) {
+                chatInputField.setText(chatPlaceholder);
+            }
+        }, "chat.placeholder");
+        chatInputField.setForeground(Color.WHITE);  // Set the placeholder text color
+
+        // Add a focus listener to clear the placeholder when the field gains focus and restore it when it loses focus
+        chatInputField.addFocusListener(new FocusListener() {
+            @Override
+            public void focusGained(FocusEvent e) {
+                if (chatInputField.getText().equals(chatPlaceholder)) {
+                    chatInputField.setText("");  // Clear the placeholder
+                    chatInputField.setForeground(Color.WHITE);  // Set the regular text color
+                }
+            }
+
+            @Override
+            public void focusLost(FocusEvent e) {
+                if (chatInputField.getText().isEmpty()) {
+                    chatInputField.setText(chatPlaceholder);  // Restore the placeholder
+                    chatInputField.setForeground(Color.GRAY);  // Set placeholder text color again
+                }
+            }
+        });
+
+        chatInputField.setOpaque(false);  // Make input field transparent
+        chatInputField.setForeground(Color.WHITE);  // Set input text color to black
+        chatInputField.setFont(Fonts.INPUT);  // Set font for input text
+        chatInputField.setBorder(null);  // Remove border around the input field
+
+        // Action listener for sending chat messages
+        chatInputField.addActionListener(e -> {
+            String message = chatInputField.getText();  // Get the message from input
+            if (!message.trim().isEmpty() && client != null) {
+                try {
+                    client.sendChat(message);  // Comes back from the server with the sender's name
+                } catch (IOException ex) {
+                    ex.printStackTrace();
+                }
+                chatInputField.setText("");
+            } else if (!message.trim().isEmpty()) {
+                String line = state.addChat(messages.format("chat.local", message));
+                chatLog.post(line);  // Shown with the next frame
+                chatInputField.setText("");  // Clear the input field after sending
+                if (autosave == null || !autosave.appendChat(line)) {
+                    writeAutosave();
+                }
+            }
+        });
+
+        // Chat icon on the right, set once loaded
+        chatIcon = new JLabel();
+        chatIcon.setPreferredSize(new Dimension(50, 50));
+        
+        // Panel to hold chat box and icon
+        JPanel inputPanel = new JPanel(new BorderLayout());
+        inputPanel.setOpaque(false);  // Make input panel transparent
+        inputPanel.add(chatInputField, BorderLayout.CENTER);  // Chat input box in the center
+        inputPanel.add(chatIcon, BorderLayout.WEST);  // Chat icon on the right
+
+        // Add components to the chat panel
+        chatPanel.add(chatScrollPane, BorderLayout.CENTER);  // Add the chat history (scrollable)
+        chatPanel.add(inputPanel, BorderLayout.SOUTH);  // Add the input panel (text field and icon)
+
+        return chatPanel;
+    }
+    /**
+     * The stars of one player, one per captured component, painted from a single cached
+     * image. It keeps the same size whatever the count, so a capture only repaints it;
+     * past MAX_STARS the remaining count is written out instead.
+     */
+    private static final class StarRow extends JComponent {
+        private static final long serialVersionUID = 1L;
+
+        static final int STAR_SIZE = 30;
+        private static final int MAX_STARS = 6;
+        private static final int COUNT_WIDTH = 50;  // Room for the "+n" after the stars
+
+        private Image star;  // Null until loaded
+        private int count;
+
+        StarRow() {
+            setFont(Fonts.SMALL);
+            setForeground(Color.WHITE);
+            Dimension size = new Dimension(MAX_STARS * STAR_SIZE + COUNT_WIDTH, STAR_SIZE);
+            setPreferredSize(size);
+            setMaximumSize(size);
+        }
+
+        void setStar(Image star) {
+            this.star = star;
+            repaint();
+        }
+
+        void setCount(int count) {
+            if (count != this.count) {
+                this.count = count;
+                repaint();
+            }
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            if (star == null) {
+                return;
+            }
+            int shown = Math.min(count, MAX_STARS);
+            for (int i = 0; i < shown; i++) {
+                g.drawImage(star, i * STAR_SIZE, 0, null);
+            }
+            if (count > shown) {
+                FontMetrics metrics = g.getFontMetrics(getFont());
+                g.setFont(getFont());
+                g.setColor(getForeground());
+                g.drawString("+" + (count - shown), shown * STAR_SIZE + 4, (STAR_SIZE + metrics.getAscent()) / 2 - 1);
+            }
+        }
+    }
+
+    /**
+     * Custom ScrollBarUI for chat display to set a brown color for the scrollbar.
+     */
+    private static class BrownScrollBarUI extends javax.swing.plaf.basic.BasicScrollBarUI {
+        private final Dimension d = new Dimension();
+
+        @Override
+        protected JButton createDecreaseButton(int orientation) {
+            return createZeroButton();
+        }
+
+        @Override
+        protected JButton createIncreaseButton(int orientation) {
+            return createZeroButton();
+        }
+
+        private JButton createZeroButton() {
+            JButton button = new JButton();
+            button.setPreferredSize(d);
+            button.setMinimumSize(d);
+            button.setMaximumSize(d);
+            return button;
+        }
+
+        @Override
+        protected void configureScrollBarColors() {
+            this.thumbColor = new Color(139, 69, 19);  // Brown color for the thumb
+            this.trackColor = new Color(222, 184, 135);  // Light brown for the track
+        }
+    }
+    
+    
+    /**
+     * Main method to run the game application.
+     *
+     * @param args Command-line arguments (not used).
+     */
+    public static void main(String[] args) {
+        StartupTrace trace = new StartupTrace();  // Started first so the trace covers everything
+        // Classpath name of the background image
+        String imagePath = "/bg.jpg";
+        // Create an instance of TheMysticMaze with the background image on the EDT
+        long start = trace.now();
+        SwingUtilities.invokeLater(() -> {
+            trace.record("edt start", start);
+            Instrumentation.shared().start();  // Before the window, so every frame is counted
+            new TheMysticMaze(imagePath, trace);
+        });
+    }
+}
@@ -0,0 +1,118 @@
+package mysticmaze;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoardModelTest {
+
+    @Test
+    void standardBoardMatchesTheOriginalGame() {
+        BoardModel board = BoardModel.standard();
+        assertEquals(BoardModel.STANDARD_SIZE, board.getSize());
+        assertEquals(4, board.getPlayerCount());
+        assertEquals(board.cellIndex(4, 2), board.getPlayerCell(0));
+        assertEquals(board.cellIndex(2, 4), board.getPlayerCell(3));
+        assertEquals(21, board.getTreasureCount());
+        assertEquals(BoardModel.EAST | BoardModel.SOUTH | BoardModel.WEST, board.getSpareOpenings());
+
+        int golds = 0;
+        for (int id = 1; id <= board.getTreasureCount(); id++) {
+            int cell = board.getTreasureCell(id);
+            assertEquals(id, board.getTreasure(cell));
+            if ((board.getComponent(id) & BoardModel.GOLD) != 0) {
+                golds++;
+            }
+        }
+        assertEquals(4, golds);
+
+        for (int row = 0; row < board.getSize(); row++) {
+            for (int col = 0; col < board.getSize(); col++) {
+                assertEquals(row % 2 == 0 && col % 2 == 0, board.isFixed(board.cellIndex(row, col)));
+            }
+        }
+    }
+
+    @Test
+    void rejectsLinesWithFixedTiles() {
+        BoardModel board = BoardModel.standard();
+        long hash = board.hash();
+        for (int edge : new int[] {BoardModel.NORTH, BoardModel.EAST, BoardModel.SOUTH, BoardModel.WEST}) {
+            for (int line = -1; line <= board.getSize(); line++) {
+                assertEquals(line == 1 || line == 3 || line == 5, board.canInsert(edge, line), "edge " + edge + ", line " + line);
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> board.insert(BoardModel.NORTH, 2));
+        assertThrows(IllegalArgumentException.class, () -> board.insert(BoardModel.WEST, 7));
+        assertEquals(hash, board.hash(), "A rejected insertion changes nothing");
+    }
+
+    @Test
+    void insertShiftsTheLineAndCarriesPlayers() {
+        BoardModel board = BoardModel.standard();
+        int size = board.getSize();
+        board.setPlayerCell(0, board.cellIndex(1, 3));
+        board.setPlayerCell(1, board.cellIndex(1, size - 1));  // Pushed off the far edge
+        BoardModel before = new BoardModel(board);
+
+        board.rotateSpare();
+        int spare = board.getSpareOpenings();
+        board.insert(BoardModel.WEST, 1);
+
+        assertEquals(spare, board.getOpenings(board.cellIndex(1, 0)));
+        for (int col = 1; col < size; col++) {
+            assertEquals(before.getPackedCell(before.cellIndex(1, col - 1)), board.getPackedCell(board.cellIndex(1, col)));
+        }
+        assertEquals(before.getOpenings(before.cellIndex(1, size - 1)), board.getSpareOpenings());
+        for (int row = 0; row < size; row++) {
+            if (row != 1) {
+                for (int col = 0; col < size; col++) {
+                    assertEquals(before.getPackedCell(board.cellIndex(row, col)), board.getPackedCell(board.cellIndex(row, col)));
+                }
+            }
+        }
+
+        int treasure = before.getTreasure(before.cellIndex(1, 1));
+        assertEquals(board.cellIndex(1, 2), board.getTreasureCell(treasure));
+        assertEquals(board.cellIndex(1, 4), board.getPlayerCell(0));
+        assertEquals(board.cellIndex(1, 0), board.getPlayerCell(1), "Re-enters on the inserted tile");
+        assertEquals(before.getPlayerCell(2), board.getPlayerCell(2));
+    }
+
+    @Test
+    void treasurePushedOffRidesTheSpareTile() {
+        BoardModel board = BoardModel.standard();
+        int size = board.getSize();
+        int treasure = board.getTreasure(board.cellIndex(1, size - 2));
+        int next = board.getTreasure(board.cellIndex(1, size - 3));
+        board.insert(BoardModel.WEST, 1);
+        board.insert(BoardModel.WEST, 1);
+        assertEquals(BoardModel.SPARE_CELL, board.getTreasureCell(treasure));
+        assertEquals(treasure, board.getSpareTreasure());
+
+        board.insert(BoardModel.WEST, 1);
+        assertEquals(board.cellIndex(1, 0), board.getTreasureCell(treasure));
+        assertEquals(next, board.getSpareTreasure());
+    }
+
+    @Test
+    void oppositeInsertionUndoesAShift() {
+        BoardModel board = BoardModel.standard();
+        board.setPlayerCell(0, board.cellIndex(3, 0));
+        board.setPlayerCell(1, board.cellIndex(0, 3));
+        BoardModel before = new BoardModel(board);
+
+        board.insert(BoardModel.NORTH, 3);
+        assertFalse(board.equals(before));
+        board.insert(BoardModel.SOUTH, 3);
+        assertEquals(before, board);
+        assertEquals(before.hash(), board.hash());
+
+        board.insert(BoardModel.EAST, 3);
+        board.insert(BoardModel.WEST, 3);
+        assertTrue(board.equals(before));
+    }
+}
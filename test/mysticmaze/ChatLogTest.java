@@ -0,0 +1,104 @@
+package mysticmaze;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.swing.SwingUtilities;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Posts bursts while the EDT is busy, so that each burst reaches the log in one frame,
+ * and reads the log back on the EDT.
+ */
+class ChatLogTest {
+
+    private static final int CAPACITY = 4;
+    private static final long WAIT_MILLIS = 5000;
+
+    private final ChatLog log = new ChatLog(CAPACITY);
+    private final AtomicInteger changes = new AtomicInteger();
+
+    /**
+     * Posts lines on the EDT, which keeps the frame that follows from flushing any of
+     * them before the last is posted.
+     */
+    private void postBurst(int from, int to) throws Exception {
+        SwingUtilities.invokeAndWait(() -> {
+            for (int i = from; i < to; i++) {
+                log.post("line " + i);
+            }
+        });
+    }
+
+    /**
+     * Waits for the listeners to have heard of the given number of changes in all.
+     */
+    private void awaitChanges(int expected) throws Exception {
+        long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        while (changes.get() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        Thread.sleep(50);  // Long enough for a further frame to show up too
+        SwingUtilities.invokeAndWait(() -> { });
+        assertEquals(expected, changes.get());
+    }
+
+    /**
+     * Checks that the log shows the given posts, oldest first, and nothing else.
+     */
+    private void assertShows(int from, int to) throws Exception {
+        SwingUtilities.invokeAndWait(() -> {
+            long first = log.getFirst();
+            assertEquals(to - from, log.getEnd() - first);
+            for (int i = from; i < to; i++) {
+                assertEquals("line " + i, log.get(first + i - from));
+            }
+            if (first > 0) {
+                assertThrows(IndexOutOfBoundsException.class, () -> log.get(first - 1));
+            }
+            assertThrows(IndexOutOfBoundsException.class, () -> log.get(log.getEnd()));
+        });
+    }
+
+    @Test
+    void burstLargerThanTheLogKeepsTheNewestLinesInOneFlush() throws Exception {
+        log.addChangeListener(changes::incrementAndGet);
+        postBurst(0, 3 * CAPACITY + 1);
+        awaitChanges(1);
+        assertShows(2 * CAPACITY + 1, 3 * CAPACITY + 1);
+    }
+
+    @Test
+    void ringDropsTheOldestLinesAsItWraps() throws Exception {
+        log.addChangeListener(changes::incrementAndGet);
+        postBurst(0, 3);
+        awaitChanges(1);
+        assertShows(0, 3);
+        postBurst(3, 6);
+        awaitChanges(2);
+        assertShows(6 - CAPACITY, 6);
+        SwingUtilities.invokeAndWait(() -> assertEquals(6 - CAPACITY, log.getFirst()));
+    }
+
+    @Test
+    void clearDropsLinesNotShownYet() throws Exception {
+        log.addChangeListener(changes::incrementAndGet);
+        postBurst(0, 2);
+        awaitChanges(1);
+
+        SwingUtilities.invokeAndWait(() -> {
+            log.post("never shown");
+            log.clear();
+            assertEquals(log.getEnd(), log.getFirst());
+        });
+        awaitChanges(2);  // The clear only; the frame after it finds nothing to add
+        assertShows(2, 2);
+
+        postBurst(2, 3);
+        awaitChanges(3);
+        assertShows(2, 3);
+    }
+}
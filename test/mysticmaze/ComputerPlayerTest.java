@@ -0,0 +1,54 @@
+package mysticmaze;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ComputerPlayerTest {
+
+    /**
+     * A 5x5 board of closed tiles, fixed on even rows and columns, with one player.
+     */
+    private static BoardModel walledBoard() {
+        BoardModel board = new BoardModel(5, 1, 4);
+        for (int row = 0; row < 5; row++) {
+            for (int col = 0; col < 5; col++) {
+                board.setTile(board.cellIndex(row, col), 0, 0, row % 2 == 0 && col % 2 == 0);
+            }
+        }
+        board.setSpareTile(0, 0);
+        return board;
+    }
+
+    @Test
+    void capturesAnyTreasureOfTheTarget() {
+        BoardModel board = walledBoard();
+        int corner = board.cellIndex(0, 0);
+        board.addTreasure(board.cellIndex(4, 4), 3);  // Out of reach behind walls
+        board.addTreasure(corner, 3 | BoardModel.GOLD);
+        board.setPlayerCell(0, corner);
+
+        ComputerPlayer.Move move = new ComputerPlayer(1, 10_000).chooseMove(board, 0, 3);
+        assertEquals(corner, move.destination());
+        assertTrue(move.score() >= 1000f, "Capture scored " + move.score());
+    }
+
+    @Test
+    void answersWithALegalTurnWithoutTime() {
+        BoardModel board = BoardModel.standard();
+        ComputerPlayer.Move move = new ComputerPlayer(3, 0).chooseMove(board, 0, GameState.FIRST_TARGET);
+        assertNotNull(move);
+        assertTrue(board.canInsert(move.edge(), move.line()));
+
+        BoardModel shifted = new BoardModel(board);
+        for (int i = 0; i < move.rotation(); i++) {
+            shifted.rotateSpare();
+        }
+        shifted.insert(move.edge(), move.line());
+        Reachability reachability = new Reachability(shifted);
+        reachability.computeFrom(shifted.getPlayerCell(0));
+        assertTrue(reachability.isReachable(move.destination()));
+    }
+}
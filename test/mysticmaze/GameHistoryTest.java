@@ -0,0 +1,97 @@
+package mysticmaze;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameHistoryTest {
+
+    private static GameSnapshot start() {
+        return GameSnapshot.of(new GameState(BoardModel.standard(), GameState.FIRST_TARGET));
+    }
+
+    @Test
+    void undoesAndRedoesHalfTurns() {
+        GameSnapshot start = start();
+        GameHistory history = new GameHistory(start);
+        assertFalse(history.canUndo());
+        assertFalse(history.canRedo());
+        assertThrows(IllegalStateException.class, history::undo);
+        assertThrows(IllegalStateException.class, history::redo);
+
+        GameSnapshot inserted = start.insert(0, BoardModel.NORTH, 1);
+        history.record(inserted);
+        GameSnapshot moved = inserted.playMove(inserted.getPlayerCell(0));
+        history.record(moved);
+        assertEquals(3, history.size());
+        assertFalse(history.canRedo());
+
+        assertSame(inserted, history.undo());
+        assertSame(start, history.undo());
+        assertFalse(history.canUndo());
+        assertSame(inserted, history.redo());
+        assertSame(moved, history.redo());
+        assertFalse(history.canRedo());
+        assertEquals(3, history.size(), "Undo and redo keep every position");
+    }
+
+    @Test
+    void keepsUndoneTurnsAsVariations() {
+        GameSnapshot start = start();
+        GameHistory history = new GameHistory(start);
+        GameSnapshot first = start.insert(0, BoardModel.NORTH, 1);
+        GameSnapshot second = start.insert(0, BoardModel.WEST, 3);
+        GameSnapshot third = start.insert(2, BoardModel.SOUTH, 5);
+        assertEquals(1, history.getVariationCount());
+        assertSame(start, history.nextVariation(), "The first position has no variations");
+
+        history.record(first);
+        history.undo();
+        history.record(second);
+        assertEquals(2, history.getVariationCount());
+        history.undo();
+        assertSame(second, history.redo(), "Redo follows the variation played last");
+        history.undo();
+        history.record(third);
+        assertEquals(3, history.getVariationCount());
+        assertEquals(4, history.size());
+
+        // Round the variations, redo following the one switched to
+        assertSame(first, history.nextVariation());
+        assertSame(second, history.nextVariation());
+        assertSame(third, history.nextVariation());
+        assertSame(first, history.nextVariation());
+        assertSame(start, history.undo());
+        assertSame(first, history.redo());
+
+        // Turns played further down a variation stay with it
+        GameSnapshot moved = first.playMove(first.getPlayerCell(0));
+        history.record(moved);
+        history.undo();
+        history.nextVariation();
+        assertFalse(history.canRedo());
+        history.nextVariation();
+        history.nextVariation();
+        assertTrue(history.canRedo());
+        assertSame(moved, history.redo());
+    }
+
+    @Test
+    void resetForgetsEverything() {
+        GameSnapshot start = start();
+        GameHistory history = new GameHistory(start);
+        history.record(start.insert(0, BoardModel.NORTH, 1));
+        history.undo();
+
+        GameSnapshot loaded = start.insert(1, BoardModel.EAST, 3);
+        history.reset(loaded);
+        assertSame(loaded, history.current());
+        assertEquals(1, history.size());
+        assertFalse(history.canUndo());
+        assertFalse(history.canRedo());
+    }
+}
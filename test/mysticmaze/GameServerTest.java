@@ -0,0 +1,325 @@
+package mysticmaze;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Plays against a {@link GameServer} over loopback with raw sockets, so that frames the
+ * game client would never send can be tried too.
+ */
+class GameServerTest {
+
+    private static final int TIMEOUT = 5000;  // Milliseconds to wait for any answer
+
+    private GameServer server;
+
+    /**
+     * A frame received from the server.
+     */
+    private record Frame(byte type, byte[] body) {
+    }
+
+    /**
+     * A client speaking the protocol frame by frame.
+     */
+    private final class RawClient implements AutoCloseable {
+        final Socket socket;
+        final DataInputStream in;
+        final DataOutputStream out;
+
+        RawClient() throws IOException {
+            this(0);
+        }
+
+        /**
+         * @param receiveBuffer Size of the socket receive buffer, or 0 for the default.
+         */
+        RawClient(int receiveBuffer) throws IOException {
+            socket = new Socket();
+            if (receiveBuffer > 0) {
+                socket.setReceiveBufferSize(receiveBuffer);  // Before connecting, so that the window stays small
+            }
+            socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort()), TIMEOUT);
+            socket.setSoTimeout(TIMEOUT);
+            in = new DataInputStream(socket.getInputStream());
+            out = new DataOutputStream(socket.getOutputStream());
+        }
+
+        /**
+         * Sends raw bytes, e.g. several frames at once.
+         */
+        void sendRaw(byte[] bytes) throws IOException {
+            out.write(bytes);
+            out.flush();
+        }
+
+        void send(byte type, byte... body) throws IOException {
+            sendRaw(frame(type, body));
+        }
+
+        /**
+         * Joins a table and reads the welcome.
+         *
+         * @return The seat given, or -1 when watching.
+         */
+        int join(int table) throws IOException {
+            send(Protocol.JOIN, (byte) (table >>> 24), (byte) (table >>> 16), (byte) (table >>> 8), (byte) table);
+            return expect(Protocol.WELCOME).body()[4];
+        }
+
+        Frame read() throws IOException {
+            int length = in.readUnsignedShort();
+            byte type = in.readByte();
+            byte[] body = new byte[length - 1];
+            in.readFully(body);
+            return new Frame(type, body);
+        }
+
+        /**
+         * Reads frames until one of a type arrives, skipping the game and chat sent meanwhile.
+         */
+        Frame expect(byte type) throws IOException {
+            while (true) {
+                Frame frame = read();
+                if (frame.type() == type) {
+                    return frame;
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = new GameServer(0);
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() throws IOException {
+        server.close();
+    }
+
+    private static byte[] frame(byte type, byte... body) {
+        byte[] frame = new byte[Protocol.HEADER + body.length];
+        int length = 1 + body.length;
+        frame[0] = (byte) (length >>> 8);
+        frame[1] = (byte) length;
+        frame[2] = type;
+        System.arraycopy(body, 0, frame, Protocol.HEADER, body.length);
+        return frame;
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        int length = 0;
+        for (byte[] part : parts) {
+            length += part.length;
+        }
+        byte[] all = new byte[length];
+        int offset = 0;
+        for (byte[] part : parts) {
+            System.arraycopy(part, 0, all, offset, part.length);
+            offset += part.length;
+        }
+        return all;
+    }
+
+    /**
+     * @return The sender and text of a CHAT frame, as "seat: text".
+     */
+    private static String chatLine(Frame frame) {
+        byte[] body = frame.body();
+        return body[0] + ": " + new String(body, 3, body.length - 3, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] chat(String text) {
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        byte[] body = new byte[2 + utf8.length];
+        body[0] = (byte) (utf8.length >>> 8);
+        body[1] = (byte) utf8.length;
+        System.arraycopy(utf8, 0, body, 2, utf8.length);
+        return body;
+    }
+
+    /**
+     * Applies a frame of the table to a spectator's copy of the game, checking that
+     * every delta lands on the board the server had.
+     *
+     * @return True if the frame was the whole game.
+     */
+    private static boolean mirror(Frame frame, GameEngine mirror) {
+        ByteBuffer body = ByteBuffer.wrap(frame.body());
+        switch (frame.type()) {
+            case Protocol.GAME -> {
+                mirror.getState().readFrom(body);
+                mirror.stateReplaced();
+                return true;
+            }
+            case Protocol.INSERTED -> {
+                mirror.applyInsert(body.get(), body.get(), body.get());
+                assertEquals(body.getLong(), mirror.getBoard().hash(), "No half turn is missed between keyframes");
+            }
+            case Protocol.MOVED -> {
+                mirror.applyMove(body.getInt(), body.getInt(), body.getInt());
+                assertEquals(body.getLong(), mirror.getBoard().hash(), "No half turn is missed between keyframes");
+            }
+            default -> {
+                // Chat leaves the game alone
+            }
+        }
+        return false;
+    }
+
+    @Test
+    void seatsPlayersThenSpectators() throws IOException {
+        try (RawClient first = new RawClient()) {
+            assertEquals(0, first.join(1));
+            try (RawClient second = new RawClient(); RawClient third = new RawClient(); RawClient fourth = new RawClient();
+                    RawClient watcher = new RawClient(); RawClient other = new RawClient()) {
+                assertEquals(1, second.join(1));
+                assertEquals(2, third.join(1));
+                assertEquals(3, fourth.join(1));
+                assertEquals(-1, watcher.join(1));
+                assertEquals(0, other.join(2), "Another table has seats of its own");
+            }
+            try (RawClient late = new RawClient()) {
+                assertEquals(1, late.join(1), "A seat left is free again");
+            }
+        }
+    }
+
+    @Test
+    void broadcastsAnInsertionToEveryoneAtTheTable() throws IOException {
+        GameEngine engine = new GameEngine(new GameState(BoardModel.standard(), GameState.FIRST_TARGET));
+        int line = 0;
+        while (!engine.canInsert(BoardModel.WEST, line)) {
+            line++;
+        }
+        try (RawClient player = new RawClient(); RawClient other = new RawClient()) {
+            player.join(1);
+            other.join(1);
+            player.send(Protocol.INSERT, (byte) 0, (byte) BoardModel.WEST, (byte) line);
+            engine.insert(0, BoardModel.WEST, line);
+            for (RawClient client : new RawClient[] {player, other}) {
+                byte[] body = client.expect(Protocol.INSERTED).body();
+                assertEquals(line, body[2]);
+                assertEquals(engine.getBoard().hash(), ByteBuffer.wrap(body, 3, 8).getLong());
+            }
+        }
+    }
+
+    @Test
+    void rejectsAFrameWithoutType() throws IOException {
+        try (RawClient bad = new RawClient(); RawClient good = new RawClient()) {
+            bad.join(1);
+            bad.sendRaw(new byte[] {0, 0});
+            assertArrayEquals(new byte[] {Protocol.BAD_MESSAGE}, bad.expect(Protocol.REJECTED).body());
+
+            // The server still serves both clients and new ones
+            bad.send(Protocol.SAY, chat("still here"));
+            assertEquals("0: still here", chatLine(bad.expect(Protocol.CHAT)));
+            assertEquals(1, good.join(1));
+            try (RawClient late = new RawClient()) {
+                assertEquals(2, late.join(1));
+            }
+        }
+    }
+
+    @Test
+    void neverReadsPastTheEndOfAFrame() throws IOException {
+        try (RawClient client = new RawClient()) {
+            client.join(1);
+            // A move whose cell is cut short, then a chat line in the same write
+            client.sendRaw(concat(frame(Protocol.MOVE, (byte) 0, (byte) 1), frame(Protocol.SAY, chat("hello"))));
+            assertArrayEquals(new byte[] {Protocol.BAD_MESSAGE}, client.expect(Protocol.REJECTED).body());
+            assertEquals("0: hello", chatLine(client.expect(Protocol.CHAT)));
+        }
+    }
+
+    @Test
+    void ignoresMalformedRequestsBeforeJoining() throws IOException {
+        try (RawClient client = new RawClient()) {
+            // Nothing is sent back before joining, but none of these may stop the server
+            client.sendRaw(concat(new byte[] {0, 0}, frame(Protocol.JOIN, (byte) 0),
+                    frame(Protocol.MOVE, (byte) 0, (byte) 0, (byte) 0, (byte) 0)));
+            assertEquals(0, client.join(1));
+        }
+    }
+
+    @Test
+    void dropsASpectatorThatStopsReadingToTheLatestKeyframe() throws IOException {
+        GameEngine engine = new GameEngine(new GameState(BoardModel.standard(), GameState.FIRST_TARGET));
+        GameEngine mirror = new GameEngine(new GameState(BoardModel.standard(), GameState.FIRST_TARGET));
+        int[] edges = {BoardModel.NORTH, BoardModel.EAST, BoardModel.SOUTH, BoardModel.WEST};
+        String text = "x".repeat(GameState.MAX_CHAT_LENGTH - 6);
+        try (RawClient a = new RawClient(); RawClient b = new RawClient(); RawClient c = new RawClient();
+                RawClient d = new RawClient(); RawClient spectator = new RawClient(4096)) {
+            RawClient[] players = {a, b, c, d};
+            for (RawClient player : players) {
+                player.join(1);
+            }
+            assertEquals(-1, spectator.join(1));
+            assertTrue(mirror(spectator.expect(Protocol.GAME), mirror));
+
+            // The spectator reads nothing more while hundreds of kilobytes go by
+            long broadcast = 0;
+            for (int turn = 0; turn < 300 && !engine.isGameOver(); turn++) {
+                RawClient player = players[turn % players.length];
+                int edge = edges[turn % edges.length];
+                int line = 1 + 2 * (turn / edges.length % 3);
+                player.send(Protocol.INSERT, (byte) (turn & 3), (byte) edge, (byte) line);
+                engine.insert(turn & 3, edge, line);
+                int cell = engine.getBoard().getPlayerCell(engine.getState().getCurrentPlayer());
+                player.send(Protocol.MOVE, ByteBuffer.allocate(4).putInt(cell).array());
+                engine.move(cell);
+                for (int i = 0; i < 3; i++) {
+                    player.send(Protocol.SAY, chat(turn + ": " + text));
+                }
+                for (RawClient other : players) {
+                    broadcast += Protocol.HEADER + other.expect(Protocol.INSERTED).body().length - 1;
+                    broadcast += Protocol.HEADER + other.expect(Protocol.MOVED).body().length - 1;
+                    for (int i = 0; i < 3; i++) {
+                        broadcast += Protocol.HEADER + other.expect(Protocol.CHAT).body().length - 1;
+                    }
+                }
+            }
+            broadcast /= players.length;
+            a.send(Protocol.SAY, chat("done"));
+
+            // Catching up skips to the latest keyframe and follows on from it
+            long received = 0;
+            int keyframes = 0;
+            while (true) {
+                Frame frame = spectator.read();
+                received += Protocol.HEADER + frame.body().length - 1;
+                keyframes += mirror(frame, mirror) ? 1 : 0;
+                if (frame.type() == Protocol.CHAT && chatLine(frame).equals("0: done")) {
+                    break;
+                }
+            }
+            assertTrue(server.getSpectatorSkips() > 0, "Never skipped");
+            assertTrue(keyframes > 0, "No keyframe after the skip");
+            assertTrue(received < broadcast / 2, received + " of " + broadcast + " bytes were kept for the spectator");
+            assertEquals(engine.getBoard().hash(), mirror.getBoard().hash());
+            assertEquals(GameSnapshot.of(engine.getState()), GameSnapshot.of(mirror.getState()));
+        }
+    }
+}
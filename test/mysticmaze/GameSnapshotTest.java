@@ -0,0 +1,111 @@
+package mysticmaze;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Plays random games through {@link GameEngine} and {@link GameSnapshot} side by side,
+ * on boards whose lines end partway through a block of cells.
+ */
+class GameSnapshotTest {
+
+    private static final int[] EDGES = {BoardModel.NORTH, BoardModel.EAST, BoardModel.SOUTH, BoardModel.WEST};
+
+    private static void assertSameGame(GameState state, GameSnapshot snapshot, String turn) {
+        BoardModel board = state.getBoard();
+        int size = board.getSize();
+        assertEquals(size, snapshot.getSize());
+        for (int cell = 0; cell < size * size; cell++) {
+            assertEquals(board.getPackedCell(cell), snapshot.getPackedCell(cell), turn + ", cell " + cell);
+        }
+        assertEquals(board.getSpareOpenings(), snapshot.getSpareOpenings(), turn + ", spare");
+        for (int player = 0; player < board.getPlayerCount(); player++) {
+            assertEquals(board.getPlayerCell(player), snapshot.getPlayerCell(player), turn + ", player " + player);
+            assertEquals(state.getCaptures(player), snapshot.getCaptures(player), turn + ", captures of " + player);
+        }
+        assertEquals(state.getCurrentPlayer(), snapshot.getCurrentPlayer(), turn);
+        assertEquals(state.isMovePhase(), snapshot.isMovePhase(), turn);
+        assertEquals(state.getTargetComponent(), snapshot.getTargetComponent(), turn);
+
+        GameSnapshot copy = GameSnapshot.of(state);
+        assertEquals(copy, snapshot, turn);
+        assertEquals(copy.hash(), snapshot.hash(), turn);
+    }
+
+    @Test
+    void playsTheSameGamesAsTheEngine() {
+        for (int size : new int[] {7, 9, 11, 13}) {
+            SplittableRandom random = new SplittableRandom(size);
+            GameState state = new GameState(size == BoardModel.STANDARD_SIZE ? BoardModel.standard() : BoardModel.sized(size),
+                    GameState.FIRST_TARGET);
+            GameEngine engine = new GameEngine(state);
+            GameSnapshot snapshot = GameSnapshot.of(state);
+            int captures = 0;
+            for (int turn = 0; turn < 300 && !engine.isGameOver(); turn++) {
+                int edge;
+                int line;
+                do {
+                    edge = EDGES[random.nextInt(4)];
+                    line = random.nextInt(state.getBoard().getSize());
+                } while (!engine.canInsert(edge, line));
+                int rotation = random.nextInt(4);
+                engine.insert(rotation, edge, line);
+                snapshot = snapshot.insert(rotation, edge, line);
+                assertSameGame(state, snapshot, "size " + size + ", insert " + turn);
+
+                // Capture whenever possible so that the game runs through several targets
+                int cells = state.getBoard().getSize() * state.getBoard().getSize();
+                int cell = -1;
+                for (int candidate = 0; candidate < cells; candidate++) {
+                    if (engine.canMove(candidate) && state.capturableTreasure(candidate) != 0) {
+                        cell = candidate;
+                    }
+                }
+                while (cell < 0 || !engine.canMove(cell)) {
+                    cell = random.nextInt(cells);
+                }
+                captures += engine.move(cell) != 0 ? 1 : 0;
+                snapshot = snapshot.playMove(cell);
+                assertSameGame(state, snapshot, "size " + size + ", move " + turn);
+            }
+            assertTrue(captures > 0, "No capture on size " + size);
+        }
+    }
+
+    @Test
+    void turnsLeaveEarlierSnapshotsAlone() {
+        GameState state = new GameState(BoardModel.standard(), GameState.FIRST_TARGET);
+        GameSnapshot start = GameSnapshot.of(state);
+        long hash = start.hash();
+
+        GameSnapshot inserted = start.insert(1, BoardModel.WEST, 1);
+        GameSnapshot moved = inserted.playMove(inserted.getPlayerCell(0));
+        assertNotEquals(start, inserted);
+        assertEquals(hash, start.hash());
+        assertEquals(start, GameSnapshot.of(state));
+        assertTrue(inserted.isMovePhase());
+        assertEquals(1, moved.getCurrentPlayer());
+
+        // Copying back reproduces the game the engine would have played
+        new GameEngine(state).insert(1, BoardModel.WEST, 1);
+        GameState copy = new GameState(BoardModel.standard(), GameState.FIRST_TARGET);
+        inserted.copyTo(copy);
+        assertEquals(state.getBoard().hash(), copy.getBoard().hash());
+        assertEquals(inserted, GameSnapshot.of(copy));
+    }
+
+    @Test
+    void rejectsLinesWithFixedTiles() {
+        GameSnapshot snapshot = GameSnapshot.of(new GameState(BoardModel.standard(), GameState.FIRST_TARGET));
+        assertThrows(IllegalArgumentException.class, () -> snapshot.insert(0, BoardModel.NORTH, 2));
+        assertThrows(IllegalArgumentException.class, () -> snapshot.insert(0, BoardModel.WEST, 7));
+        assertThrows(IllegalArgumentException.class,
+                () -> snapshot.copyTo(new GameState(BoardModel.sized(9), GameState.FIRST_TARGET)));
+    }
+}
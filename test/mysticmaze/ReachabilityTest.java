@@ -0,0 +1,156 @@
+package mysticmaze;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the bitset flood fill against a plain breadth-first search, on boards small
+ * enough for one word and on boards spanning several.
+ */
+class ReachabilityTest {
+
+    private static final int[] EDGES = {BoardModel.NORTH, BoardModel.EAST, BoardModel.SOUTH, BoardModel.WEST};
+
+    /**
+     * Distances from a cell by breadth-first search over the openings, -1 where it cannot
+     * be reached.
+     */
+    private static int[] distances(BoardModel board, int from) {
+        int size = board.getSize();
+        int[] distance = new int[size * size];
+        Arrays.fill(distance, -1);
+        int[] queue = new int[size * size];
+        int head = 0;
+        int tail = 0;
+        distance[from] = 0;
+        queue[tail++] = from;
+        while (head < tail) {
+            int cell = queue[head++];
+            for (int direction : EDGES) {
+                int neighbour = neighbour(board, cell, direction);
+                if (neighbour >= 0 && distance[neighbour] < 0 && connected(board, cell, neighbour, direction)) {
+                    distance[neighbour] = distance[cell] + 1;
+                    queue[tail++] = neighbour;
+                }
+            }
+        }
+        return distance;
+    }
+
+    private static int neighbour(BoardModel board, int cell, int direction) {
+        int size = board.getSize();
+        int row = cell / size;
+        int col = cell % size;
+        return switch (direction) {
+            case BoardModel.NORTH -> row > 0 ? cell - size : -1;
+            case BoardModel.SOUTH -> row < size - 1 ? cell + size : -1;
+            case BoardModel.WEST -> col > 0 ? cell - 1 : -1;
+            default -> col < size - 1 ? cell + 1 : -1;
+        };
+    }
+
+    private static boolean connected(BoardModel board, int cell, int neighbour, int direction) {
+        return board.isOpen(cell, direction) && board.isOpen(neighbour, BoardModel.rotate(direction, 2));
+    }
+
+    private static void assertMatchesSearch(BoardModel board, Reachability reachability, int from) {
+        int[] distance = distances(board, from);
+        int expected = 0;
+        for (int d : distance) {
+            expected += d >= 0 ? 1 : 0;
+        }
+        assertEquals(expected, reachability.computeFrom(from), "cells reached from " + from);
+        for (int cell = 0; cell < distance.length; cell++) {
+            assertEquals(distance[cell] >= 0, reachability.isReachable(cell), "cell " + cell + " from " + from);
+        }
+    }
+
+    @Test
+    void floodFillMatchesSearchOnOneWord() {
+        BoardModel board = BoardModel.standard();
+        Reachability reachability = new Reachability(board);
+        for (int cell = 0; cell < 49; cell++) {
+            assertMatchesSearch(board, reachability, cell);
+        }
+    }
+
+    @Test
+    void floodFillCrossesWordBoundaries() {
+        BoardModel board = new BoardModel(11, 1, 0);
+        int all = BoardModel.NORTH | BoardModel.EAST | BoardModel.SOUTH | BoardModel.WEST;
+        for (int cell = 0; cell < 121; cell++) {
+            board.setTile(cell, all, 0, false);
+        }
+        Reachability reachability = new Reachability(board);
+        assertEquals(121, reachability.computeFrom(0));
+        assertEquals(121, reachability.computeFrom(120));
+
+        // A wall across row 6 splits the board between the second word and the third
+        for (int col = 0; col < 11; col++) {
+            board.setTile(board.cellIndex(6, col), BoardModel.EAST | BoardModel.WEST, 0, false);
+        }
+        reachability.rebuild();
+        assertEquals(66, reachability.computeFrom(0));
+        assertTrue(reachability.isReachable(63) && reachability.isReachable(65));
+        assertMatchesSearch(board, reachability, 0);
+        assertMatchesSearch(board, reachability, 120);
+        assertMatchesSearch(board, reachability, board.cellIndex(6, 5));
+    }
+
+    @Test
+    void lineShiftedMatchesAFullRebuild() {
+        for (int size : new int[] {9, 11, 15}) {
+            BoardModel board = BoardModel.sized(size);
+            Reachability incremental = new Reachability(board);
+            SplittableRandom random = new SplittableRandom(size);
+            for (int i = 0; i < 200; i++) {
+                int edge = EDGES[random.nextInt(4)];
+                int line = random.nextInt(size);
+                if (!board.canInsert(edge, line)) {
+                    continue;
+                }
+                for (int r = random.nextInt(4); r > 0; r--) {
+                    board.rotateSpare();
+                }
+                board.insert(edge, line);
+                incremental.lineShifted(edge, line);
+
+                Reachability rebuilt = new Reachability(board);
+                int from = random.nextInt(size * size);
+                assertEquals(rebuilt.computeFrom(from), incremental.computeFrom(from));
+                for (int cell = 0; cell < size * size; cell++) {
+                    assertEquals(rebuilt.isReachable(cell), incremental.isReachable(cell), "size " + size + ", cell " + cell);
+                }
+                assertMatchesSearch(board, incremental, from);
+            }
+        }
+    }
+
+    @Test
+    void shortestPathWalksConnectedCells() {
+        BoardModel board = BoardModel.sized(9);
+        Reachability reachability = new Reachability(board);
+        int[] path = new int[81];
+        for (int from = 0; from < 81; from += 7) {
+            int[] distance = distances(board, from);
+            for (int to = 0; to < 81; to++) {
+                int length = reachability.shortestPath(from, to, path);
+                if (distance[to] < 0) {
+                    assertEquals(0, length, from + " to " + to);
+                    continue;
+                }
+                assertEquals(distance[to] + 1, length, from + " to " + to);
+                assertEquals(from, path[0]);
+                assertEquals(to, path[length - 1]);
+                for (int i = 1; i < length; i++) {
+                    assertEquals(1, distances(board, path[i - 1])[path[i]], "step " + i + " of " + from + " to " + to);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package mysticmaze;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Records a random game of several keyframe intervals and checks every half turn of the
+ * replay against the game the engine played, with the index and without it.
+ */
+class ReplayTest {
+
+    private static final int[] EDGES = {BoardModel.NORTH, BoardModel.EAST, BoardModel.SOUTH, BoardModel.WEST};
+    private static final int HALF_TURNS = 5 * Replay.KEYFRAME_INTERVAL + 7;
+
+    @TempDir
+    Path dir;
+
+    private Path path;
+    private final List<GameSnapshot> positions = new ArrayList<>();  // Game after each number of half turns
+    private final List<Replay.Step> steps = new ArrayList<>();
+    private final List<Long> sizes = new ArrayList<>();              // File size after each number of half turns
+
+    private static GameState newGame() {
+        return new GameState(BoardModel.standard(), GameState.FIRST_TARGET);
+    }
+
+    @BeforeEach
+    void recordGame() throws IOException {
+        path = dir.resolve("game.replay");
+        GameState state = newGame();
+        GameEngine engine = new GameEngine(state);
+        SplittableRandom random = new SplittableRandom(42);
+        try (ReplayRecorder recorder = ReplayRecorder.create(path, state)) {
+            positions.add(GameSnapshot.of(state));
+            sizes.add(Files.size(path));
+            while (steps.size() < HALF_TURNS && !engine.isGameOver()) {
+                int edge;
+                int line;
+                do {
+                    edge = EDGES[random.nextInt(4)];
+                    line = random.nextInt(BoardModel.STANDARD_SIZE);
+                } while (!engine.canInsert(edge, line));
+                int rotation = random.nextInt(4);
+                engine.insert(rotation, edge, line);
+                recorder.recordInsert(rotation, edge, line);
+                steps.add(new Replay.Insert(rotation, edge, line));
+                positions.add(GameSnapshot.of(state));
+                sizes.add(Files.size(path));
+
+                int cell;
+                do {
+                    cell = random.nextInt(BoardModel.STANDARD_SIZE * BoardModel.STANDARD_SIZE);
+                } while (!engine.canMove(cell));
+                int treasure = engine.move(cell);
+                recorder.recordMove(cell, treasure, state.getTargetComponent());
+                steps.add(new Replay.Move(cell, treasure, state.getTargetComponent()));
+                positions.add(GameSnapshot.of(state));
+                sizes.add(Files.size(path));
+            }
+            assertEquals(steps.size(), recorder.getStepCount());
+        }
+        assertTrue(steps.size() > 2 * Replay.KEYFRAME_INTERVAL, "Game over after " + steps.size() + " half turns");
+    }
+
+    /**
+     * Seeks every half turn in order, then backwards, and reads every step.
+     */
+    private void assertReplays(Replay replay, int count) {
+        assertEquals(count, replay.getStepCount());
+        GameState state = newGame();
+        for (int step = 0; step <= count; step++) {
+            replay.seek(step, state);
+            assertEquals(positions.get(step), GameSnapshot.of(state), "seek " + step);
+        }
+        for (int step = count; step >= 0; step--) {
+            replay.seek(step, state);
+            assertEquals(positions.get(step), GameSnapshot.of(state), "seek back " + step);
+        }
+        for (int step = 0; step < count; step++) {
+            assertEquals(steps.get(step), replay.getStep(step), "step " + step);
+        }
+        assertThrows(IllegalArgumentException.class, () -> replay.seek(count + 1, newGame()));
+        assertThrows(IllegalArgumentException.class, () -> replay.getStep(count));
+    }
+
+    private Path truncated(long size) throws IOException {
+        Path copy = dir.resolve("cut" + size + ".replay");
+        Files.copy(path, copy);
+        try (FileChannel channel = FileChannel.open(copy, StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+        }
+        return copy;
+    }
+
+    @Test
+    void seeksEveryHalfTurnThroughTheIndex() throws IOException {
+        assertReplays(Replay.open(path), steps.size());
+    }
+
+    @Test
+    void rebuildsTheIndexOfARecordingCutShort() throws IOException {
+        // Cut inside the trailer, inside a move and inside an insertion
+        int last = steps.size();
+        assertReplays(Replay.open(truncated(Files.size(path) - 1)), last);
+        assertReplays(Replay.open(truncated(sizes.get(last - 1) + 5)), last - 1);
+        assertReplays(Replay.open(truncated(sizes.get(2 * Replay.KEYFRAME_INTERVAL + 2) + 2)), 2 * Replay.KEYFRAME_INTERVAL + 2);
+    }
+
+    @Test
+    void replaysAHalfTurnWhoseKeyframeWasCutShort() throws IOException {
+        int step = 2 * Replay.KEYFRAME_INTERVAL;
+        long keyframe = sizes.get(step);  // The half turn, then the keyframe after it
+        assertReplays(Replay.open(truncated(keyframe - 10)), step);
+    }
+
+    @Test
+    void refusesAFileThatIsNotAReplay() throws IOException {
+        Path header = truncated(Replay.HEADER_SIZE - 1);
+        assertThrows(IOException.class, () -> Replay.open(header));
+        Path bare = truncated(Replay.HEADER_SIZE);
+        assertThrows(IOException.class, () -> Replay.open(bare), "No keyframe");
+    }
+}
@@ -0,0 +1,122 @@
+package mysticmaze;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SaveGameTest {
+
+    @TempDir
+    Path dir;
+
+    private static GameState newGame() {
+        return new GameState(BoardModel.standard(), GameState.FIRST_TARGET);
+    }
+
+    private static Path journalOf(Path path) {
+        return path.resolveSibling(path.getFileName() + SaveGame.JOURNAL_SUFFIX);
+    }
+
+    @Test
+    void loadsTheSnapshotAndReplaysTheJournal() throws IOException {
+        Path path = dir.resolve("game.sav");
+        GameState state = newGame();
+        GameEngine engine = new GameEngine(state);
+        int line = 0;
+        while (!engine.canInsert(BoardModel.NORTH, line)) {
+            line++;
+        }
+        try (SaveGame save = SaveGame.open(path)) {
+            state.addChat("Before the snapshot");
+            save.writeSnapshot(state);
+            engine.insert(1, BoardModel.NORTH, line);
+            assertTrue(save.appendInsert(1, BoardModel.NORTH, line));
+            assertTrue(save.appendChat(state.addChat("After the snapshot")));
+        }
+
+        GameState loaded = newGame();
+        assertTrue(SaveGame.load(path, loaded));
+        assertEquals(state.getBoard().hash(), loaded.getBoard().hash());
+        assertTrue(loaded.isMovePhase());
+        assertEquals(List.copyOf(state.getChat()), List.copyOf(loaded.getChat()));
+    }
+
+    @Test
+    void leavesAForeignFileAlone() throws IOException {
+        Path path = dir.resolve("notes.txt");
+        byte[] text = "Not a saved game\n".getBytes(StandardCharsets.UTF_8);
+        Files.write(path, text);
+
+        IOException e = assertThrows(IOException.class, () -> SaveGame.load(path, newGame()));
+        assertTrue(e.getMessage().contains("notes.txt"), e.getMessage());
+        assertArrayEquals(text, Files.readAllBytes(path));
+        assertFalse(Files.exists(journalOf(path)));
+    }
+
+    @Test
+    void findsNothingWithoutCreatingFiles() throws IOException {
+        Path path = dir.resolve("missing.sav");
+        assertFalse(SaveGame.load(path, newGame()));
+        assertFalse(Files.exists(path));
+        assertFalse(Files.exists(journalOf(path)));
+    }
+
+    @Test
+    void neverWritesWhileLoading() throws IOException {
+        Path path = dir.resolve("game.sav");
+        try (SaveGame save = SaveGame.open(path)) {
+            save.writeSnapshot(newGame());
+        }
+        Files.delete(journalOf(path));
+        byte[] before = Files.readAllBytes(path);
+
+        assertTrue(SaveGame.load(path, newGame()));
+        assertArrayEquals(before, Files.readAllBytes(path));
+        assertFalse(Files.exists(journalOf(path)));
+    }
+
+    @Test
+    void savesOverALargerFile() throws IOException {
+        Path path = dir.resolve("big.sav");
+        GameState stale = newGame();
+        try (SaveGame save = SaveGame.open(path)) {
+            save.writeSnapshot(stale);
+            assertTrue(save.appendChat(stale.addChat("Left in the old journal")));
+        }
+        Files.write(path, new byte[1024 * 1024]);
+
+        GameState state = newGame();
+        state.addChat("Saved over it");
+        SaveGame.save(path, state);
+        GameState loaded = newGame();
+        assertTrue(SaveGame.load(path, loaded));
+        assertEquals(List.copyOf(state.getChat()), List.copyOf(loaded.getChat()), "The old journal is not replayed");
+        assertEquals(state.getBoard().hash(), loaded.getBoard().hash());
+        try (var files = Files.list(dir)) {
+            assertEquals(2, files.count(), "No temporary file is left behind");
+        }
+    }
+
+    @Test
+    void refusesToOpenAForeignFileForWriting() throws IOException {
+        Path path = dir.resolve("notes.txt");
+        byte[] text = "Not a saved game\n".getBytes(StandardCharsets.UTF_8);
+        Files.write(path, text);
+
+        IOException e = assertThrows(IOException.class, () -> SaveGame.open(path).close());
+        assertTrue(e.getMessage().contains("notes.txt"), e.getMessage());
+        assertArrayEquals(text, Files.readAllBytes(path));
+        assertFalse(Files.exists(journalOf(path)));
+    }
+}
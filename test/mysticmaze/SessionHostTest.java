@@ -0,0 +1,129 @@
+package mysticmaze;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs a {@link SessionHost} on a single thread that the tests hold up, so that commands
+ * pile up in an inbox until they let it go.
+ */
+class SessionHostTest {
+
+    private static final int INBOX = 4;
+    private static final long WAIT = 5;  // Seconds to wait for any result
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private SessionHost host;
+
+    @AfterEach
+    void stopHost() {
+        release.countDown();
+        host.close();
+    }
+
+    /**
+     * Keeps the host's thread busy until {@link #release} counts down.
+     */
+    private void holdUp() {
+        executor.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    /**
+     * @return What a command failed with, or null if it succeeded.
+     */
+    private static Throwable failure(CompletableFuture<Long> result) throws Exception {
+        return result.handle((hash, e) -> e).get(WAIT, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void playsQueuedCommandsInOrderAndTurnsDownTheRest() throws Exception {
+        host = new SessionHost(INBOX, 60_000, executor);
+        holdUp();
+        SessionHost.Session session = host.open(SessionHost.STANDARD);
+        GameEngine engine = new GameEngine(new GameState(BoardModel.standard(), GameState.FIRST_TARGET));
+
+        // Two whole turns fill the inbox; each only makes sense after the one before
+        List<CompletableFuture<Long>> results = List.of(
+                session.insert(0, 1, BoardModel.WEST, 1),
+                session.move(0, engine.getBoard().getPlayerCell(0)),
+                session.insert(1, 0, BoardModel.NORTH, 3),
+                session.move(1, engine.getBoard().getPlayerCell(1)));
+        CompletableFuture<Long> overflow = session.insert(2, 0, BoardModel.EAST, 5);
+        assertInstanceOf(RejectedExecutionException.class, failure(overflow));
+        release.countDown();
+
+        engine.insert(1, BoardModel.WEST, 1);
+        assertEquals(engine.getBoard().hash(), results.get(0).get(WAIT, TimeUnit.SECONDS));
+        engine.move(engine.getBoard().getPlayerCell(0));
+        assertEquals(engine.getBoard().hash(), results.get(1).get(WAIT, TimeUnit.SECONDS));
+        engine.insert(0, BoardModel.NORTH, 3);
+        assertEquals(engine.getBoard().hash(), results.get(2).get(WAIT, TimeUnit.SECONDS));
+        engine.move(engine.getBoard().getPlayerCell(1));
+        assertEquals(engine.getBoard().hash(), results.get(3).get(WAIT, TimeUnit.SECONDS));
+
+        // Out of turn, and room in the inbox again
+        assertInstanceOf(IllegalArgumentException.class, failure(session.insert(0, 0, BoardModel.EAST, 5)));
+
+        SessionHost.Metrics metrics = host.metrics();
+        assertEquals(1, metrics.activeSessions());
+        assertEquals(4, metrics.moves(), "Commands turned down are not counted");
+        assertEquals(1, metrics.rejected());
+        assertEquals(0, metrics.evicted());
+        assertTrue(metrics.p50Nanos() > 0 && metrics.p50Nanos() <= metrics.p99Nanos(), metrics.toString());
+        assertEquals(0, host.metrics().moves(), "Each call starts a new interval");
+    }
+
+    @Test
+    void closingFailsQueuedCommands() throws Exception {
+        host = new SessionHost(INBOX, 60_000, executor);
+        holdUp();
+        SessionHost.Session session = host.open(SessionHost.STANDARD);
+        CompletableFuture<Long> queued = session.insert(0, 0, BoardModel.WEST, 1);
+        session.close();
+        assertInstanceOf(CancellationException.class, failure(queued));
+        assertInstanceOf(CancellationException.class, failure(session.insert(0, 0, BoardModel.WEST, 1)));
+        assertNull(host.get(session.getId()));
+    }
+
+    @Test
+    void evictsIdleSessions() throws Exception {
+        host = new SessionHost(INBOX, 50, executor);
+        release.countDown();
+        SessionHost.Session idle = host.open(SessionHost.STANDARD);
+        assertSame(idle, host.get(idle.getId()));
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(WAIT);
+        while (host.get(idle.getId()) != null && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertNull(host.get(idle.getId()), "Still open after " + WAIT + " s");
+        assertInstanceOf(CancellationException.class, failure(idle.move(0, 0)));
+
+        SessionHost.Metrics metrics = host.metrics();
+        assertEquals(0, metrics.activeSessions());
+        assertEquals(1, metrics.evicted());
+        assertEquals(0, metrics.moves());
+    }
+}